@@ -0,0 +1,45 @@
+#!/bin/bash -f
+
+usage() {
+  echo "Usage: "
+  echo "$0 [-s] [-o <results file>] [<benchmark name regex>] [<additional JMH options>]"
+  echo "Builds the benchmarks profile and runs the JMH benchmarks matching the regex, all benchmarks by default."
+  echo "Results are written in JSON format to target/benchmarks/results-<timestamp>.json unless -o is specified."
+  echo "Skip the build and reuse the previously compiled benchmarks if -s is specified."
+  echo "Example: $0 'CSVFileReaderBenchmark' -p shape=wide -wi 1 -i 3"
+  echo "Run '$0 -- -h' to list the JMH options."
+  exit 1
+}
+
+skipBuild=""
+resultsFile="target/benchmarks/results-$(date +%Y%m%d-%H%M%S).json"
+
+while getopts ":so:h" flag
+do
+  case "${flag}" in
+    s)
+      skipBuild="true"
+      ;;
+    o)
+      resultsFile="${OPTARG}"
+      ;;
+    *)
+      usage
+      ;;
+  esac
+done
+shift $((OPTIND -1))
+
+if [ -z "${skipBuild}" ]; then
+  mvn -B -q -Pbenchmarks -DskipTests test-compile || exit 1
+fi
+
+if [ ! -f target/benchmarks.classpath ]; then
+  echo "target/benchmarks.classpath not found. Run without -s to build the benchmarks."
+  exit 1
+fi
+
+mkdir -p "$(dirname "${resultsFile}")"
+java -cp "target/test-classes:target/classes:$(cat target/benchmarks.classpath)" \
+    org.openjdk.jmh.Main -rf json -rff "${resultsFile}" "$@" || exit 1
+echo "Benchmark results written to ${resultsFile}"
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.salesforce.dataloader.benchmarks.BenchmarkFixtures;
+import com.salesforce.dataloader.config.AppConfig;
+import com.salesforce.dataloader.model.TableRow;
+
+/**
+ * Writes rows into a Bulk API batch the way BulkLoadVisitor.writeRow does,
+ * reporting rows written per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkCsvWriteBenchmark {
+
+    private static final int ROWS = 100;
+
+    @Param({BenchmarkFixtures.NARROW, BenchmarkFixtures.WIDE})
+    public String shape;
+
+    @Param({BenchmarkFixtures.ASCII, BenchmarkFixtures.MULTIBYTE})
+    public String charset;
+
+    @Param({"false", "true"})
+    public boolean richText;
+
+    private List<String> columns;
+    private List<TableRow> rows;
+    private PrintStream out;
+
+    @Setup
+    public void setup() throws Exception {
+        columns = BenchmarkFixtures.getColumnNames(shape);
+        rows = BenchmarkFixtures.getRows(shape, charset, richText, ROWS);
+        out = new PrintStream(OutputStream.nullOutputStream(), true, AppConfig.BULK_API_ENCODING);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void writeRows() {
+        for (TableRow row : rows) {
+            boolean notFirst = false;
+            for (String column : columns) {
+                if (notFirst) {
+                    out.print(',');
+                } else {
+                    notFirst = true;
+                }
+                BulkLoadVisitor.writeColumnToCsv(out, row.get(column));
+            }
+            out.println();
+        }
+    }
+}
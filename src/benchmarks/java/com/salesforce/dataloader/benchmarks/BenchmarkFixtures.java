@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.salesforce.dataloader.config.AppConfig;
+import com.salesforce.dataloader.model.TableHeader;
+import com.salesforce.dataloader.model.TableRow;
+import com.sforce.soap.partner.Field;
+import com.sforce.soap.partner.FieldType;
+import com.sforce.soap.partner.SoapType;
+
+/**
+ * Generates the local data the benchmarks run against. Every benchmark is
+ * parameterized by the shape of a row, the characters in its values and
+ * whether it carries rich text, so that results for the same fixture can be
+ * compared across benchmarks and across builds.
+ */
+public final class BenchmarkFixtures {
+
+    public static final String NARROW = "narrow";
+    public static final String WIDE = "wide";
+    public static final String EXTRA_WIDE = "extraWide";
+    public static final String ASCII = "ascii";
+    public static final String MULTIBYTE = "multibyte";
+
+    private static final int NARROW_COLUMNS = 8;
+    private static final int WIDE_COLUMNS = 120;
+    private static final int EXTRA_WIDE_COLUMNS = 200;
+    private static final String ASCII_TEXT = "Quick brown fox, \"jumps\" over the lazy dog";
+    private static final String MULTIBYTE_TEXT = "Grüße aus Zürich, \"日本語のテキスト\" и немного кириллицы";
+    private static final String RICH_TEXT = "<p>Dear <b>customer</b>,</p><ul><li>line one</li><li>line two</li></ul>"
+            + "<p>See <a href=\"https://example.com/x?a=1&amp;b=2\">details</a>.</p>";
+
+    private BenchmarkFixtures() {}
+
+    public static int getColumnCount(String shape) {
+        if (EXTRA_WIDE.equals(shape)) {
+            return EXTRA_WIDE_COLUMNS;
+        }
+        return WIDE.equals(shape) ? WIDE_COLUMNS : NARROW_COLUMNS;
+    }
+
+    public static List<String> getColumnNames(String shape) {
+        List<String> columns = new ArrayList<String>();
+        columns.add("Name");
+        for (int i = 1; i < getColumnCount(shape); i++) {
+            columns.add("Field" + i + "__c");
+        }
+        return columns;
+    }
+
+    public static Field[] getFields(String shape) {
+        List<String> columns = getColumnNames(shape);
+        Field[] fields = new Field[columns.size()];
+        for (int i = 0; i < fields.length; i++) {
+            Field field = new Field();
+            field.setName(columns.get(i));
+            field.setLabel(columns.get(i));
+            field.setType(getFieldType(i));
+            field.setSoapType(getSoapType(i));
+            field.setCreateable(true);
+            field.setUpdateable(true);
+            fields[i] = field;
+        }
+        return fields;
+    }
+
+    /**
+     * Columns cycle through text, date, number and checkbox values. Every
+     * tenth text column carries rich text if requested.
+     */
+    public static FieldType getFieldType(int column) {
+        switch (column % 4) {
+        case 1:
+            return FieldType.datetime;
+        case 2:
+            return FieldType._double;
+        case 3:
+            return FieldType._boolean;
+        default:
+            return column % 40 == 20 ? FieldType.textarea : FieldType.string;
+        }
+    }
+
+    private static SoapType getSoapType(int column) {
+        switch (column % 4) {
+        case 1:
+            return SoapType.dateTime;
+        case 2:
+            return SoapType._double;
+        case 3:
+            return SoapType._boolean;
+        default:
+            return SoapType.string;
+        }
+    }
+
+    public static String getValue(int row, int column, String charset, boolean richText) {
+        switch (column % 4) {
+        case 1:
+            return String.format("2024-%02d-%02dT%02d:%02d:%02d.000Z", row % 12 + 1, row % 28 + 1, row % 24, row % 60, column % 60);
+        case 2:
+            return Integer.toString(row * 31 + column) + ".25";
+        case 3:
+            return (row + column) % 2 == 0 ? "true" : "false";
+        default:
+            if (richText && column % 40 == 20) {
+                return RICH_TEXT;
+            }
+            return (MULTIBYTE.equals(charset) ? MULTIBYTE_TEXT : ASCII_TEXT) + " " + row;
+        }
+    }
+
+    public static TableHeader getHeader(String shape) {
+        return new TableHeader(getColumnNames(shape));
+    }
+
+    public static List<TableRow> getRows(String shape, String charset, boolean richText, int numRows) {
+        TableHeader header = getHeader(shape);
+        List<String> columns = getColumnNames(shape);
+        List<TableRow> rows = new ArrayList<TableRow>(numRows);
+        for (int row = 0; row < numRows; row++) {
+            TableRow tableRow = new TableRow(header);
+            for (int column = 0; column < columns.size(); column++) {
+                tableRow.put(columns.get(column), getValue(row, column, charset, richText));
+            }
+            rows.add(tableRow);
+        }
+        return rows;
+    }
+
+    public static File createCsvFile(String shape, String charset, boolean richText, int numRows) throws IOException {
+        File file = File.createTempFile("dataloader-benchmark-" + shape + "-" + charset + "-", ".csv");
+        file.deleteOnExit();
+        List<String> columns = getColumnNames(shape);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8))) {
+            writeCsvLine(out, columns);
+            List<String> values = new ArrayList<String>(columns.size());
+            for (int row = 0; row < numRows; row++) {
+                values.clear();
+                for (int column = 0; column < columns.size(); column++) {
+                    values.add(getValue(row, column, charset, richText));
+                }
+                writeCsvLine(out, values);
+            }
+        }
+        return file;
+    }
+
+    private static void writeCsvLine(Writer out, List<String> values) throws IOException {
+        boolean first = true;
+        for (String value : values) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Creates a read-only configuration in a scratch directory so that the
+     * benchmarks never touch the user's own configuration.
+     */
+    public static synchronized AppConfig createAppConfig() throws Exception {
+        File configDir = Files.createTempDirectory("dataloader-benchmark-config").toFile();
+        configDir.deleteOnExit();
+        Map<String, String> argMap = new HashMap<String, String>();
+        argMap.put(AppConfig.CLI_OPTION_CONFIG_DIR_PROP, configDir.getAbsolutePath());
+        argMap.put(AppConfig.PROP_READ_ONLY_CONFIG_PROPERTIES, Boolean.TRUE.toString());
+        argMap.put(AppConfig.PROP_ENTITY, "Account");
+        return AppConfig.getInstance(argMap);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.benchmarks;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import com.salesforce.dataloader.config.AppConfig;
+import com.salesforce.dataloader.dao.database.DatabaseContext;
+
+/**
+ * Table and database configuration of the database reader and writer benchmarks. The table
+ * is kept in an in-memory H2 database that lives as long as a connection to it is open.
+ */
+final class DatabaseFixtures {
+
+    static final String DB_URL = "jdbc:h2:mem:dataloaderBenchmark;DB_CLOSE_DELAY=-1";
+    static final String TABLE_NAME = "BENCHMARK_ROWS";
+    static final String QUERY_CONFIG_NAME = "queryBenchmarkRows";
+    static final String INSERT_CONFIG_NAME = "insertBenchmarkRows";
+    static final String ID_COLUMN = "ID";
+
+    private DatabaseFixtures() {
+    }
+
+    static Connection openConnection() throws Exception {
+        return DriverManager.getConnection(DB_URL, "sa", "");
+    }
+
+    static String getColumnName(int column) {
+        return "COLUMN_" + column;
+    }
+
+    static void createTable(Connection connection, int columns, int rows) throws Exception {
+        StringBuilder create = new StringBuilder("CREATE TABLE " + TABLE_NAME + " (" + ID_COLUMN + " INT PRIMARY KEY");
+        StringBuilder insert = new StringBuilder("INSERT INTO " + TABLE_NAME + " VALUES (?");
+        for (int i = 0; i < columns; i++) {
+            create.append(", ").append(getColumnName(i)).append(" VARCHAR(64)");
+            insert.append(", ?");
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE_NAME);
+            statement.execute(create.append(")").toString());
+        }
+        try (PreparedStatement statement = connection.prepareStatement(insert.append(")").toString())) {
+            for (int row = 0; row < rows; row++) {
+                statement.setInt(1, row);
+                for (int i = 0; i < columns; i++) {
+                    statement.setString(i + 2, getValue(row, i));
+                }
+                statement.addBatch();
+                if (row % 1000 == 999) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    static String getValue(int row, int column) {
+        return "value " + row + "-" + column;
+    }
+
+    static void truncateTable(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE " + TABLE_NAME);
+        }
+    }
+
+    static void dropTable(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE " + TABLE_NAME);
+        }
+    }
+
+    /**
+     * Writes the database configuration of a query over all columns of the table and of an
+     * insert of all columns to the configuration directory of the given config.
+     */
+    static void writeDatabaseConfig(AppConfig appConfig, int columns) throws Exception {
+        StringBuilder columnList = new StringBuilder();
+        StringBuilder paramList = new StringBuilder();
+        StringBuilder columnNames = new StringBuilder();
+        StringBuilder sqlParams = new StringBuilder();
+        sqlParams.append("            <entry key=\"id\" value=\"java.lang.Integer\"/>\n");
+        for (int i = 0; i < columns; i++) {
+            String name = getColumnName(i).toLowerCase();
+            columnList.append(i == 0 ? "" : ", ").append(getColumnName(i));
+            paramList.append(", @").append(name).append("@");
+            columnNames.append("            <value>").append(name).append("</value>\n");
+            sqlParams.append("            <entry key=\"").append(name).append("\" value=\"java.lang.String\"/>\n");
+        }
+        String xml = "<!DOCTYPE beans PUBLIC \"-//SPRING//DTD BEAN 2.0//EN\"\n"
+                + "    \"http://www.springframework.org/dtd/spring-beans-2.0.dtd\">\n"
+                + "<beans>\n"
+                + "<bean id=\"benchmarkDataSource\" class=\"org.apache.commons.dbcp2.BasicDataSource\"\n"
+                + "      destroy-method=\"close\" scope=\"singleton\">\n"
+                + "    <property name=\"driverClassName\" value=\"org.h2.Driver\"/>\n"
+                + "    <property name=\"url\" value=\"" + DB_URL + "\"/>\n"
+                + "    <property name=\"username\" value=\"sa\"/>\n"
+                + "    <property name=\"password\" value=\"\"/>\n"
+                + "</bean>\n"
+                + "<bean id=\"" + QUERY_CONFIG_NAME + "\" class=\"com.salesforce.dataloader.dao.database.DatabaseConfig\"\n"
+                + "      scope=\"singleton\">\n"
+                + "    <property name=\"sqlConfig\">\n"
+                + "      <bean class=\"com.salesforce.dataloader.dao.database.SqlConfig\">\n"
+                + "        <property name=\"sqlString\">\n"
+                + "          <value>SELECT " + columnList + " FROM " + TABLE_NAME + " ORDER BY " + ID_COLUMN + "</value>\n"
+                + "        </property>\n"
+                + "        <property name=\"columnNames\">\n"
+                + "          <list>\n" + columnNames
+                + "          </list>\n"
+                + "        </property>\n"
+                + "      </bean>\n"
+                + "    </property>\n"
+                + "    <property name=\"dataSource\" ref=\"benchmarkDataSource\"/>\n"
+                + "</bean>\n"
+                + "<bean id=\"" + INSERT_CONFIG_NAME + "\" class=\"com.salesforce.dataloader.dao.database.DatabaseConfig\"\n"
+                + "      scope=\"singleton\">\n"
+                + "    <property name=\"sqlConfig\">\n"
+                + "      <bean class=\"com.salesforce.dataloader.dao.database.SqlConfig\">\n"
+                + "        <property name=\"sqlString\">\n"
+                + "          <value>INSERT INTO " + TABLE_NAME + " (" + ID_COLUMN + ", " + columnList + ")"
+                + " VALUES (@id@" + paramList + ")</value>\n"
+                + "        </property>\n"
+                + "        <property name=\"sqlParams\">\n"
+                + "          <map>\n" + sqlParams
+                + "          </map>\n"
+                + "        </property>\n"
+                + "      </bean>\n"
+                + "    </property>\n"
+                + "    <property name=\"dataSource\" ref=\"benchmarkDataSource\"/>\n"
+                + "</bean>\n"
+                + "</beans>\n";
+        File configFile = new File(appConfig.constructConfigFilePath(DatabaseContext.DEFAULT_CONFIG_FILENAME));
+        Files.write(configFile.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+        configFile.deleteOnExit();
+    }
+}
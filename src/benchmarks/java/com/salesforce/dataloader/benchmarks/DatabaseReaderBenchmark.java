@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.benchmarks;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.salesforce.dataloader.config.AppConfig;
+import com.salesforce.dataloader.dao.database.DatabaseReader;
+import com.salesforce.dataloader.model.TableRow;
+
+/**
+ * Reads a table of an in-memory H2 database end to end, reporting rows read per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseReaderBenchmark {
+
+    private static final int ROWS = 20000;
+    private static final int COLUMNS = 20;
+
+    @Param({"0", "10000"})
+    public int fetchSize;
+
+    private AppConfig appConfig;
+    private Connection keepAliveConnection;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        appConfig = BenchmarkFixtures.createAppConfig();
+        appConfig.setValue(AppConfig.PROP_DAO_READ_FETCH_SIZE, fetchSize);
+        DatabaseFixtures.writeDatabaseConfig(appConfig, COLUMNS);
+        keepAliveConnection = DatabaseFixtures.openConnection();
+        DatabaseFixtures.createTable(keepAliveConnection, COLUMNS, ROWS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        DatabaseFixtures.dropTable(keepAliveConnection);
+        keepAliveConnection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void readAllRows(Blackhole blackhole) throws Exception {
+        DatabaseReader reader = new DatabaseReader(appConfig, DatabaseFixtures.QUERY_CONFIG_NAME);
+        try {
+            reader.open();
+            TableRow row;
+            while ((row = reader.readTableRow()) != null) {
+                blackhole.consume(row);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+}
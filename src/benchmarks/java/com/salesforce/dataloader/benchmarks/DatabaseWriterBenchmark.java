@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.benchmarks;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.salesforce.dataloader.config.AppConfig;
+import com.salesforce.dataloader.dao.database.DatabaseWriter;
+import com.salesforce.dataloader.model.Row;
+
+/**
+ * Writes extracted rows to a table of an in-memory H2 database in batches of the default
+ * database write batch size, reporting rows written per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseWriterBenchmark {
+
+    private static final int ROWS = 10000;
+    private static final int COLUMNS = 20;
+
+    @Param({"1", "4"})
+    public int connections;
+
+    @Param({"0", "10000"})
+    public int commitSize;
+
+    private AppConfig appConfig;
+    private Connection keepAliveConnection;
+    private List<List<Row>> batches;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        appConfig = BenchmarkFixtures.createAppConfig();
+        appConfig.setValue(AppConfig.PROP_DAO_NAME, DatabaseFixtures.INSERT_CONFIG_NAME);
+        appConfig.setValue(AppConfig.PROP_DAO_WRITE_CONNECTIONS, connections);
+        appConfig.setValue(AppConfig.PROP_DAO_WRITE_COMMIT_SIZE, commitSize);
+        DatabaseFixtures.writeDatabaseConfig(appConfig, COLUMNS);
+        keepAliveConnection = DatabaseFixtures.openConnection();
+        DatabaseFixtures.createTable(keepAliveConnection, COLUMNS, 0);
+        batches = new ArrayList<List<Row>>();
+        List<Row> batch = null;
+        for (int i = 0; i < ROWS; i++) {
+            if (i % AppConfig.DEFAULT_DAO_WRITE_BATCH_SIZE == 0) {
+                batch = new ArrayList<Row>();
+                batches.add(batch);
+            }
+            Row row = new Row();
+            row.put("id", i);
+            for (int column = 0; column < COLUMNS; column++) {
+                row.put(DatabaseFixtures.getColumnName(column).toLowerCase(), DatabaseFixtures.getValue(i, column));
+            }
+            batch.add(row);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTable() throws Exception {
+        DatabaseFixtures.truncateTable(keepAliveConnection);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        DatabaseFixtures.dropTable(keepAliveConnection);
+        keepAliveConnection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int writeAllRows() throws Exception {
+        DatabaseWriter writer = new DatabaseWriter(appConfig);
+        try {
+            writer.open();
+            for (List<Row> batch : batches) {
+                writer.writeRowList(batch);
+            }
+        } finally {
+            writer.close();
+        }
+        return writer.getCurrentRowNumber();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.salesforce.dataloader.action.visitor.DAOLoadVisitor;
+import com.salesforce.dataloader.config.AppConfig;
+import com.salesforce.dataloader.util.DAORowUtil;
+
+/**
+ * Formats rich text and phone field values the way DAOLoadVisitor.getFieldValue() does
+ * for every value of an html formatted or phone field.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RichTextFormattingBenchmark {
+
+    @Param({"plain", "article"})
+    public String content;
+
+    private String richTextValue;
+
+    @Setup
+    public void setup() {
+        if ("plain".equals(content)) {
+            richTextValue = "Reset your password from the login page, then sign in again.";
+        } else {
+            StringBuilder article = new StringBuilder();
+            for (int i = 0; i < 20; i++) {
+                article.append("<p>Step ").append(i).append(":  open <strong>Setup</strong> &amp; select")
+                        .append(" <a href=\"https://example.com/help?id=").append(i).append("\">Users</a>.</p>\n")
+                        .append("<ul>\r\n  <li>Check \"Active\" &lt;required&gt;</li>\r\n</ul>\n");
+            }
+            richTextValue = article.toString();
+        }
+    }
+
+    @Benchmark
+    public String preserveWhitespaceInRichText() {
+        return DAOLoadVisitor.preserveWhitespaceInRichText(richTextValue, AppConfig.DEFAULT_RICHTEXT_REGEX);
+    }
+
+    @Benchmark
+    public String formatPhone() {
+        return DAORowUtil.getPhoneFieldValue("18005551212", "en_US");
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.beanutils.BasicDynaClass;
+import org.apache.commons.beanutils.BeanUtils;
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.DynaProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.salesforce.dataloader.dyna.RowConverter;
+import com.salesforce.dataloader.dyna.SforceDynaBean;
+import com.salesforce.dataloader.model.TableRow;
+import com.sforce.soap.partner.Field;
+
+/**
+ * Converts a mapped row into a typed DynaBean, exercising the registered
+ * date, number and boolean converters. Compares the BeanUtils based
+ * conversion with RowConverter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SforceDynaBeanBenchmark {
+
+    private static final int ROWS = 100;
+
+    @Param({BenchmarkFixtures.NARROW, BenchmarkFixtures.WIDE})
+    public String shape;
+
+    @Param({BenchmarkFixtures.ASCII, BenchmarkFixtures.MULTIBYTE})
+    public String charset;
+
+    private BasicDynaClass dynaClass;
+    private RowConverter rowConverter;
+    private List<TableRow> rows;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        SforceDynaBean.registerConverters(BenchmarkFixtures.createAppConfig());
+        Field[] fields = BenchmarkFixtures.getFields(shape);
+        DynaProperty[] dynaProps = new DynaProperty[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            dynaProps[i] = new DynaProperty(fields[i].getName(), SforceDynaBean.getTypeClass(fields[i]));
+        }
+        dynaClass = SforceDynaBean.getDynaBeanInstance(dynaProps);
+        rowConverter = new RowConverter(dynaClass);
+        rows = BenchmarkFixtures.getRows(shape, charset, false, ROWS);
+    }
+
+    @Benchmark
+    public DynaBean convertToDynaBean() throws Exception {
+        next = (next + 1) % ROWS;
+        return SforceDynaBean.convertToDynaBean(dynaClass, rows.get(next));
+    }
+
+    @Benchmark
+    public DynaBean rowConverter() throws Exception {
+        next = (next + 1) % ROWS;
+        return rowConverter.convertToDynaBean(rows.get(next));
+    }
+
+    @Benchmark
+    public Object describeNonNullValues() throws Exception {
+        next = (next + 1) % ROWS;
+        return BeanUtils.describe(rowConverter.convertToDynaBean(rows.get(next)));
+    }
+
+    @Benchmark
+    public Object propertyNamesWithValues() throws Exception {
+        next = (next + 1) % ROWS;
+        return RowConverter.getPropertyNamesWithValues(rowConverter.convertToDynaBean(rows.get(next)));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.salesforce.dataloader.model.TableHeader;
+import com.salesforce.dataloader.model.TableRow;
+
+/**
+ * Populates, reads and copies a single row. Each operation touches every column once.
+ * Run with "-prof gc" to compare the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableRowBenchmark {
+
+    @Param({BenchmarkFixtures.NARROW, BenchmarkFixtures.WIDE, BenchmarkFixtures.EXTRA_WIDE})
+    public String shape;
+
+    private TableHeader header;
+    private List<String> columns;
+    private String[] lowerCaseColumns;
+    private String[] values;
+    private TableRow row;
+
+    @Setup
+    public void setup() {
+        header = BenchmarkFixtures.getHeader(shape);
+        columns = header.getColumns();
+        row = BenchmarkFixtures.getRows(shape, BenchmarkFixtures.ASCII, false, 1).get(0);
+        lowerCaseColumns = new String[columns.size()];
+        values = new String[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            lowerCaseColumns[i] = columns.get(i).toLowerCase();
+            values[i] = (String)row.get(columns.get(i));
+        }
+    }
+
+    @Benchmark
+    public TableRow populate() {
+        TableRow newRow = new TableRow(header);
+        for (int i = 0; i < values.length; i++) {
+            newRow.put(columns.get(i), values[i]);
+        }
+        return newRow;
+    }
+
+    @Benchmark
+    public void getByName(Blackhole blackhole) {
+        for (String column : columns) {
+            blackhole.consume(row.get(column));
+        }
+    }
+
+    @Benchmark
+    public void getByLowerCaseName(Blackhole blackhole) {
+        for (String column : lowerCaseColumns) {
+            blackhole.consume(row.get(column));
+        }
+    }
+
+    @Benchmark
+    public void getByPosition(Blackhole blackhole) {
+        for (int i = 0; i < row.size(); i++) {
+            blackhole.consume(row.getValueAt(i));
+        }
+    }
+
+    @Benchmark
+    public void containsKey(Blackhole blackhole) {
+        for (String column : row.getHeader().getColumns()) {
+            blackhole.consume(row.containsKey(column));
+        }
+    }
+
+    @Benchmark
+    public void iterateEntries(Blackhole blackhole) {
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    public TableRow copy() {
+        return new TableRow(row);
+    }
+}
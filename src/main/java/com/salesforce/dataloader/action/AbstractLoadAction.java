@@ -28,11 +28,14 @@ package com.salesforce.dataloader.action;
 
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
 import com.salesforce.dataloader.action.visitor.DAOLoadVisitor;
+import com.salesforce.dataloader.action.visitor.DAOLoadVisitor.ConvertedRow;
 import com.salesforce.dataloader.config.AppConfig;
 import com.salesforce.dataloader.controller.Controller;
+import com.salesforce.dataloader.dao.AsyncDataWriter;
 import com.salesforce.dataloader.dao.DataAccessObjectInterface;
 import com.salesforce.dataloader.dao.DataAccessObjectFactory;
 import com.salesforce.dataloader.dao.DataReaderInterface;
+import com.salesforce.dataloader.dao.DataWriterInterface;
 import com.salesforce.dataloader.exception.BatchSizeLimitException;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
@@ -52,7 +55,10 @@ import java.util.List;
  * @since 6.0
  */
 abstract class AbstractLoadAction extends AbstractAction {
-    
+    // rows read, mapped and converted together by a pipelined load
+    private static final int PIPELINE_BLOCK_ROWS = 1000;
+    private static final int STATUS_WRITER_QUEUE_ROWS = 10000;
+
     protected AbstractLoadAction(Controller controller, ILoaderProgress monitor)
             throws DataAccessObjectInitializationException {
         super(controller, monitor);
@@ -78,8 +84,17 @@ abstract class AbstractLoadAction extends AbstractAction {
     @Override
     protected boolean visit() throws DataAccessObjectException, ParameterLoadException, OperationException,
     ConnectionException {
-
         final int loadBatchSize = this.getConfig().getCurrentSettingForMaxRowsInImportBatch();
+        final int pipelineThreads = getPipelineThreads();
+        if (pipelineThreads > 0) {
+            // the pipeline loads all rows
+            try (LoadPipeline<ConvertedRow> pipeline = new LoadPipeline<ConvertedRow>(new PipelineStages(getVisitor()),
+                    getDao().getCurrentRowNumber(), Math.min(loadBatchSize, PIPELINE_BLOCK_ROWS), pipelineThreads)) {
+                pipeline.run(getMonitor()::isCanceled);
+            }
+            return false;
+        }
+
         final int daoRowNumBase = getDao().getCurrentRowNumber();
         final List<TableRow> daoRowList = getDao().readTableRowList(loadBatchSize);
         if (daoRowList == null || daoRowList.size() == 0) return false;
@@ -98,11 +113,7 @@ abstract class AbstractLoadAction extends AbstractAction {
                 // retry the same row again
                 try {
                     if (this.getConfig().isBulkV2APIEnabled()) {
-                        // BulkV2 completed a job.
-                        // Create a new visitor for a new job. However, it should use
-                        // the LoadRateCalculator instance from the current visitor.
-                        getLogger().info("Need to run multiple Bulkv2 API jobs to complete upload");
-                        setVisitor(this.createVisitor(this.getVisitor().getLoadRateCalculator(), false));
+                        createVisitorForNextJob();
                     }
                     successfulVisit = getVisitor().visit(daoRow);
                 } catch (BatchSizeLimitException e) {
@@ -114,6 +125,93 @@ abstract class AbstractLoadAction extends AbstractAction {
         return true;
     }
 
+    private void createVisitorForNextJob() {
+        // BulkV2 completed a job.
+        // Create a new visitor for a new job. However, it should use
+        // the LoadRateCalculator instance from the current visitor.
+        getLogger().info("Need to run multiple Bulkv2 API jobs to complete upload");
+        setVisitor(this.createVisitor(this.getVisitor().getLoadRateCalculator(), false));
+    }
+
+    /**
+     * Reads and maps rows with the visitor the load started with, converts them on the
+     * converter threads and adds them to the batches of the current visitor, which changes
+     * when a Bulk v2 load needs more than one job.
+     */
+    private class PipelineStages implements LoadPipeline.Stages<ConvertedRow> {
+        private final DAOLoadVisitor conversionVisitor;
+
+        PipelineStages(DAOLoadVisitor conversionVisitor) {
+            this.conversionVisitor = conversionVisitor;
+        }
+
+        @Override
+        public List<TableRow> readRows(int maxRows) throws DataAccessObjectException {
+            return getDao().readTableRowList(maxRows);
+        }
+
+        @Override
+        public ConvertedRow mapRow(TableRow row) throws ConnectionException {
+            return this.conversionVisitor.mapRow(row);
+        }
+
+        @Override
+        public void convertRow(ConvertedRow row) throws OperationException {
+            this.conversionVisitor.convertRow(row);
+        }
+
+        @Override
+        public void submitRow(int daoRowNum, ConvertedRow row) throws OperationException, DataAccessObjectException {
+            if (row == null) {
+                getVisitor().setRowConversionStatus(daoRowNum, false);
+                return;
+            }
+            boolean successfulVisit = false;
+            try {
+                successfulVisit = getVisitor().addConvertedRow(row);
+            } catch (BatchSizeLimitException ex) {
+                // retry the same row again
+                try {
+                    if (getConfig().isBulkV2APIEnabled()) {
+                        createVisitorForNextJob();
+                    }
+                    successfulVisit = getVisitor().addConvertedRow(row);
+                } catch (BatchSizeLimitException e) {
+                    getLogger().warn("row byte size is too large to process");
+                }
+            }
+            getVisitor().setRowConversionStatus(daoRowNum, successfulVisit);
+        }
+    }
+
+    private int getPipelineThreads() {
+        try {
+            int threads = getConfig().getInt(AppConfig.PROP_LOAD_PIPELINE_THREADS);
+            return Math.max(0, Math.min(threads, AppConfig.MAX_LOAD_PIPELINE_THREADS));
+        } catch (ParameterLoadException e) {
+            getLogger().warn("Incorrectly configured " + AppConfig.PROP_LOAD_PIPELINE_THREADS);
+            return AppConfig.DEFAULT_LOAD_PIPELINE_THREADS;
+        }
+    }
+
+    @Override
+    public DataWriterInterface createSuccesWriter() throws DataAccessObjectInitializationException {
+        return createStatusWriter(super.createSuccesWriter(), "loadSuccessWriter");
+    }
+
+    @Override
+    public DataWriterInterface createErrorWriter() throws DataAccessObjectInitializationException {
+        return createStatusWriter(super.createErrorWriter(), "loadErrorWriter");
+    }
+
+    // in a pipelined load, the status files are written on a thread of their own
+    private DataWriterInterface createStatusWriter(DataWriterInterface writer, String threadName) {
+        if (getPipelineThreads() > 0) {
+            return new AsyncDataWriter(writer, threadName, STATUS_WRITER_QUEUE_ROWS);
+        }
+        return writer;
+    }
+
     @Override
     protected void flush() throws OperationException, DataAccessObjectException, BatchSizeLimitException {
         getVisitor().flushRemaining();
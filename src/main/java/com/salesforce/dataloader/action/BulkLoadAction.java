@@ -32,6 +32,7 @@ import java.util.List;
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
 import com.salesforce.dataloader.action.visitor.DAOLoadVisitor;
 import com.salesforce.dataloader.action.visitor.bulk.BulkLoadVisitor;
+import com.salesforce.dataloader.action.visitor.bulk.BulkV2JobRunner;
 import com.salesforce.dataloader.action.visitor.bulk.BulkV2LoadVisitor;
 import com.salesforce.dataloader.controller.Controller;
 import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
@@ -43,6 +44,9 @@ import com.salesforce.dataloader.util.LoadRateCalculator;
  * @since 17.0
  */
 class BulkLoadAction extends AbstractLoadAction {
+    // shared by the visitors of the Bulk v2 jobs of the load, null if the jobs run one after another.
+    // Not initialized in its declaration because the superclass constructor creates the first visitor.
+    private BulkV2JobRunner bulkV2JobRunner;
 
     public BulkLoadAction(Controller controller, ILoaderProgress monitor)
             throws DataAccessObjectInitializationException {
@@ -52,7 +56,11 @@ class BulkLoadAction extends AbstractLoadAction {
     @Override
     protected DAOLoadVisitor createVisitor(LoadRateCalculator rateCalculator, boolean isFirstJob) {
         if (this.getConfig().isBulkV2APIEnabled()) {
-            return new BulkV2LoadVisitor(getController(), getMonitor(), getSuccessWriter(), getErrorWriter(), rateCalculator, isFirstJob);
+            if (isFirstJob) {
+                this.bulkV2JobRunner = BulkV2LoadVisitor.createJobRunner(getConfig());
+            }
+            return new BulkV2LoadVisitor(getController(), getMonitor(), getSuccessWriter(), getErrorWriter(), rateCalculator, isFirstJob,
+                    this.bulkV2JobRunner);
         }
         return new BulkLoadVisitor(getController(), getMonitor(), getSuccessWriter(), getErrorWriter());
     }
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.OperationException;
+import com.salesforce.dataloader.model.TableRow;
+import com.salesforce.dataloader.util.DAORowUtil;
+import com.salesforce.dataloader.util.DLLogManager;
+import com.salesforce.dataloader.util.DaemonThreadFactory;
+import com.sforce.ws.ConnectionException;
+
+/**
+ * Runs the stages of a load on separate threads so that reading the data source, converting
+ * rows and sending batches to the server overlap:
+ * <ul>
+ * <li>a reader thread reads blocks of rows from the data source and maps them,</li>
+ * <li>converter threads convert the mapped rows, one block per thread at a time,</li>
+ * <li>the thread calling run() submits the converted rows in data source order.</li>
+ * </ul>
+ * The reader stops once numConverterThreads * 2 blocks are waiting to be submitted, so at
+ * most that many blocks of rows are held in memory.
+ *
+ * @param <R> a row on its way from the data source to the server
+ */
+class LoadPipeline<R> implements Closeable {
+    private static final Logger logger = DLLogManager.getLogger(LoadPipeline.class);
+
+    /** Work done by each stage of the pipeline */
+    interface Stages<R> {
+        /**
+         * Called by the reader thread.
+         * 
+         * @return next rows of the data source, empty or null after the last row
+         */
+        List<TableRow> readRows(int maxRows) throws DataAccessObjectException;
+
+        /**
+         * Called by the reader thread, one row at a time in data source order.
+         */
+        R mapRow(TableRow row) throws OperationException, ConnectionException;
+
+        /**
+         * Called by the converter threads. Rows are converted concurrently.
+         */
+        void convertRow(R row) throws OperationException;
+
+        /**
+         * Called by the thread running the pipeline, one row at a time in data source order.
+         * 
+         * @param daoRowNum number of the row in the data source
+         * @param row converted row, null if the data source returned an invalid row. The load
+         * ends after an invalid row.
+         */
+        void submitRow(int daoRowNum, R row) throws OperationException, DataAccessObjectException, ConnectionException;
+    }
+
+    private static class Block<R> {
+        final int firstDaoRowNum;
+        final List<R> rows;
+        // true if the data source returned an invalid row after the rows of this block
+        final boolean isFollowedByInvalidRow;
+
+        Block(int firstDaoRowNum, List<R> rows, boolean isFollowedByInvalidRow) {
+            this.firstDaoRowNum = firstDaoRowNum;
+            this.rows = rows;
+            this.isFollowedByInvalidRow = isFollowedByInvalidRow;
+        }
+    }
+    private final Block<R> endOfRows = new Block<R>(0, Collections.emptyList(), false);
+
+    private final Stages<R> stages;
+    private final int blockRows;
+    private final ExecutorService converters;
+    private final BlockingQueue<Future<Block<R>>> blocks;
+    private final Thread reader;
+    private volatile boolean closed = false;
+
+    /**
+     * Starts reading the data source.
+     * 
+     * @param firstDaoRowNum number in the data source of the first row to be read
+     * @param blockRows maximum number of rows read and converted together
+     */
+    LoadPipeline(Stages<R> stages, int firstDaoRowNum, int blockRows, int numConverterThreads) {
+        this.stages = stages;
+        this.blockRows = Math.max(1, blockRows);
+        final int numThreads = Math.max(1, numConverterThreads);
+        this.converters = Executors.newFixedThreadPool(numThreads, new DaemonThreadFactory("loadConverter"));
+        this.blocks = new ArrayBlockingQueue<Future<Block<R>>>(numThreads * 2);
+        this.reader = new Thread(() -> readBlocks(firstDaoRowNum), "loadReader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Submits the rows of the data source as they are converted, until the last row is
+     * submitted or the load is canceled.
+     * 
+     * @param isCanceled checked before each block of rows is submitted
+     */
+    void run(BooleanSupplier isCanceled) throws OperationException, DataAccessObjectException, ConnectionException {
+        while (!isCanceled.getAsBoolean()) {
+            final Block<R> block = takeBlock();
+            if (block == this.endOfRows) {
+                return;
+            }
+            int daoRowNum = block.firstDaoRowNum;
+            for (R row : block.rows) {
+                this.stages.submitRow(daoRowNum++, row);
+            }
+            if (block.isFollowedByInvalidRow) {
+                this.stages.submitRow(daoRowNum, null);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops the reader and converter threads. Blocks that were not submitted are dropped.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.reader.interrupt();
+        this.converters.shutdownNow();
+        try {
+            this.reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.blocks.clear();
+    }
+
+    private Block<R> takeBlock() throws OperationException, DataAccessObjectException, ConnectionException {
+        try {
+            return this.blocks.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationException("interrupted while waiting for rows to load", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof OperationException) {
+                throw (OperationException)cause;
+            } else if (cause instanceof DataAccessObjectException) {
+                throw (DataAccessObjectException)cause;
+            } else if (cause instanceof ConnectionException) {
+                throw (ConnectionException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new OperationException(cause);
+        }
+    }
+
+    private void readBlocks(int firstDaoRowNum) {
+        int daoRowNum = firstDaoRowNum;
+        try {
+            while (!this.closed) {
+                final List<TableRow> daoRows = this.stages.readRows(this.blockRows);
+                if (daoRows == null || daoRows.isEmpty()) {
+                    this.blocks.put(CompletableFuture.completedFuture(this.endOfRows));
+                    return;
+                }
+                final List<R> rows = new ArrayList<R>(daoRows.size());
+                boolean isFollowedByInvalidRow = false;
+                for (TableRow daoRow : daoRows) {
+                    if (!DAORowUtil.isValidTableRow(daoRow)) {
+                        isFollowedByInvalidRow = true;
+                        break;
+                    }
+                    rows.add(this.stages.mapRow(daoRow));
+                }
+                final Block<R> block = new Block<R>(daoRowNum, rows, isFollowedByInvalidRow);
+                this.blocks.put(this.converters.submit(() -> {
+                    for (R row : block.rows) {
+                        this.stages.convertRow(row);
+                    }
+                    return block;
+                }));
+                if (isFollowedByInvalidRow) {
+                    return;
+                }
+                daoRowNum += daoRows.size();
+            }
+        } catch (InterruptedException e) {
+            // closed by the caller
+        } catch (Throwable e) {
+            // also errors such as OutOfMemoryError, the load would otherwise wait for the next block forever
+            if (this.closed) {
+                return;
+            }
+            logger.debug("Failed to read rows to load", e);
+            try {
+                this.blocks.put(CompletableFuture.failedFuture(e));
+            } catch (InterruptedException ie) {
+                // closed by the caller
+            }
+        }
+    }
+}
@@ -416,18 +416,27 @@ public abstract class AbstractQueryVisitor extends AbstractVisitor implements IQ
         }
         while (daoLastProcessedRow < numRows
                 && soqlLength  < maxSoqlLength) {
+            TableRow row = csvReader.readTableRow();
+            if (row == null) {
+                // the file has fewer rows than counted
+                numRows = daoLastProcessedRow;
+                break;
+            }
             if (firstRowOfCurrentBatch) {
                 firstRowOfCurrentBatch = false;
             }  else {
                 soqlBuilder.append(",");
             }
-            TableRow row = csvReader.readTableRow();
             soqlBuilder.append("'");
             soqlBuilder.append(row.get(columnName));
             soqlBuilder.append("'");
             soqlLength = soqlBuilder.length() + MAX_IDLOOKUP_FIELD_LENGTH + 4 + soqlAfterInClause.length();
             daoLastProcessedRow++;
         }
+        if (firstRowOfCurrentBatch) {
+            // no rows were left to put in the IN clause
+            return null;
+        }
         soqlBuilder.append(") ");
         soqlBuilder.append(soqlAfterInClause);
         logger.info("Constructed SOQL: " + soqlBuilder.toString());
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.DynaProperty;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.OperationException;
+import com.salesforce.dataloader.model.TableRow;
+import com.salesforce.dataloader.util.DLLogManager;
+import com.salesforce.dataloader.util.DaemonThreadFactory;
+import com.sforce.ws.ConnectionException;
+
+/**
+ * Sends the SOAP API or REST API calls of consecutive load batches concurrently. At most
+ * maxCallsInFlight calls are outstanding at a time; submit() blocks the caller until the
+ * oldest one completes.
+ *
+ * Results are handed to the BatchResultHandler on the submitting thread, in the order in
+ * which the batches were submitted, so that status files and the last run checkpoint are
+ * written the same way as when the calls are made one at a time.
+ *
+ * If a lane field is configured, a batch is not sent while an earlier batch with the same
+ * value of that field is in flight. Records sharing a parent record then never update it
+ * from two calls at the same time.
+ *
+ * The concurrent calls share one client connection and session. The caller renews the
+ * session and sets the connection's headers before submitting a batch, not while calls
+ * are in flight.
+ */
+public class ConcurrentBatchExecutor {
+    private static final Logger logger = DLLogManager.getLogger(ConcurrentBatchExecutor.class);
+    private static final long IDLE_THREAD_KEEPALIVE_SECS = 30;
+
+    /** Sends one batch to the server */
+    public interface BatchCall {
+        Object[] execute(List<DynaBean> dynaBeans) throws ConnectionException;
+    }
+
+    /** Processes the outcome of batches, called in submission order */
+    public interface BatchResultHandler {
+        void batchLoaded(List<TableRow> daoRows, Object[] results)
+                throws DataAccessObjectException, OperationException;
+
+        /**
+         * Called for a batch that failed and for the batches sent after it. Their results are
+         * not processed.
+         */
+        default void batchAbandoned(List<TableRow> daoRows) {}
+    }
+
+    private static class Batch {
+        private final List<DynaBean> dynaBeans;
+        private final List<TableRow> daoRows;
+        private final Set<String> laneKeys;
+        private Future<Object[]> results;
+
+        private Batch(List<DynaBean> dynaBeans, List<TableRow> daoRows, Set<String> laneKeys) {
+            this.dynaBeans = dynaBeans;
+            this.daoRows = daoRows;
+            this.laneKeys = laneKeys;
+        }
+    }
+
+    private final int maxCallsInFlight;
+    private final String laneFieldName;
+    private final BatchCall batchCall;
+    private final BatchResultHandler resultHandler;
+    private final ThreadPoolExecutor executor;
+    private final Deque<Batch> batchesInFlight = new ArrayDeque<Batch>();
+    private String laneProperty = null;
+
+    public ConcurrentBatchExecutor(int maxCallsInFlight, String laneFieldName,
+            BatchCall batchCall, BatchResultHandler resultHandler) {
+        this.maxCallsInFlight = maxCallsInFlight;
+        this.laneFieldName = laneFieldName == null || laneFieldName.isBlank() ? null : laneFieldName.trim();
+        this.batchCall = batchCall;
+        this.resultHandler = resultHandler;
+        // submit() keeps at most maxCallsInFlight tasks in the executor, the queue never grows past that
+        this.executor = new ThreadPoolExecutor(maxCallsInFlight, maxCallsInFlight,
+                IDLE_THREAD_KEEPALIVE_SECS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new DaemonThreadFactory("syncApiBatchCall"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Sends a copy of the batch to the server on a separate thread. Completed batches at the
+     * head of the queue are processed before returning.
+     *
+     * @throws ConnectionException if an earlier batch failed
+     */
+    public void submit(List<DynaBean> dynaBeans, List<TableRow> daoRows)
+            throws ConnectionException, DataAccessObjectException, OperationException {
+        final Batch batch = new Batch(new ArrayList<DynaBean>(dynaBeans), new ArrayList<TableRow>(daoRows),
+                getLaneKeys(dynaBeans));
+        while (this.batchesInFlight.size() >= this.maxCallsInFlight || sharesLaneWithBatchInFlight(batch)) {
+            completeOldestBatch();
+        }
+        batch.results = this.executor.submit(() -> this.batchCall.execute(batch.dynaBeans));
+        this.batchesInFlight.addLast(batch);
+        while (!this.batchesInFlight.isEmpty() && this.batchesInFlight.peekFirst().results.isDone()) {
+            completeOldestBatch();
+        }
+    }
+
+    /**
+     * Waits for all submitted batches and processes their results.
+     *
+     * @throws ConnectionException if any of the batches failed
+     */
+    public void awaitAll() throws ConnectionException, DataAccessObjectException, OperationException {
+        while (!this.batchesInFlight.isEmpty()) {
+            completeOldestBatch();
+        }
+    }
+
+    public int getNumBatchesInFlight() {
+        return this.batchesInFlight.size();
+    }
+
+    private void completeOldestBatch() throws ConnectionException, DataAccessObjectException, OperationException {
+        Batch batch = this.batchesInFlight.removeFirst();
+        Object[] results;
+        try {
+            results = getResults(batch.results);
+        } catch (ConnectionException | RuntimeException | Error e) {
+            this.resultHandler.batchAbandoned(batch.daoRows);
+            abandonBatchesInFlight();
+            throw e;
+        }
+        boolean isProcessed = false;
+        try {
+            this.resultHandler.batchLoaded(batch.daoRows, results);
+            isProcessed = true;
+        } finally {
+            if (!isProcessed) {
+                abandonBatchesInFlight();
+            }
+        }
+    }
+
+    private void abandonBatchesInFlight() {
+        if (this.batchesInFlight.isEmpty()) {
+            return;
+        }
+        int abandonedRows = 0;
+        while (!this.batchesInFlight.isEmpty()) {
+            Batch batch = this.batchesInFlight.removeFirst();
+            try {
+                // the call may already be on the server, let it finish before the load is ended
+                batch.results.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.results.cancel(true);
+            } catch (ExecutionException e) {
+                // @ignored: only the first failure is reported
+            }
+            abandonedRows += batch.dynaBeans.size();
+            this.resultHandler.batchAbandoned(batch.daoRows);
+        }
+        logger.warn("Results of " + abandonedRows
+                + " rows sent concurrently with a failed batch are not written to the status files");
+    }
+
+    private static Object[] getResults(Future<Object[]> results) throws ConnectionException {
+        try {
+            return results.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException("interrupted while waiting for a batch to load", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ConnectionException) {
+                throw (ConnectionException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new ConnectionException(cause.getMessage(), cause);
+        }
+    }
+
+    private boolean sharesLaneWithBatchInFlight(Batch batch) {
+        if (batch.laneKeys.isEmpty()) {
+            return false;
+        }
+        for (Batch batchInFlight : this.batchesInFlight) {
+            if (!Collections.disjoint(batch.laneKeys, batchInFlight.laneKeys)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<String> getLaneKeys(List<DynaBean> dynaBeans) {
+        if (this.laneFieldName == null || dynaBeans.isEmpty()) {
+            return Collections.emptySet();
+        }
+        if (this.laneProperty == null) {
+            for (DynaProperty prop : dynaBeans.get(0).getDynaClass().getDynaProperties()) {
+                if (prop.getName().equalsIgnoreCase(this.laneFieldName)) {
+                    this.laneProperty = prop.getName();
+                    break;
+                }
+            }
+            if (this.laneProperty == null) {
+                logger.warn("Field " + this.laneFieldName + " is not mapped, batches are sent without lane checks");
+                this.laneProperty = "";
+            }
+        }
+        if (this.laneProperty.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> laneKeys = new HashSet<String>();
+        for (DynaBean dynaBean : dynaBeans) {
+            Object value = dynaBean.get(this.laneProperty);
+            String laneKey = value == null ? null : value.toString();
+            if (laneKey != null && !laneKey.isEmpty()) {
+                laneKeys.add(laneKey);
+            }
+        }
+        return laneKeys;
+    }
+}
@@ -27,8 +27,8 @@
 package com.salesforce.dataloader.action.visitor;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.salesforce.dataloader.model.TableRow;
 import com.salesforce.dataloader.util.DAORowUtil;
@@ -50,9 +50,11 @@ import com.salesforce.dataloader.config.AppConfig;
 import com.salesforce.dataloader.config.LastRunProperties;
 import com.salesforce.dataloader.config.Messages;
 import com.salesforce.dataloader.controller.Controller;
+import com.salesforce.dataloader.dao.AsyncDataWriter;
 import com.salesforce.dataloader.dao.DataReaderInterface;
 import com.salesforce.dataloader.dao.DataWriterInterface;
 import com.salesforce.dataloader.dyna.ParentIdLookupFieldFormatter;
+import com.salesforce.dataloader.dyna.RowConverter;
 import com.salesforce.dataloader.dyna.SforceDynaBean;
 import com.salesforce.dataloader.exception.*;
 import com.salesforce.dataloader.mapping.LoadMapper;
@@ -81,6 +83,9 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
 
     protected BasicDynaClass dynaClass = null;
     protected DynaProperty[] dynaProps = null;
+    // rows are converted concurrently when the load runs in a pipeline, one RowConverter per thread
+    private final ThreadLocal<RowConverter> rowConverters = ThreadLocal.withInitial(this::newRowConverter);
+    private boolean isFirstRowMapped = false;
 
     private final int MAX_ROWS_IN_BATCH;
     protected List<TableRow> daoRowList = new ArrayList<TableRow>();
@@ -90,7 +95,19 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
     // following regex pattern is based on info from:
     // - https://www.regular-expressions.info/lookaround.html
     // - https://www.geeksforgeeks.org/how-to-validate-html-tag-using-regular-expression/#
-    private String richTextRegex = AppConfig.DEFAULT_RICHTEXT_REGEX;
+    private static final Pattern DEFAULT_RICH_TEXT_PATTERN = Pattern.compile(AppConfig.DEFAULT_RICHTEXT_REGEX);
+    private Pattern richTextPattern = DEFAULT_RICH_TEXT_PATTERN;
+    // HTML 4 escape of each char up to the last one escapeHtml4 knows about, null if not escaped
+    private static final String[] HTML4_ESCAPED_CHARS = new String['\u2667'];
+    static {
+        for (int i = 0; i < HTML4_ESCAPED_CHARS.length; i++) {
+            String charStr = String.valueOf((char)i);
+            String escapedStr = StringEscapeUtils.escapeHtml4(charStr);
+            if (!escapedStr.equals(charStr)) {
+                HTML4_ESCAPED_CHARS[i] = escapedStr;
+            }
+        }
+    }
     private Field[] cachedFieldAttributesForOperation = null;
 
     protected DAOLoadVisitor(Controller controller, ILoaderProgress monitor, DataWriterInterface successWriter,
@@ -118,8 +135,8 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
         String newRichTextRegex = getConfig().getString(AppConfig.PROP_RICH_TEXT_FIELD_REGEX);
         if (newRichTextRegex != null 
                 && !newRichTextRegex.isBlank() 
-                && !newRichTextRegex.equals(richTextRegex)) {
-            this.richTextRegex = newRichTextRegex;
+                && !newRichTextRegex.equals(richTextPattern.pattern())) {
+            this.richTextPattern = Pattern.compile(newRichTextRegex);
         }
         this.initLoadRateCalculator();
     }
@@ -150,14 +167,100 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
         return true;   // no entry in the list of failed conversions means successful conversion
     }
     
+    /**
+     * Skips the conversion status of rows whose results are never processed, keeping
+     * isRowConversionSuccessful() in step with the rows of later batches.
+     */
+    protected void skipRowConversionChecks(List<TableRow> daoRows) {
+        this.rowConversionCheckCounter += daoRows.size();
+    }
+
+    /**
+     * @return executor sending batches concurrently, null if sfdc.syncApiParallelCalls is 1
+     * and batches are loaded on the visiting thread
+     */
+    protected ConcurrentBatchExecutor createConcurrentBatchExecutor(ConcurrentBatchExecutor.BatchCall batchCall,
+            ConcurrentBatchExecutor.BatchResultHandler resultHandler) {
+        int parallelCalls;
+        try {
+            parallelCalls = Math.max(1, Math.min(getConfig().getInt(AppConfig.PROP_SYNC_API_PARALLEL_CALLS),
+                    AppConfig.MAX_SYNC_API_PARALLEL_CALLS));
+        } catch (ParameterLoadException e) {
+            logger.warn("Incorrectly configured " + AppConfig.PROP_SYNC_API_PARALLEL_CALLS);
+            parallelCalls = AppConfig.DEFAULT_SYNC_API_PARALLEL_CALLS;
+        }
+        if (parallelCalls <= 1) {
+            return null;
+        }
+        return new ConcurrentBatchExecutor(parallelCalls,
+                getConfig().getString(AppConfig.PROP_SYNC_API_PARALLEL_CALLS_LANE_FIELD), batchCall,
+                new ConcurrentBatchExecutor.BatchResultHandler() {
+                    @Override
+                    public void batchLoaded(List<TableRow> daoRows, Object[] results)
+                            throws DataAccessObjectException, OperationException {
+                        resultHandler.batchLoaded(daoRows, results);
+                    }
+
+                    @Override
+                    public void batchAbandoned(List<TableRow> daoRows) {
+                        skipRowConversionChecks(daoRows);
+                    }
+                });
+    }
+
     private int bytesInBatch = 0;
 
+    /**
+     * A data source row on its way into a batch. It is created by mapRow(), its values are
+     * converted by convertRow() and it is added to the batch by addConvertedRow().
+     */
+    public static class ConvertedRow {
+        private final TableRow daoRow;
+        private final TableRow sforceDataRow;
+        private TableRow sourceRow = null;
+        private DynaBean dynaBean = null;
+        private String conversionErrorMsg = null;
+
+        ConvertedRow(TableRow daoRow, TableRow sforceDataRow) {
+            this.daoRow = daoRow;
+            this.sforceDataRow = sforceDataRow;
+        }
+
+        public TableRow getDaoRow() {
+            return this.daoRow;
+        }
+
+        /**
+         * @return copy of the data source row taken before it was changed by the load, if any
+         */
+        public TableRow getSourceRow() {
+            return this.sourceRow;
+        }
+
+        public void setSourceRow(TableRow sourceRow) {
+            this.sourceRow = sourceRow;
+        }
+    }
+
     @Override
     public boolean visit(TableRow row) throws OperationException, DataAccessObjectException,
     ConnectionException, BatchSizeLimitException {
-        AppConfig appConfig = controller.getAppConfig();
+        ConvertedRow convertedRow = mapRow(row);
+        convertRow(convertedRow);
+        return addConvertedRow(convertedRow);
+    }
+
+    /**
+     * Maps a data source row to the sObject fields. Rows must be mapped one at a time
+     * and in data source order.
+     *
+     * @param row data source row
+     * @return the row to pass to convertRow()
+     */
+    public ConvertedRow mapRow(TableRow row) throws ConnectionException {
         // the result are sforce fields mapped to data
-        TableRow sforceDataRow = getMapper().mapData(row, processedDAORowCounter == 0);
+        TableRow sforceDataRow = getMapper().mapData(row, !this.isFirstRowMapped);
+        this.isFirstRowMapped = true;
         if (this.getConfig().getBoolean(AppConfig.PROP_TRUNCATE_FIELDS)
             && this.getConfig().isRESTAPIEnabled()
             && "update".equalsIgnoreCase(this.getConfig().getString(AppConfig.PROP_OPERATION))) {
@@ -197,63 +300,85 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
                 }
             }
         }
+        return new ConvertedRow(row, sforceDataRow);
+    }
+
+    /**
+     * Converts the mapped values of a row. Rows mapped by mapRow() can be converted
+     * concurrently by several threads.
+     *
+     * @param convertedRow row returned by mapRow()
+     */
+    public void convertRow(ConvertedRow convertedRow) throws LoadException {
+        TableRow sforceDataRow = convertedRow.sforceDataRow;
         convertBulkAPINulls(sforceDataRow);
-                
-        // Make sure to initialize dynaClass only after mapping a row.
-        // This is to make sure that all polymorphic field mappings specified
-        // in the mapping file are mapped to parent object.
+        try {
+            DynaBean dynaBean = this.rowConverters.get().convertToDynaBean(sforceDataRow);
+            for (String fName : RowConverter.getPropertyNamesWithValues(dynaBean)) {
+                // see if any entity foreign key references are embedded here
+                Object value = this.getFieldValue(fName, dynaBean.get(fName));
+                dynaBean.set(fName, value);
+            }
+            convertedRow.dynaBean = dynaBean;
+        } catch (ConversionException conve) {
+            String errMsg = Messages.getMessage("Visitor", "conversionErrorMsg", conve.getMessage());
+            getLogger().error(errMsg, conve);
+            convertedRow.conversionErrorMsg = errMsg;
+        }
+    }
+
+    // Make sure to initialize dynaClass only after mapping a row.
+    // This is to make sure that all polymorphic field mappings specified
+    // in the mapping file are mapped to parent object.
+    private synchronized RowConverter newRowConverter() {
         if (dynaProps == null) {
             dynaProps = SforceDynaBean.createDynaProps(controller.getFieldTypes(), controller);
         }
         if (dynaClass == null) {
             dynaClass = SforceDynaBean.getDynaBeanInstance(dynaProps);
         }
-        try {
-            DynaBean dynaBean = SforceDynaBean.convertToDynaBean(dynaClass, sforceDataRow);
-            Map<String, String> fieldMap = BeanUtils.describe(dynaBean);
-            for (String fName : fieldMap.keySet()) {
-                Object fieldVal = fieldMap.get(fName);
-                if (fieldVal != null) {
-                    // see if any entity foreign key references are embedded here
-                    Object value = this.getFieldValue(fName, dynaBean.get(fName));
-                    dynaBean.set(fName, value);
-                }
-            }
-
-            int bytesInBean = getBytesInBean(dynaBean);
-            if (this.bytesInBatch + bytesInBean > getMaxBytesInBatch()) {
-                loadBatch();
-                this.bytesInBatch = 0;
-                this.processedDAORowCounter--; // roll back the counter by 1
-                throw new BatchSizeLimitException("batch max bytes size reached");
-            }
-            if (appConfig.getBoolean(AppConfig.PROP_PROCESS_BULK_CACHE_DATA_FROM_DAO)
-                    || (!appConfig.isBulkAPIEnabled() && !appConfig.isBulkV2APIEnabled())) {
-                // either bulk mode or cache bulk data uploaded from DAO
-                this.daoRowList.add(row);
-            }
-            dynaArray.add(dynaBean);
-            this.bytesInBatch += bytesInBean;
-            this.batchRowToDAORowList.add(this.processedDAORowCounter);
-        } catch (ConversionException | IllegalAccessException conve) {
-            String errMsg = Messages.getMessage("Visitor", "conversionErrorMsg", conve.getMessage());
-            getLogger().error(errMsg, conve);
+        return new RowConverter(dynaClass);
+    }
 
-            conversionFailed(row, errMsg);
+    /**
+     * Adds a converted row to the current batch, loading the batch when it is full. Rows
+     * must be added one at a time and in data source order.
+     *
+     * @param convertedRow row converted by convertRow()
+     * @return true if the row was added, false if its conversion failed
+     * @throws BatchSizeLimitException if the row does not fit in the batch. The batch is
+     * loaded and the row has to be added again.
+     */
+    public boolean addConvertedRow(ConvertedRow convertedRow) throws OperationException, DataAccessObjectException,
+    BatchSizeLimitException {
+        AppConfig appConfig = controller.getAppConfig();
+        TableRow row = convertedRow.daoRow;
+        DynaBean dynaBean = convertedRow.dynaBean;
+        if (dynaBean == null) {
+            conversionFailed(row, convertedRow.conversionErrorMsg);
             if (!appConfig.isBulkAPIEnabled() && !appConfig.isBulkV2APIEnabled()) {
                 // SOAP or REST API use daoRowList to process results of an upload request
                 this.daoRowList.add(row);
             }
-            return false;
-        } catch (InvocationTargetException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        } catch (NoSuchMethodException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        } finally {
             this.processedDAORowCounter++;
+            return false;
+        }
+
+        int bytesInBean = getBytesInBean(dynaBean);
+        if (this.bytesInBatch + bytesInBean > getMaxBytesInBatch()) {
+            loadBatch();
+            this.bytesInBatch = 0;
+            throw new BatchSizeLimitException("batch max bytes size reached");
+        }
+        if (appConfig.getBoolean(AppConfig.PROP_PROCESS_BULK_CACHE_DATA_FROM_DAO)
+                || (!appConfig.isBulkAPIEnabled() && !appConfig.isBulkV2APIEnabled())) {
+            // either bulk mode or cache bulk data uploaded from DAO
+            this.daoRowList.add(row);
         }
+        dynaArray.add(dynaBean);
+        this.bytesInBatch += bytesInBean;
+        this.batchRowToDAORowList.add(this.processedDAORowCounter);
+        this.processedDAORowCounter++;
 
         // load the batch
         if (dynaArray.size() >= this.MAX_ROWS_IN_BATCH) {
@@ -279,13 +404,28 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
     protected void convertBulkAPINulls(TableRow row) {}
 
     public void flushRemaining() throws OperationException, DataAccessObjectException, BatchSizeLimitException {
-        // check if there are any entities left
-        if (dynaArray.size() > 0) {
-            loadBatch();
+        boolean isFlushed = false;
+        try {
+            // check if there are any entities left
+            if (dynaArray.size() > 0) {
+                loadBatch();
+            }
+            // clear the caches
+            cachedFieldAttributesForOperation = null;
+            closeJob();
+            isFlushed = true;
+        } finally {
+            // save the checkpoint of the batches loaded so far, reporting the failure of the load if there is one
+            try {
+                getConfig().flushLastRunCheckpoint();
+            } catch (IOException e) {
+                String errMsg = Messages.getString("LoadAction.errorLastRun");
+                getLogger().error(errMsg, e);
+                if (isFlushed) {
+                    handleException(errMsg, e);
+                }
+            }
         }
-        // clear the caches
-        cachedFieldAttributesForOperation = null;
-        closeJob();
     }
     
     protected void closeJob() throws OperationException, DataAccessObjectException, BatchSizeLimitException {
@@ -339,8 +479,8 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
     }
     
     private static Controller currentController = null;
-    private ArrayList<String> htmlFormattedSforceFieldList = null;
-    private ArrayList<String> phoneSforceFieldList = null;
+    private HashSet<String> htmlFormattedSforceFieldList = null;
+    private HashSet<String> phoneSforceFieldList = null;
 
     private synchronized void getHtmlFormattedAndPhoneSforceFieldList() {
         if (htmlFormattedSforceFieldList != null && phoneSforceFieldList != null) {
@@ -358,8 +498,8 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
             return;
         }
         currentController = getController();
-        htmlFormattedSforceFieldList = new ArrayList<String>();
-        phoneSforceFieldList = new ArrayList<String>();
+        htmlFormattedSforceFieldList = new HashSet<String>();
+        phoneSforceFieldList = new HashSet<String>();
         DescribeSObjectResult result = getController().getFieldTypes();
         Field[] fields = result.getFields();
         for (Field field : fields) {
@@ -396,72 +536,235 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
             || !getController().getAppConfig().getBoolean(AppConfig.PROP_LOAD_PRESERVE_WHITESPACE_IN_RICH_TEXT)) {
             return fieldValue;
         }
-        return preserveWhitespaceInRichText((String)fieldValue, this.richTextRegex);
+        return preserveWhitespaceInRichText((String)fieldValue, this.richTextPattern);
     }
 
     public static String preserveWhitespaceInRichText(String fvalue, String regex) {
-        String[] outsideHTMLTags = fvalue.split(regex);
-        
-        // preserve newline chars if the field value has no HTML tags.
-        // Convert them to whitespace char otherwise.
-        String newlineReplacement = (outsideHTMLTags.length == 1)?"<br/>" : " ";
-        fvalue = fvalue.replaceAll("\r\n", newlineReplacement);
-        fvalue = fvalue.replaceAll("\n", newlineReplacement);
-        fvalue = fvalue.replaceAll("\r", newlineReplacement);
-
-        outsideHTMLTags = fvalue.split(regex);
-        Pattern htmlTagInRichTextPattern = Pattern.compile(regex);
-        Matcher matcher = htmlTagInRichTextPattern.matcher(fvalue);
-        String htmlEscapedValue = "";
-        int idx = 0;
-        while (matcher.find()) {
-            if (idx >= outsideHTMLTags.length) {
-                htmlEscapedValue += matcher.group();
+        Pattern htmlTagInRichTextPattern = AppConfig.DEFAULT_RICHTEXT_REGEX.equals(regex) ?
+                DEFAULT_RICH_TEXT_PATTERN : Pattern.compile(regex);
+        return preserveWhitespaceInRichText(fvalue, htmlTagInRichTextPattern);
+    }
+
+    public static String preserveWhitespaceInRichText(String fvalue, Pattern htmlTagInRichTextPattern) {
+        if (htmlTagInRichTextPattern == DEFAULT_RICH_TEXT_PATTERN && !needsRichTextEscaping(fvalue)) {
+            return fvalue;
+        }
+        HTMLTagScanner tagScanner = new HTMLTagScanner(htmlTagInRichTextPattern, fvalue);
+        if (fvalue.indexOf('\n') >= 0 || fvalue.indexOf('\r') >= 0) {
+            // preserve newline chars if the field value has no HTML tags.
+            // Convert them to whitespace char otherwise.
+            String newlineReplacement = hasTextOnlyBeforeHTMLTags(tagScanner, fvalue) ? "<br/>" : " ";
+            fvalue = replaceNewlines(fvalue, newlineReplacement);
+            tagScanner.reset(fvalue);
+        }
+
+        StringBuilder htmlEscapedValue = new StringBuilder(fvalue.length() + 16);
+        int textStart = 0;
+        // String.split() does not return the empty text before a zero-width match at the start,
+        // which moved each tag after the text following it. Keep that behavior for such regexes.
+        boolean isTagAfterText = false;
+        int pendingTagStart = 0;
+        int pendingTagEnd = 0;
+        while (tagScanner.find()) {
+            if (tagScanner.end() == 0) {
+                isTagAfterText = true;
+                continue;
+            }
+            appendEscapedHTMLChars(htmlEscapedValue, fvalue, textStart, tagScanner.start());
+            if (isTagAfterText) {
+                htmlEscapedValue.append(fvalue, pendingTagStart, pendingTagEnd);
+                pendingTagStart = tagScanner.start();
+                pendingTagEnd = tagScanner.end();
             } else {
-                htmlEscapedValue += escapeHTMLChars(outsideHTMLTags[idx]) + matcher.group();
+                htmlEscapedValue.append(fvalue, tagScanner.start(), tagScanner.end());
             }
-            idx++;
+            textStart = tagScanner.end();
         }
-        if (outsideHTMLTags.length > idx) {
-            htmlEscapedValue += escapeHTMLChars(outsideHTMLTags[idx]);
-        }
-        return htmlEscapedValue;
+        appendEscapedHTMLChars(htmlEscapedValue, fvalue, textStart, fvalue.length());
+        htmlEscapedValue.append(fvalue, pendingTagStart, pendingTagEnd);
+        return htmlEscapedValue.toString();
     }
-    
-    private static String escapeHTMLChars(String input) {
-        if (input == null) {
-            return null;
+
+    /*
+     * Returns false if the value is printable ASCII text without newlines, markup, entities,
+     * or consecutive spaces, i.e. preserveWhitespaceInRichText() would return it unchanged.
+     */
+    private static boolean needsRichTextEscaping(String fvalue) {
+        char prevChar = 0;
+        for (int i = 0; i < fvalue.length(); i++) {
+            char c = fvalue.charAt(i);
+            if (c >= 0x7F || c == '\n' || c == '\r' || c == '<' || c == '>'
+                    || c == '&' || c == '"' || (c == ' ' && prevChar == ' ')) {
+                return true;
+            }
+            prevChar = c;
         }
-        String unescapedInput = StringEscapeUtils.unescapeHtml4(input);
-        StringBuffer htmlFormattedStr = new StringBuffer("");
-        int unescapedInputLength = unescapedInput.length();
-        for (int offset = 0; offset < unescapedInputLength; ) {
-            int unicodeValOfChar = unescapedInput.codePointAt(offset);
-            int unicodeValOfNextChar = 0;
-            if (offset+1 < unescapedInput.length()) {
-                unicodeValOfNextChar = unescapedInput.codePointAt(offset+1);
+        return false;
+    }
+
+    /*
+     * Same as fvalue.split(regex).length == 1: either no HTML tags, or text followed only by
+     * HTML tags because split() drops trailing empty strings.
+     */
+    private static boolean hasTextOnlyBeforeHTMLTags(HTMLTagScanner tagScanner, String fvalue) {
+        boolean hasTag = false;
+        int textStart = 0;
+        while (tagScanner.find()) {
+            if (tagScanner.end() == 0) {
+                continue;
             }
-            int unicodeValOfPrevChar = 0;
-            if (offset > 0) {
-                unicodeValOfPrevChar = unescapedInput.codePointAt(offset-Character.charCount(unicodeValOfChar));
+            if (hasTag ? tagScanner.start() > textStart : tagScanner.start() == 0) {
+                return false;
             }
+            hasTag = true;
+            textStart = tagScanner.end();
+        }
+        return !hasTag || textStart == fvalue.length();
+    }
 
-            boolean isCharWhitespace = Character.getType(unicodeValOfChar) == Character.SPACE_SEPARATOR;
-            boolean isNextCharWhitespace = Character.getType(unicodeValOfNextChar) == Character.SPACE_SEPARATOR;
-            boolean isPrevCharWhitespace = Character.getType(unicodeValOfPrevChar) == Character.SPACE_SEPARATOR;
-            //only occurrences of multiple w
-            if (isCharWhitespace) {
-                if (isNextCharWhitespace || isPrevCharWhitespace) {
+    private static String replaceNewlines(String fvalue, String newlineReplacement) {
+        StringBuilder replacedValue = new StringBuilder(fvalue.length() + 16);
+        for (int i = 0; i < fvalue.length(); i++) {
+            char c = fvalue.charAt(i);
+            if (c == '\r') {
+                replacedValue.append(newlineReplacement);
+                if (i + 1 < fvalue.length() && fvalue.charAt(i + 1) == '\n') {
+                    i++;
+                }
+            } else if (c == '\n') {
+                replacedValue.append(newlineReplacement);
+            } else {
+                replacedValue.append(c);
+            }
+        }
+        return replacedValue.toString();
+    }
+
+    private static void appendEscapedHTMLChars(StringBuilder htmlFormattedStr, String input, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        int ampersandIdx = input.indexOf('&', start);
+        if (ampersandIdx >= 0 && ampersandIdx < end) {
+            input = StringEscapeUtils.unescapeHtml4(input.substring(start, end));
+            start = 0;
+            end = input.length();
+        }
+        for (int offset = start; offset < end; ) {
+            char c = input.charAt(offset);
+            int unicodeValOfChar = c;
+            if (Character.isHighSurrogate(c) && offset + 1 < end
+                    && Character.isLowSurrogate(input.charAt(offset + 1))) {
+                unicodeValOfChar = Character.toCodePoint(c, input.charAt(offset + 1));
+            }
+            //only occurrences of multiple whitespace chars are converted to &nbsp;
+            if (Character.getType(unicodeValOfChar) == Character.SPACE_SEPARATOR) {
+                if ((offset > start && isSpaceSeparator(input.charAt(offset - 1)))
+                        || (offset + 1 < end && isSpaceSeparator(input.charAt(offset + 1)))) {
                     htmlFormattedStr.append("&nbsp;");
                 } else {
-                    htmlFormattedStr.append(Character.toString(unicodeValOfChar));
+                    htmlFormattedStr.append(c);
+                }
+            } else if (unicodeValOfChar < HTML4_ESCAPED_CHARS.length) {
+                String escapedChar = HTML4_ESCAPED_CHARS[unicodeValOfChar];
+                if (escapedChar == null) {
+                    htmlFormattedStr.append(c);
+                } else {
+                    htmlFormattedStr.append(escapedChar);
                 }
             } else {
                 htmlFormattedStr.append(StringEscapeUtils.escapeHtml4(Character.toString(unicodeValOfChar)));
             }
             offset += Character.charCount(unicodeValOfChar);
         }
-        return htmlFormattedStr.toString();
+    }
+
+    private static boolean isSpaceSeparator(char c) {
+        return Character.getType(c) == Character.SPACE_SEPARATOR;
+    }
+
+    /*
+     * Finds the HTML tags in a rich text value. Tags of the default regex are found by scanning
+     * the chars, which gives the same matches as the regex without its backtracking.
+     */
+    private static final class HTMLTagScanner {
+        private final Matcher matcher;
+        private String fvalue;
+        private int searchStart = 0;
+        private int tagStart = -1;
+        private int tagEnd = -1;
+
+        HTMLTagScanner(Pattern htmlTagInRichTextPattern, String fvalue) {
+            this.matcher = (htmlTagInRichTextPattern == DEFAULT_RICH_TEXT_PATTERN) ?
+                    null : htmlTagInRichTextPattern.matcher(fvalue);
+            this.fvalue = fvalue;
+        }
+
+        void reset(String fvalue) {
+            this.fvalue = fvalue;
+            this.searchStart = 0;
+            if (matcher != null) {
+                matcher.reset(fvalue);
+            }
+        }
+
+        boolean find() {
+            if (matcher != null) {
+                if (!matcher.find()) {
+                    return false;
+                }
+                tagStart = matcher.start();
+                tagEnd = matcher.end();
+                return true;
+            }
+            for (int i = fvalue.indexOf('<', searchStart); i >= 0; i = fvalue.indexOf('<', i + 1)) {
+                int end = getDefaultTagEnd(i);
+                if (end > 0) {
+                    tagStart = i;
+                    tagEnd = end;
+                    searchStart = end;
+                    return true;
+                }
+            }
+            searchStart = fvalue.length();
+            return false;
+        }
+
+        int start() {
+            return tagStart;
+        }
+
+        int end() {
+            return tagEnd;
+        }
+
+        // '<' followed by a letter or '/', then quoted values or chars other than quotes up to '>'
+        private int getDefaultTagEnd(int start) {
+            int i = start + 1;
+            if (i >= fvalue.length()) {
+                return -1;
+            }
+            char c = fvalue.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '/')) {
+                return -1;
+            }
+            while (i < fvalue.length()) {
+                c = fvalue.charAt(i);
+                if (c == '>') {
+                    return i + 1;
+                }
+                if (c == '"' || c == '\'') {
+                    int closingQuoteIdx = fvalue.indexOf(c, i + 1);
+                    if (closingQuoteIdx < 0) {
+                        return -1;
+                    }
+                    i = closingQuoteIdx + 1;
+                } else {
+                    i++;
+                }
+            }
+            return -1;
+        }
     }
 
     private Object getPhoneFieldValue(String fieldName, Object fieldValue) {
@@ -502,9 +805,12 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
             currentProcessed = 0;
         }
         currentProcessed += results.length;
+        // the results of the rows in the checkpoint have to reach the status files first
+        awaitStatusWrites(getSuccessWriter());
+        awaitStatusWrites(getErrorWriter());
         getConfig().setValue(LastRunProperties.LAST_LOAD_BATCH_ROW, currentProcessed);
         try {
-            getConfig().saveLastRun();
+            getConfig().checkpointLastRun(results.length);
         } catch (IOException e) {
             String errMsg = Messages.getString("LoadAction.errorLastRun");
             getLogger().error(errMsg, e);
@@ -512,7 +818,18 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
         }
     }
     
-    private HashMap<String, Boolean> fieldTypesMap = new HashMap<String, Boolean>();
+    private void awaitStatusWrites(DataWriterInterface writer) throws LoadException {
+        if (writer instanceof AsyncDataWriter) {
+            try {
+                ((AsyncDataWriter)writer).awaitWritten();
+            } catch (DataAccessObjectException e) {
+                throw new LoadException(e.getMessage(), e);
+            }
+        }
+    }
+
+    // read by the threads converting rows
+    private final Map<String, Boolean> fieldTypesMap = new ConcurrentHashMap<String, Boolean>();
     private boolean isIdLookupField(String fieldName) {
         if (fieldName == null) {
             return false;
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Computes how long to wait before the next status check of a Bulk API job.
+ *
+ * The wait starts at the minimum interval and grows geometrically up to the
+ * maximum interval, so that small jobs are noticed soon after they complete
+ * and long running jobs do not use up API calls. If the job reports how much
+ * of its work is done, the rate observed between status checks is used to
+ * estimate the time to completion: the next check is not scheduled after the
+ * estimated completion, and the interval grows faster for jobs that are
+ * estimated to take long. A random jitter spreads the checks of concurrent jobs.
+ */
+class AdaptivePollInterval {
+
+    static final double GROWTH_FACTOR = 1.5;
+    static final double DEFAULT_JITTER = 0.1;
+
+    private final long minInterval;
+    private final long maxInterval;
+    private final double jitter;
+    private final LongSupplier clock;
+    private final Random random;
+
+    private long interval;
+    private long progressTime;
+    private long progress;
+    private double rate;
+
+    AdaptivePollInterval(long minInterval, long maxInterval) {
+        this(minInterval, maxInterval, DEFAULT_JITTER, System::currentTimeMillis, new Random());
+    }
+
+    /**
+     * @param minInterval shortest wait in milliseconds
+     * @param maxInterval longest wait in milliseconds
+     * @param jitter fraction of the wait by which it is randomly lengthened or shortened
+     * @param clock current time in milliseconds
+     * @param random source of the jitter
+     */
+    AdaptivePollInterval(long minInterval, long maxInterval, double jitter, LongSupplier clock, Random random) {
+        this.minInterval = Math.max(1, minInterval);
+        this.maxInterval = Math.max(this.minInterval, maxInterval);
+        this.jitter = jitter;
+        this.clock = clock;
+        this.random = random;
+        reset();
+    }
+
+    /**
+     * Starts over from the minimum interval, e.g. for the next job.
+     */
+    void reset() {
+        this.interval = 0;
+        this.progressTime = -1;
+        this.progress = 0;
+        this.rate = 0;
+    }
+
+    /**
+     * @param completed units of work completed in the job so far, e.g. batches
+     * @param total total units of work in the job, 0 or less if not known
+     * @return milliseconds to wait before the next status check
+     */
+    long nextInterval(long completed, long total) {
+        observeProgress(completed);
+        this.interval = this.interval == 0 ? this.minInterval
+                : Math.min(this.maxInterval, (long)(this.interval * GROWTH_FACTOR));
+        long next = this.interval;
+        if (total > 0 && completed >= total) {
+            // all work is done, the job state is about to change
+            next = this.minInterval;
+        } else if (total > 0 && this.rate > 0) {
+            long estimatedTimeToCompletion = (long)((total - completed) / this.rate);
+            if (estimatedTimeToCompletion <= this.interval) {
+                next = estimatedTimeToCompletion;
+            } else {
+                // check again halfway to the estimated completion
+                this.interval = Math.min(this.maxInterval, Math.max(this.interval, estimatedTimeToCompletion / 2));
+                next = this.interval;
+            }
+        }
+        if (this.jitter > 0) {
+            next = (long)(next * (1 + this.jitter * (2 * this.random.nextDouble() - 1)));
+        }
+        return Math.max(this.minInterval, Math.min(this.maxInterval, next));
+    }
+
+    private void observeProgress(long completed) {
+        long now = this.clock.getAsLong();
+        if (this.progressTime < 0) {
+            this.progressTime = now;
+            this.progress = completed;
+            return;
+        }
+        if (completed <= this.progress || now <= this.progressTime) {
+            // measure the rate over a longer period if nothing changed since the last check
+            return;
+        }
+        double observedRate = (double)(completed - this.progress) / (now - this.progressTime);
+        this.rate = this.rate == 0 ? observedRate : (this.rate + observedRate) / 2;
+        this.progressTime = now;
+        this.progress = completed;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.util.DLLogManager;
+
+/**
+ * Collects the CSV payload of a Bulk API batch or a Bulk v2 job. The payload is kept
+ * in memory until it grows past the configured threshold. After that it is spooled
+ * to a temporary file so that a large batch is not held on the heap, and it is
+ * streamed from that file when the batch is uploaded.
+ */
+public class BatchPayloadSink extends OutputStream {
+    private static final Logger logger = DLLogManager.getLogger(BatchPayloadSink.class);
+    private static final String SPOOL_FILE_PREFIX = "bulkBatchPayload";
+    private static final String SPOOL_FILE_SUFFIX = ".csv";
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final int SPOOL_BUFFER_SIZE = 65536;
+    private static final byte[] EMPTY_BUFFER = new byte[0];
+
+    private final long inMemoryThreshold;
+    private final File spoolDir;
+
+    private byte[] buf = EMPTY_BUFFER;
+    private int count = 0;
+    private long size = 0;
+    private File spoolFile = null;
+    private OutputStream spoolOut = null;
+
+    /**
+     * @param inMemoryThreshold number of bytes kept in memory before the payload is spooled to disk
+     * @param spoolDir directory for spool files, or null to use the default temporary-file directory
+     */
+    public BatchPayloadSink(long inMemoryThreshold, File spoolDir) {
+        this.inMemoryThreshold = inMemoryThreshold;
+        this.spoolDir = spoolDir;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (this.spoolOut == null && this.count + 1 > this.inMemoryThreshold) {
+            spool();
+        }
+        if (this.spoolOut != null) {
+            this.spoolOut.write(b);
+        } else {
+            ensureCapacity(this.count + 1);
+            this.buf[this.count++] = (byte)b;
+        }
+        this.size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (this.spoolOut == null && (long)this.count + len > this.inMemoryThreshold) {
+            spool();
+        }
+        if (this.spoolOut != null) {
+            this.spoolOut.write(b, off, len);
+        } else {
+            ensureCapacity(this.count + len);
+            System.arraycopy(b, off, this.buf, this.count, len);
+            this.count += len;
+        }
+        this.size += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (this.spoolOut != null) {
+            this.spoolOut.flush();
+        }
+    }
+
+    /**
+     * @return number of payload bytes written since the last reset
+     */
+    public long size() {
+        return this.size;
+    }
+
+    public boolean isSpooled() {
+        return this.spoolFile != null;
+    }
+
+    /**
+     * Returns a stream over the payload written so far. The in-memory buffer and the
+     * spool file are read in place, without making a copy of the payload.
+     */
+    public InputStream getInputStream() throws IOException {
+        if (this.spoolOut != null) {
+            this.spoolOut.flush();
+            return new BufferedInputStream(new FileInputStream(this.spoolFile), SPOOL_BUFFER_SIZE);
+        }
+        return new ByteArrayInputStream(this.buf, 0, this.count);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        if (this.spoolOut == null) {
+            out.write(this.buf, 0, this.count);
+            return;
+        }
+        try (InputStream in = getInputStream()) {
+            in.transferTo(out);
+        }
+    }
+
+    /**
+     * Discards the payload so that the sink can collect the next batch. The spool file,
+     * if any, is deleted while the in-memory buffer is kept for reuse.
+     */
+    public void reset() {
+        this.count = 0;
+        this.size = 0;
+        if (this.spoolOut != null) {
+            try {
+                this.spoolOut.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close spool file " + this.spoolFile.getAbsolutePath(), e);
+            }
+            this.spoolOut = null;
+        }
+        if (this.spoolFile != null) {
+            if (!this.spoolFile.delete()) {
+                logger.warn("Unable to delete spool file " + this.spoolFile.getAbsolutePath());
+            }
+            this.spoolFile = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        reset();
+        this.buf = EMPTY_BUFFER;
+    }
+
+    private void spool() throws IOException {
+        this.spoolFile = File.createTempFile(SPOOL_FILE_PREFIX, SPOOL_FILE_SUFFIX, this.spoolDir);
+        logger.debug("spooling batch payload larger than " + this.inMemoryThreshold
+                + " bytes to " + this.spoolFile.getAbsolutePath());
+        this.spoolOut = new BufferedOutputStream(new FileOutputStream(this.spoolFile), SPOOL_BUFFER_SIZE);
+        this.spoolOut.write(this.buf, 0, this.count);
+        this.count = 0;
+        // the in-memory payload now lives in the spool file, release the buffer
+        this.buf = EMPTY_BUFFER;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity <= this.buf.length) {
+            return;
+        }
+        int newCapacity = Math.max(this.buf.length * 2, Math.max(minCapacity, INITIAL_BUFFER_SIZE));
+        if (newCapacity > this.inMemoryThreshold) {
+            newCapacity = (int)Math.max(minCapacity, this.inMemoryThreshold);
+        }
+        this.buf = Arrays.copyOf(this.buf, newCapacity);
+    }
+}
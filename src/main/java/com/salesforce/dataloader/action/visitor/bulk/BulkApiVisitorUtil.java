@@ -27,6 +27,7 @@ package com.salesforce.dataloader.action.visitor.bulk;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
@@ -37,6 +38,7 @@ import java.util.Map;
 import org.apache.logging.log4j.Logger;
 
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
+import com.salesforce.dataloader.client.transport.StreamingUploadEntity;
 import com.salesforce.dataloader.config.AppConfig;
 import com.salesforce.dataloader.config.Messages;
 import com.salesforce.dataloader.controller.Controller;
@@ -51,7 +53,6 @@ import com.sforce.async.BatchInfo;
 import com.sforce.async.BatchInfoList;
 import com.sforce.async.BatchStateEnum;
 import com.sforce.async.BulkConnection;
-import com.sforce.async.CSVReader;
 import com.sforce.async.ConcurrencyMode;
 import com.sforce.async.ContentType;
 import com.sforce.async.JobInfo;
@@ -64,7 +65,8 @@ public class BulkApiVisitorUtil {
 
     private final BulkConnection connection;
 
-    private JobInfo jobInfo = null;
+    // read by the batch upload threads
+    private volatile JobInfo jobInfo = null;
     private int recordsProcessed;
 
     private final Map<String, InputStream> attachments = new HashMap<String, InputStream>();
@@ -72,6 +74,7 @@ public class BulkApiVisitorUtil {
 
     private final long checkStatusInterval;
     private long lastStatusUpdate;
+    private final AdaptivePollInterval pollInterval;
 
     private final ILoaderProgress monitor;
     private final LoadRateCalculator rateCalc;
@@ -102,6 +105,23 @@ public class BulkApiVisitorUtil {
         } catch (ParameterLoadException e) {
             throw new RuntimeException("Failed to initialize check status interval", e);
         }
+        long minCheckStatusInterval = AppConfig.DEFAULT_BULK_API_MIN_CHECK_STATUS_INTERVAL;
+        long maxCheckStatusInterval = AppConfig.DEFAULT_BULK_API_MAX_CHECK_STATUS_INTERVAL;
+        try {
+            minCheckStatusInterval = this.appConfig.getLong(AppConfig.PROP_BULK_API_MIN_CHECK_STATUS_INTERVAL);
+            maxCheckStatusInterval = this.appConfig.getLong(AppConfig.PROP_BULK_API_MAX_CHECK_STATUS_INTERVAL);
+        } catch (ParameterLoadException e) {
+            logger.warn("Incorrectly configured " + AppConfig.PROP_BULK_API_MIN_CHECK_STATUS_INTERVAL
+                    + " or " + AppConfig.PROP_BULK_API_MAX_CHECK_STATUS_INTERVAL);
+        }
+        if (this.checkStatusInterval != AppConfig.DEFAULT_BULK_API_CHECK_STATUS_INTERVAL
+                && this.checkStatusInterval > minCheckStatusInterval) {
+            // a check status interval raised to save API calls is not undercut by the adaptive checks
+            logger.info("Checking the job status at least " + this.checkStatusInterval + " ms apart, as configured by "
+                    + AppConfig.PROP_BULK_API_CHECK_STATUS_INTERVAL);
+            minCheckStatusInterval = this.checkStatusInterval;
+        }
+        this.pollInterval = new AdaptivePollInterval(minCheckStatusInterval, maxCheckStatusInterval);
         
         /*
          * ======== Start code block to support PK chunking
@@ -237,13 +257,13 @@ public class BulkApiVisitorUtil {
         	batch = new BatchInfo();
         	batch.setId("BULKV2_LOAD_BATCH_" + this.bulkV2LoadBatchCount++);
         } else { // Bulk v1 job
-	        BulkConnection connectionClient = this.controller.getBulkV1Client().getConnection();
 	        if (this.jobInfo.getContentType() == ContentType.ZIP_CSV) {
+	            BulkConnection connectionClient = this.controller.getBulkV1Client().getConnection();
 	            batch = connectionClient.createBatchWithInputStreamAttachments(this.jobInfo, batchContent, this.attachments);
+	            logger.info(Messages.getMessage(getClass(), "logBatchLoaded", batch.getId()));
 	        } else {
-	            batch = connectionClient.createBatchFromStream(this.jobInfo, batchContent);
+	            batch = createCSVBatch(batchContent);
 	        }
-	        logger.info(Messages.getMessage(getClass(), "logBatchLoaded", batch.getId()));
         }
         AppUtil.captureUsedHeap(MEMORY_USE_TAG_CREATE_BULK_UPLOAD_);
 
@@ -253,6 +273,35 @@ public class BulkApiVisitorUtil {
         return batch;
     }
     
+    /**
+     * Creates a batch from content that can be read more than once. The data of a Bulk v2
+     * load job is streamed from the source, which is opened again if the upload is retried.
+     */
+    BatchInfo createBatch(StreamingUploadEntity.ContentSource batchSource) throws AsyncApiException, IOException {
+        if (!isBulkV2LoadJob()) {
+            try (InputStream batchContent = batchSource.open()) {
+                return createBatch(batchContent);
+            }
+        }
+        BulkV2Connection v2conn = this.controller.getBulkV2Client().getConnection();
+        this.jobInfo = v2conn.startIngest(this.getJobId(), batchSource);
+        AppUtil.captureUsedHeap(MEMORY_USE_TAG_CREATE_BULK_UPLOAD_);
+        BatchInfo batch = new BatchInfo();
+        batch.setId("BULKV2_LOAD_BATCH_" + this.bulkV2LoadBatchCount++);
+        return batch;
+    }
+
+    /**
+     * Uploads a CSV batch to the current Bulk v1 job. It does not touch the attachments
+     * of the job, so the batch upload threads can call it concurrently.
+     */
+    BatchInfo createCSVBatch(InputStream batchContent) throws AsyncApiException {
+        BulkConnection connectionClient = this.controller.getBulkV1Client().getConnection();
+        BatchInfo batch = connectionClient.createBatchFromStream(this.jobInfo, batchContent);
+        logger.info(Messages.getMessage(getClass(), "logBatchLoaded", batch.getId()));
+        return batch;
+    }
+    
     void processBulkV2LoadBatch(InputStream batchContent) throws AsyncApiException {
         BulkV2Connection v2conn = this.controller.getBulkV2Client().getConnection();
         this.jobInfo = v2conn.startIngest(this.getJobId(), batchContent);
@@ -261,6 +310,15 @@ public class BulkApiVisitorUtil {
     long periodicCheckStatus() throws AsyncApiException {
         if (this.monitor.isCanceled()) return 0;
         final long timeRemaining = this.checkStatusInterval - (System.currentTimeMillis() - this.lastStatusUpdate);
+        if (timeRemaining <= 0) {
+            refreshJobStatus();
+            return this.checkStatusInterval;
+        }
+        monitor.setNumberBatchesTotal(jobInfo.getNumberBatchesTotal());
+        return timeRemaining;
+    }
+
+    private void refreshJobStatus() throws AsyncApiException {
         int retryCount = 0;
         int maxAttemptsCount = 0;
         
@@ -270,37 +328,42 @@ public class BulkApiVisitorUtil {
         } catch (ParameterLoadException e) {
             maxAttemptsCount = 1 + AppConfig.DEFAULT_MAX_RETRIES;
         }
-        if (timeRemaining <= 0) {
-            while (retryCount++ < maxAttemptsCount) {
-                try {
-                    this.jobInfo = this.connection.getJobStatus(getJobId());
-                    updateJobStatus();
-                    return this.checkStatusInterval;
-                } catch (AsyncApiException ex) {
-                    if (retryCount < maxAttemptsCount) {
-                        try {
-                            Thread.sleep(this.checkStatusInterval);
-                        } catch (final InterruptedException e) {}
-                    } else {
-                        throw ex;
-                    }
-                }          
-            }
+        while (retryCount++ < maxAttemptsCount) {
+            try {
+                this.jobInfo = this.connection.getJobStatus(getJobId());
+                updateJobStatus();
+                return;
+            } catch (AsyncApiException ex) {
+                if (retryCount < maxAttemptsCount) {
+                    try {
+                        Thread.sleep(this.checkStatusInterval);
+                    } catch (final InterruptedException e) {}
+                } else {
+                    throw ex;
+                }
+            }          
         }
-        monitor.setNumberBatchesTotal(jobInfo.getNumberBatchesTotal());
-        return timeRemaining;
     }
 
     private void awaitJobCompletion() throws AsyncApiException {
-        long sleepTime = periodicCheckStatus();
-        
+        this.pollInterval.reset();
         while (!isJobCompleted()) {
             if (this.monitor.isCanceled()) return;
             try {
-                Thread.sleep(sleepTime);
+                Thread.sleep(getNextStatusCheckInterval());
             } catch (final InterruptedException e) {}
-            sleepTime = periodicCheckStatus();
+            refreshJobStatus();
+        }
+    }
+
+    private long getNextStatusCheckInterval() {
+        if (isBulkV2QueryJob() || isBulkV2LoadJob()) {
+            // Bulk v2 jobs do not report the total number of records to process
+            return this.pollInterval.nextInterval(this.jobInfo.getNumberRecordsProcessed(), 0);
         }
+        final int batchesDone = this.jobInfo.getNumberBatchesCompleted() + this.jobInfo.getNumberBatchesFailed();
+        return this.pollInterval.nextInterval(batchesDone, batchesDone
+                + this.jobInfo.getNumberBatchesQueued() + this.jobInfo.getNumberBatchesInProgress());
     }
     
     private boolean isBulkV2QueryJob() {
@@ -391,9 +454,9 @@ public class BulkApiVisitorUtil {
         return connectionClient.getBatchInfoList(getJobId());
     }
 
-    CSVReader getBatchResults(String batchId) throws AsyncApiException {
+    InputStream getBatchResultStream(String batchId) throws AsyncApiException {
         BulkV1Connection connectionClient = this.controller.getBulkV1Client().getConnection();
-        return new CSVReader(connectionClient.getBatchResultStream(getJobId(), batchId));
+        return connectionClient.getBatchResultStream(getJobId(), batchId);
     }
     
     int getRecordsProcessed() throws ExtractException, AsyncApiException {
@@ -409,15 +472,19 @@ public class BulkApiVisitorUtil {
         return getNumRecordsProcessedInJob();
     }
     
-    void getBulkV2LoadSuccessResults(String filename, boolean append) throws AsyncApiException {
-    	this.controller.getBulkV2Client().getConnection().saveIngestSuccessResults(this.getJobId(), filename, append);
+    IngestResultsTee getBulkV2LoadSuccessResults(String filename, boolean append) throws AsyncApiException {
+    	return this.controller.getBulkV2Client().getConnection().saveIngestSuccessResults(this.getJobId(), filename, append);
+    }
+    
+    IngestResultsTee getBulkV2LoadErrorResults(String filename) throws AsyncApiException {
+    	return this.controller.getBulkV2Client().getConnection().saveIngestFailureResults(this.getJobId(), filename);
     }
     
-    void getBulkV2LoadErrorResults(String filename) throws AsyncApiException {
-    	this.controller.getBulkV2Client().getConnection().saveIngestFailureResults(this.getJobId(), filename);
+    IngestResultsTee getBulkV2LoadUnprocessedRecords(String filename) throws AsyncApiException {
+    	return this.controller.getBulkV2Client().getConnection().saveIngestUnprocessedRecords(this.getJobId(), filename);
     }
     
-    void getBulkV2LoadUnprocessedRecords(String filename) throws AsyncApiException {
-    	this.controller.getBulkV2Client().getConnection().saveIngestUnprocessedRecords(this.getJobId(), filename);
+    IngestResultsTee countBulkV2LoadUnprocessedRecords() throws AsyncApiException {
+    	return this.controller.getBulkV2Client().getConnection().countIngestUnprocessedRecords(this.getJobId());
     }
 }
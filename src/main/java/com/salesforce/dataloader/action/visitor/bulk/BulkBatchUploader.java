@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.util.DLLogManager;
+import com.salesforce.dataloader.util.DaemonThreadFactory;
+import com.sforce.async.AsyncApiException;
+import com.sforce.async.BatchInfo;
+
+/**
+ * Uploads Bulk API v1 batches on a small pool of threads so that the visiting thread can
+ * read and serialize the next batch while earlier batches are in flight. The work queue is
+ * bounded: once every thread is busy and the queue is full, submit() blocks the caller
+ * until an upload completes.
+ *
+ * Futures returned by submit() are handed back in submission order, so the caller keeps its
+ * batch-to-row bookkeeping in the same order as the rows were read.
+ */
+class BulkBatchUploader {
+    private static final Logger logger = DLLogManager.getLogger(BulkBatchUploader.class);
+    private static final long IDLE_THREAD_KEEPALIVE_SECS = 30;
+
+    /** Sends one batch payload to the server */
+    interface BatchUploadFunction {
+        BatchInfo upload(InputStream batchContent) throws AsyncApiException, IOException;
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final BatchUploadFunction uploadFunction;
+    private final long spoolThresholdBytes;
+    private final ConcurrentLinkedQueue<BatchPayloadSink> idlePayloads = new ConcurrentLinkedQueue<BatchPayloadSink>();
+    private final Deque<Future<BatchInfo>> inFlight = new ArrayDeque<Future<BatchInfo>>();
+
+    BulkBatchUploader(int numThreads, long spoolThresholdBytes, BatchUploadFunction uploadFunction) {
+        this.uploadFunction = uploadFunction;
+        this.spoolThresholdBytes = spoolThresholdBytes;
+        this.executor = new ThreadPoolExecutor(numThreads, numThreads,
+                IDLE_THREAD_KEEPALIVE_SECS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(numThreads),
+                new DaemonThreadFactory("bulkBatchUpload"),
+                (r, pool) -> {
+                    // queue is full: block the submitting thread until an upload thread frees a slot
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("batch uploader is shut down");
+                    }
+                    try {
+                        pool.getQueue().put(r);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("interrupted while waiting to upload a batch", e);
+                    }
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return an empty payload sink for the next batch. Ownership passes back to the uploader
+     * through submit() or recycle().
+     */
+    BatchPayloadSink newPayload() {
+        BatchPayloadSink payload = this.idlePayloads.poll();
+        return payload != null ? payload : new BatchPayloadSink(this.spoolThresholdBytes, null);
+    }
+
+    void recycle(BatchPayloadSink payload) {
+        payload.reset();
+        this.idlePayloads.offer(payload);
+    }
+
+    /**
+     * Queues the payload for upload, blocking while the queue is full. If uploadFile is not null
+     * the batch is streamed from that file instead of the payload.
+     * 
+     * @throws AsyncApiException if a previously submitted batch failed to upload
+     */
+    Future<BatchInfo> submit(final BatchPayloadSink payload, final File uploadFile) throws AsyncApiException, IOException {
+        rethrowCompletedFailures();
+        final Future<BatchInfo> future;
+        try {
+            future = this.executor.submit(() -> {
+                try (InputStream batchContent = uploadFile != null ?
+                        new FileInputStream(uploadFile) : payload.getInputStream()) {
+                    return this.uploadFunction.upload(batchContent);
+                } finally {
+                    recycle(payload);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            recycle(payload);
+            throw new IOException(e.getMessage(), e);
+        }
+        this.inFlight.addLast(future);
+        return future;
+    }
+
+    /**
+     * Waits for all submitted batches to finish uploading.
+     * 
+     * @throws AsyncApiException if any of the batches failed to upload
+     */
+    void awaitAll() throws AsyncApiException, IOException {
+        while (!this.inFlight.isEmpty()) {
+            getBatchInfo(this.inFlight.removeFirst());
+        }
+    }
+
+    void shutdown() {
+        this.executor.shutdownNow();
+        BatchPayloadSink payload;
+        while ((payload = this.idlePayloads.poll()) != null) {
+            payload.close();
+        }
+    }
+
+    /**
+     * Waits for the upload and returns its BatchInfo, rethrowing the exception the upload
+     * failed with.
+     */
+    static BatchInfo getBatchInfo(Future<BatchInfo> upload) throws AsyncApiException, IOException {
+        try {
+            return upload.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for batch upload");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof AsyncApiException) {
+                throw (AsyncApiException)cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // fail fast: surface upload errors while the caller is still reading rows
+    private void rethrowCompletedFailures() throws AsyncApiException, IOException {
+        while (!this.inFlight.isEmpty() && this.inFlight.peekFirst().isDone()) {
+            BatchInfo batch = getBatchInfo(this.inFlight.removeFirst());
+            logger.debug("batch " + batch.getId() + " uploaded");
+        }
+    }
+}
@@ -26,17 +26,16 @@
 
 package com.salesforce.dataloader.action.visitor.bulk;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
@@ -44,8 +43,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TimeZone;
 import java.util.TreeSet;
+import java.util.concurrent.Future;
 
 import org.apache.commons.beanutils.DynaBean;
 import org.apache.commons.beanutils.DynaProperty;
@@ -58,28 +57,27 @@ import com.salesforce.dataloader.client.DescribeRefObject;
 import com.salesforce.dataloader.config.AppConfig;
 import com.salesforce.dataloader.config.Messages;
 import com.salesforce.dataloader.controller.Controller;
-import com.salesforce.dataloader.dao.DataReaderInterface;
 import com.salesforce.dataloader.dao.DataWriterInterface;
 import com.salesforce.dataloader.dyna.ParentIdLookupFieldFormatter;
 import com.salesforce.dataloader.exception.BatchSizeLimitException;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
-import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
 import com.salesforce.dataloader.exception.LoadException;
 import com.salesforce.dataloader.exception.LoadExceptionOnServer;
 import com.salesforce.dataloader.exception.OperationException;
+import com.salesforce.dataloader.exception.ParameterLoadException;
 import com.salesforce.dataloader.exception.RelationshipFormatException;
 import com.salesforce.dataloader.model.NACalendarValue;
 import com.salesforce.dataloader.model.NADateOnlyCalendarValue;
 import com.salesforce.dataloader.model.NATextValue;
 import com.salesforce.dataloader.model.TableRow;
 import com.salesforce.dataloader.util.AppUtil;
-import com.salesforce.dataloader.util.DAORowUtil;
 import com.sforce.async.AsyncApiException;
 import com.sforce.async.AsyncExceptionCode;
 import com.sforce.async.BatchInfo;
 import com.sforce.async.BatchStateEnum;
 import com.sforce.async.CSVReader;
 import com.sforce.async.JobStateEnum;
+import com.sforce.ws.ConnectionException;
 
 /**
  * Visitor for operations using the bulk API client
@@ -97,27 +95,38 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
     private static final String CREATED_RESULT_COL = "Created";
 
     private final boolean isDelete;
-    private static final DateFormat DATE_FMT;
+    // immutable, so it is safe to share across the threads loading batches
+    private static final DateTimeFormatter DATE_FMT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
     private int batchCountForJob = 0;
     private List<String> headerColumns = null;
     private boolean firstBatchOrJob = true;
 
-    static {
-        DATE_FMT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-        DATE_FMT.setTimeZone(TimeZone.getTimeZone("GMT"));
-    }
     private final BulkApiVisitorUtil jobUtil;
+    private final BatchPayloadSink payloadSink;
+    // null when batches are uploaded from the visiting thread
+    private final BulkBatchUploader batchUploader;
+    // source rows of the job, matched against the batch results. null for Bulk v2 jobs.
+    private final SourceRowSpillFile sourceRows;
 
     // This keeps track of all the batches we send in order so that we know whats what when processsing results
     private final List<BatchData> allBatchesInOrder = new ArrayList<BatchData>();
     
     /** DataLoader uses this to help match batch results from SFDC to the rows in our input */
     private class BatchData {
-        final String batchId;
+        String batchId;
+        final Future<BatchInfo> upload;
         final int numRows;
 
         BatchData(String batchId, int numRows) {
             this.batchId = batchId;
+            this.upload = null;
+            this.numRows = numRows;
+        }
+
+        BatchData(Future<BatchInfo> upload, int numRows) {
+            this.batchId = null;
+            this.upload = upload;
             this.numRows = numRows;
         }
     }
@@ -147,12 +156,70 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         super(controller, monitor, successWriter, errorWriter, rateCalculator);
         this.isDelete = getController().getAppConfig().getOperationInfo().isDelete();
         this.jobUtil = new BulkApiVisitorUtil(getController(), getProgressMonitor(), getRateCalculator());
+        this.payloadSink = new BatchPayloadSink(getSpoolThresholdBytes(), null);
+        final int uploadThreads = getUploadThreads();
+        this.batchUploader = uploadThreads > 1 ?
+                new BulkBatchUploader(uploadThreads, getSpoolThresholdBytes(), this.jobUtil::createCSVBatch) : null;
+        this.sourceRows = getConfig().isBulkV2APIEnabled() ? null : new SourceRowSpillFile(null);
+    }
+
+    private int getUploadThreads() {
+        // batches with attachments share the attachment map of the job, and a Bulk v2 job has a single upload
+        if (getConfig().isBulkV2APIEnabled() || getController().attachmentsEnabled()) {
+            return 1;
+        }
+        // in serial mode the batches are processed in the order they are created, so they are uploaded in that order
+        if (getConfig().getBoolean(AppConfig.PROP_BULK_API_SERIAL_MODE)) {
+            return 1;
+        }
+        try {
+            int threads = getConfig().getInt(AppConfig.PROP_BULK_API_UPLOAD_THREADS);
+            return Math.max(1, Math.min(threads, AppConfig.MAX_BULK_API_UPLOAD_THREADS));
+        } catch (ParameterLoadException e) {
+            logger.warn("Incorrectly configured " + AppConfig.PROP_BULK_API_UPLOAD_THREADS);
+            return AppConfig.DEFAULT_BULK_API_UPLOAD_THREADS;
+        }
+    }
+
+    protected long getSpoolThresholdBytes() {
+        try {
+            long threshold = getConfig().getLong(AppConfig.PROP_BULK_API_SPOOL_THRESHOLD_BYTES);
+            return threshold >= 0 ? threshold : AppConfig.DEFAULT_BULK_API_SPOOL_THRESHOLD_BYTES;
+        } catch (ParameterLoadException e) {
+            logger.warn("Incorrectly configured " + AppConfig.PROP_BULK_API_SPOOL_THRESHOLD_BYTES);
+            return AppConfig.DEFAULT_BULK_API_SPOOL_THRESHOLD_BYTES;
+        }
     }
     
     protected BulkApiVisitorUtil getVisitorUtil() {
         return this.jobUtil;
     }
 
+    @Override
+    public ConvertedRow mapRow(TableRow row) throws ConnectionException {
+        // copy before the row is updated with a conversion error
+        final TableRow sourceRow = this.sourceRows == null ? null : new TableRow(row);
+        final ConvertedRow convertedRow = super.mapRow(row);
+        convertedRow.setSourceRow(sourceRow);
+        return convertedRow;
+    }
+
+    @Override
+    public boolean addConvertedRow(ConvertedRow convertedRow) throws OperationException, DataAccessObjectException,
+            BatchSizeLimitException {
+        final boolean result = super.addConvertedRow(convertedRow);
+        if (this.sourceRows == null) {
+            return result;
+        }
+        // not reached if the row is to be visited again in the next batch
+        try {
+            this.sourceRows.append(convertedRow.getSourceRow());
+        } catch (IOException e) {
+            throw new LoadException("Failed to save source row for matching batch results", e);
+        }
+        return result;
+    }
+
     @Override
     protected void loadBatch() throws DataAccessObjectException, OperationException, BatchSizeLimitException {
         try {
@@ -191,15 +258,23 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         return null;
     }
 
-    private void createBatches() throws OperationException, IOException, AsyncApiException, BatchSizeLimitException {
-        final ByteArrayOutputStream os = new ByteArrayOutputStream();
-        final PrintStream out = new PrintStream(os, true, AppConfig.BULK_API_ENCODING);
-        doOneBatch(out, os, this.dynaArray);
-        os.close();
+    protected void createBatches() throws OperationException, IOException, AsyncApiException, BatchSizeLimitException {
+        if (this.batchUploader != null) {
+            // earlier batches may still be uploading, serialize this one into a payload of its own
+            final BatchPayloadSink payload = this.batchUploader.newPayload();
+            doOneBatch(new PrintStream(payload, true, AppConfig.BULK_API_ENCODING), payload, this.dynaArray);
+            return;
+        }
+        final PrintStream out = new PrintStream(this.payloadSink, true, AppConfig.BULK_API_ENCODING);
+        try {
+            doOneBatch(out, this.payloadSink, this.dynaArray);
+        } finally {
+            this.payloadSink.reset();
+        }
     }
 
-    protected void doOneBatch(PrintStream out, ByteArrayOutputStream os, List<DynaBean> rows) throws OperationException,
-            AsyncApiException, FileNotFoundException, BatchSizeLimitException {
+    protected void doOneBatch(PrintStream out, BatchPayloadSink payload, List<DynaBean> rows) throws OperationException,
+            AsyncApiException, IOException, BatchSizeLimitException {
         int processedRecordsCount = 0;
         long startTime = System.currentTimeMillis();
         long measureTime = System.currentTimeMillis();
@@ -231,7 +306,8 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
             }
         }
         if (processedRecordsCount > 0) {
-            createBatch(os, processedRecordsCount);
+            out.flush();
+            createBatch(payload, processedRecordsCount);
         }
         this.jobUtil.periodicCheckStatus();
     }
@@ -256,7 +332,7 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
             if (fieldValue instanceof NACalendarValue || fieldValue instanceof NADateOnlyCalendarValue) {
                 col = fieldValue.toString();
             } else if (fieldValue instanceof Calendar) {
-                col = DATE_FMT.format(((Calendar) fieldValue).getTime());
+                col = DATE_FMT.format(Instant.ofEpochMilli(((Calendar) fieldValue).getTimeInMillis()));
             } else if (fieldValue instanceof byte[]) {
                 if (!getController().attachmentsEnabled())
                     throw new LoadException(Messages.getMessage("FinishPage", "cannotMapBase64ForBulkApi", fieldName));
@@ -269,7 +345,7 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         }
     }
 
-    private void writeColumnToCsv(PrintStream out, Object val) {
+    static void writeColumnToCsv(PrintStream out, Object val) {
         out.print('"');
         out.print(val.toString().replace("\"", "\"\""));
         out.print('"');
@@ -350,14 +426,25 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         addedCols.add(sfdcColumn);
     }
 
-    private String writeServerLoadBatchDataToCSV(ByteArrayOutputStream os) {
+    /**
+     * @return name of the saved copy of the payload, which is uploaded instead of the payload,
+     * or null if the payload is not saved
+     */
+    protected String saveServerLoadBatchData(BatchPayloadSink payload) {
+        if (!controller.getAppConfig().getBoolean(AppConfig.PROP_SAVE_BULK_SERVER_LOAD_AND_RAW_RESULTS_IN_CSV)) {
+            return null;
+        }
+        this.batchCountForJob++;
+        return writeServerLoadBatchDataToCSV(payload);
+    }
+
+    private String writeServerLoadBatchDataToCSV(BatchPayloadSink payload) {
         String filenamePrefix = "uploadedToServer";
         String filename = generateBatchCSVFilename(filenamePrefix, batchCountForJob);
         File uploadedToServerCSVFile = new File(filename);
-        final byte[] request = os.toByteArray();
         try {
             FileOutputStream outputStream = new FileOutputStream(uploadedToServerCSVFile);
-            outputStream.write(request);
+            payload.writeTo(outputStream);
             outputStream.close();
         } catch (Exception ex) {
             logger.info("unable to create file " + filename);
@@ -365,11 +452,12 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         return filename;
     }
     
-    private void writeRawResultsToCSV(CSVReader serverResultsReader, int batchNum) {
+    private void writeRawResultsToCSV(InputStream serverResultStream, int batchNum) {
         String filenamePrefix = "rawResultsFromServer";
         String filename = generateBatchCSVFilename(filenamePrefix, batchNum);
         File rawBatchResultsCSVFile = new File(filename);
-        try {
+        try (InputStream resultStream = serverResultStream) {
+            CSVReader serverResultsReader = new CSVReader(resultStream);
             FileOutputStream outputStream = new FileOutputStream(rawBatchResultsCSVFile);
             PrintStream printOutput = new PrintStream(outputStream);
             List<String> row = serverResultsReader.nextRecord();
@@ -403,22 +491,21 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
                 + controller.getFormattedCurrentTimestamp() + ".csv";
     }
 
-    private void createBatch(ByteArrayOutputStream os, int numRecords) throws AsyncApiException, FileNotFoundException {
+    protected void createBatch(BatchPayloadSink payload, int numRecords) throws AsyncApiException, IOException {
         if (numRecords <= 0) return;
-        final byte[] request = os.toByteArray();
-        logger.debug("upload request size in bytes: " + request.length);
-        String uploadDataFileName = null;
-        if (controller.getAppConfig().getBoolean(AppConfig.PROP_SAVE_BULK_SERVER_LOAD_AND_RAW_RESULTS_IN_CSV)) {
-            this.batchCountForJob++;
-            uploadDataFileName = writeServerLoadBatchDataToCSV(os);
-        }
-        BatchInfo bi = null;
-        if (uploadDataFileName != null) {
-            bi = this.jobUtil.createBatch(new FileInputStream(uploadDataFileName));
-        } else {
-            bi = this.jobUtil.createBatch(new ByteArrayInputStream(request, 0, request.length));
+        logger.debug("upload request size in bytes: " + payload.size());
+        String uploadDataFileName = saveServerLoadBatchData(payload);
+        if (this.batchUploader != null) {
+            final Future<BatchInfo> upload = this.batchUploader.submit(payload,
+                    uploadDataFileName != null ? new File(uploadDataFileName) : null);
+            this.allBatchesInOrder.add(new BatchData(upload, numRecords));
+            return;
         }
-        os.reset();
+        // the payload is streamed from its buffer or spool file, or from the saved copy of it
+        final String uploadFileName = uploadDataFileName;
+        BatchInfo bi = this.jobUtil.createBatch(uploadFileName != null ?
+                () -> new FileInputStream(uploadFileName) : payload::getInputStream);
+        payload.reset();
         this.allBatchesInOrder.add(new BatchData(bi.getId(), numRecords));           
     }
     
@@ -426,6 +513,11 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         if (this.jobUtil.hasJob() 
             && this.jobUtil.getJobInfo().getState() != JobStateEnum.JobComplete 
             && this.jobUtil.getJobInfo().getState() != JobStateEnum.Closed) {
+            try {
+                awaitBatchUploads();
+            } catch (final AsyncApiException | IOException e) {
+                handleException(e);
+            }
             try {
                 this.jobUtil.awaitCompletionAndCloseJob();
             } catch (final AsyncApiException e) {
@@ -439,11 +531,34 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         }
     }
 
+    private void awaitBatchUploads() throws AsyncApiException, IOException {
+        if (this.batchUploader == null) {
+            return;
+        }
+        try {
+            this.batchUploader.awaitAll();
+            for (final BatchData batch : this.allBatchesInOrder) {
+                if (batch.batchId == null) {
+                    batch.batchId = BulkBatchUploader.getBatchInfo(batch.upload).getId();
+                }
+            }
+        } finally {
+            this.batchUploader.shutdown();
+        }
+    }
+
     protected void getResults() throws AsyncApiException, OperationException, DataAccessObjectException {
         getProgressMonitor().setSubTask(Messages.getMessage(getClass(), "retrievingResults"));
-        DataReaderInterface dataReader = null;
-        dataReader = resetDAO();
-        
+        try {
+            processAllBatchResults();
+        } catch (IOException e) {
+            throw new LoadException("Failed to read source rows for matching batch results", e);
+        } finally {
+            this.sourceRows.close();
+        }
+    }
+
+    private void processAllBatchResults() throws AsyncApiException, OperationException, DataAccessObjectException, IOException {
         // create a map of batch infos by batch id. Each batchinfo has the final processing state of the batch
         final Map<String, BatchInfo> batchInfoMap = createBatchInfoMap();
 
@@ -452,21 +567,18 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         this.batchCountForJob = 0;
         int uploadedRowCount = 0;
         for (final BatchData clientBatchInfo : this.allBatchesInOrder) {
-            processResults(dataReader, 
-                    batchInfoMap.get(clientBatchInfo.batchId), clientBatchInfo, uploadedRowCount);
+            processResults(batchInfoMap.get(clientBatchInfo.batchId), clientBatchInfo, uploadedRowCount);
             uploadedRowCount += clientBatchInfo.numRows;
         }
     }
 
     private int firstDAORowForCurrentBatch = 0;
 
-    private void processResults(final DataReaderInterface dataReader, final BatchInfo batch, 
-            BatchData clientBatchInfo, final int firstRowInBatch)
-            throws LoadException, DataAccessObjectException, AsyncApiException {
+    private void processResults(final BatchInfo batch, BatchData clientBatchInfo, final int firstRowInBatch)
+            throws LoadException, DataAccessObjectException, AsyncApiException, IOException {
         // For Bulk API, we don't save any success or error until the end,
-        // so we have to go through the original CSV from the beginning while
+        // so we go through the source rows saved during the load while
         // we go through the results from the server.
-        // TODO we should save the ACTUAL rows/batches sent to the server
 
         // do some basic checks to make sure we are matching up the batches correctly
         sanityCheckBatch(clientBatchInfo, batch);
@@ -481,7 +593,7 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         
         final int totalRowsInDAOInCurrentBatch = lastDAORowForCurrentBatch - this.firstDAORowForCurrentBatch + 1;
         List<TableRow> rows;
-        rows = dataReader.readTableRowList(totalRowsInDAOInCurrentBatch);
+        rows = this.sourceRows.readRows(totalRowsInDAOInCurrentBatch);
         if (batch.getState() == BatchStateEnum.Completed || batch.getNumberRecordsProcessed() > 0) {
             try {
                 processBatchResults(batch, errorMessage, batch.getState(), rows, this.firstDAORowForCurrentBatch);
@@ -500,13 +612,18 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
     private void processBatchResults(final BatchInfo batch, final String errorMessage, 
             final BatchStateEnum state, final List<TableRow> rows, final int firstDataReaderRowInBatch) throws DataAccessObjectException, IOException, AsyncApiException {
 
-        // get the batch csv result stream from sfdc
-        final CSVReader resultRdr = this.jobUtil.getBatchResults(batch.getId());
-
         if (controller.getAppConfig().getBoolean(AppConfig.PROP_SAVE_BULK_SERVER_LOAD_AND_RAW_RESULTS_IN_CSV)) {
             this.batchCountForJob++;
-            writeRawResultsToCSV(this.jobUtil.getBatchResults(batch.getId()), this.batchCountForJob);
+            writeRawResultsToCSV(this.jobUtil.getBatchResultStream(batch.getId()), this.batchCountForJob);
+        }
+        // get the batch csv result stream from sfdc
+        try (InputStream resultStream = this.jobUtil.getBatchResultStream(batch.getId())) {
+            writeBatchResults(batch, errorMessage, state, rows, new CSVReader(resultStream));
         }
+    }
+
+    private void writeBatchResults(final BatchInfo batch, final String errorMessage, 
+            final BatchStateEnum state, final List<TableRow> rows, final CSVReader resultRdr) throws DataAccessObjectException, IOException {
         // read in the result csv header and note the column indices
         Map<String, Integer> hdrIndices = mapHeaderIndices(resultRdr.nextRecord());
         final int successIdx = hdrIndices.get(SUCCESS_RESULT_COL);
@@ -549,16 +666,6 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         return batchInfoMap;
     }
 
-    private DataReaderInterface resetDAO() throws DataAccessObjectInitializationException, LoadException {
-        final DataReaderInterface dataReader = (DataReaderInterface)getController().getDao();
-        dataReader.close();
-        // TODO: doing this causes sql to be executed twice, for sql we should cache results in a local file
-        dataReader.open();
-        // when re-opening the dao we need to start at the same row in the input
-        DAORowUtil.get().skipRowToStartOffset(getConfig(), dataReader, getProgressMonitor(), true);
-        return dataReader;
-    }
-
     private void writeRowResult(TableRow row, RowResult resultRow) throws DataAccessObjectException {
         if (resultRow.success) {
             String successMessage;
@@ -619,9 +726,9 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
 
     @Override
     protected void convertBulkAPINulls(TableRow row) {
-        for (String columnName : row.getHeader().getColumns()) {
-            if (NATextValue.isNA(row.get(columnName))) {
-                row.put(columnName, NATextValue.getInstance());
+        for (int colPos = 0; colPos < row.size(); colPos++) {
+            if (NATextValue.isNA(row.getValueAt(colPos))) {
+                row.setValueAt(colPos, NATextValue.getInstance());
             }
         }
     }
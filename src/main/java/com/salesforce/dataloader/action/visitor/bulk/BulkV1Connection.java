@@ -171,6 +171,12 @@ public class BulkV1Connection extends BulkConnection {
         } catch (IOException | PullParserException | IllegalAccessException | NoSuchMethodException | SecurityException | IllegalArgumentException | InvocationTargetException | InstantiationException e) {
             logger.error(e.getMessage());
             throw new AsyncApiException("Failed to get result ", AsyncExceptionCode.ClientInputError, e);
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+                // ignore, the response has been processed
+            }
         }
     }
 }
\ No newline at end of file
@@ -31,6 +31,8 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.salesforce.dataloader.action.AbstractExtractAction;
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
@@ -41,6 +43,7 @@ import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.ExtractException;
 import com.salesforce.dataloader.exception.ExtractExceptionOnServer;
 import com.salesforce.dataloader.exception.OperationException;
+import com.salesforce.dataloader.exception.ParameterLoadException;
 import com.sforce.async.AsyncApiException;
 import com.sforce.async.BatchInfo;
 import com.sforce.async.BatchStateEnum;
@@ -80,11 +83,69 @@ public class BulkV1QueryVisitor extends AbstractBulkQueryVisitor {
 
     @Override
     protected void writeExtraction() throws AsyncApiException, ExtractException, DataAccessObjectException {
+        final int downloadThreads = getDownloadThreads();
+        if (downloadThreads > 1) {
+            writeDownloadedExtraction(downloadThreads);
+            return;
+        }
         for (BatchInfo b : this.batches) {
             writeExtractionForBatch(b);
         }
     }
+
+    private int getDownloadThreads() {
+        try {
+            int threads = getConfig().getInt(AppConfig.PROP_BULK_API_QUERY_DOWNLOAD_THREADS);
+            return Math.min(threads, AppConfig.MAX_BULK_API_QUERY_DOWNLOAD_THREADS);
+        } catch (ParameterLoadException e) {
+            getLogger().warn("Incorrectly configured " + AppConfig.PROP_BULK_API_QUERY_DOWNLOAD_THREADS);
+            return AppConfig.DEFAULT_BULK_API_QUERY_DOWNLOAD_THREADS;
+        }
+    }
+
+    // downloads the result files of all batches concurrently, then writes them one at a time
+    private void writeDownloadedExtraction(int downloadThreads) throws AsyncApiException, ExtractException, DataAccessObjectException {
+        final BulkV1Connection connection = getController().getBulkV1Client().getConnection();
+        final List<QueryResultChunkDownloader.Chunk> chunks = new ArrayList<QueryResultChunkDownloader.Chunk>();
+        ExtractException batchFailure = null;
+        for (BatchInfo batch : this.batches) {
+            if (batch.getState() == BatchStateEnum.NotProcessed) {
+                // original batch of a PK-chunked job, its results are in the chunk batches
+                continue;
+            }
+            if (batch.getState() == BatchStateEnum.Failed) {
+                // write the results of the batches before the failed one, as in a serial download
+                batchFailure = new ExtractExceptionOnServer("Batch failed: " + batch.getStateMessage());
+                break;
+            }
+            for (final String resultId : connection.getQueryResultList(batch.getJobId(), batch.getId()).getResult()) {
+                chunks.add(new QueryResultChunkDownloader.Chunk(batch.getJobId(), batch.getId(), resultId));
+            }
+        }
+        final boolean ordered = !getConfig().getBoolean(AppConfig.PROP_BULK_API_QUERY_UNORDERED_RESULTS);
+        try (QueryResultChunkDownloader downloader = new QueryResultChunkDownloader(chunks, downloadThreads, ordered,
+                chunk -> connection.getQueryResultStream(chunk.jobId, chunk.batchId, chunk.resultId))) {
+            InputStream chunkStream;
+            while ((chunkStream = downloader.nextChunk()) != null) {
+                if (getProgressMonitor().isCanceled()) {
+                    chunkStream.close();
+                    return;
+                }
+                writeExtractionForServerStream(chunkStream);
+            }
+        } catch (final IOException e) {
+            throw new ExtractExceptionOnServer(e);
+        }
+        if (batchFailure != null) {
+            throw batchFailure;
+        }
+    }
+
     private void writeExtractionForBatch(BatchInfo batch) throws AsyncApiException, ExtractException, DataAccessObjectException {
+        if (batch.getState() == BatchStateEnum.NotProcessed) {
+            // original batch of a PK-chunked job, its results are in the chunk batches
+            return;
+        }
         if (batch.getState() == BatchStateEnum.Failed)
             throw new ExtractExceptionOnServer("Batch failed: " + batch.getStateMessage());
         final QueryResultList results = getController().getBulkV1Client().getConnection()
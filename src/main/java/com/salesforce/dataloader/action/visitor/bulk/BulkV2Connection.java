@@ -131,8 +131,6 @@ public class TestBulkV2 {
 
 package com.salesforce.dataloader.action.visitor.bulk;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -153,8 +151,11 @@ import org.apache.logging.log4j.Logger;
 import com.salesforce.dataloader.client.ClientBase;
 import com.salesforce.dataloader.client.transport.HttpTransportImpl;
 import com.salesforce.dataloader.client.transport.HttpTransportInterface;
+import com.salesforce.dataloader.client.transport.StreamingUploadEntity;
+import com.salesforce.dataloader.config.AppConfig;
 import com.salesforce.dataloader.controller.Controller;
 import com.salesforce.dataloader.exception.HttpClientTransportException;
+import com.salesforce.dataloader.exception.ParameterLoadException;
 import com.salesforce.dataloader.util.AppUtil;
 import com.salesforce.dataloader.util.AppUtil.OSType;
 import com.sforce.async.AsyncApiException;
@@ -255,9 +256,21 @@ public class BulkV2Connection extends BulkConnection {
     }        
 
     public InputStream getQueryResultStream(String jobId, String locator) throws AsyncApiException {
+        return getQueryResultStream(jobId, locator, 0);
+    }
+
+    /**
+     * @param maxRecords maximum number of records in the result page, or 0 to let the server choose
+     */
+    public InputStream getQueryResultStream(String jobId, String locator, int maxRecords) throws AsyncApiException {
     	String urlString =  constructRequestURL(jobId) + "results/";
+    	String separator = "?";
         if (locator != null && !locator.isEmpty() && !"null".equalsIgnoreCase(locator)) {
-        	urlString += "?locator=" + locator;
+        	urlString += separator + "locator=" + locator;
+        	separator = "&";
+        }
+        if (maxRecords > 0) {
+            urlString += separator + "maxRecords=" + maxRecords;
         }
         try {
             return doGetQueryResultStream(new URL(urlString), getHeaders(JSON_CONTENT_TYPE, CSV_CONTENT_TYPE));
@@ -287,20 +300,69 @@ public class BulkV2Connection extends BulkConnection {
         	HttpTransportImpl clientTransport = HttpTransportImpl.getInstance();
         	clientTransport.setConfig(getConfig());
         	clientTransport.connect(urlString, headers, false, HttpTransportInterface.SupportedHttpMethodType.PUT, bulkUploadStream, CSV_CONTENT_TYPE);
+        	sendIngestData(clientTransport);
+        }catch (IOException e) {
+            throw new AsyncApiException("Failed to upload to server for job " + jobId, AsyncExceptionCode.ClientInputError, e);
+        }
+        return completeIngestUpload(jobId);
+    }
 
-            // Following is needed to actually send the request to the server
-            InputStream serverResponseStream = clientTransport.getContent();
+    /**
+     * Uploads the job data streamed from the given source. The source is opened again
+     * if the upload has to be resent, so the data is never buffered in memory. An upload
+     * interrupted by an I/O error is resent up to sfdc.maxRetries times.
+     */
+    public JobInfo startIngest(String jobId, StreamingUploadEntity.ContentSource bulkUploadSource) throws AsyncApiException {
+        String urlString = constructRequestURL(jobId) + "batches/";
+        HashMap<String, String> headers = getHeaders(CSV_CONTENT_TYPE, JSON_CONTENT_TYPE);
+        AppConfig appConfig = controller.getAppConfig();
+        boolean isCompressed = appConfig.getBoolean(AppConfig.PROP_BULKV2_COMPRESS_UPLOAD);
+        int maxAttemptsCount = 1;
+        int retrySleepSecs = AppConfig.DEFAULT_MIN_RETRY_SECS;
+        if (appConfig.getBoolean(AppConfig.PROP_ENABLE_RETRIES)) {
+            try {
+                maxAttemptsCount = 1 + Math.min(AppConfig.MAX_RETRIES_LIMIT, appConfig.getInt(AppConfig.PROP_MAX_RETRIES));
+                retrySleepSecs = appConfig.getInt(AppConfig.PROP_MIN_RETRY_SLEEP_SECS);
+            } catch (ParameterLoadException e) {
+                maxAttemptsCount = 1 + AppConfig.DEFAULT_MAX_RETRIES;
+            }
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+            	HttpTransportImpl clientTransport = HttpTransportImpl.getInstance();
+            	clientTransport.setConfig(getConfig());
+            	clientTransport.connect(urlString, headers, isCompressed, HttpTransportInterface.SupportedHttpMethodType.PUT, bulkUploadSource, CSV_CONTENT_TYPE);
+            	sendIngestData(clientTransport);
+            	break;
+            } catch (IOException e) {
+                if (attempt >= maxAttemptsCount) {
+                    throw new AsyncApiException("Failed to upload to server for job " + jobId, AsyncExceptionCode.ClientInputError, e);
+                }
+                logger.warn("Upload attempt " + attempt + " failed for job " + jobId + ", retrying in "
+                        + retrySleepSecs + " seconds: " + e.getMessage());
+                try {
+                    Thread.sleep(retrySleepSecs * 1000L);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new AsyncApiException("Interrupted while uploading to server for job " + jobId, AsyncExceptionCode.ClientInputError, e);
+                }
+            }
+        }
+        return completeIngestUpload(jobId);
+    }
+
+    private void sendIngestData(HttpTransportImpl clientTransport) throws IOException, AsyncApiException {
+        // Following is needed to actually send the request to the server. The response is
+        // closed to release its pooled connection, it may not have been read to the end.
+        try (InputStream serverResponseStream = clientTransport.getContent()) {
             if (!clientTransport.isSuccessful()) {
-	            parseAndThrowException(serverResponseStream, ContentType.JSON);
+                parseAndThrowException(serverResponseStream, ContentType.JSON);
             }
-        }catch (IOException e) {
-            throw new AsyncApiException("Failed to upload to server for job " + jobId, AsyncExceptionCode.ClientInputError, e);
         }
-        
-        // Mark upload as completed
-        urlString = constructRequestURL(jobId);
-        headers = getHeaders(JSON_CONTENT_TYPE, JSON_CONTENT_TYPE);
+    }
 
+    private JobInfo completeIngestUpload(String jobId) throws AsyncApiException {
+        // Mark upload as completed
     	setJobState(jobId, false, JobStateEnum.UploadComplete, "Failed to mark completion of the upload");
     	return getIngestJobStatus(jobId);
     }
@@ -309,16 +371,31 @@ public class BulkV2Connection extends BulkConnection {
         return getJobStatus(jobId);
     }
     
-    public void saveIngestSuccessResults(String jobId, String filename, boolean append) throws AsyncApiException {
-    	doSaveIngestResults(jobId, filename, INGEST_RESULTS_SUCCESSFUL, append);
+    public IngestResultsTee saveIngestSuccessResults(String jobId, String filename, boolean append) throws AsyncApiException {
+    	return doSaveIngestResults(jobId, filename, INGEST_RESULTS_SUCCESSFUL, append, new IngestResultsTee(null));
     }
     
-    public void saveIngestFailureResults(String jobId, String filename) throws AsyncApiException {
-    	doSaveIngestResults(jobId, filename, INGEST_RESULTS_UNSUCCESSFUL, true);
+    public IngestResultsTee saveIngestFailureResults(String jobId, String filename) throws AsyncApiException {
+    	return doSaveIngestResults(jobId, filename, INGEST_RESULTS_UNSUCCESSFUL, true,
+    	        new IngestResultsTee(IngestResultsTee.ERROR_COLUMN));
     }
     
-    public void saveIngestUnprocessedRecords(String jobId, String filename) throws AsyncApiException {
-    	doSaveIngestResults(jobId, filename, INGEST_RECORDS_UNPROCESSED, false);
+    public IngestResultsTee saveIngestUnprocessedRecords(String jobId, String filename) throws AsyncApiException {
+    	return doSaveIngestResults(jobId, filename, INGEST_RECORDS_UNPROCESSED, false, new IngestResultsTee(null));
+    }
+    
+    /**
+     * Counts the unprocessed records of the job without saving them.
+     */
+    public IngestResultsTee countIngestUnprocessedRecords(String jobId) throws AsyncApiException {
+        IngestResultsTee tee = new IngestResultsTee(null);
+        try (InputStream results = doGetIngestResultsStream(jobId, INGEST_RECORDS_UNPROCESSED)) {
+            tee.copy(results, OutputStream.nullOutputStream(), false);
+        } catch (IOException e) {
+            throw new AsyncApiException("Failed to get " + INGEST_RECORDS_UNPROCESSED + " for job " + jobId,
+                    AsyncExceptionCode.ClientInputError, e);
+        }
+        return tee;
     }
     
     public InputStream getIngestSuccessResultsStream(String jobId) throws AsyncApiException {
@@ -451,6 +528,7 @@ public class BulkV2Connection extends BulkConnection {
 	        }
 	        if (!processServerResponse) {
 	        	// sent the request to server, return without processing the response
+	        	in.close();
 	        	return null;
 	        }
 	    	JobInfo result = null;
@@ -466,6 +544,7 @@ public class BulkV2Connection extends BulkConnection {
 	        } else {
 	            parseAndThrowException(in, responseContentType);
 	        }
+	        in.close();
 	        return result;
 	    }  catch (IOException e) {
 	        throw new AsyncApiException(exceptionMessageString, AsyncExceptionCode.ClientInputError, e);
@@ -570,50 +649,26 @@ public class BulkV2Connection extends BulkConnection {
         return is;
     }
     
-    private void doSaveIngestResults(String jobId, String filename, String resultsType, boolean append) throws AsyncApiException {
-    	BufferedOutputStream bos;
+    /**
+     * Streams the results to the file through the tee, which counts the records. The header
+     * row is skipped when the results are appended to the file.
+     */
+    private IngestResultsTee doSaveIngestResults(String jobId, String filename, String resultsType, boolean append,
+            IngestResultsTee tee) throws AsyncApiException {
+    	OutputStream out;
     	try {
-    		bos = new BufferedOutputStream(new FileOutputStream(filename, append));
+    		out = new FileOutputStream(filename, append);
     	} catch (FileNotFoundException e) {
 	        throw new AsyncApiException("File " + filename + " not found", AsyncExceptionCode.ClientInputError, e);
     	}
-    	BufferedInputStream bis = new BufferedInputStream(doGetIngestResultsStream(jobId, resultsType));
-        try {
-            byte[] buffer = new byte[2048];
-            boolean firstLineSkipped = !append;
-	        for(int len; (len = bis.read(buffer)) > 0;) {
-	            if (!firstLineSkipped) {
-	                String str = new String(buffer);
-	                if (str.contains("\n")) {
-	                    String[] parts = str.split("\n");
-	                    if (parts.length > 1) {
-	                        str = "";
-	                        for (int i = 1; i < parts.length; i++) {
-	                            if (i > 1) {
-	                                str += System.lineSeparator();
-	                            }
-	                            str += parts[i];
-	                        }
-	                        buffer = str.getBytes(controller.getAppConfig().getCsvEncoding(true));
-	                        int counter = 0;
-	                        while(counter < buffer.length && buffer[counter] != 0) {
-	                            counter++;
-	                        }
-	                        len = counter;
-	                        firstLineSkipped = true;
-	                    }
-	                }
-	            }
-	            if (firstLineSkipped) {
-	                bos.write(buffer, 0, len);
-	            }
-	        }
-        	bis.close();
-        	bos.flush();
-        	bos.close();
+        try (OutputStream resultsFile = out;
+                InputStream results = doGetIngestResultsStream(jobId, resultsType)) {
+            long numRecords = tee.copy(results, resultsFile, append);
+            logger.debug("Saved " + numRecords + " " + resultsType + " of job " + jobId + " in " + filename);
         } catch (IOException e) {
             throw new AsyncApiException("Failed to get " + resultsType + " for job " + jobId, AsyncExceptionCode.ClientInputError, e);
         }
+        return tee;
     }
 }
 
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.util.DLLogManager;
+import com.salesforce.dataloader.util.DaemonThreadFactory;
+import com.sforce.async.AsyncApiException;
+
+/**
+ * Runs the Bulk v2 ingest jobs of a load that does not fit in one job on a small pool of
+ * threads, so that the visiting thread can read the rows of the next job while earlier jobs
+ * are uploaded, processed by the server and their results downloaded. At most
+ * maxJobsInFlight jobs run at a time: submit() blocks the caller until a job completes.
+ *
+ * The results of each job are downloaded to temporary files, which are merged into the
+ * status files in the order the jobs were submitted, that is in the order of the input rows.
+ */
+public class BulkV2JobRunner {
+    private static final Logger logger = DLLogManager.getLogger(BulkV2JobRunner.class);
+    private static final long IDLE_THREAD_KEEPALIVE_SECS = 30;
+
+    /** Uploads one job, waits for the server to process it and downloads its results */
+    interface Job {
+        JobResults run() throws AsyncApiException, IOException;
+    }
+
+    /** Result files and counts of a completed job */
+    static class JobResults {
+        final String jobId;
+        // rows of the job that failed conversion before it was uploaded
+        final long numConversionErrors;
+        final File successFile;
+        final IngestResultsTee successResults;
+        final File errorFile;
+        final IngestResultsTee errorResults;
+        final IngestResultsTee unprocessedRecords;
+
+        JobResults(String jobId, long numConversionErrors, File successFile, IngestResultsTee successResults,
+                File errorFile, IngestResultsTee errorResults, IngestResultsTee unprocessedRecords) {
+            this.jobId = jobId;
+            this.numConversionErrors = numConversionErrors;
+            this.successFile = successFile;
+            this.successResults = successResults;
+            this.errorFile = errorFile;
+            this.errorResults = errorResults;
+            this.unprocessedRecords = unprocessedRecords;
+        }
+
+        void deleteFiles() {
+            deleteTempFile(this.successFile);
+            deleteTempFile(this.errorFile);
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore jobSlots;
+    private final List<Future<JobResults>> jobsInOrder = new ArrayList<Future<JobResults>>();
+    private int numJobsCompleted = 0;
+
+    public BulkV2JobRunner(int maxJobsInFlight) {
+        this.jobSlots = new Semaphore(maxJobsInFlight);
+        this.executor = new ThreadPoolExecutor(maxJobsInFlight, maxJobsInFlight,
+                IDLE_THREAD_KEEPALIVE_SECS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new DaemonThreadFactory("bulkV2Job"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Starts the job on a job thread, blocking while maxJobsInFlight jobs are running.
+     *
+     * @throws AsyncApiException if a previously submitted job failed
+     */
+    void submit(final Job job) throws AsyncApiException, IOException {
+        rethrowCompletedFailures();
+        try {
+            this.jobSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting to start a job");
+        }
+        final Future<JobResults> future;
+        try {
+            future = this.executor.submit(() -> {
+                try {
+                    return job.run();
+                } finally {
+                    this.jobSlots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.jobSlots.release();
+            throw new IOException(e.getMessage(), e);
+        }
+        this.jobsInOrder.add(future);
+    }
+
+    /**
+     * Waits for all submitted jobs to complete.
+     *
+     * @return results of the jobs in submission order
+     * @throws AsyncApiException if any of the jobs failed
+     */
+    List<JobResults> awaitAll() throws AsyncApiException, IOException {
+        final List<JobResults> results = new ArrayList<JobResults>(this.jobsInOrder.size());
+        try {
+            for (final Future<JobResults> job : this.jobsInOrder) {
+                results.add(getJobResults(job));
+            }
+        } catch (AsyncApiException | IOException | RuntimeException e) {
+            for (final JobResults jobResults : results) {
+                jobResults.deleteFiles();
+            }
+            // the results of the later jobs are not merged either
+            for (final Future<JobResults> job : this.jobsInOrder.subList(results.size(), this.jobsInOrder.size())) {
+                job.cancel(true);
+                if (job.isDone() && !job.isCancelled()) {
+                    try {
+                        job.get().deleteFiles();
+                    } catch (InterruptedException | ExecutionException ex) {
+                        // no files to delete
+                    }
+                }
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Merges the result files of the jobs into the status files in the given order and
+     * deletes them. The success file is replaced and keeps the header row of the first job
+     * only. The failures are appended to the error file, which holds the rows that failed
+     * conversion.
+     */
+    static void mergeResultFiles(List<JobResults> results, String successFileName, String errorFileName)
+            throws IOException {
+        try (OutputStream successOut = new FileOutputStream(successFileName);
+                OutputStream errorOut = new FileOutputStream(errorFileName, true)) {
+            boolean isHeaderWritten = false;
+            for (final JobResults jobResults : results) {
+                try (InputStream in = new FileInputStream(jobResults.successFile)) {
+                    // each job's success results start with a header row
+                    new IngestResultsTee(null).copy(in, successOut, isHeaderWritten);
+                    isHeaderWritten = true;
+                }
+                // failure results are saved without their header row
+                Files.copy(jobResults.errorFile.toPath(), errorOut);
+            }
+        } finally {
+            for (final JobResults jobResults : results) {
+                jobResults.deleteFiles();
+            }
+        }
+    }
+
+    static File createTempResultsFile(String prefix) throws IOException {
+        return File.createTempFile(prefix, ".csv");
+    }
+
+    static void deleteTempFile(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            logger.warn("Unable to delete job results file " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Waits for the job and returns its results, rethrowing the exception the job failed with.
+     */
+    private static JobResults getJobResults(Future<JobResults> job) throws AsyncApiException, IOException {
+        try {
+            return job.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a job to complete");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof AsyncApiException) {
+                throw (AsyncApiException)cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // fail fast: surface job errors while the caller is still reading rows
+    private void rethrowCompletedFailures() throws AsyncApiException, IOException {
+        while (this.numJobsCompleted < this.jobsInOrder.size()
+                && this.jobsInOrder.get(this.numJobsCompleted).isDone()) {
+            JobResults jobResults = getJobResults(this.jobsInOrder.get(this.numJobsCompleted++));
+            logger.debug("job " + jobResults.jobId + " completed");
+        }
+    }
+}
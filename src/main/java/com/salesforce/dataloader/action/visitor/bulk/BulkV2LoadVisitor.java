@@ -25,41 +25,141 @@
  */
 package com.salesforce.dataloader.action.visitor.bulk;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.beanutils.DynaBean;
 import org.apache.logging.log4j.Logger;
 
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
 import com.salesforce.dataloader.config.AppConfig;
+import com.salesforce.dataloader.config.Messages;
 import com.salesforce.dataloader.controller.Controller;
 import com.salesforce.dataloader.dao.DataWriterInterface;
-import com.salesforce.dataloader.dao.csv.CSVFileReader;
 import com.salesforce.dataloader.exception.BatchSizeLimitException;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.LoadException;
 import com.salesforce.dataloader.exception.OperationException;
+import com.salesforce.dataloader.exception.ParameterLoadException;
 import com.salesforce.dataloader.util.DLLogManager;
+import com.salesforce.dataloader.util.DaemonThreadFactory;
 import com.salesforce.dataloader.util.LoadRateCalculator;
 import com.sforce.async.AsyncApiException;
+import com.sforce.async.AsyncExceptionCode;
 
 public class BulkV2LoadVisitor extends BulkLoadVisitor {
     private static final Logger logger = DLLogManager.getLogger(BulkV2LoadVisitor.class);
     private boolean gotUploadResultsFromServer = false;
     private boolean isFirstJob;
+    // runs the jobs of the load concurrently, null when each job completes before the next one is read
+    private final BulkV2JobRunner jobRunner;
+    private boolean isJobSubmitted = false;
     
     public BulkV2LoadVisitor(Controller controller, ILoaderProgress monitor, DataWriterInterface successWriter,
             DataWriterInterface errorWriter, LoadRateCalculator rateCalculator, boolean isFirstJob) {
+        this(controller, monitor, successWriter, errorWriter, rateCalculator, isFirstJob, null);
+    }
+    
+    public BulkV2LoadVisitor(Controller controller, ILoaderProgress monitor, DataWriterInterface successWriter,
+            DataWriterInterface errorWriter, LoadRateCalculator rateCalculator, boolean isFirstJob,
+            BulkV2JobRunner jobRunner) {
         super(controller, monitor, successWriter, errorWriter, rateCalculator);
         this.isFirstJob = isFirstJob;
+        this.jobRunner = jobRunner;
+    }
+
+    /**
+     * @return a runner for the jobs of a load, or null if sfdc.bulkV2LoadParallelJobs does not
+     * allow more than one job at a time
+     */
+    public static BulkV2JobRunner createJobRunner(AppConfig appConfig) {
+        int parallelJobs;
+        try {
+            parallelJobs = Math.max(1, Math.min(appConfig.getInt(AppConfig.PROP_BULKV2_LOAD_PARALLEL_JOBS),
+                    AppConfig.MAX_BULKV2_LOAD_PARALLEL_JOBS));
+        } catch (ParameterLoadException e) {
+            logger.warn("Incorrectly configured " + AppConfig.PROP_BULKV2_LOAD_PARALLEL_JOBS);
+            parallelJobs = AppConfig.DEFAULT_BULKV2_LOAD_PARALLEL_JOBS;
+        }
+        return parallelJobs > 1 ? new BulkV2JobRunner(parallelJobs) : null;
+    }
+
+    @Override
+    protected void createBatches() throws OperationException, IOException, AsyncApiException, BatchSizeLimitException {
+        if (this.jobRunner == null) {
+            super.createBatches();
+            return;
+        }
+        // the payload belongs to the job until a job thread has uploaded it
+        final BatchPayloadSink payload = new BatchPayloadSink(getSpoolThresholdBytes(), null);
+        try {
+            doOneBatch(new PrintStream(payload, true, AppConfig.BULK_API_ENCODING), payload, this.dynaArray);
+        } finally {
+            if (!this.isJobSubmitted) {
+                payload.close();
+            }
+        }
+    }
+
+    @Override
+    protected void createBatch(BatchPayloadSink payload, int numRecords) throws AsyncApiException, IOException {
+        if (this.jobRunner == null) {
+            super.createBatch(payload, numRecords);
+            return;
+        }
+        if (numRecords <= 0) return;
+        final String uploadFileName = saveServerLoadBatchData(payload);
+        // rows that failed conversion are all seen before the rows of the job are uploaded
+        final long numConversionErrors = this.getNumberErrors();
+        this.jobRunner.submit(() -> runJob(payload, uploadFileName, numConversionErrors));
+        this.isJobSubmitted = true;
+    }
+
+    /**
+     * Uploads the job, waits for the server to process it and downloads its results to
+     * temporary files. Called on a job thread.
+     */
+    private BulkV2JobRunner.JobResults runJob(BatchPayloadSink payload, String uploadFileName,
+            long numConversionErrors) throws AsyncApiException, IOException {
+        final BulkApiVisitorUtil jobUtil = this.getVisitorUtil();
+        try {
+            jobUtil.createBatch(uploadFileName != null ?
+                    () -> new FileInputStream(uploadFileName) : payload::getInputStream);
+        } finally {
+            payload.close();
+        }
+        jobUtil.awaitCompletionAndCloseJob();
+        final File successFile = BulkV2JobRunner.createTempResultsFile("bulkV2JobSuccess");
+        File errorFile = null;
+        final BulkV2JobRunner.JobResults results;
+        try {
+            errorFile = BulkV2JobRunner.createTempResultsFile("bulkV2JobError");
+            results = new BulkV2JobRunner.JobResults(jobUtil.getJobId(), numConversionErrors,
+                    successFile, jobUtil.getBulkV2LoadSuccessResults(successFile.getAbsolutePath(), false),
+                    errorFile, jobUtil.getBulkV2LoadErrorResults(errorFile.getAbsolutePath()),
+                    jobUtil.countBulkV2LoadUnprocessedRecords());
+        } catch (AsyncApiException | IOException | RuntimeException e) {
+            BulkV2JobRunner.deleteTempFile(successFile);
+            BulkV2JobRunner.deleteTempFile(errorFile);
+            throw e;
+        }
+        logJobResults(results.jobId, results.errorResults, results.unprocessedRecords);
+        return results;
     }
     
-    protected void doOneBatch(PrintStream out, ByteArrayOutputStream os, List<DynaBean> rows) throws OperationException, FileNotFoundException, AsyncApiException, BatchSizeLimitException {
-        super.doOneBatch(out, os, rows);
+    protected void doOneBatch(PrintStream out, BatchPayloadSink payload, List<DynaBean> rows) throws OperationException, IOException, AsyncApiException, BatchSizeLimitException {
+        super.doOneBatch(out, payload, rows);
+        if (this.jobRunner != null) {
+            // the job completes on a job thread
+            return;
+        }
         try {
             closeJob();
         } catch (DataAccessObjectException e) {
@@ -67,6 +167,44 @@ public class BulkV2LoadVisitor extends BulkLoadVisitor {
         }
     }
     
+    @Override
+    protected void closeJob() throws OperationException, DataAccessObjectException {
+        if (this.jobRunner == null) {
+            super.closeJob();
+            return;
+        }
+        getProgressMonitor().setSubTask(Messages.getMessage(BulkLoadVisitor.class, "retrievingResults"));
+        try {
+            final List<BulkV2JobRunner.JobResults> results;
+            try {
+                results = this.jobRunner.awaitAll();
+            } finally {
+                this.jobRunner.shutdown();
+            }
+            this.getSuccessWriter().close();
+            this.getErrorWriter().close();
+            AppConfig appConfig = this.getConfig();
+            BulkV2JobRunner.mergeResultFiles(results, appConfig.getString(AppConfig.PROP_OUTPUT_SUCCESS),
+                    appConfig.getString(AppConfig.PROP_OUTPUT_ERROR));
+
+            // each visitor counts the rows it failed to convert, the count of the last one is not
+            // in the job results if none of its rows could be converted
+            long successes = 0;
+            long errors = this.isJobSubmitted ? 0 : this.getNumberErrors();
+            for (final BulkV2JobRunner.JobResults jobResults : results) {
+                successes += jobResults.successResults.getNumRecords();
+                errors += jobResults.numConversionErrors + jobResults.errorResults.getNumRecords();
+            }
+            this.setSuccesses(successes);
+            this.getLoadRateCalculator().setNumSuccessesAcrossCompletedJobs(successes);
+            this.setErrors(errors);
+            this.getLoadRateCalculator().setNumErrorsAcrossCompletedJobs(errors);
+        } catch (AsyncApiException | IOException e) {
+            throw new LoadException("Failed to get batch results", e);
+        }
+        gotUploadResultsFromServer = true;
+    }
+
     protected void getResults() throws AsyncApiException, OperationException, DataAccessObjectException {
         if (gotUploadResultsFromServer) {
             // Bulk v2 job has only one batch.
@@ -76,23 +214,66 @@ public class BulkV2LoadVisitor extends BulkLoadVisitor {
         this.getErrorWriter().close();
         
         AppConfig appConfig = this.getConfig();
-        String successWriterFile = appConfig.getString(AppConfig.PROP_OUTPUT_SUCCESS);
-        String errorWriterFile = appConfig.getString(AppConfig.PROP_OUTPUT_ERROR);
-        // TODO for unprocessed records. Also uncomment in Controller.java to set the right value
-        // for Config.OUTPUT_UNPROCESSED_RECORDS
-        // String unprocessedRecordsWriterFile = config.getString(Config.OUTPUT_UNPROCESSED_RECORDS);
+        final String successWriterFile = appConfig.getString(AppConfig.PROP_OUTPUT_SUCCESS);
+        final String errorWriterFile = appConfig.getString(AppConfig.PROP_OUTPUT_ERROR);
 
-        this.getVisitorUtil().getBulkV2LoadSuccessResults(successWriterFile, !this.isFirstJob);
-        CSVFileReader csvReader = new CSVFileReader(new File(successWriterFile), appConfig, true, false);
-        this.setSuccesses(csvReader.getTotalRows());
-        this.getLoadRateCalculator().setNumSuccessesAcrossCompletedJobs(csvReader.getTotalRows());
-        csvReader.close();
-        
-        this.getVisitorUtil().getBulkV2LoadErrorResults(errorWriterFile);
-        csvReader = new CSVFileReader(new File(errorWriterFile), appConfig, true, false);
-        this.setErrors(csvReader.getTotalRows());
-        this.getLoadRateCalculator().setNumErrorsAcrossCompletedJobs(csvReader.getTotalRows());
-        csvReader.close();
+        // the result files are counted while they are downloaded, the three downloads run concurrently
+        ExecutorService resultsDownloader = Executors.newFixedThreadPool(2, new DaemonThreadFactory("bulkV2IngestResults"));
+        IngestResultsTee successResults, errorResults, unprocessedRecords;
+        try {
+            Future<IngestResultsTee> successResultsDownload = resultsDownloader.submit(
+                    () -> this.getVisitorUtil().getBulkV2LoadSuccessResults(successWriterFile, !this.isFirstJob));
+            Future<IngestResultsTee> unprocessedRecordsDownload = resultsDownloader.submit(
+                    () -> this.getVisitorUtil().countBulkV2LoadUnprocessedRecords());
+            errorResults = this.getVisitorUtil().getBulkV2LoadErrorResults(errorWriterFile);
+            successResults = getIngestResults(successResultsDownload);
+            unprocessedRecords = getIngestResults(unprocessedRecordsDownload);
+        } finally {
+            resultsDownloader.shutdownNow();
+        }
+
+        // the status files hold the results of the previous jobs as well, the error file also holds
+        // the rows that failed conversion in this job
+        long successes = successResults.getNumRecords();
+        long errors = this.getNumberErrors() + errorResults.getNumRecords();
+        if (!this.isFirstJob) {
+            successes += this.getLoadRateCalculator().getNumSuccessesAcrossCompletedJobs();
+            errors += this.getLoadRateCalculator().getNumErrorsAcrossCompletedJobs();
+        }
+        this.setSuccesses(successes);
+        this.getLoadRateCalculator().setNumSuccessesAcrossCompletedJobs(successes);
+        this.setErrors(errors);
+        this.getLoadRateCalculator().setNumErrorsAcrossCompletedJobs(errors);
+
+        logJobResults(this.getVisitorUtil().getJobId(), errorResults, unprocessedRecords);
         gotUploadResultsFromServer = true;
     }
+
+    private static void logJobResults(String jobId, IngestResultsTee errorResults, IngestResultsTee unprocessedRecords) {
+        if (!errorResults.getTally().isEmpty()) {
+            logger.info("Failed records of job " + jobId + " by status code: " + errorResults.getTally());
+        }
+        if (unprocessedRecords.getNumRecords() > 0) {
+            logger.warn(unprocessedRecords.getNumRecords() + " records of job " + jobId + " were not processed");
+        }
+    }
+
+    private static IngestResultsTee getIngestResults(Future<IngestResultsTee> download) throws AsyncApiException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AsyncApiException("interrupted while downloading job results", AsyncExceptionCode.ClientInputError, e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof AsyncApiException) {
+                throw (AsyncApiException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new AsyncApiException(cause.getMessage(), AsyncExceptionCode.ClientInputError, cause);
+        }
+    }
 }
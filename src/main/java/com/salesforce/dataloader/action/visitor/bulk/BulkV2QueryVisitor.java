@@ -31,11 +31,13 @@ import java.io.InputStream;
 
 import com.salesforce.dataloader.action.AbstractExtractAction;
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
+import com.salesforce.dataloader.config.AppConfig;
 import com.salesforce.dataloader.controller.Controller;
 import com.salesforce.dataloader.dao.DataWriterInterface;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.ExtractException;
 import com.salesforce.dataloader.exception.OperationException;
+import com.salesforce.dataloader.exception.ParameterLoadException;
 import com.sforce.async.AsyncApiException;
 
 
@@ -67,12 +69,20 @@ public class BulkV2QueryVisitor extends AbstractBulkQueryVisitor {
     @Override
     protected void writeExtraction() throws AsyncApiException, ExtractException, DataAccessObjectException {
         BulkV2Connection v2Conn = getController().getBulkV2Client().getConnection();
+        final int maxRecords = getConfiguredValue(AppConfig.PROP_BULKV2_QUERY_MAX_RECORDS,
+                AppConfig.DEFAULT_BULKV2_QUERY_MAX_RECORDS, Integer.MAX_VALUE);
+        final int prefetchPages = getConfiguredValue(AppConfig.PROP_BULKV2_QUERY_PREFETCH_PAGES,
+                AppConfig.DEFAULT_BULKV2_QUERY_PREFETCH_PAGES, AppConfig.MAX_BULKV2_QUERY_PREFETCH_PAGES);
         try {
-            InputStream serverResultStream = v2Conn.getQueryResultStream(this.jobId, "");
+            if (prefetchPages > 0) {
+                writePrefetchedExtraction(v2Conn, maxRecords, prefetchPages);
+                return;
+            }
+            InputStream serverResultStream = v2Conn.getQueryResultStream(this.jobId, "", maxRecords);
             writeExtractionForServerStream(serverResultStream);
             String locator = v2Conn.getQueryLocator();
             while (!"null".equalsIgnoreCase(locator)) {
-                serverResultStream = v2Conn.getQueryResultStream(this.jobId, locator);
+                serverResultStream = v2Conn.getQueryResultStream(this.jobId, locator, maxRecords);
                 writeExtractionForServerStream(serverResultStream);
                 locator = v2Conn.getQueryLocator();
             }
@@ -80,4 +90,36 @@ public class BulkV2QueryVisitor extends AbstractBulkQueryVisitor {
             throw new ExtractException(e);
         }
     }
+
+    // downloads the following pages while the current one is written
+    private void writePrefetchedExtraction(final BulkV2Connection v2Conn, final int maxRecords, int prefetchPages)
+            throws AsyncApiException, IOException, DataAccessObjectException {
+        QueryResultPagePrefetcher.PageSource pageSource = new QueryResultPagePrefetcher.PageSource() {
+            @Override
+            public InputStream getPage(String locator) throws AsyncApiException {
+                return v2Conn.getQueryResultStream(jobId, locator, maxRecords);
+            }
+
+            @Override
+            public String getNextLocator() {
+                return v2Conn.getQueryLocator();
+            }
+        };
+        try (QueryResultPagePrefetcher prefetcher = new QueryResultPagePrefetcher(pageSource, prefetchPages)) {
+            InputStream pageStream;
+            while ((pageStream = prefetcher.nextPage()) != null) {
+                writeExtractionForServerStream(pageStream);
+            }
+        }
+    }
+
+    private int getConfiguredValue(String propName, int defaultValue, int maxValue) {
+        try {
+            int value = getConfig().getInt(propName);
+            return value >= 0 ? Math.min(value, maxValue) : defaultValue;
+        } catch (ParameterLoadException e) {
+            getLogger().warn("Incorrectly configured " + propName);
+            return defaultValue;
+        }
+    }
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Copies a Bulk v2 ingest results CSV from the server to a status file and counts its records
+ * on the way, so that the file does not have to be parsed again to count them. The bytes are
+ * copied unchanged, except for the header row when the results are appended to a file that has
+ * one already.
+ *
+ * If a tally column is given, its values are tallied up to the first ':', which is the status
+ * code of a failed record in the sf__Error column.
+ */
+public class IngestResultsTee {
+    public static final String ERROR_COLUMN = "sf__Error";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_TALLIED_VALUE_BYTES = 256;
+
+    private final String tallyColumn;
+    private final Map<String, Long> tally = new TreeMap<String, Long>();
+    private long numRecords = 0;
+
+    // parser state, carried from one buffer to the next
+    private boolean isInQuotes = false;
+    private boolean isHeaderRecord = true;
+    private boolean isRecordEmpty = true;
+    private int columnNum = 0;
+    private int tallyColumnNum = -1;
+    private final ByteArrayOutputStream header = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream tallyValue = new ByteArrayOutputStream();
+
+    public IngestResultsTee(String tallyColumn) {
+        this.tallyColumn = tallyColumn;
+    }
+
+    /**
+     * Copies the results until the end of the stream. Neither stream is closed.
+     *
+     * @param skipHeader if true, the header row is not copied
+     * @return number of records after the header row
+     */
+    public long copy(InputStream in, OutputStream out, boolean skipHeader) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        for (int len; (len = in.read(buffer)) >= 0;) {
+            int copyFrom = 0;
+            for (int i = 0; i < len; i++) {
+                final byte b = buffer[i];
+                if (b == '"') {
+                    this.isInQuotes = !this.isInQuotes;
+                } else if (!this.isInQuotes && b == '\n') {
+                    if (endRecord() && skipHeader) {
+                        copyFrom = i + 1;
+                    }
+                    continue;
+                } else if (!this.isInQuotes && b == ',') {
+                    if (this.isHeaderRecord) {
+                        this.header.write(b);
+                    }
+                    this.columnNum++;
+                    continue;
+                }
+                if (b != '\r') {
+                    this.isRecordEmpty = false;
+                }
+                if (this.isHeaderRecord) {
+                    this.header.write(b);
+                } else if (this.columnNum == this.tallyColumnNum && b != '"'
+                        && this.tallyValue.size() < MAX_TALLIED_VALUE_BYTES) {
+                    this.tallyValue.write(b);
+                }
+            }
+            if (!skipHeader || !this.isHeaderRecord) {
+                out.write(buffer, copyFrom, len - copyFrom);
+            }
+        }
+        // results may not end with a line break
+        if (!this.isRecordEmpty) {
+            endRecord();
+        }
+        out.flush();
+        return this.numRecords;
+    }
+
+    public long getNumRecords() {
+        return this.numRecords;
+    }
+
+    /**
+     * @return number of records per value of the tally column, sorted by value
+     */
+    public Map<String, Long> getTally() {
+        return Collections.unmodifiableMap(this.tally);
+    }
+
+    // returns true if the record ended is the header row
+    private boolean endRecord() {
+        final boolean wasHeaderRecord = this.isHeaderRecord;
+        if (wasHeaderRecord) {
+            this.isHeaderRecord = false;
+            this.tallyColumnNum = findTallyColumn(new String(this.header.toByteArray(), StandardCharsets.UTF_8));
+        } else if (!this.isRecordEmpty) {
+            this.numRecords++;
+            if (this.tallyColumnNum >= 0) {
+                String value = new String(this.tallyValue.toByteArray(), StandardCharsets.UTF_8);
+                int codeEnd = value.indexOf(':');
+                this.tally.merge(codeEnd < 0 ? value : value.substring(0, codeEnd), 1L, Long::sum);
+            }
+        }
+        this.tallyValue.reset();
+        this.isRecordEmpty = true;
+        this.columnNum = 0;
+        return wasHeaderRecord;
+    }
+
+    private int findTallyColumn(String headerRow) {
+        if (this.tallyColumn == null) {
+            return -1;
+        }
+        String[] columns = headerRow.replace("\"", "").replace("\r", "").split(",", -1);
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].trim().equalsIgnoreCase(this.tallyColumn)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.util.DLLogManager;
+import com.salesforce.dataloader.util.DaemonThreadFactory;
+import com.sforce.async.AsyncApiException;
+
+/**
+ * Downloads the result files of a Bulk API v1 query job on a pool of threads. Every
+ * result file is downloaded into a temporary file. The caller then writes the files
+ * one at a time, either in the order of the chunk list or, in unordered mode, as soon
+ * as each download completes.
+ *
+ * Downloads are submitted only a few at a time, so that no more than twice the number
+ * of threads are downloaded ahead of the caller.
+ */
+class QueryResultChunkDownloader implements Closeable {
+    private static final Logger logger = DLLogManager.getLogger(QueryResultChunkDownloader.class);
+    private static final String CHUNK_FILE_PREFIX = "bulkQueryChunk";
+    private static final String CHUNK_FILE_SUFFIX = ".csv";
+
+    /** Identifies a result file of a query batch */
+    static class Chunk {
+        final String jobId;
+        final String batchId;
+        final String resultId;
+
+        Chunk(String jobId, String batchId, String resultId) {
+            this.jobId = jobId;
+            this.batchId = batchId;
+            this.resultId = resultId;
+        }
+    }
+
+    /** Opens the result stream of a chunk */
+    interface ChunkSource {
+        InputStream getChunk(Chunk chunk) throws AsyncApiException;
+    }
+
+    private final List<Chunk> chunks;
+    private final ChunkSource source;
+    private final boolean ordered;
+    private final int maxOutstanding;
+    private final ExecutorService executor;
+    // only in unordered mode, where the completed downloads are taken from its queue
+    private final CompletionService<File> completionService;
+    // submitted downloads in chunk order
+    private final Deque<Future<File>> outstanding = new ArrayDeque<Future<File>>();
+    private int nextChunkToSubmit = 0;
+
+    QueryResultChunkDownloader(List<Chunk> chunks, int numThreads, boolean ordered, ChunkSource source) {
+        this.chunks = chunks;
+        this.source = source;
+        this.ordered = ordered;
+        this.maxOutstanding = 2 * numThreads;
+        this.executor = Executors.newFixedThreadPool(numThreads, new DaemonThreadFactory("bulkQueryDownload"));
+        this.completionService = ordered ? null : new ExecutorCompletionService<File>(this.executor);
+    }
+
+    /**
+     * @return stream over the next downloaded chunk, or null once all chunks have been
+     * returned. The temporary file is deleted when the stream is closed.
+     */
+    InputStream nextChunk() throws AsyncApiException, IOException {
+        submitDownloads();
+        if (this.outstanding.isEmpty()) {
+            return null;
+        }
+        final Future<File> download;
+        try {
+            if (this.ordered) {
+                download = this.outstanding.removeFirst();
+            } else {
+                download = this.completionService.take();
+                this.outstanding.remove(download);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for query results");
+        }
+        return new TempFileInputStream(getDownloadedFile(download));
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+        for (Future<File> download : this.outstanding) {
+            download.cancel(true);
+            if (download.isDone() && !download.isCancelled()) {
+                try {
+                    TempFileInputStream.delete(download.get());
+                } catch (InterruptedException | ExecutionException e) {
+                    // nothing to delete
+                }
+            }
+        }
+        this.outstanding.clear();
+    }
+
+    private void submitDownloads() {
+        while (this.outstanding.size() < this.maxOutstanding && this.nextChunkToSubmit < this.chunks.size()) {
+            final Chunk chunk = this.chunks.get(this.nextChunkToSubmit++);
+            final Callable<File> task = () -> download(chunk);
+            this.outstanding.addLast(this.ordered ? this.executor.submit(task) : this.completionService.submit(task));
+        }
+    }
+
+    private File download(Chunk chunk) throws AsyncApiException, IOException {
+        final File chunkFile = File.createTempFile(CHUNK_FILE_PREFIX, CHUNK_FILE_SUFFIX);
+        logger.debug("Downloading result " + chunk.resultId + " of batch " + chunk.batchId
+                + " to " + chunkFile.getAbsolutePath());
+        try (InputStream in = this.source.getChunk(chunk);
+                OutputStream out = new FileOutputStream(chunkFile)) {
+            in.transferTo(out);
+        } catch (AsyncApiException | IOException | RuntimeException e) {
+            TempFileInputStream.delete(chunkFile);
+            throw e;
+        }
+        if (this.executor.isShutdown()) {
+            // closed while downloading, the file would not be returned to the caller
+            TempFileInputStream.delete(chunkFile);
+            throw new InterruptedIOException("closed while downloading query results");
+        }
+        return chunkFile;
+    }
+
+    private static File getDownloadedFile(Future<File> download) throws AsyncApiException, IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for query results");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof AsyncApiException) {
+                throw (AsyncApiException)cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.util.DLLogManager;
+import com.sforce.async.AsyncApiException;
+
+/**
+ * Downloads the result pages of a Bulk v2 query job ahead of the caller. Every page
+ * carries the locator of the next one, so pages are downloaded one after another on a
+ * background thread into temporary files while the caller writes the earlier pages.
+ * At most prefetchDepth downloaded pages wait for the caller, and pages are returned
+ * in server order.
+ */
+class QueryResultPagePrefetcher implements Closeable {
+    private static final Logger logger = DLLogManager.getLogger(QueryResultPagePrefetcher.class);
+    private static final String PAGE_FILE_PREFIX = "bulkV2QueryPage";
+    private static final String PAGE_FILE_SUFFIX = ".csv";
+    private static final String LAST_PAGE_LOCATOR = "null";
+
+    /** Fetches the result pages of a query job */
+    interface PageSource {
+        /**
+         * @param locator locator of the page, empty for the first page
+         */
+        InputStream getPage(String locator) throws AsyncApiException;
+
+        /**
+         * @return locator of the page following the last page returned by getPage()
+         */
+        String getNextLocator();
+    }
+
+    private static class Page {
+        final File file;
+        final Exception error;
+
+        Page(File file, Exception error) {
+            this.file = file;
+            this.error = error;
+        }
+    }
+    private static final Page END_OF_RESULTS = new Page(null, null);
+
+    private final PageSource source;
+    private final BlockingQueue<Page> pages;
+    private final Thread downloader;
+    private volatile boolean closed = false;
+    private boolean endReached = false;
+
+    QueryResultPagePrefetcher(PageSource source, int prefetchDepth) {
+        this.source = source;
+        this.pages = new ArrayBlockingQueue<Page>(Math.max(1, prefetchDepth));
+        this.downloader = new Thread(this::downloadPages, "bulkV2QueryPrefetch");
+        this.downloader.setDaemon(true);
+        this.downloader.start();
+    }
+
+    /**
+     * @return stream over the next result page, or null after the last page. The page file
+     * is deleted when the stream is closed.
+     */
+    InputStream nextPage() throws AsyncApiException, IOException {
+        if (this.endReached) {
+            return null;
+        }
+        final Page page;
+        try {
+            page = this.pages.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for query results");
+        }
+        if (page.error != null) {
+            this.endReached = true;
+            if (page.error instanceof AsyncApiException) {
+                throw (AsyncApiException)page.error;
+            } else if (page.error instanceof IOException) {
+                throw (IOException)page.error;
+            } else if (page.error instanceof RuntimeException) {
+                throw (RuntimeException)page.error;
+            }
+            throw new IOException(page.error);
+        }
+        if (page == END_OF_RESULTS) {
+            this.endReached = true;
+            return null;
+        }
+        return new TempFileInputStream(page.file);
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        this.downloader.interrupt();
+        try {
+            this.downloader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Page page;
+        while ((page = this.pages.poll()) != null) {
+            if (page.file != null) {
+                TempFileInputStream.delete(page.file);
+            }
+        }
+    }
+
+    private void downloadPages() {
+        String locator = "";
+        try {
+            while (!this.closed) {
+                final File pageFile = File.createTempFile(PAGE_FILE_PREFIX, PAGE_FILE_SUFFIX);
+                try (InputStream in = this.source.getPage(locator);
+                        OutputStream out = new FileOutputStream(pageFile)) {
+                    logger.debug("Downloading query result page to " + pageFile.getAbsolutePath());
+                    locator = this.source.getNextLocator();
+                    in.transferTo(out);
+                } catch (AsyncApiException | IOException | RuntimeException e) {
+                    TempFileInputStream.delete(pageFile);
+                    throw e;
+                }
+                try {
+                    this.pages.put(new Page(pageFile, null));
+                } catch (InterruptedException e) {
+                    // closed by the caller before the page was queued
+                    TempFileInputStream.delete(pageFile);
+                    throw e;
+                }
+                if (locator == null || LAST_PAGE_LOCATOR.equalsIgnoreCase(locator)) {
+                    this.pages.put(END_OF_RESULTS);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed by the caller
+        } catch (Exception e) {
+            try {
+                this.pages.put(new Page(null, e));
+            } catch (InterruptedException ie) {
+                // closed by the caller
+            }
+        }
+    }
+}
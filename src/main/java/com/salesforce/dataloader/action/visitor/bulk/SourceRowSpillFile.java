@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.model.TableHeader;
+import com.salesforce.dataloader.model.TableRow;
+import com.salesforce.dataloader.util.DLLogManager;
+
+/**
+ * Keeps a copy of the source rows of a Bulk API job in a temporary file, in the order they
+ * were visited. Batch results are matched against these rows when the job completes, so the
+ * data source does not have to be read a second time.
+ *
+ * Rows are appended while the job is loading and read back sequentially once all of them
+ * have been appended. Column values are stored as length-prefixed UTF-8 strings; values of
+ * other types, as returned by a database reader, are stored in serialized form.
+ */
+class SourceRowSpillFile implements Closeable {
+    private static final Logger logger = DLLogManager.getLogger(SourceRowSpillFile.class);
+    private static final String SPILL_FILE_PREFIX = "bulkSourceRows";
+    private static final String SPILL_FILE_SUFFIX = ".bin";
+    private static final int BUFFER_SIZE = 65536;
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte STRING_VALUE = 1;
+    private static final byte SERIALIZED_VALUE = 2;
+
+    private final File spillDir;
+    private final List<TableHeader> headers = new ArrayList<TableHeader>();
+    private final Map<TableHeader, Integer> headerIndices = new IdentityHashMap<TableHeader, Integer>();
+    private File spillFile = null;
+    private DataOutputStream out = null;
+    private DataInputStream in = null;
+    private int rowsWritten = 0;
+    private int rowsRead = 0;
+
+    /**
+     * @param spillDir directory for the spill file, or null to use the default temporary-file directory
+     */
+    SourceRowSpillFile(File spillDir) {
+        this.spillDir = spillDir;
+    }
+
+    void append(TableRow row) throws IOException {
+        if (this.in != null) {
+            throw new IllegalStateException("cannot append rows after reading has started");
+        }
+        if (this.out == null) {
+            this.spillFile = File.createTempFile(SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX, this.spillDir);
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.spillFile), BUFFER_SIZE));
+        }
+        final TableHeader header = row.getHeader();
+        Integer headerIdx = this.headerIndices.get(header);
+        if (headerIdx == null) {
+            headerIdx = this.headers.size();
+            this.headers.add(header);
+            this.headerIndices.put(header, headerIdx);
+        }
+        final int numColumns = header.getColumnCount();
+        this.out.writeInt(headerIdx);
+        this.out.writeInt(numColumns);
+        for (int i = 0; i < numColumns; i++) {
+            writeValue(row.getValueAt(i));
+        }
+        this.rowsWritten++;
+    }
+
+    /**
+     * @return number of rows appended so far
+     */
+    int size() {
+        return this.rowsWritten;
+    }
+
+    /**
+     * Reads the next rows in the order they were appended.
+     * 
+     * @return up to numRows rows, fewer if the end of the file is reached
+     */
+    List<TableRow> readRows(int numRows) throws IOException {
+        final List<TableRow> rows = new ArrayList<TableRow>(Math.max(0, Math.min(numRows, this.rowsWritten - this.rowsRead)));
+        if (this.out != null) {
+            this.out.close();
+            this.out = null;
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.spillFile), BUFFER_SIZE));
+        }
+        while (rows.size() < numRows && this.rowsRead < this.rowsWritten) {
+            rows.add(readRow());
+            this.rowsRead++;
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (this.out != null) {
+                this.out.close();
+            }
+            if (this.in != null) {
+                this.in.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to close spill file " + this.spillFile.getAbsolutePath(), e);
+        }
+        this.out = null;
+        this.in = null;
+        if (this.spillFile != null && !this.spillFile.delete()) {
+            logger.warn("Unable to delete spill file " + this.spillFile.getAbsolutePath());
+        }
+        this.spillFile = null;
+    }
+
+    private TableRow readRow() throws IOException {
+        final TableHeader header = this.headers.get(this.in.readInt());
+        final int numColumns = this.in.readInt();
+        if (numColumns != header.getColumnCount()) {
+            throw new IOException("spill file row has " + numColumns + " columns, expected " + header.getColumnCount());
+        }
+        final TableRow row = new TableRow(header);
+        for (int i = 0; i < numColumns; i++) {
+            row.setValueAt(i, readValue());
+        }
+        return row;
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            this.out.writeByte(NULL_VALUE);
+        } else if (value instanceof String || !(value instanceof Serializable)) {
+            writeBytes(STRING_VALUE, value.toString().getBytes(StandardCharsets.UTF_8));
+        } else {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+                objectOut.writeObject(value);
+            }
+            writeBytes(SERIALIZED_VALUE, bytes.toByteArray());
+        }
+    }
+
+    private void writeBytes(byte type, byte[] bytes) throws IOException {
+        this.out.writeByte(type);
+        this.out.writeInt(bytes.length);
+        this.out.write(bytes);
+    }
+
+    private Object readValue() throws IOException {
+        final byte type = this.in.readByte();
+        if (type == NULL_VALUE) {
+            return null;
+        }
+        final byte[] bytes = new byte[this.in.readInt()];
+        this.in.readFully(bytes);
+        if (type == STRING_VALUE) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        } else if (type == SERIALIZED_VALUE) {
+            try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return objectIn.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+        throw new IOException("corrupt spill file " + this.spillFile.getAbsolutePath());
+    }
+}
@@ -34,6 +34,7 @@ import org.apache.commons.beanutils.DynaBean;
 
 import com.salesforce.dataloader.action.OperationInfo;
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
+import com.salesforce.dataloader.action.visitor.ConcurrentBatchExecutor;
 import com.salesforce.dataloader.action.visitor.DAOLoadVisitor;
 import com.salesforce.dataloader.client.PartnerClient;
 import com.salesforce.dataloader.config.*;
@@ -43,6 +44,7 @@ import com.salesforce.dataloader.exception.*;
 import com.sforce.soap.partner.DeleteResult;
 import com.sforce.soap.partner.OwnerChangeOption;
 import com.sforce.soap.partner.OwnerChangeOptionType;
+import com.sforce.soap.partner.PartnerConnection;
 import com.sforce.soap.partner.SaveResult;
 import com.sforce.soap.partner.UndeleteResult;
 import com.sforce.soap.partner.UpsertResult;
@@ -58,15 +60,39 @@ import com.sforce.ws.ConnectionException;
  */
 public abstract class PartnerLoadVisitor extends DAOLoadVisitor {
 
+    // sends batches concurrently, null if they are loaded one at a time on the visiting thread
+    private final ConcurrentBatchExecutor batchExecutor;
+    // connection whose headers were set for the concurrent calls
+    private PartnerConnection headersConnection;
+
     public PartnerLoadVisitor(Controller controller, ILoaderProgress monitor, DataWriterInterface successWriter,
             DataWriterInterface errorWriter) {
         super(controller, monitor, successWriter, errorWriter);
+        this.batchExecutor = createConcurrentBatchExecutor(
+                dynaBeans -> executeClientAction(getController().getPartnerClient(), dynaBeans), this::processResults);
     }
 
     @Override
-    protected void loadBatch() throws DataAccessObjectException, LoadException {
-        Object[] results = null;
+    protected void loadBatch() throws DataAccessObjectException, OperationException {
+        if (this.batchExecutor != null) {
+            try {
+                // the calls in flight share the connection: log in again and set the headers of a new
+                // connection here, before any call uses it, instead of on the threads of the calls
+                getController().getLoginClient().connectIfSessionInvalid();
+                PartnerConnection connection = getController().getPartnerClient().getConnection();
+                if (connection != this.headersConnection) {
+                    setHeaders();
+                    this.headersConnection = connection;
+                }
+                this.batchExecutor.submit(dynaArray, daoRowList);
+            } catch (ConnectionException e) {
+                handleException(e);
+            }
+            clearArrays();
+            return;
+        }
         setHeaders();
+        Object[] results = null;
         try {
             results = executeClientAction(getController().getPartnerClient(), dynaArray);
         } catch (ApiFault e) {
@@ -75,16 +101,32 @@ public abstract class PartnerLoadVisitor extends DAOLoadVisitor {
             handleException(e);
         }
 
-        writeOutputToWriter(results);
+        processResults(this.daoRowList, results);
+
+        // now clear the arrays
+        clearArrays();
+
+    }
+
+    private void processResults(List<TableRow> daoRows, Object[] results)
+            throws DataAccessObjectException, LoadException {
+        writeOutputToWriter(daoRows, results);
         setLastRunProperties(results);
 
         // update Monitor
         getProgressMonitor().worked(results.length);
         getProgressMonitor().setSubTask(getRateCalculator().calculateSubTask(getNumberOfRows(), getNumberErrors()));
+    }
 
-        // now clear the arrays
-        clearArrays();
-
+    @Override
+    protected void closeJob() throws OperationException, DataAccessObjectException {
+        if (this.batchExecutor != null) {
+            try {
+                this.batchExecutor.awaitAll();
+            } catch (ConnectionException e) {
+                handleException(e);
+            }
+        }
     }
     
     private void setHeaders() {
@@ -109,14 +151,14 @@ public abstract class PartnerLoadVisitor extends DAOLoadVisitor {
         this.controller.getPartnerClient().getConnection().setOwnerChangeOptions(ownerChangeOptionArray);
     }
 
-    private void writeOutputToWriter(Object[] results)
+    private void writeOutputToWriter(List<TableRow> daoRows, Object[] results)
             throws DataAccessObjectException, LoadException {
 
         // have to do this because although saveResult and deleteResult
         // are a) not the same class yet b) not subclassed
         int batchRowCounter = 0;
-        for (int i = 0; i < this.daoRowList.size(); i++) {
-            TableRow daoRow = this.daoRowList.get(i);
+        for (int i = 0; i < daoRows.size(); i++) {
+            TableRow daoRow = daoRows.get(i);
             if (!isRowConversionSuccessful()) {
                 continue;
             }
@@ -32,6 +32,7 @@ import org.apache.commons.beanutils.DynaBean;
 
 import com.salesforce.dataloader.action.OperationInfo;
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
+import com.salesforce.dataloader.action.visitor.ConcurrentBatchExecutor;
 import com.salesforce.dataloader.action.visitor.DAOLoadVisitor;
 import com.salesforce.dataloader.client.CompositeRESTClient;
 import com.salesforce.dataloader.config.AppConfig;
@@ -49,14 +50,30 @@ import com.sforce.ws.ConnectionException;
 
 public abstract class RESTLoadVisitor extends DAOLoadVisitor {
 
+    // sends batches concurrently, null if they are loaded one at a time on the visiting thread
+    private final ConcurrentBatchExecutor batchExecutor;
+
     public RESTLoadVisitor(Controller controller, ILoaderProgress monitor, DataWriterInterface successWriter,
             DataWriterInterface errorWriter) {
         super(controller, monitor, successWriter, errorWriter);
+        this.batchExecutor = createConcurrentBatchExecutor(
+                dynaBeans -> executeClientAction(getController().getRESTClient(), dynaBeans), this::processResults);
     }
 
     protected void loadBatch() throws DataAccessObjectException, OperationException {
-        Object[] results = null;
         setHeaders();
+        if (this.batchExecutor != null) {
+            try {
+                // log in again here rather than on the threads of the calls in flight, which share the session
+                getController().getLoginClient().connectIfSessionInvalid();
+                this.batchExecutor.submit(dynaArray, daoRowList);
+            } catch (ConnectionException e) {
+                handleException(e);
+            }
+            clearArrays();
+            return;
+        }
+        Object[] results = null;
         try {
             // executeClientAction() is implemented by concrete subclasses
             results = executeClientAction(getController().getRESTClient(), dynaArray);
@@ -66,24 +83,40 @@ public abstract class RESTLoadVisitor extends DAOLoadVisitor {
             handleException(e);
         }
 
-        writeOutputToWriter(results);
+        processResults(this.daoRowList, results);
+
+        // now clear the arrays
+        clearArrays();
+    }
+
+    private void processResults(List<TableRow> daoRows, Object[] results)
+            throws DataAccessObjectException, OperationException {
+        writeOutputToWriter(daoRows, results);
         setLastRunProperties(results);
 
         // update Monitor
         getProgressMonitor().worked(results.length);
         getProgressMonitor().setSubTask(getRateCalculator().calculateSubTask(getNumberOfRows(), getNumberErrors()));
+    }
 
-        // now clear the arrays
-        clearArrays();
+    @Override
+    protected void closeJob() throws OperationException, DataAccessObjectException {
+        if (this.batchExecutor != null) {
+            try {
+                this.batchExecutor.awaitAll();
+            } catch (ConnectionException e) {
+                handleException(e);
+            }
+        }
     }
 
-    private void writeOutputToWriter(Object[] results)
+    private void writeOutputToWriter(List<TableRow> daoRows, Object[] results)
             throws DataAccessObjectException, LoadException {
         // have to do this because although saveResult and deleteResult
         // are a) not the same class yet b) not subclassed
         int batchRowCounter = 0;
-        for (int i = 0; i < this.daoRowList.size(); i++) {
-            TableRow daoRow = this.daoRowList.get(i);
+        for (int i = 0; i < daoRows.size(); i++) {
+            TableRow daoRow = daoRows.get(i);
             if (!isRowConversionSuccessful()) {
                 continue;
             }
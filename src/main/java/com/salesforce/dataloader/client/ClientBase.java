@@ -74,9 +74,7 @@ public abstract class ClientBase<ConnectionType> {
     
     protected <R, A> R runOperation(ClientOperation<R, A> op, A arg) throws ConnectionException {
         logger.debug(Messages.getFormattedString("Client.beginOperation", op.getName())); //$NON-NLS-1$
-        if (!controller.getLoginClient().isSessionValid()) {
-        	controller.getLoginClient().connect();
-        }
+        controller.getLoginClient().connectIfSessionInvalid();
         ConnectionException connectionException = null;
         try {
             R result = op.run(arg);
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+import javax.xml.namespace.QName;
+
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.util.DLLogManager;
+import com.sforce.soap.partner.DescribeGlobalResult;
+import com.sforce.soap.partner.DescribeSObjectResult;
+import com.sforce.ws.ConnectionException;
+import com.sforce.ws.bind.TypeMapper;
+import com.sforce.ws.bind.XMLizable;
+import com.sforce.ws.parser.PullParserException;
+import com.sforce.ws.parser.XmlInputStream;
+import com.sforce.ws.parser.XmlOutputStream;
+
+/**
+ * Keeps describeGlobal and describeSObject results on disk so that consecutive runs
+ * against the same org do not describe the same sObjects again. Results are stored in
+ * the XML form of the partner API, one file per result, under a directory that is
+ * specific to the cache format version and to the scope of the results (service
+ * endpoint, which includes the instance, API version and org, and the user, whose
+ * permissions determine the describe). A result older than the TTL is ignored.
+ */
+class DescribeDiskCache {
+    private static final Logger logger = DLLogManager.getLogger(DescribeDiskCache.class);
+
+    // bump when the layout or the serialized form of cached results changes
+    private static final String CACHE_FORMAT_VERSION = "v1";
+    private static final String PARTNER_NS = "urn:partner.soap.sforce.com";
+    private static final String XSI_NS = "http://www.w3.org/2001/XMLSchema-instance";
+    private static final QName RESULT_ELEMENT = new QName(PARTNER_NS, "result");
+    private static final String GLOBAL_DESCRIBE_FILE = "describeGlobal.xml";
+    private static final String SOBJECT_DESCRIBE_PREFIX = "sobject_";
+    private static final String XML_SUFFIX = ".xml";
+
+    private final File scopeDir;
+    private final long ttlMillis;
+    private final TypeMapper typeMapper = new TypeMapper();
+
+    /**
+     * @param cacheDir root directory of the cache
+     * @param scope identifies the org, user and API version the results belong to
+     * @param ttlMillis maximum age of a cached result
+     */
+    DescribeDiskCache(File cacheDir, String scope, long ttlMillis) {
+        this.scopeDir = new File(new File(cacheDir, CACHE_FORMAT_VERSION), digest(scope));
+        this.ttlMillis = ttlMillis;
+    }
+
+    DescribeGlobalResult getGlobalDescribe() {
+        return read(new File(this.scopeDir, GLOBAL_DESCRIBE_FILE), new DescribeGlobalResult());
+    }
+
+    void putGlobalDescribe(DescribeGlobalResult result) {
+        write(new File(this.scopeDir, GLOBAL_DESCRIBE_FILE), result);
+    }
+
+    DescribeSObjectResult getSObjectDescribe(String sObjectName) {
+        return read(getSObjectFile(sObjectName), new DescribeSObjectResult());
+    }
+
+    void putSObjectDescribe(DescribeSObjectResult result) {
+        write(getSObjectFile(result.getName()), result);
+    }
+
+    private File getSObjectFile(String sObjectName) {
+        // sObject names are case-insensitive
+        return new File(this.scopeDir, SOBJECT_DESCRIBE_PREFIX + sObjectName.toLowerCase(Locale.ROOT) + XML_SUFFIX);
+    }
+
+    private <T extends XMLizable> T read(File file, T result) {
+        if (!file.isFile()) {
+            return null;
+        }
+        if (System.currentTimeMillis() - file.lastModified() > this.ttlMillis) {
+            logger.debug("Cached describe " + file.getAbsolutePath() + " has expired");
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            XmlInputStream xin = new XmlInputStream();
+            xin.setInput(in, StandardCharsets.UTF_8.name());
+            result.load(xin, this.typeMapper);
+            logger.debug("Using cached describe " + file.getAbsolutePath());
+            return result;
+        } catch (IOException | ConnectionException | PullParserException | RuntimeException e) {
+            logger.warn("Ignoring unreadable cached describe " + file.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(File file, XMLizable result) {
+        File tempFile = null;
+        try {
+            Files.createDirectories(this.scopeDir.toPath());
+            tempFile = File.createTempFile(file.getName(), ".tmp", this.scopeDir);
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                XmlOutputStream xout = new XmlOutputStream(out, false);
+                xout.startDocument();
+                xout.setPrefix("sf", PARTNER_NS);
+                xout.setPrefix("xsi", XSI_NS);
+                result.write(RESULT_ELEMENT, xout, this.typeMapper);
+                xout.endDocument();
+                xout.close();
+            }
+            // replace the cached result in one step so that a concurrent run never reads a partial file
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to cache describe in " + file.getAbsolutePath() + ": " + e.getMessage());
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static String digest(String scope) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(scope.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -68,9 +68,19 @@ public class LoginClient extends ClientBase<PartnerConnection> {
         super(controller, LOG);
     }
 
-    public boolean connect() throws ConnectionException {
+    public synchronized boolean connect() throws ConnectionException {
         return login();
     }
+
+    /**
+     * Logs in again if the session is no longer valid. Calls that run concurrently share the
+     * session, so only the first of them to find it expired logs in.
+     */
+    public synchronized void connectIfSessionInvalid() throws ConnectionException {
+        if (!isSessionValid()) {
+            login();
+        }
+    }
     
     @Override
     protected boolean connectPostLogin(ConnectorConfig cc) {
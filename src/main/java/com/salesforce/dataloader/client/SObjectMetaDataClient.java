@@ -56,11 +56,13 @@ import com.sforce.ws.ConnectorConfig;
 import org.apache.logging.log4j.Logger;
 import com.salesforce.dataloader.util.DLLogManager;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 public class SObjectMetaDataClient extends ClientBase<PartnerConnection> {
 
@@ -90,11 +92,32 @@ public class SObjectMetaDataClient extends ClientBase<PartnerConnection> {
         }
     };
 
+    private final ClientOperation<DescribeSObjectResult[], String[]> DESCRIBE_SOBJECTS_OPERATION = new ClientOperation<DescribeSObjectResult[], String[]>() {
+        @Override
+        public String getName() {
+            return "describeSObjects";
+        }
+
+        @Override
+        public DescribeSObjectResult[] run(String[] entities) throws ConnectionException {
+            return getConnection().describeSObjects(entities);
+        }
+    };
+
+    // maximum number of sObjects accepted by a describeSObjects() call
+    static final int MAX_SOBJECTS_PER_DESCRIBE = 100;
+
+    static interface SObjectsDescriber {
+        DescribeSObjectResult[] describe(String[] sObjectNames) throws ConnectionException;
+    }
+
     private DescribeGlobalResult describeGlobalResults;
     private ReferenceEntitiesDescribeMap referenceEntitiesDescribesMap = new ReferenceEntitiesDescribeMap(this);
     private final Map<String, DescribeGlobalSObjectResult> describeGlobalResultsMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
     private final Map<String, DescribeSObjectResult> entityFieldDescribesMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
     private final Map<String, ReferenceEntitiesDescribeMap> parentDescribeCache = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private DescribeDiskCache diskCache = null;
+    private String diskCacheScope = null;
     private SObjectMetaDataClient(Controller controller) {
         super(controller, LOG);
     }
@@ -159,11 +182,18 @@ public class SObjectMetaDataClient extends ClientBase<PartnerConnection> {
     public Map<String, DescribeGlobalSObjectResult> getDescribeGlobalResults() {
         if (this.describeGlobalResults == null || !appConfig.getBoolean(AppConfig.PROP_CACHE_DESCRIBE_GLOBAL_RESULTS)) {
             this.describeGlobalResultsMap.clear();
-            try {
-                this.describeGlobalResults = runOperation(DESCRIBE_GLOBAL_OPERATION, null);
-            } catch (ConnectionException e) {
-                logger.error("Failed to get description of sobjects", e.getMessage());
-                return null;
+            final DescribeDiskCache diskCache = getDiskCache();
+            this.describeGlobalResults = diskCache == null ? null : diskCache.getGlobalDescribe();
+            if (this.describeGlobalResults == null) {
+                try {
+                    this.describeGlobalResults = runOperation(DESCRIBE_GLOBAL_OPERATION, null);
+                } catch (ConnectionException e) {
+                    logger.error("Failed to get description of sobjects", e.getMessage());
+                    return null;
+                }
+                if (diskCache != null && this.describeGlobalResults != null) {
+                    diskCache.putGlobalDescribe(this.describeGlobalResults);
+                }
             }
         }
         
@@ -268,6 +298,8 @@ public class SObjectMetaDataClient extends ClientBase<PartnerConnection> {
             }
         }
 
+        ArrayList<Field> childObjectFields = new ArrayList<Field>();
+        ArrayList<String> parentObjectNameList = new ArrayList<String>();
         for (Field childObjectField : entityFields) {
             // verify that the sobject field represents a relationship field where
             // the sobject is a child with one or more parent sobjects.
@@ -282,9 +314,17 @@ public class SObjectMetaDataClient extends ClientBase<PartnerConnection> {
             }
             if (!useMappedLookupRelationshipNamesForRefDescribes
                 || relFieldsNeedingRefDescribes.contains(relationshipName)) {
-                processParentObjectArrayForLookupReferences(parentObjectNames, childObjectField);
+                childObjectFields.add(childObjectField);
+                for (String parentObjectName : parentObjectNames) {
+                    parentObjectNameList.add(parentObjectName);
+                }
             }
         }
+        // describe all parents up front, several lookups commonly share the same parent sObject
+        Map<String, DescribeSObjectResult> parentDescribes = describeSObjects(parentObjectNameList);
+        for (Field childObjectField : childObjectFields) {
+            processParentObjectArrayForLookupReferences(childObjectField.getReferenceTo(), childObjectField, parentDescribes);
+        }
         if (appConfig.getBoolean(AppConfig.PROP_CACHE_DESCRIBE_GLOBAL_RESULTS)
             && sfFields == null) {
             // got the full list of parents' describes for an sobject
@@ -292,15 +332,20 @@ public class SObjectMetaDataClient extends ClientBase<PartnerConnection> {
         }
     }
     
-    private void processParentObjectArrayForLookupReferences(String[] parentObjectNames, Field childObjectField) throws ConnectionException {
+    private void processParentObjectArrayForLookupReferences(String[] parentObjectNames, Field childObjectField,
+            Map<String, DescribeSObjectResult> parentDescribes) throws ConnectionException {
         for (int parentObjectIndex = 0; parentObjectIndex < parentObjectNames.length; parentObjectIndex++ ) {
             String parentObjectName = parentObjectNames[parentObjectIndex];
-            processParentObjectForLookupReferences(parentObjectName, childObjectField, parentObjectIndex, parentObjectNames.length);
+            DescribeSObjectResult parentDescribe = parentDescribes.get(parentObjectName);
+            if (parentDescribe == null) {
+                parentDescribe = describeSObject(parentObjectName);
+            }
+            processParentObjectForLookupReferences(parentObjectName, parentDescribe, childObjectField, parentObjectIndex, parentObjectNames.length);
         }
     }
     
-    private void processParentObjectForLookupReferences(String parentObjectName, Field childObjectField, int parentObjectIndex, int numParentTypes) throws ConnectionException {
-        Field[] parentObjectFields = describeSObject(parentObjectName).getFields();
+    private void processParentObjectForLookupReferences(String parentObjectName, DescribeSObjectResult parentDescribe, Field childObjectField, int parentObjectIndex, int numParentTypes) {
+        Field[] parentObjectFields = parentDescribe.getFields();
         Map<String, Field> parentIdLookupFieldMap = new HashMap<String, Field>();
         for (Field parentField : parentObjectFields) {
             processParentFieldForLookupReference(parentField, childObjectField, numParentTypes, parentObjectIndex, numParentTypes, parentIdLookupFieldMap);
@@ -334,13 +379,113 @@ public class SObjectMetaDataClient extends ClientBase<PartnerConnection> {
             result = getCachedEntityDescribeMap().get(entity);
         }
         if (result == null) {
-            result = runOperation(DESCRIBE_SOBJECT_OPERATION, entity);
+            final DescribeDiskCache diskCache = getDiskCache();
+            if (diskCache != null) {
+                result = diskCache.getSObjectDescribe(entity);
+            }
+            if (result == null) {
+                result = runOperation(DESCRIBE_SOBJECT_OPERATION, entity);
+                if (diskCache != null && result != null) {
+                    diskCache.putSObjectDescribe(result);
+                }
+            }
             if (result != null) {
                 getCachedEntityDescribeMap().put(result.getName(), result);
             }
         }
         return result;
     }
+
+    /**
+     * Gets the describes of the given sObjects, keyed case-insensitively by sObject name.
+     * Describes that are not cached are fetched with as few describeSObjects calls as possible.
+     *
+     * @throws ConnectionException
+     */
+    public Map<String, DescribeSObjectResult> describeSObjects(Collection<String> sObjectNames) throws ConnectionException {
+        Map<String, DescribeSObjectResult> results = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        ArrayList<String> uncachedSObjectNames = new ArrayList<String>();
+        final DescribeDiskCache diskCache = getDiskCache();
+        for (String sObjectName : sObjectNames) {
+            DescribeSObjectResult result = null;
+            if (appConfig.getBoolean(AppConfig.PROP_CACHE_DESCRIBE_GLOBAL_RESULTS)) {
+                result = getCachedEntityDescribeMap().get(sObjectName);
+            }
+            if (result == null && diskCache != null) {
+                result = diskCache.getSObjectDescribe(sObjectName);
+                if (result != null) {
+                    getCachedEntityDescribeMap().put(result.getName(), result);
+                }
+            }
+            if (result == null) {
+                uncachedSObjectNames.add(sObjectName);
+            } else {
+                results.put(sObjectName, result);
+            }
+        }
+        Map<String, DescribeSObjectResult> fetchedResults = describeSObjectsInBatches(uncachedSObjectNames,
+                names -> runOperation(DESCRIBE_SOBJECTS_OPERATION, names));
+        for (DescribeSObjectResult result : fetchedResults.values()) {
+            getCachedEntityDescribeMap().put(result.getName(), result);
+            if (diskCache != null) {
+                diskCache.putSObjectDescribe(result);
+            }
+        }
+        results.putAll(fetchedResults);
+        return results;
+    }
+
+    static Map<String, DescribeSObjectResult> describeSObjectsInBatches(Collection<String> sObjectNames,
+            SObjectsDescriber describer) throws ConnectionException {
+        Map<String, DescribeSObjectResult> results = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        TreeSet<String> distinctSObjectNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        distinctSObjectNames.addAll(sObjectNames);
+        ArrayList<String> batch = new ArrayList<String>(MAX_SOBJECTS_PER_DESCRIBE);
+        for (String sObjectName : distinctSObjectNames) {
+            batch.add(sObjectName);
+            if (batch.size() == MAX_SOBJECTS_PER_DESCRIBE || sObjectName.equals(distinctSObjectNames.last())) {
+                DescribeSObjectResult[] batchResults = describer.describe(batch.toArray(new String[0]));
+                if (batchResults != null) {
+                    for (DescribeSObjectResult result : batchResults) {
+                        if (result != null) {
+                            results.put(result.getName(), result);
+                        }
+                    }
+                }
+                batch.clear();
+            }
+        }
+        return results;
+    }
+
+    // returns null if the on-disk cache is disabled or the org and user of the session are not known yet
+    private DescribeDiskCache getDiskCache() {
+        if (!appConfig.getBoolean(AppConfig.PROP_CACHE_DESCRIBE_GLOBAL_RESULTS)) {
+            return null;
+        }
+        long ttlSeconds;
+        try {
+            ttlSeconds = appConfig.getLong(AppConfig.PROP_DESCRIBE_CACHE_TTL_SECONDS);
+        } catch (ParameterLoadException e) {
+            logger.warn("Incorrectly configured " + AppConfig.PROP_DESCRIBE_CACHE_TTL_SECONDS);
+            return null;
+        }
+        if (ttlSeconds <= 0) {
+            return null;
+        }
+        PartnerConnection conn = getConnection();
+        SessionInfo session = controller.getLoginClient().getSession();
+        if (conn == null || conn.getConfig() == null || session.getUserInfoResult() == null) {
+            return null;
+        }
+        // service endpoint includes the instance, API version and org id. Describes also depend on the user's permissions.
+        String scope = conn.getConfig().getServiceEndpoint() + "|" + session.getUserInfoResult().getUserId();
+        if (this.diskCache == null || !scope.equals(this.diskCacheScope)) {
+            this.diskCache = new DescribeDiskCache(new File(appConfig.getDescribeCacheDir()), scope, ttlSeconds * 1000);
+            this.diskCacheScope = scope;
+        }
+        return this.diskCache;
+    }
     
     public Field[] getSObjectFieldAttributesForRow(String sObjectName, TableRow dataRow) throws ConnectionException {
         ArrayList<Field> attributesForRow = new ArrayList<Field>();
@@ -413,7 +558,7 @@ public class SObjectMetaDataClient extends ClientBase<PartnerConnection> {
                 }
                 // need to add the relationship mapping to referenceEntitiesDescribesMap
                 try {
-                    processParentObjectForLookupReferences(parentSObjectName, f, 0, 1);
+                    processParentObjectForLookupReferences(parentSObjectName, describeSObject(parentSObjectName), f, 0, 1);
                 } catch (ConnectionException e) {
                     // TODO Auto-generated catch block
                     e.printStackTrace();
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.client.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.util.DLLogManager;
+
+/**
+ * Streams the body of an HTTP response directly from the connection. The response
+ * is released when the stream reaches its end, fails to read, or is closed, whichever
+ * happens first.
+ */
+class HttpResponseInputStream extends InputStream {
+    private static final Logger logger = DLLogManager.getLogger(HttpResponseInputStream.class);
+
+    private final InputStream content;
+    private final Closeable response;
+    private boolean released = false;
+
+    HttpResponseInputStream(InputStream content, Closeable response) {
+        this.content = content;
+        this.response = response;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (this.released) {
+            return -1;
+        }
+        int b;
+        try {
+            b = this.content.read();
+        } catch (IOException | RuntimeException e) {
+            release();
+            throw e;
+        }
+        if (b < 0) {
+            release();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (this.released) {
+            return -1;
+        }
+        int n;
+        try {
+            n = this.content.read(b, off, len);
+        } catch (IOException | RuntimeException e) {
+            release();
+            throw e;
+        }
+        if (n < 0) {
+            release();
+        }
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (this.released) {
+            return 0;
+        }
+        return this.content.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        release();
+    }
+
+    private void release() {
+        if (this.released) {
+            return;
+        }
+        this.released = true;
+        try {
+            this.response.close();
+        } catch (IOException e) {
+            logger.debug("Unable to release http response: " + e.getMessage());
+        }
+    }
+}
@@ -28,13 +28,17 @@ package com.salesforce.dataloader.client.transport;
 import java.io.*;
 import java.net.*;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
-import org.apache.commons.io.IOUtils;
+import javax.net.ssl.SSLSocketFactory;
+
 import org.apache.http.*;
 import org.apache.http.auth.*;
 import org.apache.http.client.CredentialsProvider;
@@ -50,14 +54,18 @@ import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.InputStreamEntity;
 
 import com.salesforce.dataloader.client.ClientBase;
 import com.salesforce.dataloader.config.AppConfig;
 import com.salesforce.dataloader.exception.HttpClientTransportException;
+import com.salesforce.dataloader.exception.ParameterLoadException;
 import com.salesforce.dataloader.util.AppUtil;
 import com.sforce.async.AsyncApiException;
 import com.sforce.ws.ConnectorConfig;
@@ -69,6 +77,7 @@ import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.ProxyAuthenticationStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import com.salesforce.dataloader.util.DLLogManager;
 import org.apache.logging.log4j.Logger;
@@ -78,6 +87,10 @@ import org.apache.logging.log4j.Logger;
  * with NTLM proxies.  The existing JdkHttpTransport in WSC does not work with NTLM proxies when
  * compiled on Java 1.6
  *
+ * Each instance carries the state of one request/response exchange, so instances
+ * must not be shared across threads. All instances share one HttpClient backed by a
+ * pooled connection manager unless sfdc.reuseClientConnection is set to false.
+ *
  * @author Jeff Lai
  * @since 25.0.2
  */
@@ -88,38 +101,62 @@ public class HttpTransportImpl implements HttpTransportInterface {
     private static final String AUTH_HEADER_FOR_JSON = "Authorization";
     private static final String AUTH_HEADER_FOR_XML = "X-SFDC-Session";
     private static final String USER_AGENT_HEADER = "User-Agent";
+    // responses of a known length up to this size are read fully and their connection
+    // is returned to the pool right away
+    private static final int BUFFERED_RESPONSE_MAX_BYTES = 65536;
 
+    // connector config and http client shared by all transports
     private static ConnectorConfig currentConnectorConfig = null;
+    private static CloseableHttpClient currentHttpClient = null;
+    // clients replaced after a config change, which may still have requests in flight
+    private static final List<CloseableHttpClient> retiredHttpClients = new ArrayList<CloseableHttpClient>();
+    private static final AtomicLong serverInvocationCount = new AtomicLong();
+    private static Logger logger = DLLogManager.getLogger(HttpTransportImpl.class);
+
+    // state of the current request
+    private ConnectorConfig connectorConfig = null;
+    private CloseableHttpClient httpClient = null;
+    private boolean isPrivateHttpClient = false;
     private boolean successful;
     private HttpRequestBase httpMethod = null;
     private OutputStream output;
-    private ByteArrayOutputStream entityByteOut;
-    private static CloseableHttpClient currentHttpClient = null;
-    private static long serverInvocationCount = 0;
-    private static Logger logger = DLLogManager.getLogger(HttpTransportImpl.class);
+    private EntityByteArrayOutputStream entityByteOut;
     private HttpResponse httpResponse;
-    private static final HttpTransportImpl singletonTransportInstance = new HttpTransportImpl();
 
     @Override
-    public synchronized void setConfig(ConnectorConfig newConfig) {
-        if (!canReuseHttpClient(currentConnectorConfig, newConfig)
-                && currentHttpClient != null) {
-            closeHttpClient();
+    public void setConfig(ConnectorConfig newConfig) {
+        this.connectorConfig = newConfig;
+        if (newConfig == null) {
+            return;
         }
-        currentConnectorConfig = newConfig;
-        if (currentConnectorConfig != null && currentHttpClient == null) {
-            try {
-                initializeHttpClient();
-            } catch (UnknownHostException e) {
-                logger.error("Unable to initialize HttpClient " + e.getMessage());
+        try {
+            if (isReuseHttpClient()) {
+                this.httpClient = getSharedHttpClient(newConfig);
+                this.isPrivateHttpClient = false;
+            } else {
+                this.httpClient = buildHttpClient(newConfig);
+                this.isPrivateHttpClient = true;
             }
+        } catch (UnknownHostException e) {
+            logger.error("Unable to initialize HttpClient " + e.getMessage());
         }
     }
 
-    private boolean canReuseHttpClient(ConnectorConfig config1, ConnectorConfig config2) {
-        if (!isReuseHttpClient()) {
-            return false;
+    private static synchronized CloseableHttpClient getSharedHttpClient(ConnectorConfig newConfig) throws UnknownHostException {
+        if (currentHttpClient != null
+                && !canReuseHttpClient(currentConnectorConfig, newConfig)) {
+            // other threads may still be using the current client, so it is only closed by closeHttpClient()
+            retiredHttpClients.add(currentHttpClient);
+            currentHttpClient = null;
         }
+        currentConnectorConfig = newConfig;
+        if (currentHttpClient == null) {
+            currentHttpClient = buildHttpClient(newConfig);
+        }
+        return currentHttpClient;
+    }
+
+    private static boolean canReuseHttpClient(ConnectorConfig config1, ConnectorConfig config2) {
         if (config1 == config2) {
             return true;
         } else if (config1 == null || config2 == null) {
@@ -168,21 +205,22 @@ public class HttpTransportImpl implements HttpTransportInterface {
         return true;
     }
         
-    private synchronized void initializeHttpClient() throws UnknownHostException {
-        closeHttpClient();
-        httpMethod = null;
+    private static CloseableHttpClient buildHttpClient(ConnectorConfig connectorConfig) throws UnknownHostException {
+        boolean useSystemProperties = AppConfig.getCurrentConfig().getBoolean(AppConfig.PROP_USE_SYSTEM_PROPS_FOR_HTTP_CLIENT);
         HttpClientBuilder httpClientBuilder = HttpClientBuilder.create();
-        if (AppConfig.getCurrentConfig().getBoolean(AppConfig.PROP_USE_SYSTEM_PROPS_FOR_HTTP_CLIENT)) {
+        if (useSystemProperties) {
             httpClientBuilder = httpClientBuilder.useSystemProperties();
         }
+        httpClientBuilder.setConnectionManager(createConnectionManager(useSystemProperties));
+        httpClientBuilder.setDefaultRequestConfig(getDefaultRequestConfig());
         
-        if (currentConnectorConfig != null
-                && currentConnectorConfig.getProxy() != null
-                && currentConnectorConfig.getProxy().address() != null) {
-            String proxyUser = currentConnectorConfig.getProxyUsername() == null ? "" : currentConnectorConfig.getProxyUsername();
-            String proxyPassword = currentConnectorConfig.getProxyPassword() == null ? "" : currentConnectorConfig.getProxyPassword();
+        if (connectorConfig != null
+                && connectorConfig.getProxy() != null
+                && connectorConfig.getProxy().address() != null) {
+            String proxyUser = connectorConfig.getProxyUsername() == null ? "" : connectorConfig.getProxyUsername();
+            String proxyPassword = connectorConfig.getProxyPassword() == null ? "" : connectorConfig.getProxyPassword();
 
-            InetSocketAddress proxyAddress = (InetSocketAddress) currentConnectorConfig.getProxy().address();
+            InetSocketAddress proxyAddress = (InetSocketAddress) connectorConfig.getProxy().address();
             HttpHost proxyHost = new HttpHost(proxyAddress.getHostName(), proxyAddress.getPort(), "http");
             httpClientBuilder.setProxy(proxyHost);
 
@@ -192,7 +230,7 @@ public class HttpTransportImpl implements HttpTransportInterface {
             Credentials credentials;
             if (AppUtil.getOSType() == AppUtil.OSType.WINDOWS) {
                 String computerName = InetAddress.getLocalHost().getCanonicalHostName();
-                credentials = new NTCredentials(proxyUser, proxyPassword, computerName, currentConnectorConfig.getNtlmDomain());
+                credentials = new NTCredentials(proxyUser, proxyPassword, computerName, connectorConfig.getNtlmDomain());
             } else {
                 credentials = new UsernamePasswordCredentials(proxyUser, proxyPassword);
             }
@@ -200,38 +238,112 @@ public class HttpTransportImpl implements HttpTransportInterface {
             credentialsprovider.setCredentials(scope, credentials);
             httpClientBuilder.setDefaultCredentialsProvider(credentialsprovider);
             httpClientBuilder.setProxyAuthenticationStrategy(new ProxyAuthenticationStrategy());
-            currentHttpClient = httpClientBuilder.build();
         }
-        if (currentHttpClient == null) {
-            currentHttpClient = httpClientBuilder.build();
+        return httpClientBuilder.build();
+    }
+
+    private static PoolingHttpClientConnectionManager createConnectionManager(boolean useSystemProperties) {
+        // HttpClientBuilder ignores the SSL settings in system properties when it is given a
+        // connection manager, so mirror what it would have configured.
+        SSLConnectionSocketFactory sslSocketFactory;
+        if (useSystemProperties) {
+            sslSocketFactory = new SSLConnectionSocketFactory(
+                    (SSLSocketFactory) SSLSocketFactory.getDefault(),
+                    splitSystemProperty("https.protocols"),
+                    splitSystemProperty("https.cipherSuites"),
+                    SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+        } else {
+            sslSocketFactory = SSLConnectionSocketFactory.getSocketFactory();
+        }
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", sslSocketFactory)
+                .build();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        connectionManager.setDefaultMaxPerRoute(getConfiguredConnectionLimit(
+                AppConfig.PROP_HTTP_MAX_CONNECTIONS_PER_ROUTE, AppConfig.DEFAULT_HTTP_MAX_CONNECTIONS_PER_ROUTE));
+        connectionManager.setMaxTotal(getConfiguredConnectionLimit(
+                AppConfig.PROP_HTTP_MAX_CONNECTIONS_TOTAL, AppConfig.DEFAULT_HTTP_MAX_CONNECTIONS_TOTAL));
+        return connectionManager;
+    }
+
+    /**
+     * Waits at most sfdc.connectionRequestTimeoutSecs for a pooled connection, so that a request
+     * fails instead of hanging when every connection is held, e.g. by response streams that
+     * were neither read to the end nor closed.
+     */
+    private static RequestConfig getDefaultRequestConfig() {
+        int timeoutSecs;
+        try {
+            timeoutSecs = AppConfig.getCurrentConfig().getInt(AppConfig.PROP_HTTP_CONNECTION_REQUEST_TIMEOUT_SECS);
+            if (timeoutSecs <= 0) {
+                timeoutSecs = AppConfig.DEFAULT_HTTP_CONNECTION_REQUEST_TIMEOUT_SECS;
+            }
+        } catch (ParameterLoadException e) {
+            logger.warn("Incorrectly configured " + AppConfig.PROP_HTTP_CONNECTION_REQUEST_TIMEOUT_SECS);
+            timeoutSecs = AppConfig.DEFAULT_HTTP_CONNECTION_REQUEST_TIMEOUT_SECS;
+        }
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout((int)Math.min(Integer.MAX_VALUE, timeoutSecs * 1000L))
+                .build();
+    }
+
+    private static int getConfiguredConnectionLimit(String propName, int defaultValue) {
+        try {
+            int limit = AppConfig.getCurrentConfig().getInt(propName);
+            return limit > 0 ? limit : defaultValue;
+        } catch (ParameterLoadException e) {
+            logger.warn("Incorrectly configured " + propName);
+            return defaultValue;
+        }
+    }
+
+    private static String[] splitSystemProperty(String propName) {
+        String value = System.getProperty(propName);
+        if (value == null || value.isBlank()) {
+            return null;
         }
+        return value.split(" *, *");
     }
 
     @Override
-    public synchronized InputStream getContent() throws IOException {
-        serverInvocationCount++;
-        if (this.httpMethod instanceof HttpEntityEnclosingRequestBase
-            && ((HttpEntityEnclosingRequestBase)this.httpMethod).getEntity() == null) {
-            byte[] entityBytes = entityByteOut.toByteArray();
-            HttpEntity entity = new ByteArrayEntity(entityBytes);
-            currentConnectorConfig.setUseChunkedPost(false);
-            ((HttpEntityEnclosingRequestBase)this.httpMethod).setEntity(entity);
-        }
-        InputStream input = new ByteArrayInputStream(new byte[1]);
+    public InputStream getContent() throws IOException {
+        serverInvocationCount.incrementAndGet();
+        HttpEntity requestEntity = null;
+        if (this.httpMethod instanceof HttpEntityEnclosingRequestBase) {
+            HttpEntityEnclosingRequestBase entityRequest = (HttpEntityEnclosingRequestBase)this.httpMethod;
+            if (entityRequest.getEntity() == null) {
+                entityRequest.setEntity(entityByteOut.toEntity());
+            }
+            requestEntity = entityRequest.getEntity();
+        }
         HttpClientContext context = HttpClientContext.create();
-        RequestConfig config = RequestConfig.custom().setExpectContinueEnabled(currentConnectorConfig.useChunkedPost()).build();
+        // Ask the server whether it accepts a streamed upload before sending it. Buffered
+        // request content is sent right away.
+        RequestConfig config = RequestConfig.copy(getDefaultRequestConfig())
+                .setExpectContinueEnabled(requestEntity instanceof StreamingUploadEntity)
+                .build();
         context.setRequestConfig(config);
 
-        if (currentConnectorConfig.getNtlmDomain() != null && !currentConnectorConfig.getNtlmDomain().equals("")) {
-            // need to send a HEAD request to trigger NTLM authentication
-            try (CloseableHttpResponse ignored = currentHttpClient.execute(new HttpHead("http://salesforce.com"))) {
-            } catch (Exception ex) {
-                logger.error(ex.getMessage());
-                throw ex;
+        CloseableHttpResponse response;
+        try {
+            if (connectorConfig.getNtlmDomain() != null && !connectorConfig.getNtlmDomain().equals("")) {
+                // need to send a HEAD request to trigger NTLM authentication
+                try (CloseableHttpResponse ignored = this.httpClient.execute(new HttpHead("http://salesforce.com"))) {
+                } catch (Exception ex) {
+                    logger.error(ex.getMessage());
+                    throw ex;
+                }
+            }
+            response = this.httpClient.execute(this.httpMethod, context);
+        } catch (IOException | RuntimeException ex) {
+            if (this.isPrivateHttpClient) {
+                this.httpClient.close();
             }
+            throw ex;
         }
-
-        try (CloseableHttpResponse response = currentHttpClient.execute(this.httpMethod, context)) {
+        Closeable releaseOnClose = getResponseReleaser(response);
+        try {
             successful = true;
             httpResponse = response;
             if (response.getStatusLine().getStatusCode() > 399) {
@@ -240,20 +352,42 @@ public class HttpTransportImpl implements HttpTransportInterface {
                     throw new RuntimeException(response.getStatusLine().getStatusCode() + " " + response.getStatusLine().getReasonPhrase());
                 }
             }
-            // copy input stream data into a new input stream because releasing the connection will close the input stream
-            ByteArrayOutputStream bOut = new ByteArrayOutputStream();
-            if (response.getEntity() != null) {
-                try (InputStream inStream = response.getEntity().getContent()) {
-                    IOUtils.copy(inStream, bOut);
-                    input = new ByteArrayInputStream(bOut.toByteArray());
-                    if (response.containsHeader("Content-Encoding") && response.getHeaders("Content-Encoding")[0].getValue().equals("gzip")) {
-                        input = new GZIPInputStream(input);
-                    }
-                }
+            if (response.getEntity() == null) {
+                releaseOnClose.close();
+                return new ByteArrayInputStream(new byte[1]);
+            }
+            InputStream inStream = response.getEntity().getContent();
+            if (response.containsHeader("Content-Encoding") && response.getHeaders("Content-Encoding")[0].getValue().equals("gzip")) {
+                inStream = new GZIPInputStream(inStream);
+            }
+            // Small responses are read in full so that their connection goes back to the pool
+            // even if the caller does not close the stream. Larger ones, and those of unknown
+            // length, are streamed.
+            long contentLength = response.getEntity().getContentLength();
+            if (contentLength >= 0 && contentLength <= BUFFERED_RESPONSE_MAX_BYTES) {
+                byte[] content = inStream.readAllBytes();
+                releaseOnClose.close();
+                return new ByteArrayInputStream(content);
             }
-            bOut.close();
+            return new HttpResponseInputStream(inStream, releaseOnClose);
+        } catch (IOException | RuntimeException ex) {
+            releaseOnClose.close();
+            throw ex;
         }
-        return input;
+    }
+
+    private Closeable getResponseReleaser(CloseableHttpResponse response) {
+        if (!this.isPrivateHttpClient) {
+            return response;
+        }
+        final CloseableHttpClient privateHttpClient = this.httpClient;
+        return () -> {
+            try {
+                response.close();
+            } finally {
+                privateHttpClient.close();
+            }
+        };
     }
 
     public HttpResponse getHttpResponse() {
@@ -293,55 +427,67 @@ public class HttpTransportImpl implements HttpTransportInterface {
     @Override
     public OutputStream connect(String endpoint, HashMap<String, String> httpHeaders, boolean enableCompression,
             SupportedHttpMethodType httpMethod) throws IOException {
-        return doConnect(endpoint, httpHeaders, enableCompression, httpMethod, null, null);
+        return doConnect(endpoint, httpHeaders, enableCompression, httpMethod, null);
     }
 
     @Override
     public void connect(String endpoint, HashMap<String, String> httpHeaders, boolean enableCompression,
             SupportedHttpMethodType httpMethod, InputStream contentInputStream, String contentEncoding)
             throws IOException {
-        doConnect(endpoint, httpHeaders, enableCompression, httpMethod, contentInputStream, contentEncoding);
+        StreamingUploadEntity requestEntity = null;
+        if (contentInputStream != null) {
+            requestEntity = StreamingUploadEntity.oneShot(contentInputStream, getContentType(contentEncoding),
+                    isRequestCompressed(enableCompression));
+        }
+        doConnect(endpoint, httpHeaders, enableCompression, httpMethod, requestEntity);
+    }
+
+    @Override
+    public void connect(String endpoint, HashMap<String, String> httpHeaders, boolean enableCompression,
+            SupportedHttpMethodType httpMethod, StreamingUploadEntity.ContentSource contentSource, String contentType)
+            throws IOException {
+        doConnect(endpoint, httpHeaders, enableCompression, httpMethod,
+                new StreamingUploadEntity(contentSource, getContentType(contentType),
+                        isRequestCompressed(enableCompression)));
     }
 
     public static long getServerInvocationCount() {
-        return serverInvocationCount;
+        return serverInvocationCount.get();
     }
     
     public static void resetServerInvocationCount() {
-        serverInvocationCount = 0;
+        serverInvocationCount.set(0);
     }
     
     private OutputStream doConnect(String endpoint,
                                     HashMap<String, String> httpHeaders, 
                                     boolean enableCompression,
                                     SupportedHttpMethodType httpMethodType,
-                                    InputStream requestInputStream, 
-                                    String contentTypeStr) throws IOException {
-        configureHttpMethod(endpoint, httpHeaders, enableCompression, httpMethodType,
-                requestInputStream, contentTypeStr);
-        if (requestInputStream != null) {
-            // Request content is in an input stream. 
+                                    StreamingUploadEntity requestEntity) throws IOException {
+        configureHttpMethod(endpoint, httpHeaders, enableCompression, httpMethodType, requestEntity);
+        if (requestEntity != null) {
+            // Request content is streamed from the entity.
             // Caller won't be using an output stream to write request content to.
             return null;
         }
-        entityByteOut = new ByteArrayOutputStream();
+        entityByteOut = new EntityByteArrayOutputStream();
         output = entityByteOut;
 
-        if (currentConnectorConfig.getMaxRequestSize() > 0) {
-            output = new LimitingOutputStream(currentConnectorConfig.getMaxRequestSize(), output);
+        if (connectorConfig.getMaxRequestSize() > 0) {
+            output = new LimitingOutputStream(connectorConfig.getMaxRequestSize(), output);
         }
 
-        if (enableCompression && currentConnectorConfig.isCompression()) {
+        if (isRequestCompressed(enableCompression)) {
             output = new GZIPOutputStream(output);
         }
 
-        if (currentConnectorConfig.isTraceMessage()) {
-            output = currentConnectorConfig.teeOutputStream(output);
+        if (connectorConfig.isTraceMessage()) {
+            output = connectorConfig.teeOutputStream(output);
         }
 
-        if (currentConnectorConfig.hasMessageHandlers()) {
+        if (connectorConfig.hasMessageHandlers()) {
             URL url = new URL(endpoint);
-            output = new MessageHandlerOutputStream(currentConnectorConfig, url, output);
+            output = new MessageHandlerOutputStream(connectorConfig, url, output);
         }
 
         return output;
@@ -352,8 +498,7 @@ public class HttpTransportImpl implements HttpTransportInterface {
             HashMap<String, String> httpHeaders, 
             boolean enableCompression,
             SupportedHttpMethodType httpMethodType,
-            InputStream requestInputStream, 
-            String contentTypeStr
+            StreamingUploadEntity requestEntity
             ) throws IOException {
         switch (httpMethodType) {
             case GET :
@@ -376,7 +521,7 @@ public class HttpTransportImpl implements HttpTransportInterface {
                 this.httpMethod.addHeader(name, httpHeaders.get(name));
             }
         }
-        Map<String, String> connectorHeaders = currentConnectorConfig.getHeaders();
+        Map<String, String> connectorHeaders = connectorConfig.getHeaders();
         if (connectorHeaders != null) {
             for (String name : connectorHeaders.keySet()) {
                 if (httpHeaders == null || !httpHeaders.containsKey(name)) {
@@ -385,30 +530,41 @@ public class HttpTransportImpl implements HttpTransportInterface {
             }
         }
         setAuthAndClientHeadersForHttpMethod();
-        if (enableCompression && currentConnectorConfig.isCompression()) {
+        if (isRequestCompressed(enableCompression)) {
             this.httpMethod.addHeader("Content-Encoding", "gzip");
             this.httpMethod.addHeader("Accept-Encoding", "gzip");
         }
-        if (requestInputStream != null) {
-            // caller has pre-specified input stream
-            ContentType contentType = ContentType.DEFAULT_TEXT;
-            if (contentTypeStr != null) {
-                contentType = ContentType.create(contentTypeStr);
-            }
-            BufferedHttpEntity entity = new BufferedHttpEntity(new InputStreamEntity(requestInputStream, contentType));
-            currentConnectorConfig.setUseChunkedPost(true);
+        if (requestEntity != null) {
+            // caller has pre-specified the request content
             if (this.httpMethod instanceof HttpEntityEnclosingRequestBase) {
-                ((HttpEntityEnclosingRequestBase)this.httpMethod).setEntity(entity);
+                ((HttpEntityEnclosingRequestBase)this.httpMethod).setEntity(requestEntity);
             }
         }
     }
+
+    private boolean isRequestCompressed(boolean enableCompression) {
+        return enableCompression && connectorConfig.isCompression();
+    }
+
+    private static ContentType getContentType(String contentTypeStr) {
+        return contentTypeStr == null ? ContentType.DEFAULT_TEXT : ContentType.create(contentTypeStr);
+    }
+
+    /**
+     * Hands its buffer to the request entity without the copy made by toByteArray().
+     */
+    private static class EntityByteArrayOutputStream extends ByteArrayOutputStream {
+        HttpEntity toEntity() {
+            return new ByteArrayEntity(this.buf, 0, this.count);
+        }
+    }
     
     public InputStream simplePost(
             String endpoint,
             HashMap<String, String> httpHeaders, 
             BasicNameValuePair[] inputs) throws IOException {
         configureHttpMethod(endpoint, httpHeaders,
-                false, SupportedHttpMethodType.POST, null, null);
+                false, SupportedHttpMethodType.POST, null);
         UrlEncodedFormEntity entity = new UrlEncodedFormEntity(Arrays.asList(inputs));
         if (this.httpMethod instanceof HttpPost) {
             ((HttpPost)this.httpMethod).setEntity(entity);
@@ -419,9 +575,9 @@ public class HttpTransportImpl implements HttpTransportInterface {
     
     private void setAuthAndClientHeadersForHttpMethod() {
         if (this.httpMethod != null 
-                && currentConnectorConfig.getSessionId() != null 
-                && !currentConnectorConfig.getSessionId().isBlank()) {
-            String authSessionId = currentConnectorConfig.getSessionId();
+                && connectorConfig.getSessionId() != null 
+                && !connectorConfig.getSessionId().isBlank()) {
+            String authSessionId = connectorConfig.getSessionId();
             Header authHeaderValForXML = this.httpMethod.getFirstHeader(AUTH_HEADER_FOR_XML);
             Header authHeaderValForJSON = this.httpMethod.getFirstHeader(AUTH_HEADER_FOR_JSON);
             
@@ -454,15 +610,20 @@ public class HttpTransportImpl implements HttpTransportInterface {
         }
     }
     
-    public static void closeHttpClient() {
+    public static synchronized void closeHttpClient() {
         if (currentHttpClient != null) {
+            retiredHttpClients.add(currentHttpClient);
+            currentHttpClient = null;
+        }
+        for (CloseableHttpClient httpClient : retiredHttpClients) {
             try {
-                currentHttpClient.close();
+                httpClient.close();
             } catch (IOException ex) {
                 // do nothing
             }
-            currentHttpClient = null;
         }
+        retiredHttpClients.clear();
+        currentConnectorConfig = null;
     }
 
     public static boolean isReuseHttpClient() {
@@ -477,7 +638,11 @@ public class HttpTransportImpl implements HttpTransportInterface {
         return in;
     }
     
+    /**
+     * Returns a new transport for a single request. Transports share the pooled
+     * HttpClient, so creating one per request is cheap.
+     */
     public static HttpTransportImpl getInstance() {
-        return singletonTransportInstance;
+        return new HttpTransportImpl();
     }
 }
\ No newline at end of file
@@ -58,6 +58,14 @@ public interface HttpTransportInterface extends Transport {
 
     void connect(String endpoint, HashMap<String, String> httpHeaders, boolean enableCompression,
     		HttpTransportInterface.SupportedHttpMethodType httpMethod, InputStream contentInputStream, String contentEncoding) throws IOException;
+
+    /**
+     * Prepares a request whose content is streamed from the given source. The source is
+     * opened again if the request has to be resent.
+     */
+    void connect(String endpoint, HashMap<String, String> httpHeaders, boolean enableCompression,
+    		HttpTransportInterface.SupportedHttpMethodType httpMethod, StreamingUploadEntity.ContentSource contentSource,
+    		String contentType) throws IOException;
     
     InputStream httpGet(String urlStr) throws IOException, AsyncApiException, HttpClientTransportException;
     HttpResponse getHttpResponse();
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.client.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+/**
+ * Request entity that streams its content from a source instead of buffering it in
+ * memory. The content is sent with chunked transfer encoding and is optionally gzip
+ * compressed while it is written to the connection.
+ *
+ * An entity created from a {@link ContentSource} is repeatable: the source is opened
+ * again each time the request is sent, so HttpClient can retry the request without
+ * keeping a copy of the content.
+ */
+public class StreamingUploadEntity extends AbstractHttpEntity {
+    private static final int OUTPUT_BUFFER_SIZE = 65536;
+
+    /**
+     * Opens a new stream over the request content, starting at its first byte.
+     */
+    @FunctionalInterface
+    public interface ContentSource {
+        InputStream open() throws IOException;
+    }
+
+    private final ContentSource source;
+    private final boolean isRepeatable;
+    private final boolean isCompressed;
+
+    public StreamingUploadEntity(ContentSource source, ContentType contentType, boolean isCompressed) {
+        this(source, true, contentType, isCompressed);
+    }
+
+    /**
+     * Creates an entity that can be sent only once because it reads the given stream.
+     */
+    public static StreamingUploadEntity oneShot(InputStream in, ContentType contentType, boolean isCompressed) {
+        return new StreamingUploadEntity(() -> in, false, contentType, isCompressed);
+    }
+
+    private StreamingUploadEntity(ContentSource source, boolean isRepeatable,
+            ContentType contentType, boolean isCompressed) {
+        this.source = source;
+        this.isRepeatable = isRepeatable;
+        this.isCompressed = isCompressed;
+        if (contentType != null) {
+            setContentType(contentType.toString());
+        }
+        if (isCompressed) {
+            setContentEncoding("gzip");
+        }
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return this.isRepeatable;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return !this.isRepeatable;
+    }
+
+    /**
+     * Returns the uncompressed content. Compressed content is only available through
+     * {@link #writeTo(OutputStream)}.
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        if (this.isCompressed) {
+            throw new UnsupportedOperationException("compressed content is only available through writeTo");
+        }
+        return this.source.open();
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        try (InputStream in = this.source.open()) {
+            if (!this.isCompressed) {
+                copy(in, outStream);
+                return;
+            }
+            // finish the gzip trailer without closing the connection stream
+            GZIPOutputStream gzipOut = new GZIPOutputStream(outStream, OUTPUT_BUFFER_SIZE);
+            copy(in, gzipOut);
+            gzipOut.finish();
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        final byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        out.flush();
+    }
+}
@@ -133,6 +133,9 @@ public class AppConfig {
     public static final int DEFAULT_MAX_RETRIES = 3;
     public static final int MAX_RETRIES_LIMIT = 10;
     public static final int DEFAULT_CONNECTION_TIMEOUT_SECS = 60;
+    public static final int DEFAULT_HTTP_MAX_CONNECTIONS_PER_ROUTE = 10;
+    public static final int DEFAULT_HTTP_MAX_CONNECTIONS_TOTAL = 20;
+    public static final int DEFAULT_HTTP_CONNECTION_REQUEST_TIMEOUT_SECS = 120;
     public static final int DEFAULT_TIMEOUT_SECS = 540;
     public static final int DEFAULT_NUM_ROWS_LOAD_BATCH = 200;
     public static final int DEFAULT_DAO_WRITE_BATCH_SIZE = 500;
@@ -140,6 +143,10 @@ public class AppConfig {
     public static final int MAX_NUM_ROWS_SOAP_API_IMPORT_BATCH = 200;
     public static final int MAX_DAO_READ_BATCH_SIZE = 200;
     public static final int MAX_DAO_WRITE_BATCH_SIZE = 2000;
+    public static final int DEFAULT_DAO_READ_FETCH_SIZE = 0;
+    public static final int DEFAULT_DAO_WRITE_COMMIT_SIZE = 0;
+    public static final int DEFAULT_DAO_WRITE_CONNECTIONS = 1;
+    public static final int MAX_DAO_WRITE_CONNECTIONS = 10;
     public static final int MAX_SOAP_API_IMPORT_BATCH_BYTES = 50000000;
     public static final int MAX_REST_API_IMPORT_BATCH_BYTES = 50000000;
 
@@ -152,6 +159,24 @@ public class AppConfig {
     public static final int DEFAULT_NUM_ROWS_BULK_API_IMPORT_BATCH = 2000;
     
     public static final long DEFAULT_BULK_API_CHECK_STATUS_INTERVAL = 5000L;
+    public static final long DEFAULT_BULK_API_MIN_CHECK_STATUS_INTERVAL = 1000L;
+    public static final long DEFAULT_BULK_API_MAX_CHECK_STATUS_INTERVAL = 60000L;
+    public static final long DEFAULT_BULK_API_SPOOL_THRESHOLD_BYTES = 1000000L;
+    public static final int DEFAULT_BULK_API_UPLOAD_THREADS = 1;
+    public static final int DEFAULT_LOAD_PIPELINE_THREADS = 0;
+    public static final int MAX_LOAD_PIPELINE_THREADS = 16;
+    public static final int MAX_BULK_API_UPLOAD_THREADS = 10;
+    public static final int DEFAULT_SYNC_API_PARALLEL_CALLS = 1;
+    public static final int MAX_SYNC_API_PARALLEL_CALLS = 10;
+    public static final long DEFAULT_DESCRIBE_CACHE_TTL_SECONDS = 0L;
+    public static final String DESCRIBE_CACHE_DIR_NAME = "describeCache";
+    public static final int DEFAULT_BULK_API_QUERY_DOWNLOAD_THREADS = 1;
+    public static final int MAX_BULK_API_QUERY_DOWNLOAD_THREADS = 10;
+    public static final int DEFAULT_BULKV2_LOAD_PARALLEL_JOBS = 1;
+    public static final int MAX_BULKV2_LOAD_PARALLEL_JOBS = 10;
+    public static final int DEFAULT_BULKV2_QUERY_PREFETCH_PAGES = 0;
+    public static final int MAX_BULKV2_QUERY_PREFETCH_PAGES = 10;
+    public static final int DEFAULT_BULKV2_QUERY_MAX_RECORDS = 0;
     public static final String DEFAULT_ENDPOINT_URL_PROD = "https://login.salesforce.com/";
     public static final String DEFAULT_ENDPOINT_URL_SANDBOX = "https://test.salesforce.com/";
     public static final String LIGHTNING_ENDPOINT_URL_PART_VAL = "lightning.force.com";
@@ -175,6 +200,9 @@ public class AppConfig {
      * The default is "true"
      */
     public static final Boolean DEFAULT_SKIP_TOTAL_COUNT = true;
+    public static final String CSV_ROW_COUNT_MODE_SCAN = "scan";
+    public static final String CSV_ROW_COUNT_MODE_ESTIMATE = "estimate";
+    public static final String CSV_ROW_COUNT_MODE_PARSE = "parse";
     /**
      * Constants that were made not configurable by choice
      */
@@ -245,6 +273,8 @@ public class AppConfig {
     public static final String PROP_BUFFER_UNPROCESSED_BULK_QUERY_RESULTS = "loader.bufferUnprocessedBulkQueryResults";
     public static final String PROP_INCLUDE_RICH_TEXT_FIELD_DATA_IN_QUERY_RESULTS = "loader.query.includeBinaryData";
     public static final String PROP_CACHE_DESCRIBE_GLOBAL_RESULTS = "loader.cacheSObjectNamesAndFields";
+    public static final String PROP_DESCRIBE_CACHE_TTL_SECONDS = "loader.describeCacheTtlSeconds";
+    public static final String PROP_DESCRIBE_CACHE_DIR = "loader.describeCacheDirectory";
     
     //Special Internal Configs
     public static final String PROP_SFDC_INTERNAL = "sfdcInternal"; //$NON-NLS-1$
@@ -277,8 +307,20 @@ public class AppConfig {
     public static final String PROP_BULK_API_ENABLED = "sfdc.useBulkApi";
     public static final String PROP_BULK_API_SERIAL_MODE = "sfdc.bulkApiSerialMode";
     public static final String PROP_BULK_API_CHECK_STATUS_INTERVAL = "sfdc.bulkApiCheckStatusInterval";
+    public static final String PROP_BULK_API_MIN_CHECK_STATUS_INTERVAL = "sfdc.bulkApiMinCheckStatusInterval";
+    public static final String PROP_BULK_API_MAX_CHECK_STATUS_INTERVAL = "sfdc.bulkApiMaxCheckStatusInterval";
     public static final String PROP_BULK_API_ZIP_CONTENT = "sfdc.bulkApiZipContent";
+    public static final String PROP_BULK_API_SPOOL_THRESHOLD_BYTES = "sfdc.bulkApiSpoolThresholdBytes";
+    public static final String PROP_BULK_API_UPLOAD_THREADS = "sfdc.bulkApiUploadThreads";
+    public static final String PROP_SYNC_API_PARALLEL_CALLS = "sfdc.syncApiParallelCalls";
+    public static final String PROP_SYNC_API_PARALLEL_CALLS_LANE_FIELD = "sfdc.syncApiParallelCallsLaneField";
+    public static final String PROP_BULK_API_QUERY_DOWNLOAD_THREADS = "sfdc.bulkApiQueryDownloadThreads";
+    public static final String PROP_BULK_API_QUERY_UNORDERED_RESULTS = "sfdc.bulkApiQueryUnorderedResults";
     public static final String PROP_BULKV2_API_ENABLED = "sfdc.useBulkV2Api";
+    public static final String PROP_BULKV2_COMPRESS_UPLOAD = "sfdc.bulkV2CompressUpload";
+    public static final String PROP_BULKV2_LOAD_PARALLEL_JOBS = "sfdc.bulkV2LoadParallelJobs";
+    public static final String PROP_BULKV2_QUERY_PREFETCH_PAGES = "sfdc.bulkV2QueryPrefetchPages";
+    public static final String PROP_BULKV2_QUERY_MAX_RECORDS = "sfdc.bulkV2QueryMaxRecords";
     public static final String PROP_UPDATE_WITH_EXTERNALID = "sfdc.updateWithExternalId";
     public static final String PROP_DELETE_WITH_EXTERNALID = "sfdc.deleteWithExternalId";
 
@@ -325,6 +367,9 @@ public class AppConfig {
             + "." +  REDIRECTURI_LITERAL;
     public static final String OAUTH_REDIRECT_URI_SUFFIX = "services/oauth2/success";
     public static final String PROP_REUSE_CLIENT_CONNECTION = "sfdc.reuseClientConnection";
+    public static final String PROP_HTTP_MAX_CONNECTIONS_PER_ROUTE = "sfdc.maxConnectionsPerRoute";
+    public static final String PROP_HTTP_MAX_CONNECTIONS_TOTAL = "sfdc.maxConnectionsTotal";
+    public static final String PROP_HTTP_CONNECTION_REQUEST_TIMEOUT_SECS = "sfdc.connectionRequestTimeoutSecs";
     public static final String PROP_RICH_TEXT_FIELD_REGEX = "sfdx.richtext.regex";
     
     // External Client App (ECA) configuration properties
@@ -366,8 +411,12 @@ public class AppConfig {
     public static final String PROP_ENABLE_EXTRACT_STATUS_OUTPUT = "process.enableExtractStatusOutput"; //$NON-NLS-1$
     public static final String PROP_ENABLE_LAST_RUN_OUTPUT = "process.enableLastRunOutput"; //$NON-NLS-1$
     public static final String PROP_LAST_RUN_OUTPUT_DIR = "process.lastRunOutputDirectory"; //$NON-NLS-1$
+    public static final String PROP_LAST_RUN_FLUSH_INTERVAL_ROWS = "process.lastRunFlushIntervalRows";
+    public static final String PROP_LAST_RUN_FLUSH_INTERVAL_MILLIS = "process.lastRunFlushIntervalMillis";
+    public static final String PROP_LAST_RUN_FSYNC = "process.lastRunFsync";
     public static final String PROP_OUTPUT_ERROR = "process.outputError"; //$NON-NLS-1$
     public static final String PROP_LOAD_ROW_TO_START_AT = "process.loadRowToStartAt"; //$NON-NLS-1$
+    public static final String PROP_LOAD_PIPELINE_THREADS = "process.loadPipelineThreads";
     public static final String PROP_INITIAL_LAST_RUN_DATE = "process.initialLastRunDate";
     public static final String PROP_ENCRYPTION_KEY_FILE = "process.encryptionKeyFile"; //$NON-NLS-1$
     public static final String PROP_PROCESS_THREAD_NAME = "process.thread.name";
@@ -379,7 +428,16 @@ public class AppConfig {
     public static final String PROP_DAO_NAME = "dataAccess.name"; //$NON-NLS-1$
     public static final String PROP_DAO_READ_BATCH_SIZE = "dataAccess.readBatchSize";
     public static final String PROP_DAO_WRITE_BATCH_SIZE = "dataAccess.writeBatchSize";
+    public static final String PROP_DAO_READ_FETCH_SIZE = "dataAccess.readFetchSize";
+    public static final String PROP_DAO_READ_STREAMING = "dataAccess.readStreaming";
+    public static final String PROP_DAO_WRITE_COMMIT_SIZE = "dataAccess.writeCommitSize";
+    public static final String PROP_DAO_WRITE_CONNECTIONS = "dataAccess.writeConnections";
     public static final String PROP_DAO_SKIP_TOTAL_COUNT = "dataAccess.skipTotalCount";
+    public static final String PROP_DAO_CSV_ROW_COUNT_MODE = "dataAccess.csvRowCountMode";
+    public static final String PROP_DAO_CSV_ROW_COUNT_CACHE = "dataAccess.csvRowCountCache";
+    public static final String PROP_DAO_CSV_WRITE_ASYNC = "dataAccess.csvWriteAsync";
+    public static final String PROP_DAO_CSV_WRITE_GZIP = "dataAccess.csvWriteGzip";
+    public static final String PROP_DAO_CSV_FAST_TOKENIZER = "dataAccess.csvFastTokenizer";
 
     /*
      * TODO: when batching is introduced to the DataAccess, these parameters will become useful
@@ -442,6 +500,7 @@ public class AppConfig {
      * The <code>lastRun</code> is for last run statistics file
      */
     private LastRunProperties lastRunProperties;
+    private LastRunCheckpointWriter lastRunCheckpointWriter;
     /**
      * <code>encrypter</code> is a utility used internally in the config for reading/writing
      * encrypted values. Right now, the list of encrypted values is known to this class only.
@@ -549,18 +608,43 @@ public class AppConfig {
             PROP_USE_SYSTEM_PROPS_FOR_HTTP_CLIENT,
             PROP_AUTH_ENDPOINT_LEGACY,
             PROP_DAO_WRITE_BATCH_SIZE,
+            PROP_DAO_READ_FETCH_SIZE,
+            PROP_DAO_READ_STREAMING,
+            PROP_DAO_WRITE_COMMIT_SIZE,
+            PROP_DAO_WRITE_CONNECTIONS,
             PROP_BUFFER_UNPROCESSED_BULK_QUERY_RESULTS,
             PROP_ENABLE_LAST_RUN_OUTPUT,
             PROP_ENCRYPTION_KEY_FILE,
             PROP_LAST_RUN_OUTPUT_DIR,
+            PROP_LAST_RUN_FLUSH_INTERVAL_ROWS,
+            PROP_LAST_RUN_FLUSH_INTERVAL_MILLIS,
+            PROP_LAST_RUN_FSYNC,
             PROP_PROCESS_NAME,
             PROP_BULK_API_CHECK_STATUS_INTERVAL,
+            PROP_BULK_API_MIN_CHECK_STATUS_INTERVAL,
+            PROP_BULK_API_MAX_CHECK_STATUS_INTERVAL,
+            PROP_BULK_API_SPOOL_THRESHOLD_BYTES,
+            PROP_BULK_API_UPLOAD_THREADS,
+            PROP_SYNC_API_PARALLEL_CALLS,
+            PROP_SYNC_API_PARALLEL_CALLS_LANE_FIELD,
+            PROP_LOAD_PIPELINE_THREADS,
+            PROP_BULK_API_QUERY_DOWNLOAD_THREADS,
+            PROP_DESCRIBE_CACHE_TTL_SECONDS,
+            PROP_DESCRIBE_CACHE_DIR,
+            PROP_BULK_API_QUERY_UNORDERED_RESULTS,
+            PROP_BULKV2_COMPRESS_UPLOAD,
+            PROP_BULKV2_LOAD_PARALLEL_JOBS,
+            PROP_BULKV2_QUERY_PREFETCH_PAGES,
+            PROP_BULKV2_QUERY_MAX_RECORDS,
             PROP_CONNECTION_TIMEOUT_SECS,
             PROP_ENABLE_RETRIES,
             PROP_LOAD_PRESERVE_WHITESPACE_IN_RICH_TEXT,
             PROP_MAX_RETRIES,
             PROP_MIN_RETRY_SLEEP_SECS,
             PROP_REUSE_CLIENT_CONNECTION,
+            PROP_HTTP_MAX_CONNECTIONS_PER_ROUTE,
+            PROP_HTTP_MAX_CONNECTIONS_TOTAL,
+            PROP_HTTP_CONNECTION_REQUEST_TIMEOUT_SECS,
             CLI_OPTION_RUN_MODE,
             PROP_SOQL_MAX_LENGTH,
             AppConfig.CLI_OPTION_CONFIG_DIR_PROP,
@@ -590,6 +674,11 @@ public class AppConfig {
             PROP_SERVER_ENVIRONMENTS,
             PROP_SELECTED_SERVER_ENVIRONMENT,
             PROP_DAO_SKIP_TOTAL_COUNT,
+            PROP_DAO_CSV_ROW_COUNT_MODE,
+            PROP_DAO_CSV_ROW_COUNT_CACHE,
+            PROP_DAO_CSV_WRITE_ASYNC,
+            PROP_DAO_CSV_WRITE_GZIP,
+            PROP_DAO_CSV_FAST_TOKENIZER,
             PROP_SOQL_MAX_LENGTH,
             AppConfig.CLI_OPTION_SWT_NATIVE_LIB_IN_JAVA_LIB_PATH,
             AppConfig.CLI_OPTION_INSTALLATION_FOLDER_PROP,
@@ -662,6 +751,17 @@ public class AppConfig {
         return lastRunFilePrefix;
     }
     
+    /**
+     * @return directory of the on-disk describe cache, by default a subdirectory of the config directory
+     */
+    public String getDescribeCacheDir() {
+        String describeCacheDir = getString(AppConfig.PROP_DESCRIBE_CACHE_DIR);
+        if (describeCacheDir == null || describeCacheDir.isBlank()) {
+            describeCacheDir = this.configDir + File.separator + DESCRIBE_CACHE_DIR_NAME;
+        }
+        return describeCacheDir;
+    }
+
     private void initializeLastRun(String lastRunFileNamePrefix) {
         if (lastRunFileNamePrefix == null || lastRunFileNamePrefix.isBlank()) {
             lastRunFileNamePrefix = getString(AppConfig.CLI_OPTION_RUN_MODE);
@@ -673,6 +773,7 @@ public class AppConfig {
         }
 
         this.lastRunProperties = new LastRunProperties(lastRunFileName, lastRunDir, getBoolean(AppConfig.PROP_ENABLE_LAST_RUN_OUTPUT));
+        this.lastRunCheckpointWriter = null;
         // Need to initialize last run date if it's present neither in config or override
         lastRunProperties.setDefault(LastRunProperties.LAST_RUN_DATE, getString(PROP_INITIAL_LAST_RUN_DATE));
 
@@ -715,11 +816,18 @@ public class AppConfig {
         setDefaultValue(PROP_INSERT_NULLS, false);
         setDefaultValue(PROP_ENABLE_EXTRACT_STATUS_OUTPUT, false);
         setDefaultValue(PROP_ENABLE_LAST_RUN_OUTPUT, true);
+        setDefaultValue(PROP_LAST_RUN_FLUSH_INTERVAL_ROWS, 0);
+        setDefaultValue(PROP_LAST_RUN_FLUSH_INTERVAL_MILLIS, 0);
+        setDefaultValue(PROP_LAST_RUN_FSYNC, false);
         setDefaultValue(PROP_RESET_URL_ON_LOGIN, true);
         setDefaultValue(PROP_EXPORT_BATCH_SIZE, DEFAULT_EXPORT_BATCH_SIZE);
         setDefaultValue(PROP_SORT_EXTRACT_FIELDS, true);
         setDefaultValue(PROP_DAO_WRITE_BATCH_SIZE, DEFAULT_DAO_WRITE_BATCH_SIZE);
         setDefaultValue(PROP_DAO_READ_BATCH_SIZE, DEFAULT_DAO_READ_BATCH_SIZE);
+        setDefaultValue(PROP_DAO_READ_FETCH_SIZE, DEFAULT_DAO_READ_FETCH_SIZE);
+        setDefaultValue(PROP_DAO_READ_STREAMING, false);
+        setDefaultValue(PROP_DAO_WRITE_COMMIT_SIZE, DEFAULT_DAO_WRITE_COMMIT_SIZE);
+        setDefaultValue(PROP_DAO_WRITE_CONNECTIONS, DEFAULT_DAO_WRITE_CONNECTIONS);
         setDefaultValue(PROP_TRUNCATE_FIELDS, true);
         setDefaultValue(PROP_FORMAT_PHONE_FIELDS, false);
         // TODO: When we're ready, make Bulk API turned on by default.
@@ -727,6 +835,19 @@ public class AppConfig {
         setDefaultValue(PROP_BULK_API_SERIAL_MODE, false);
         setDefaultValue(PROP_BULK_API_ZIP_CONTENT, false);
         setDefaultValue(PROP_BULK_API_CHECK_STATUS_INTERVAL, DEFAULT_BULK_API_CHECK_STATUS_INTERVAL);
+        setDefaultValue(PROP_BULK_API_MIN_CHECK_STATUS_INTERVAL, DEFAULT_BULK_API_MIN_CHECK_STATUS_INTERVAL);
+        setDefaultValue(PROP_BULK_API_MAX_CHECK_STATUS_INTERVAL, DEFAULT_BULK_API_MAX_CHECK_STATUS_INTERVAL);
+        setDefaultValue(PROP_BULK_API_SPOOL_THRESHOLD_BYTES, DEFAULT_BULK_API_SPOOL_THRESHOLD_BYTES);
+        setDefaultValue(PROP_BULK_API_UPLOAD_THREADS, DEFAULT_BULK_API_UPLOAD_THREADS);
+        setDefaultValue(PROP_SYNC_API_PARALLEL_CALLS, DEFAULT_SYNC_API_PARALLEL_CALLS);
+        setDefaultValue(PROP_SYNC_API_PARALLEL_CALLS_LANE_FIELD, "");
+        setDefaultValue(PROP_LOAD_PIPELINE_THREADS, DEFAULT_LOAD_PIPELINE_THREADS);
+        setDefaultValue(PROP_BULK_API_QUERY_DOWNLOAD_THREADS, DEFAULT_BULK_API_QUERY_DOWNLOAD_THREADS);
+        setDefaultValue(PROP_BULK_API_QUERY_UNORDERED_RESULTS, false);
+        setDefaultValue(PROP_BULKV2_COMPRESS_UPLOAD, false);
+        setDefaultValue(PROP_BULKV2_LOAD_PARALLEL_JOBS, DEFAULT_BULKV2_LOAD_PARALLEL_JOBS);
+        setDefaultValue(PROP_BULKV2_QUERY_PREFETCH_PAGES, DEFAULT_BULKV2_QUERY_PREFETCH_PAGES);
+        setDefaultValue(PROP_BULKV2_QUERY_MAX_RECORDS, DEFAULT_BULKV2_QUERY_MAX_RECORDS);
         setDefaultValue(PROP_WIRE_OUTPUT, false);
         setDefaultValue(PROP_DEBUG_MESSAGES, false);
         setDefaultValue(PROP_TIMEZONE, TimeZone.getDefault().getID());
@@ -748,6 +869,9 @@ public class AppConfig {
 
         setDefaultValue(PROP_OPERATION, "insert");
         setDefaultValue(PROP_REUSE_CLIENT_CONNECTION, true);
+        setDefaultValue(PROP_HTTP_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_HTTP_MAX_CONNECTIONS_PER_ROUTE);
+        setDefaultValue(PROP_HTTP_MAX_CONNECTIONS_TOTAL, DEFAULT_HTTP_MAX_CONNECTIONS_TOTAL);
+        setDefaultValue(PROP_HTTP_CONNECTION_REQUEST_TIMEOUT_SECS, DEFAULT_HTTP_CONNECTION_REQUEST_TIMEOUT_SECS);
         /*
         setDefaultValue(ENABLE_BULK_QUERY_PK_CHUNKING, false);
         setDefaultValue(BULK_QUERY_PK_CHUNK_SIZE, DEFAULT_BULK_QUERY_PK_CHUNK_SIZE);
@@ -778,6 +902,8 @@ public class AppConfig {
         setDefaultValue(PROP_WIZARD_X_OFFSET, DEFAULT_WIZARD_X_OFFSET);
         setDefaultValue(PROP_WIZARD_Y_OFFSET, DEFAULT_WIZARD_Y_OFFSET);
         setDefaultValue(PROP_CACHE_DESCRIBE_GLOBAL_RESULTS, true);
+        setDefaultValue(PROP_DESCRIBE_CACHE_TTL_SECONDS, DEFAULT_DESCRIBE_CACHE_TTL_SECONDS);
+        setDefaultValue(PROP_DESCRIBE_CACHE_DIR, "");
         setDefaultValue(PROP_PROCESS_EXIT_WITH_ERROR_ON_FAILED_ROWS_BATCH_MODE, false);
         setDefaultValue(PROP_INCLUDE_RICH_TEXT_FIELD_DATA_IN_QUERY_RESULTS, false);
         setDefaultValue(PROP_OAUTH_INSTANCE_URL, false);
@@ -795,6 +921,11 @@ public class AppConfig {
         setDefaultValue(PROP_WRITE_UTF8, false);
         setDefaultValue(PROP_RICH_TEXT_FIELD_REGEX, DEFAULT_RICHTEXT_REGEX);
         setDefaultValue(PROP_DAO_SKIP_TOTAL_COUNT, true);
+        setDefaultValue(PROP_DAO_CSV_ROW_COUNT_MODE, CSV_ROW_COUNT_MODE_SCAN);
+        setDefaultValue(PROP_DAO_CSV_ROW_COUNT_CACHE, false);
+        setDefaultValue(PROP_DAO_CSV_WRITE_ASYNC, false);
+        setDefaultValue(PROP_DAO_CSV_WRITE_GZIP, false);
+        setDefaultValue(PROP_DAO_CSV_FAST_TOKENIZER, false);
         setDefaultValue(PROP_READ_CHARSET ,getDefaultCharsetForCsvReadWrite());
         setDefaultValue(PROP_WRITE_CHARSET ,getDefaultCharsetForCsvReadWrite());
         setDefaultValue(PROP_GMT_FOR_DATE_FIELD_VALUE, false);
@@ -1518,7 +1649,42 @@ public class AppConfig {
      * Save statistics from the last run
      */
     public void saveLastRun() throws IOException {
-        lastRunProperties.save();
+        lastRunProperties.save(getBoolean(PROP_LAST_RUN_FSYNC));
+    }
+
+    /**
+     * Records a checkpoint of a load after rowsProcessed more rows are processed. The last run
+     * statistics are saved once the interval set by process.lastRunFlushIntervalRows or
+     * process.lastRunFlushIntervalMillis has passed, see flushLastRunCheckpoint().
+     */
+    public synchronized void checkpointLastRun(int rowsProcessed) throws IOException {
+        if (lastRunCheckpointWriter == null) {
+            lastRunCheckpointWriter = new LastRunCheckpointWriter(lastRunProperties,
+                    getLastRunFlushInterval(PROP_LAST_RUN_FLUSH_INTERVAL_ROWS),
+                    getLastRunFlushInterval(PROP_LAST_RUN_FLUSH_INTERVAL_MILLIS),
+                    getBoolean(PROP_LAST_RUN_FSYNC));
+        }
+        lastRunCheckpointWriter.checkpoint(rowsProcessed);
+    }
+
+    private int getLastRunFlushInterval(String propName) {
+        try {
+            return Math.max(0, getInt(propName));
+        } catch (ParameterLoadException e) {
+            logger.warn("Incorrectly configured " + propName);
+            return 0;
+        }
+    }
+
+    /**
+     * Saves the last checkpoint recorded by checkpointLastRun() if it is not saved yet.
+     */
+    public synchronized void flushLastRunCheckpoint() throws IOException {
+        if (lastRunCheckpointWriter != null) {
+            lastRunCheckpointWriter.flush();
+            // pick up changes to the flush settings in the next load
+            lastRunCheckpointWriter = null;
+        }
     }
 
     /**
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.config;
+
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.util.DLLogManager;
+
+/**
+ * Coalesces the lastRun checkpoints of a load. A checkpoint is saved once flushIntervalRows rows
+ * or flushIntervalMillis milliseconds have passed since the last save, whichever comes first;
+ * an interval of 0 disables that trigger, and with both at 0 every checkpoint is saved.
+ *
+ * A checkpoint that is not saved yet is saved by flush() at the end of the load, or by a shutdown
+ * hook if the JVM exits before that. After a crash the saved row is behind the rows processed by
+ * at most one interval, and a load resumed from it repeats those rows instead of skipping any.
+ */
+class LastRunCheckpointWriter {
+    private static final Logger logger = DLLogManager.getLogger(LastRunCheckpointWriter.class);
+
+    private final LastRunProperties lastRunProperties;
+    private final int flushIntervalRows;
+    private final long flushIntervalMillis;
+    private final boolean sync;
+    private final LongSupplier clockMillis;
+    private final boolean isFlushedAtShutdown;
+
+    private int rowsSinceSave = 0;
+    private boolean isSavePending = false;
+    private long lastSaveMillis;
+    private Thread shutdownHook = null;
+
+    LastRunCheckpointWriter(LastRunProperties lastRunProperties, int flushIntervalRows, long flushIntervalMillis,
+            boolean sync) {
+        this(lastRunProperties, flushIntervalRows, flushIntervalMillis, sync, System::currentTimeMillis, true);
+    }
+
+    LastRunCheckpointWriter(LastRunProperties lastRunProperties, int flushIntervalRows, long flushIntervalMillis,
+            boolean sync, LongSupplier clockMillis, boolean isFlushedAtShutdown) {
+        this.lastRunProperties = lastRunProperties;
+        this.flushIntervalRows = Math.max(0, flushIntervalRows);
+        this.flushIntervalMillis = Math.max(0, flushIntervalMillis);
+        this.sync = sync;
+        this.clockMillis = clockMillis;
+        this.isFlushedAtShutdown = isFlushedAtShutdown;
+        this.lastSaveMillis = clockMillis.getAsLong();
+    }
+
+    /**
+     * Called after the lastRun properties are updated for rowsProcessed more rows.
+     *
+     * @return true if the checkpoint was saved
+     */
+    synchronized boolean checkpoint(int rowsProcessed) throws IOException {
+        this.rowsSinceSave += rowsProcessed;
+        this.isSavePending = true;
+        boolean isRowIntervalReached = this.flushIntervalRows > 0 && this.rowsSinceSave >= this.flushIntervalRows;
+        boolean isTimeIntervalReached = this.flushIntervalMillis > 0
+                && this.clockMillis.getAsLong() - this.lastSaveMillis >= this.flushIntervalMillis;
+        if (isRowIntervalReached || isTimeIntervalReached
+                || (this.flushIntervalRows == 0 && this.flushIntervalMillis == 0)) {
+            save();
+            return true;
+        }
+        registerShutdownHook();
+        return false;
+    }
+
+    /**
+     * Saves the checkpoint if one is pending.
+     */
+    synchronized void flush() throws IOException {
+        if (this.isSavePending) {
+            save();
+        }
+        unregisterShutdownHook();
+    }
+
+    synchronized boolean isSavePending() {
+        return this.isSavePending;
+    }
+
+    private void save() throws IOException {
+        this.lastRunProperties.save(this.sync);
+        this.rowsSinceSave = 0;
+        this.isSavePending = false;
+        this.lastSaveMillis = this.clockMillis.getAsLong();
+    }
+
+    private void registerShutdownHook() {
+        if (!this.isFlushedAtShutdown || this.shutdownHook != null) {
+            return;
+        }
+        this.shutdownHook = new Thread(() -> {
+            try {
+                flush();
+            } catch (IOException e) {
+                logger.error(Messages.getFormattedString("LastRun.errorSaving", new String[]{
+                        this.lastRunProperties.getFullPath(), e.getMessage()}), e);
+            }
+        }, "lastRunCheckpoint");
+        try {
+            Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+        } catch (IllegalStateException e) {
+            // @ignored: the JVM is shutting down already
+            this.shutdownHook = null;
+        }
+    }
+
+    private void unregisterShutdownHook() {
+        if (this.shutdownHook == null || Thread.currentThread() == this.shutdownHook) {
+            return;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+        } catch (IllegalStateException e) {
+            // @ignored: the JVM is shutting down, the hook saves the checkpoint
+        }
+        this.shutdownHook = null;
+    }
+}
@@ -26,6 +26,11 @@
 package com.salesforce.dataloader.config;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 import org.apache.logging.log4j.Logger;
@@ -48,6 +53,7 @@ public class LastRunProperties extends Properties {
     // last run statistics
     public static final String LAST_LOAD_BATCH_ROW = "process.lastLoadBatchRow"; //$NON-NLS-1$
     public static final String LAST_RUN_DATE = "process.lastRunDate"; //$NON-NLS-1$
+    private static final String TEMP_FILE_SUFFIX = ".tmp"; //$NON-NLS-1$
 
     private static Map<String,String> paramNames = new HashMap<String,String>();
 
@@ -97,6 +103,18 @@ public class LastRunProperties extends Properties {
     }
 
     public void save() throws IOException {
+        save(false);
+    }
+
+    /**
+     * Writes the properties to a temporary file and renames it over the lastRun file, so that
+     * a crash while saving leaves the previously saved values intact.
+     *
+     * @param sync if true, the file is forced to the storage device before it replaces the
+     * lastRun file
+     * @throws IOException
+     */
+    public void save(boolean sync) throws IOException {
         if(! outputEnabled) {
             return;
         }
@@ -104,11 +122,31 @@ public class LastRunProperties extends Properties {
             throw new IOException(Messages.getString("LastRun.fileMissing")); //$NON-NLS-1$
         }
 
-        final FileOutputStream out = new FileOutputStream(new File(filePath, filename));
-        try {
+        final File lastRunFile = new File(filePath, filename);
+        final File tempFile = new File(filePath, filename + TEMP_FILE_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
             store(out, "Last Run Config"); //$NON-NLS-1$
-        } finally {
-            out.close();
+            if (sync) {
+                out.getFD().sync();
+            }
+        }
+        try {
+            Files.move(tempFile.toPath(), lastRunFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), lastRunFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (sync) {
+            syncDirectory(lastRunFile.getAbsoluteFile().getParentFile());
+        }
+    }
+
+    // makes the rename durable, not supported on every platform
+    private static void syncDirectory(File dir) {
+        try (FileChannel dirChannel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            dirChannel.force(true);
+        } catch (IOException e) {
+            logger.debug("Unable to sync directory " + dir.getAbsolutePath() + ": " + e.getMessage());
         }
     }
 
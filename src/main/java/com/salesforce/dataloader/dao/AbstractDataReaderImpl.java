@@ -42,6 +42,7 @@ public abstract class AbstractDataReaderImpl implements DataReaderInterface {
     private int currentRowNumber;
     private int totalRows = 0;
     private TableHeader tableHeader = null;
+    private int[] daoColPositions = new int[0];
     private List<String> daoColsList = new ArrayList<String>();
 
     public AbstractDataReaderImpl(AppConfig appConfig) {
@@ -90,6 +91,10 @@ public abstract class AbstractDataReaderImpl implements DataReaderInterface {
             tableHeaderCols.add(AppConfig.ERROR_COLUMN_NAME);
         }
         this.tableHeader = new TableHeader(tableHeaderCols);
+        this.daoColPositions = new int[this.daoColsList.size()];
+        for (int i = 0; i < this.daoColPositions.length; i++) {
+            this.daoColPositions[i] = this.tableHeader.getColumnIndex(this.daoColsList.get(i));
+        }
     }
     
     public TableRow readTableRow() throws DataAccessObjectException {
@@ -125,10 +130,14 @@ public abstract class AbstractDataReaderImpl implements DataReaderInterface {
             if (!isOpenFlag()) {
                 open();
             }
-            totalRows = DAORowUtil.calculateTotalRows(this);
+            totalRows = calculateTotalRows();
         }
         return totalRows;
     }
+
+    protected int calculateTotalRows() throws DataAccessObjectException {
+        return DAORowUtil.calculateTotalRows(this);
+    }
     
     protected AppConfig getAppConfig() {
         return this.appConfig;
@@ -138,6 +147,18 @@ public abstract class AbstractDataReaderImpl implements DataReaderInterface {
         return this.tableHeader;
     }
     
+    /**
+     * @return position in the table header of each DAO column, -1 if the column is not in the header.
+     * The array is shared and must not be modified.
+     */
+    protected int[] getDaoColumnPositions() {
+        return this.daoColPositions;
+    }
+    
+    protected int getDaoColumnCount() {
+        return this.daoColsList.size();
+    }
+    
     @Override
     public List<String> getColumnNames() {
         return new ArrayList<>(this.daoColsList);
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.model.RowInterface;
+import com.salesforce.dataloader.util.DLLogManager;
+
+/**
+ * Writes rows to another data writer on a background thread, so that the caller does not
+ * wait for formatting and disk writes. Rows are written in the order they are passed to
+ * writeRow(). At most queueCapacity rows wait for the writer thread; writeRow() blocks
+ * while the queue is full.
+ *
+ * A failure of the writer thread is rethrown by the next call to writeRow(), awaitWritten()
+ * or setColumnNames(). Rows written after the failure are dropped.
+ */
+public class AsyncDataWriter implements DataWriterInterface {
+    private static final Logger logger = DLLogManager.getLogger(AsyncDataWriter.class);
+
+    // queued after the last row by close()
+    private static final Object END_OF_ROWS = new Object();
+
+    private final DataWriterInterface writer;
+    private final String threadName;
+    private final BlockingQueue<Object> rows;
+    private Thread writerThread = null;
+    private volatile DataAccessObjectException writeError = null;
+    private int currentRowNumber = 0;
+
+    public AsyncDataWriter(DataWriterInterface writer, String threadName, int queueCapacity) {
+        this.writer = writer;
+        this.threadName = threadName;
+        this.rows = new ArrayBlockingQueue<Object>(Math.max(1, queueCapacity));
+    }
+
+    /**
+     * @return the data writer that the rows are written to
+     */
+    public DataWriterInterface getWriter() {
+        return this.writer;
+    }
+
+    @Override
+    public void open() throws DataAccessObjectInitializationException {
+        stopWriterThread();
+        this.writer.open();
+        this.currentRowNumber = 0;
+        this.writeError = null;
+        this.writerThread = new Thread(this::writeRows, this.threadName);
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public void checkConnection() throws DataAccessObjectInitializationException {
+        this.writer.checkConnection();
+    }
+
+    @Override
+    public void close() {
+        stopWriterThread();
+        this.writer.close();
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        return this.writer.getColumnNames();
+    }
+
+    @Override
+    public void setColumnNames(List<String> columnNames) throws DataAccessObjectInitializationException {
+        try {
+            awaitWritten();
+        } catch (DataAccessObjectException e) {
+            throw new DataAccessObjectInitializationException(e.getMessage(), e);
+        }
+        this.writer.setColumnNames(columnNames);
+    }
+
+    /**
+     * @return number of rows accepted by writeRow() since the writer was opened
+     */
+    @Override
+    public int getCurrentRowNumber() {
+        return this.currentRowNumber;
+    }
+
+    @Override
+    public boolean writeRow(RowInterface inputRow) throws DataAccessObjectException {
+        if (this.writerThread == null) {
+            // not opened, or already closed
+            return this.writer.writeRow(inputRow);
+        }
+        rethrowWriteError();
+        put(inputRow);
+        this.currentRowNumber++;
+        return true;
+    }
+
+    @Override
+    public boolean writeRowList(List<? extends RowInterface> inputRowList) throws DataAccessObjectException {
+        for (RowInterface row : inputRowList) {
+            writeRow(row);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until every row passed to writeRow() so far has been handed to the data writer.
+     *
+     * @throws DataAccessObjectException if the writer thread failed to write a row
+     */
+    public void awaitWritten() throws DataAccessObjectException {
+        if (this.writerThread == null) {
+            return;
+        }
+        final CountDownLatch written = new CountDownLatch(1);
+        put(written);
+        try {
+            written.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessObjectException("interrupted while waiting for rows to be written", e);
+        }
+        rethrowWriteError();
+    }
+
+    private void put(Object element) throws DataAccessObjectException {
+        try {
+            this.rows.put(element);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessObjectException("interrupted while waiting to write a row", e);
+        }
+    }
+
+    private void rethrowWriteError() throws DataAccessObjectException {
+        if (this.writeError != null) {
+            throw this.writeError;
+        }
+    }
+
+    private void stopWriterThread() {
+        if (this.writerThread == null) {
+            return;
+        }
+        try {
+            this.rows.put(END_OF_ROWS);
+            this.writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.writerThread.interrupt();
+        }
+        this.writerThread = null;
+        this.rows.clear();
+    }
+
+    private void writeRows() {
+        try {
+            while (true) {
+                final Object element = this.rows.take();
+                if (element == END_OF_ROWS) {
+                    return;
+                } else if (element instanceof CountDownLatch) {
+                    ((CountDownLatch)element).countDown();
+                } else if (this.writeError == null) {
+                    try {
+                        this.writer.writeRow((RowInterface)element);
+                    } catch (DataAccessObjectException e) {
+                        logger.error("Failed to write row on thread " + this.threadName, e);
+                        this.writeError = e;
+                    } catch (RuntimeException e) {
+                        logger.error("Failed to write row on thread " + this.threadName, e);
+                        this.writeError = new DataAccessObjectException(e.getMessage(), e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed by an interrupted caller
+        }
+    }
+}
@@ -55,9 +55,14 @@ public class DataAccessObjectFactory {
         logger.info(Messages.getFormattedString("DataAccessObjectFactory.creatingDao", new String[] {appConfig.getString(AppConfig.PROP_DAO_NAME), daoType}));
 
         if (CSV_READ_TYPE.equalsIgnoreCase(daoType)) {
-            dao = new CSVFileReader(new File(appConfig.getString(AppConfig.PROP_DAO_NAME)), appConfig, false, false);
+            CSVFileReader csvReader = new CSVFileReader(new File(appConfig.getString(AppConfig.PROP_DAO_NAME)), appConfig, false, false);
+            // the load only uses the row count to report progress
+            csvReader.setRowCountForProgressOnly(true);
+            dao = csvReader;
         } else if (CSV_WRITE_TYPE.equalsIgnoreCase(daoType)) {
-            dao = new CSVFileWriter(appConfig.getString(AppConfig.PROP_DAO_NAME), appConfig, appConfig.getString(AppConfig.PROP_CSV_DELIMITER_FOR_QUERY_RESULTS));
+            CSVFileWriter csvWriter = new CSVFileWriter(appConfig.getString(AppConfig.PROP_DAO_NAME), appConfig, appConfig.getString(AppConfig.PROP_CSV_DELIMITER_FOR_QUERY_RESULTS));
+            csvWriter.setCompressed(appConfig.getBoolean(AppConfig.PROP_DAO_CSV_WRITE_GZIP));
+            dao = csvWriter;
         } else if (DATABASE_READ_TYPE.equalsIgnoreCase(daoType)) {
             dao = new DatabaseReader(appConfig);
         } else if (DATABASE_WRITE_TYPE.equalsIgnoreCase(daoType)) {
@@ -76,16 +76,20 @@ public class CSVColumnVisitor {
 
             writer.write(QUOTE);
 
-            for (int i = 0, len = column.length(); i < len; i++) {
-                char c = column.charAt(i);
-                if (this.escapeFormulaValue && i == 0 && c == EQUAL) {
-                    writer.write("'"); // escape the '=' character as the first char
+            final int len = column.length();
+            if (this.escapeFormulaValue && len > 0 && column.charAt(0) == EQUAL) {
+                writer.write("'"); // escape the '=' character as the first char
+            }
+            // write the value in runs between the quotes to be doubled
+            int runStart = 0;
+            for (int i = 0; i < len; i++) {
+                if (column.charAt(i) == QUOTE) {
+                    writer.write(column, runStart, i + 1 - runStart);
+                    writer.write(QUOTE);
+                    runStart = i + 1;
                 }
-                if (c == QUOTE)
-                    writer.write("\"\"");
-                else
-                    writer.write(c);
             }
+            writer.write(column, runStart, len - runStart);
 
             writer.write(QUOTE);
 
@@ -30,6 +30,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -53,7 +55,8 @@ import com.salesforce.dataloader.util.DAORowUtil;
 import com.sforce.async.CSVReader;
 
 /**
- * Wrapper around {@link CSVReader} that allows to read CSV files
+ * Wrapper around {@link CSVReader}, or {@link CSVTokenizer} if dataAccess.csvFastTokenizer is set,
+ * that allows to read CSV files
  *
  * @author Federico Recio
  */
@@ -64,9 +67,12 @@ public class CSVFileReader extends AbstractDataReaderImpl {
     private File file;
     private FileInputStream input;
     private CSVReader csvReader;
+    private CSVTokenizer csvTokenizer;
     private boolean isOpen;
     private char[] csvDelimiters;
     private boolean endOfFileReached = false;
+    private boolean isRowCountForProgressOnly = false;
+    private boolean isTotalRowsEstimated = false;
 
     // Handles 3 types of CSV files:
     // 1. CSV files provided by the user for upload operations: ignoreDelimiterConfig = false, isQueryOperationResult = false
@@ -125,13 +131,70 @@ public class CSVFileReader extends AbstractDataReaderImpl {
     public void close() {
         try {
             IOUtils.closeQuietly(input);
+            IOUtils.closeQuietly(csvTokenizer);
         } finally {
             input = null;
             csvReader = null;
+            csvTokenizer = null;
             isOpen = false;
         }
     }
     
+    /**
+     * Sets whether getTotalRows() is only used to report progress, in which case it may
+     * return an estimate or a count cached next to the file. Callers that read exactly
+     * getTotalRows() rows must leave it false. Besides the progress of the load, the
+     * count of the CSV being loaded sizes the initial capacity of the load visitor's row
+     * list and is shown in the data selection dialog, which checks isTotalRowsEstimated().
+     */
+    public void setRowCountForProgressOnly(boolean isRowCountForProgressOnly) {
+        this.isRowCountForProgressOnly = isRowCountForProgressOnly;
+    }
+
+    /**
+     * @return true if getTotalRows() returned an estimate from a sample of the file
+     */
+    public boolean isTotalRowsEstimated() {
+        return this.isTotalRowsEstimated;
+    }
+
+    /**
+     * Counts the rows with CSVRowCounter unless configured to parse them. Estimates and
+     * the cached count are only used if the count is only used to report progress, which
+     * is the case for the CSV that is being loaded.
+     */
+    @Override
+    protected int calculateTotalRows() throws DataAccessObjectException {
+        isTotalRowsEstimated = false;
+        AppConfig appConfig = getAppConfig();
+        String mode = appConfig.getString(AppConfig.PROP_DAO_CSV_ROW_COUNT_MODE);
+        if (AppConfig.CSV_ROW_COUNT_MODE_PARSE.equalsIgnoreCase(mode)
+                || !CSVRowCounter.canScan(appConfig.getCsvEncoding(false))) {
+            return super.calculateTotalRows();
+        }
+        boolean useCache = isRowCountForProgressOnly && appConfig.getBoolean(AppConfig.PROP_DAO_CSV_ROW_COUNT_CACHE);
+        try {
+            long records = useCache ? CSVRowCounter.readCachedCount(file) : -1;
+            if (records < 0) {
+                if (isRowCountForProgressOnly && AppConfig.CSV_ROW_COUNT_MODE_ESTIMATE.equalsIgnoreCase(mode)) {
+                    records = CSVRowCounter.estimateRecords(file);
+                    // smaller files are counted completely
+                    isTotalRowsEstimated = file.length() > CSVRowCounter.ESTIMATE_SAMPLE_BYTES;
+                } else {
+                    records = CSVRowCounter.countRecords(file);
+                    if (useCache) {
+                        CSVRowCounter.writeCachedCount(file, records);
+                    }
+                }
+            }
+            // the first record is the header row
+            return (int)Math.min(Integer.MAX_VALUE, Math.max(0, records - 1));
+        } catch (IOException e) {
+            LOGGER.warn("Unable to count rows of " + file.getAbsolutePath() + " without parsing them", e);
+            return super.calculateTotalRows();
+        }
+    }
+
     protected void setOpenFlag(boolean openFlag) {
         this.isOpen = openFlag;
     }
@@ -165,6 +228,9 @@ public class CSVFileReader extends AbstractDataReaderImpl {
         if (endOfFileReached) {
             return null;
         }
+        if (csvTokenizer != null) {
+            return readTableRowFromTokenizer();
+        }
         List<String> record;
         synchronized (lock) {
             try {
@@ -179,33 +245,72 @@ public class CSVFileReader extends AbstractDataReaderImpl {
             return null;
         }
 
-        if (record.size() > getColumnNames().size()) {
-            String errMsg = Messages.getFormattedString("CSVFileDAO.errorRowTooLarge", new String[]{
-                    String.valueOf(getCurrentRowNumber()), String.valueOf(record.size()), String.valueOf(getColumnNames().size())});
-            throw new DataAccessRowException(errMsg);
-        } else if (record.size() < getColumnNames().size()) {
-            String errMsg = Messages.getFormattedString("CSVFileDAO.errorRowTooSmall", new String[]{
-                    String.valueOf(getCurrentRowNumber()), String.valueOf(record.size()), String.valueOf(getColumnNames().size())});
-            throw new DataAccessRowException(errMsg);
-        }
+        int numColumns = getDaoColumnCount();
+        checkRecordSize(record.size(), numColumns);
 
         TableRow trow = new TableRow(getTableHeader());
-
-        for (int i = 0; i < getColumnNames().size(); i++) {
+        int[] colPositions = getDaoColumnPositions();
+        for (int i = 0; i < numColumns; i++) {
             String value = record.get(i);
             if (value == null) {
                 value = "";
             }
-            trow.put(getColumnNames().get(i), value);
+            if (colPositions[i] >= 0) {
+                trow.setValueAt(colPositions[i], value);
+            }
         }
         return trow;
     }
 
+    /**
+     * Same as reading a row with CSVReader, except that the cells are taken from the tokenizer's
+     * reused cell array instead of a list allocated for every record.
+     */
+    private TableRow readTableRowFromTokenizer() throws DataAccessObjectException {
+        synchronized (lock) {
+            try {
+                if (!csvTokenizer.nextRecord()) {
+                    endOfFileReached = true;
+                    return null;
+                }
+            } catch (IOException e) {
+                throw new DataAccessObjectException(e);
+            }
+            int numColumns = getDaoColumnCount();
+            checkRecordSize(csvTokenizer.getCellCount(), numColumns);
+
+            TableRow trow = new TableRow(getTableHeader());
+            int[] colPositions = getDaoColumnPositions();
+            for (int i = 0; i < numColumns; i++) {
+                if (colPositions[i] >= 0) {
+                    trow.setValueAt(colPositions[i], csvTokenizer.getCell(i));
+                }
+            }
+            return trow;
+        }
+    }
+
+    private void checkRecordSize(int recordSize, int numColumns) throws DataAccessRowException {
+        if (recordSize > numColumns) {
+            String errMsg = Messages.getFormattedString("CSVFileDAO.errorRowTooLarge", new String[]{
+                    String.valueOf(getCurrentRowNumber()), String.valueOf(recordSize), String.valueOf(numColumns)});
+            throw new DataAccessRowException(errMsg);
+        } else if (recordSize < numColumns) {
+            String errMsg = Messages.getFormattedString("CSVFileDAO.errorRowTooSmall", new String[]{
+                    String.valueOf(getCurrentRowNumber()), String.valueOf(recordSize), String.valueOf(numColumns)});
+            throw new DataAccessRowException(errMsg);
+        }
+    }
+
     protected List<String> initializeDaoColumnsList() throws DataAccessObjectInitializationException {
         List<String> daoColsList = null;
         try {
             synchronized (lock) {
-                daoColsList = csvReader.nextRecord();
+                if (csvTokenizer != null) {
+                    daoColsList = csvTokenizer.nextRecord() ? csvTokenizer.getRecord() : null;
+                } else {
+                    daoColsList = csvReader.nextRecord();
+                }
             }
             if (daoColsList == null) {
                 LOGGER.error(Messages.getString("CSVFileDAO.errorHeaderRow"));
@@ -249,13 +354,11 @@ public class CSVFileReader extends AbstractDataReaderImpl {
                                                             ByteOrderMark.UTF_32BE)
                                         .setInclude(false)
                                         .get();
-                csvReader = new CSVReader(bomInputStream, encoding, csvDelimiters);
+                openReader(bomInputStream, encoding, csvDelimiters);
             } else {
-                csvReader = new CSVReader(input, encoding, csvDelimiters);
+                openReader(input, encoding, csvDelimiters);
                 LOGGER.debug(this.getClass().getName(), "encoding used to read from CSV file is " + encoding);
             }
-            csvReader.setMaxRowsInFile(Integer.MAX_VALUE);
-            csvReader.setMaxCharsInFile(Integer.MAX_VALUE);
         } catch (FileNotFoundException e) {
             String errMsg = Messages.getFormattedString("CSVFileDAO.errorOpen", file.getAbsolutePath());
             LOGGER.error(errMsg, e);
@@ -267,9 +370,19 @@ public class CSVFileReader extends AbstractDataReaderImpl {
         } catch (IOException e) {
             throw new DataAccessObjectInitializationException(e);
         } finally {
-            if (csvReader == null) {
+            if (csvReader == null && csvTokenizer == null) {
                 IOUtils.closeQuietly(input);
             }
         }
     }
+
+    private void openReader(InputStream in, String encoding, char[] csvDelimiters) throws UnsupportedEncodingException {
+        if (getAppConfig().getBoolean(AppConfig.PROP_DAO_CSV_FAST_TOKENIZER)) {
+            csvTokenizer = new CSVTokenizer(new InputStreamReader(in, encoding), csvDelimiters);
+        } else {
+            csvReader = new CSVReader(in, encoding, csvDelimiters);
+            csvReader.setMaxRowsInFile(Integer.MAX_VALUE);
+            csvReader.setMaxCharsInFile(Integer.MAX_VALUE);
+        }
+    }
 }
@@ -27,13 +27,17 @@
 package com.salesforce.dataloader.dao.csv;
 
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.logging.log4j.Logger;
 import com.salesforce.dataloader.util.DLLogManager;
@@ -57,9 +61,19 @@ public class CSVFileWriter implements DataWriterInterface {
     //logger
     private static Logger logger = DLLogManager.getLogger(CSVFileWriter.class);
 
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     private final String fileName;
-    private BufferedWriter fileOut;
+    private Writer fileOut;
+    private CSVColumnVisitor visitor;
     private List<String> columnNames = new ArrayList<String>();
+    /**
+     * <code>fallbackColumnNames</code> contains, for each column name of the form "xxx(yyy)",
+     * the name "yyy" whose value is written when the row has no value for "xxx(yyy)". It is
+     * computed once per header rather than for every row.
+     */
+    private String[] fallbackColumnNames = new String[0];
     private int currentRowNumber = 0;
     private boolean isHeaderRowWritten = false;
 
@@ -79,6 +93,17 @@ public class CSVFileWriter implements DataWriterInterface {
     private boolean capitalizedHeadings = false;
     private final char columnDelimiter;
     private AppConfig appConfig;
+
+    /**
+     * If <code>isAsync</code> is true, rows are formatted into one buffer while the other one is
+     * written to the file on a background thread
+     */
+    private final boolean isAsync;
+
+    /**
+     * If <code>isCompressed</code> is true, the file is written in gzip format
+     */
+    private boolean isCompressed = false;
         
     public CSVFileWriter(String fileName, AppConfig appConfig, String columnDelimiterStr) {
 
@@ -95,6 +120,18 @@ public class CSVFileWriter implements DataWriterInterface {
         }
         this.columnDelimiter = columnDelimiterStr.charAt(0);
         this.capitalizedHeadings = appConfig.getOperationInfo().isExtraction() && appConfig.getBoolean(AppConfig.PROP_EXTRACT_ALL_CAPS_HEADERS);
+        this.isAsync = appConfig.getBoolean(AppConfig.PROP_DAO_CSV_WRITE_ASYNC);
+    }
+
+    /**
+     * Sets whether the file is written in gzip format. Takes effect the next time the file is opened.
+     */
+    public void setCompressed(boolean isCompressed) {
+        this.isCompressed = isCompressed;
+    }
+
+    public boolean isCompressed() {
+        return this.isCompressed;
     }
 
     /**
@@ -115,12 +152,18 @@ public class CSVFileWriter implements DataWriterInterface {
     public void open() throws DataAccessObjectInitializationException {
         try {
             FileOutputStream os = new FileOutputStream(this.fileName);
-            OutputStreamWriter osw = new OutputStreamWriter(os, this.encoding);
-            fileOut = new BufferedWriter(osw);
-            currentRowNumber = 0;
+            OutputStream out = this.isCompressed ? new GZIPOutputStream(os, GZIP_BUFFER_SIZE) : os;
             if (appConfig.getBoolean(AppConfig.PROP_EXTRACT_CSV_OUTPUT_BOM)) {
-                os.write(getBOM());
+                out.write(getBOM());
+            }
+            OutputStreamWriter osw = new OutputStreamWriter(out, this.encoding);
+            if (this.isAsync) {
+                fileOut = new DoubleBufferedWriter(osw, "csvWriter-" + new File(this.fileName).getName());
+            } else {
+                fileOut = new BufferedWriter(osw);
             }
+            visitor = new CSVColumnVisitor(fileOut, false, this.columnDelimiter);
+            currentRowNumber = 0;
             setOpen(true);
         } catch (IOException e) {
             String errMsg = Messages.getFormattedString("CSVWriter.errorOpening", this.fileName);
@@ -157,13 +200,16 @@ public class CSVFileWriter implements DataWriterInterface {
                 }
                 this.isHeaderRowWritten = false;
                 fileOut.close();
-                fileOut = null;
             } catch (IOException e) {
                 logger.error(Messages.getString("CSVWriter.errorClosing"), e); //$NON-NLS-1$
+            } finally {
+                fileOut = null;
+                visitor = null;
             }
             if (! columnNames.isEmpty()) {
                 columnNames.clear();
             }
+            fallbackColumnNames = new String[0];
         }
     }
     
@@ -175,10 +221,9 @@ public class CSVFileWriter implements DataWriterInterface {
         if (this.isHeaderRowWritten) {
             return;
         }
-        CSVColumnVisitor visitor = new CSVColumnVisitor(fileOut, false, this.columnDelimiter);
         try {
             visitHeaderColumns(this.columnNames, visitor);
-            fileOut.newLine();
+            fileOut.write(LINE_SEPARATOR);
             visitor.newRow();
             this.isHeaderRowWritten = true;
         } catch (IOException e) {
@@ -198,10 +243,9 @@ public class CSVFileWriter implements DataWriterInterface {
            List<String>colNames = row.getColumnNames();
            this.setColumnNames(colNames);
         }
-        CSVColumnVisitor visitor = new CSVColumnVisitor(fileOut, false, this.columnDelimiter);
         try {
-            visitColumns(columnNames, row, visitor);
-            fileOut.newLine();
+            visitColumns(row);
+            fileOut.write(LINE_SEPARATOR);
             visitor.newRow();
             currentRowNumber++;
             return true; // success unless there's an exception
@@ -241,17 +285,29 @@ public class CSVFileWriter implements DataWriterInterface {
         }
     }
 
-    static private void visitColumns(List<String> columnNames, RowInterface row, CSVColumnVisitor visitor) throws IOException {
-        for (String colName : columnNames) {
-            Object colVal = row.get(colName);
-            if (colVal == null && colName.contains("(")) {
+    private void visitColumns(RowInterface row) throws IOException {
+        for (int i = 0, numColumns = columnNames.size(); i < numColumns; i++) {
+            Object colVal = row.get(columnNames.get(i));
+            if (colVal == null && fallbackColumnNames[i] != null) {
+                colVal = row.get(fallbackColumnNames[i]);
+            }
+            visitor.visit(colVal != null ? colVal.toString() : "");
+        }
+    }
+
+    private static String[] getFallbackColumnNames(List<String> columnNames) {
+        String[] fallbackNames = new String[columnNames.size()];
+        for (int i = 0; i < fallbackNames.length; i++) {
+            String colName = columnNames.get(i);
+            if (colName != null && colName.contains("(")) {
                 int lparenIdx = colName.indexOf('(');
                 int rparenIdx = colName.indexOf(')');
-                colName = colName.substring(lparenIdx + 1, rparenIdx);
-                colVal = row.get(colName);
+                if (rparenIdx > lparenIdx) {
+                    fallbackNames[i] = colName.substring(lparenIdx + 1, rparenIdx);
+                }
             }
-            visitor.visit(colVal != null ? colVal.toString() : "");
         }
+        return fallbackNames;
     }
 
     @Override
@@ -272,6 +328,7 @@ public class CSVFileWriter implements DataWriterInterface {
         }
         // save column names
         this.columnNames = new ArrayList<String>(columnNames);
+        this.fallbackColumnNames = getFallbackColumnNames(this.columnNames);
 
         writeHeaderRow();
     }
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.util.DLLogManager;
+import com.salesforce.dataloader.util.DaemonThreadFactory;
+
+/**
+ * Counts the records of a CSV file without parsing them. The file is memory-mapped and
+ * scanned for line terminators that are not inside a quoted value, which gives the same
+ * count as reading the file with CSVReader: blank lines, and lines holding only an empty
+ * quoted value, are skipped. Large files are scanned in parallel chunks. Since the quote
+ * state at the start of a chunk is not known until the previous chunk has been scanned,
+ * each chunk is scanned for both states and the results are stitched together in order.
+ *
+ * The scan works on bytes, so it is only used for charsets in which the quote and line
+ * terminator characters are single bytes that never occur inside a multi-byte character.
+ */
+class CSVRowCounter {
+    private static final Logger logger = DLLogManager.getLogger(CSVRowCounter.class);
+
+    static final long MIN_PARALLEL_SCAN_BYTES = 64L * 1024 * 1024;
+    static final long MAX_MAPPED_BYTES = 1L << 30;
+    static final int ESTIMATE_SAMPLE_BYTES = 1 << 20;
+    static final String CACHE_FILE_SUFFIX = ".rowcount";
+    private static final String CACHE_PROP_SIZE = "size";
+    private static final String CACHE_PROP_LAST_MODIFIED = "lastModified";
+    private static final String CACHE_PROP_RECORDS = "records";
+
+    private static final byte QUOTE = '"';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private CSVRowCounter() {
+        // static utility
+    }
+
+    /**
+     * @return true if files in the given charset can be counted by scanning their bytes
+     */
+    static boolean canScan(String encoding) {
+        if (encoding == null || !Charset.isSupported(encoding)) {
+            return false;
+        }
+        Charset charset = Charset.forName(encoding);
+        String name = charset.name().toUpperCase(Locale.ROOT);
+        return charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.US_ASCII)
+                || name.startsWith("ISO-8859-")
+                || name.startsWith("WINDOWS-125");
+    }
+
+    /**
+     * Counts the non-blank records of the file, including the header row.
+     */
+    static long countRecords(File file) throws IOException {
+        int numChunks = file.length() < MIN_PARALLEL_SCAN_BYTES ? 1 : Runtime.getRuntime().availableProcessors();
+        return countRecords(file, numChunks);
+    }
+
+    static long countRecords(File file, int numChunks) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (numChunks <= 1) {
+                RecordTally tally = new RecordTally();
+                for (long start = 0; start < size; start += MAX_MAPPED_BYTES) {
+                    tally.add(scanRegion(channel, start, Math.min(MAX_MAPPED_BYTES, size - start), tally.inQuotes));
+                }
+                return tally.finish();
+            }
+            return countRecordsInParallel(channel, size, numChunks);
+        }
+    }
+
+    private static long countRecordsInParallel(FileChannel channel, long size, int numChunks) throws IOException {
+        long chunkSize = Math.min(MAX_MAPPED_BYTES, (size + numChunks - 1) / numChunks);
+        chunkSize = Math.max(chunkSize, 1);
+        List<Future<Segment>[]> futures = new ArrayList<Future<Segment>[]>();
+        ExecutorService executor = Executors.newFixedThreadPool(numChunks, new DaemonThreadFactory("csvRowCount"));
+        try {
+            for (long start = 0; start < size; start += chunkSize) {
+                final long chunkStart = start;
+                final long chunkLength = Math.min(chunkSize, size - start);
+                @SuppressWarnings("unchecked")
+                Future<Segment>[] chunk = new Future[2];
+                chunk[0] = executor.submit(() -> scanRegion(channel, chunkStart, chunkLength, false));
+                chunk[1] = executor.submit(() -> scanRegion(channel, chunkStart, chunkLength, true));
+                futures.add(chunk);
+            }
+            RecordTally tally = new RecordTally();
+            for (Future<Segment>[] chunk : futures) {
+                tally.add(chunk[tally.inQuotes ? 1 : 0].get());
+            }
+            return tally.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Estimates the number of non-blank records of the file, including the header row,
+     * from the average length of the records at the start of the file. Files that are not
+     * larger than the sample are counted exactly.
+     */
+    static long estimateRecords(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long sampleLength = Math.min(size, ESTIMATE_SAMPLE_BYTES);
+            Segment sample = scanRegion(channel, 0, sampleLength, false);
+            RecordTally tally = new RecordTally();
+            tally.add(sample);
+            if (sampleLength == size) {
+                return tally.finish();
+            }
+            // records that ended inside the sample
+            long sampledRecords = tally.total;
+            if (sampledRecords == 0) {
+                // longer records than the sample can hold, count them instead
+                return countRecords(file);
+            }
+            return Math.round((double)size * sampledRecords / sampleLength);
+        }
+    }
+
+    /**
+     * @return the record count stored next to the file if the file has not changed since
+     * the count was stored, -1 otherwise
+     */
+    static long readCachedCount(File file) {
+        File cacheFile = getCacheFile(file);
+        if (!cacheFile.isFile()) {
+            return -1;
+        }
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(cacheFile)) {
+            props.load(in);
+            if (Long.parseLong(props.getProperty(CACHE_PROP_SIZE)) != file.length()
+                    || Long.parseLong(props.getProperty(CACHE_PROP_LAST_MODIFIED)) != file.lastModified()) {
+                return -1;
+            }
+            return Long.parseLong(props.getProperty(CACHE_PROP_RECORDS));
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Ignoring unreadable row count cache " + cacheFile.getAbsolutePath(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Stores the record count next to the file, keyed by the size and the modification time
+     * of the file. Failures are logged and otherwise ignored, e.g. for a read-only directory.
+     */
+    static void writeCachedCount(File file, long records) {
+        File cacheFile = getCacheFile(file);
+        Properties props = new Properties();
+        props.setProperty(CACHE_PROP_SIZE, String.valueOf(file.length()));
+        props.setProperty(CACHE_PROP_LAST_MODIFIED, String.valueOf(file.lastModified()));
+        props.setProperty(CACHE_PROP_RECORDS, String.valueOf(records));
+        File tmpFile = null;
+        try {
+            tmpFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getParentFile());
+            try (OutputStream out = new FileOutputStream(tmpFile)) {
+                props.store(out, "Data Loader record count of " + file.getName());
+            }
+            Files.move(tmpFile.toPath(), cacheFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Unable to write row count cache " + cacheFile.getAbsolutePath(), e);
+            if (tmpFile != null) {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    static File getCacheFile(File file) {
+        File absoluteFile = file.getAbsoluteFile();
+        return new File(absoluteFile.getParentFile(), absoluteFile.getName() + CACHE_FILE_SUFFIX);
+    }
+
+    private static Segment scanRegion(FileChannel channel, long start, long length, boolean startInQuotes) throws IOException {
+        Segment segment = new Segment(startInQuotes);
+        if (length > 0) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            segment.scan(buffer, (int)length);
+        }
+        return segment;
+    }
+
+    private static boolean isRecord(boolean hasText, int quotes) {
+        // "" alone is an empty value, which CSVReader skips like a blank line
+        return hasText || quotes > 2;
+    }
+
+    /**
+     * Result of scanning a region of the file for a given quote state at its start. The
+     * line that is in progress at the start of the region may have started in an earlier
+     * region, and the one in progress at the end may continue in a later one, so only
+     * what is known about them is kept: whether they hold text other than quotes, and
+     * how many quotes (up to 3) they hold.
+     */
+    private static final class Segment {
+        private boolean inQuotes;
+        private boolean terminated;
+        private boolean headHasText;
+        private int headQuotes;
+        private long records;
+        private boolean tailHasText;
+        private int tailQuotes;
+
+        Segment(boolean startInQuotes) {
+            this.inQuotes = startInQuotes;
+        }
+
+        void scan(MappedByteBuffer buffer, int length) {
+            boolean inQuotes = this.inQuotes;
+            boolean hasText = false;
+            int quotes = 0;
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get(i);
+                if (b == QUOTE) {
+                    inQuotes = !inQuotes;
+                    if (quotes < 3) {
+                        quotes++;
+                    }
+                } else if ((b == LF || b == CR) && !inQuotes) {
+                    if (!this.terminated) {
+                        this.terminated = true;
+                        this.headHasText = hasText;
+                        this.headQuotes = quotes;
+                    } else if (isRecord(hasText, quotes)) {
+                        this.records++;
+                    }
+                    hasText = false;
+                    quotes = 0;
+                } else {
+                    hasText = true;
+                }
+            }
+            this.inQuotes = inQuotes;
+            this.tailHasText = hasText;
+            this.tailQuotes = quotes;
+        }
+    }
+
+    /**
+     * Adds up the segments of a file in the order of their regions.
+     */
+    private static final class RecordTally {
+        private long total;
+        private boolean inQuotes;
+        private boolean pendingHasText;
+        private int pendingQuotes;
+
+        void add(Segment segment) {
+            if (segment.terminated) {
+                if (isRecord(pendingHasText || segment.headHasText, pendingQuotes + segment.headQuotes)) {
+                    total++;
+                }
+                total += segment.records;
+                pendingHasText = segment.tailHasText;
+                pendingQuotes = segment.tailQuotes;
+            } else {
+                pendingHasText |= segment.tailHasText;
+                pendingQuotes = Math.min(3, pendingQuotes + segment.tailQuotes);
+            }
+            inQuotes = segment.inQuotes;
+        }
+
+        long finish() {
+            return isRecord(pendingHasText, pendingQuotes) ? total + 1 : total;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits CSV text into records and cells. The characters are read through one large buffer,
+ * and the cells of the current record are kept in an array that is reused for every record,
+ * so that reading a record allocates nothing but the cell values.
+ *
+ * A cell that starts with a quote ends at the matching quote, and may contain delimiters,
+ * line breaks and doubled quotes. A record ends at "\n", "\r" or "\r\n" outside quotes, or at
+ * the end of the input. Like CSVReader, and the scan of CSVRowCounter, blank lines and lines
+ * holding only "" are skipped.
+ */
+class CSVTokenizer implements Closeable {
+
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final char QUOTE = '"';
+    private static final int EOF = -1;
+
+    private final Reader input;
+    private final char[] delimiters;
+    private final char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+
+    private char[] cellChars = new char[256];
+    private int cellLength = 0;
+    private String[] cells = new String[16];
+    private int numCells = 0;
+    private int recordNumber = 0;
+
+    CSVTokenizer(Reader input, char[] delimiters) {
+        this(input, delimiters, DEFAULT_BUFFER_SIZE);
+    }
+
+    CSVTokenizer(Reader input, char[] delimiters, int bufferSize) {
+        this.input = input;
+        this.delimiters = delimiters.clone();
+        this.buffer = new char[Math.max(1, bufferSize)];
+    }
+
+    /**
+     * Reads the next record into the cells returned by getCell().
+     *
+     * @return false if the end of the input has been reached
+     * @throws IOException if the input can not be read or is not valid CSV
+     */
+    boolean nextRecord() throws IOException {
+        while (readRecord()) {
+            if (this.numCells > 1 || this.cells[0].length() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean readRecord() throws IOException {
+        int c = read();
+        if (c == EOF) {
+            this.numCells = 0;
+            return false;
+        }
+        this.recordNumber++;
+        this.numCells = 0;
+        while (true) {
+            this.cellLength = 0;
+            if (c == QUOTE) {
+                while (true) {
+                    c = read();
+                    if (c == EOF) {
+                        throw parseError("EOF reached before closing an opened quote");
+                    }
+                    if (c == QUOTE) {
+                        c = read();
+                        if (c != QUOTE) {
+                            break;
+                        }
+                    }
+                    append((char)c);
+                }
+                if (c != EOF && c != '\n' && c != '\r' && !isDelimiter(c)) {
+                    throw parseError("Not expecting more text after end quote");
+                }
+            } else {
+                while (c != EOF && c != '\n' && c != '\r' && !isDelimiter(c)) {
+                    if (c == QUOTE) {
+                        throw parseError("Found unescaped quote. A value with quote should be within a quote");
+                    }
+                    append((char)c);
+                    c = read();
+                }
+            }
+            addCell();
+            if (c == EOF || c == '\n') {
+                return true;
+            }
+            if (c == '\r') {
+                if (read() != '\n' && this.limit > 0) {
+                    // not a "\r\n" line break, keep the character for the next record
+                    this.position--;
+                }
+                return true;
+            }
+            // a delimiter, read the next cell
+            c = read();
+        }
+    }
+
+    /**
+     * @return number of cells in the current record
+     */
+    int getCellCount() {
+        return this.numCells;
+    }
+
+    /**
+     * @return value of the cell at the index in the current record
+     */
+    String getCell(int index) {
+        return this.cells[index];
+    }
+
+    /**
+     * @return a copy of the cells of the current record
+     */
+    List<String> getRecord() {
+        List<String> record = new ArrayList<String>(this.numCells);
+        for (int i = 0; i < this.numCells; i++) {
+            record.add(this.cells[i]);
+        }
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.input.close();
+    }
+
+    private int read() throws IOException {
+        if (this.position == this.limit) {
+            this.limit = this.input.read(this.buffer, 0, this.buffer.length);
+            this.position = 0;
+            if (this.limit <= 0) {
+                this.limit = 0;
+                return EOF;
+            }
+        }
+        return this.buffer[this.position++];
+    }
+
+    private boolean isDelimiter(int c) {
+        for (char delimiter : this.delimiters) {
+            if (c == delimiter) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void append(char c) {
+        if (this.cellLength == this.cellChars.length) {
+            char[] newChars = new char[this.cellChars.length * 2];
+            System.arraycopy(this.cellChars, 0, newChars, 0, this.cellLength);
+            this.cellChars = newChars;
+        }
+        this.cellChars[this.cellLength++] = c;
+    }
+
+    private void addCell() {
+        if (this.numCells == this.cells.length) {
+            String[] newCells = new String[this.cells.length * 2];
+            System.arraycopy(this.cells, 0, newCells, 0, this.numCells);
+            this.cells = newCells;
+        }
+        this.cells[this.numCells++] = this.cellLength == 0 ? "" : new String(this.cellChars, 0, this.cellLength);
+    }
+
+    private IOException parseError(String message) {
+        return new IOException(message + " in record " + this.recordNumber);
+    }
+}
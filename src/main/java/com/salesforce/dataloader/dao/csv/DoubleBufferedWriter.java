@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.util.DLLogManager;
+
+/**
+ * Buffers characters like a BufferedWriter, but writes full buffers to the underlying writer
+ * on a background thread. The caller fills one buffer while the other one is encoded,
+ * compressed and written, so formatting rows and disk writes overlap. write() blocks only
+ * while both buffers are in use.
+ *
+ * flush() returns after everything written so far has been written and flushed to the
+ * underlying writer. close() writes the remaining characters and closes the underlying writer.
+ * A failure of the writer thread is rethrown by the next call to write(), flush() or close().
+ */
+class DoubleBufferedWriter extends Writer {
+    private static final Logger logger = DLLogManager.getLogger(DoubleBufferedWriter.class);
+
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    // queued after the last buffer by close()
+    private static final Chunk END_OF_CHUNKS = new Chunk(null, 0, null);
+
+    private static final class Chunk {
+        final char[] chars;
+        final int length;
+        final CountDownLatch flushed;
+
+        Chunk(char[] chars, int length, CountDownLatch flushed) {
+            this.chars = chars;
+            this.length = length;
+            this.flushed = flushed;
+        }
+    }
+
+    private final Writer out;
+    private final BlockingQueue<Chunk> filledChunks = new ArrayBlockingQueue<Chunk>(3);
+    private final BlockingQueue<char[]> freeBuffers = new ArrayBlockingQueue<char[]>(1);
+    private final Thread writerThread;
+    private char[] buffer;
+    private int bufferLength = 0;
+    private boolean isClosed = false;
+    private volatile IOException writeError = null;
+
+    DoubleBufferedWriter(Writer out, String threadName) {
+        this(out, threadName, DEFAULT_BUFFER_SIZE);
+    }
+
+    DoubleBufferedWriter(Writer out, String threadName, int bufferSize) {
+        this.out = out;
+        this.buffer = new char[Math.max(1, bufferSize)];
+        this.freeBuffers.add(new char[this.buffer.length]);
+        this.writerThread = new Thread(this::writeChunks, threadName);
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        if (this.bufferLength == this.buffer.length) {
+            handOffBuffer();
+        }
+        this.buffer[this.bufferLength++] = (char)c;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (this.bufferLength == this.buffer.length) {
+                handOffBuffer();
+            }
+            final int count = Math.min(len, this.buffer.length - this.bufferLength);
+            System.arraycopy(cbuf, off, this.buffer, this.bufferLength, count);
+            this.bufferLength += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (this.bufferLength == this.buffer.length) {
+                handOffBuffer();
+            }
+            final int count = Math.min(len, this.buffer.length - this.bufferLength);
+            str.getChars(off, off + count, this.buffer, this.bufferLength);
+            this.bufferLength += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (this.bufferLength > 0) {
+            handOffBuffer();
+        }
+        final CountDownLatch flushed = new CountDownLatch(1);
+        put(new Chunk(null, 0, flushed));
+        try {
+            flushed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the file to be flushed");
+        }
+        rethrowWriteError();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.isClosed) {
+            return;
+        }
+        this.isClosed = true;
+        try {
+            if (this.bufferLength > 0 && this.writeError == null) {
+                put(new Chunk(this.buffer, this.bufferLength, null));
+                this.bufferLength = 0;
+            }
+            put(END_OF_CHUNKS);
+            this.writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.writerThread.interrupt();
+        } finally {
+            this.out.close();
+        }
+        rethrowWriteError();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.isClosed) {
+            throw new IOException("Stream closed");
+        }
+        rethrowWriteError();
+    }
+
+    private void handOffBuffer() throws IOException {
+        put(new Chunk(this.buffer, this.bufferLength, null));
+        try {
+            this.buffer = this.freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a buffer to be written");
+        }
+        this.bufferLength = 0;
+        rethrowWriteError();
+    }
+
+    private void put(Chunk chunk) throws IOException {
+        try {
+            this.filledChunks.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting to write to the file");
+        }
+    }
+
+    private void rethrowWriteError() throws IOException {
+        if (this.writeError != null) {
+            throw this.writeError;
+        }
+    }
+
+    private void writeChunks() {
+        try {
+            while (true) {
+                final Chunk chunk = this.filledChunks.take();
+                if (chunk == END_OF_CHUNKS) {
+                    return;
+                }
+                if (this.writeError == null) {
+                    try {
+                        if (chunk.chars != null) {
+                            this.out.write(chunk.chars, 0, chunk.length);
+                        } else {
+                            this.out.flush();
+                        }
+                    } catch (IOException e) {
+                        logger.error("Failed to write on thread " + Thread.currentThread().getName(), e);
+                        this.writeError = e;
+                    }
+                }
+                if (chunk.flushed != null) {
+                    chunk.flushed.countDown();
+                } else if (chunk.chars != null) {
+                    // the buffer is free to be filled again
+                    this.freeBuffers.offer(chunk.chars);
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed by an interrupted caller
+        }
+    }
+}
@@ -57,6 +57,9 @@ public class DatabaseContext {
     private List<String> currentSqlParamNames;
     private String currentSqlString;
     private boolean open = false;
+    // values of the sql params that are read from the config instead of the rows, they are the same for every row
+    private final Map<String, Object> configParamValues = new HashMap<String, Object>();
+    private final Map<String, Integer> sqlTypes = new HashMap<String, Integer>();
     public static final String DEFAULT_CONFIG_FILENAME = "database-conf.xml";
 
     // logger
@@ -114,32 +117,28 @@ public class DatabaseContext {
      */
     public void replaceSqlParams(String sqlString) {
         List<String> paramNames = new ArrayList<String>();
+        StringBuilder sqlStringReplace = new StringBuilder(sqlString.length());
 
-        boolean moreParams = false;
+        // Find all the params of form "@paramname@", replace them with the '?' char and save them for the prepare
+        // statement
+        int copied = 0;
         int start = sqlString.indexOf("@");
-        if (start > 0) moreParams = true;
-
-        // Find all the params and add them to the List to be replaced. All params have format "@paramname@"
-        while (moreParams) {
+        while (start > 0) {
             int end = sqlString.indexOf("@", start + 1);
             if (end < 0) break;
 
-            String paramName = sqlString.substring(start + 1, end);
-            paramNames.add(paramName);
+            paramNames.add(sqlString.substring(start + 1, end));
+            sqlStringReplace.append(sqlString, copied, start).append('?');
+            copied = end + 1;
 
             start = sqlString.indexOf("@", end + 1);
-            if (start < 0) moreParams = false;
-        }
-
-        // Replace set the params of form "@param@" with the '?' char and save for prepare statement
-        String sqlStringReplace = new String(sqlString);
-        for (String param : paramNames) {
-            sqlStringReplace = sqlStringReplace.replaceFirst("@" + param + "@", "?");
         }
+        sqlStringReplace.append(sqlString, copied, sqlString.length());
 
         // save the output
-        currentSqlString = sqlStringReplace;
+        currentSqlString = sqlStringReplace.toString();
         currentSqlParamNames = paramNames;
+        configParamValues.clear();
     }
 
     /**
@@ -159,11 +158,20 @@ public class DatabaseContext {
             paramValues = new Row();
         }
 
-        for (String paramName : sqlConfig.getSqlParams().keySet()) {
-            String type = sqlConfig.getSqlParams().get(paramName);
-            if (paramValues.getColumnNames().contains(paramName)) {
+        Collection<?> rowColumnNames = paramValues instanceof Map
+                ? ((Map<?, ?>)paramValues).keySet() : paramValues.getColumnNames();
+        Map<String, Object> sqlValues = new HashMap<String, Object>();
+        for (Map.Entry<String, String> sqlParam : sqlConfig.getSqlParams().entrySet()) {
+            String paramName = sqlParam.getKey();
+            String type = sqlParam.getValue();
+            if (rowColumnNames.contains(paramName)) {
                 Object sqlValue = mapParamToDbType(appConfig, paramValues.get(paramName), type);
                 paramValues.put(paramName, sqlValue);
+                sqlValues.put(paramName, sqlValue);
+            } else if (configParamValues.containsKey(paramName)) {
+                Object sqlValue = configParamValues.get(paramName);
+                paramValues.put(paramName, sqlValue);
+                sqlValues.put(paramName, sqlValue);
             } else {
                 // look in the config if the parameter value is not passed in
                 if (appConfig.contains(paramName)) {
@@ -171,7 +179,9 @@ public class DatabaseContext {
                     Object sqlValue = mapParamToDbType(appConfig, configValue, type);
                     logger.info(Messages.getFormattedString("DatabaseDAO.sqlParamInfo", new String[] { paramName,
                             sqlValue.toString() }));
+                    configParamValues.put(paramName, sqlValue);
                     paramValues.put(paramName, sqlValue);
+                    sqlValues.put(paramName, sqlValue);
                 } else {
                     String errMsg = Messages.getFormattedString("DatabaseDAO.errorParamMissing", new String[] {
                             paramName, dbConfigName });
@@ -185,7 +195,7 @@ public class DatabaseContext {
         // Set the params in the Map
         int index = 1;
         for (String paramName : currentSqlParamNames) {
-            Object sqlValue = paramValues.get(paramName);
+            Object sqlValue = sqlValues.containsKey(paramName) ? sqlValues.get(paramName) : paramValues.get(paramName);
             try {
                 if (sqlValue != null)
                     dataStatement.setObject(index, sqlValue);
@@ -206,6 +216,15 @@ public class DatabaseContext {
     }
 
     private int getSqlType(String type) {
+        Integer sqlType = sqlTypes.get(type);
+        if (sqlType == null) {
+            sqlType = lookupSqlType(type);
+            sqlTypes.put(type, sqlType);
+        }
+        return sqlType;
+    }
+
+    private static int lookupSqlType(String type) {
         try {
             final Class<?> cls = Class.forName(type);
             if (java.sql.Timestamp.class.isAssignableFrom(cls)) {
@@ -316,6 +335,25 @@ public class DatabaseContext {
         }
     }
 
+    /**
+     * Create the PreparedStatement for a query whose result set is read once from start to end
+     * 
+     * @return prepared statement
+     * @throws DataAccessObjectInitializationException
+     */
+    public PreparedStatement prepareQueryStatement() throws DataAccessObjectInitializationException {
+        try {
+            dataStatement = dataConnection.prepareStatement(currentSqlString, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            return dataStatement;
+        } catch (SQLException sqe) {
+            String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionPrepareStatement", new String[] {
+                    dbConfigName, sqe.getMessage() });
+            logger.error(errMsg, sqe);
+            throw new DataAccessObjectInitializationException(errMsg, sqe);
+        }
+    }
+
     public void close() {
         try {
             if (dataResultSet != null) {
@@ -58,6 +58,9 @@ public class DatabaseReader extends AbstractDataReaderImpl {
     private final SqlConfig sqlConfig;
     private final DatabaseContext dbContext;
     private boolean endOfTableReached = false;
+    // positions of the DAO columns in the result set and in the rows read, resolved on the first read
+    private int[] resultSetColumnIndexes;
+    private int[] rowColumnPositions;
 
     /**
      * Get an instance of database reader for the data access object name from configuration
@@ -122,7 +125,7 @@ public class DatabaseReader extends AbstractDataReaderImpl {
         try {
             dbContext.initConnection(dataSource);
             dbContext.replaceSqlParams(sqlConfig.getSqlString());
-            PreparedStatement statement = dbContext.prepareStatement();
+            PreparedStatement statement = dbContext.prepareQueryStatement();
             // right now, query doesn't support data input -- all the parameters are static vs. update which takes data
             // for every put call
             TableRow row = null;
@@ -135,8 +138,29 @@ public class DatabaseReader extends AbstractDataReaderImpl {
             dbContext.setSqlParamValues(sqlConfig, 
                     this.getAppConfig(), row);
 
-            // set the query fetch size
-            int fetchSize;
+            setFetchSize(statement);
+
+            // execute the query and save the result set
+            dbContext.setDataResultSet(statement.executeQuery());
+            resultSetColumnIndexes = null;
+            rowColumnPositions = null;
+        } catch (SQLException sqe) {
+            String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionSetup", new String[] {dbContext.getDbConfigName(), sqe.getMessage()});
+            logger.error(errMsg, sqe);
+            close();
+            throw new DataAccessObjectInitializationException(errMsg, sqe);
+        }
+    }
+    
+    private void setFetchSize(PreparedStatement statement) throws SQLException {
+        int fetchSize = AppConfig.DEFAULT_DAO_READ_FETCH_SIZE;
+        try {
+            fetchSize = this.getAppConfig().getInt(AppConfig.PROP_DAO_READ_FETCH_SIZE);
+        } catch (ParameterLoadException e) {
+            logger.warn("Incorrectly configured " + AppConfig.PROP_DAO_READ_FETCH_SIZE);
+        }
+        if (fetchSize <= 0) {
+            // not set, fetch as many rows as are read in one batch
             try {
                 fetchSize = this.getAppConfig().getInt(AppConfig.PROP_DAO_READ_BATCH_SIZE);
                 if(fetchSize > AppConfig.MAX_DAO_READ_BATCH_SIZE) {
@@ -148,18 +172,20 @@ public class DatabaseReader extends AbstractDataReaderImpl {
                         String.valueOf(AppConfig.DEFAULT_DAO_READ_BATCH_SIZE), e.getMessage() }));
                 fetchSize = AppConfig.DEFAULT_DAO_READ_BATCH_SIZE;
             }
-            statement.setFetchSize(fetchSize);
-
-            // execute the query and save the result set
-            dbContext.setDataResultSet(statement.executeQuery());
-        } catch (SQLException sqe) {
-            String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionSetup", new String[] {dbContext.getDbConfigName(), sqe.getMessage()});
-            logger.error(errMsg, sqe);
-            close();
-            throw new DataAccessObjectInitializationException(errMsg, sqe);
         }
+        if (this.getAppConfig().getBoolean(AppConfig.PROP_DAO_READ_STREAMING)) {
+            try {
+                // drivers such as MySQL Connector/J stream the rows one by one for this fetch size
+                statement.setFetchSize(Integer.MIN_VALUE);
+                return;
+            } catch (SQLException e) {
+                logger.info("Database driver does not support streaming the query results, using fetch size "
+                        + fetchSize + ": " + e.getMessage());
+            }
+        }
+        statement.setFetchSize(fetchSize);
     }
-    
+
     /*
      * (non-Javadoc)
      * @see com.salesforce.dataloader.dao.DataReader#readTableRowList(int)
@@ -184,17 +210,27 @@ public class DatabaseReader extends AbstractDataReaderImpl {
         if (endOfTableReached) {
             return null;
         }
-        String currentColumnName = "";
+        int currentColumn = -1;
         try {
             TableRow trow = null;
             ResultSet rs = dbContext.getDataResultSet();
             if (rs != null && rs.next()) {
+                if (resultSetColumnIndexes == null) {
+                    List<String> columnNames = getColumnNames();
+                    int[] indexes = new int[columnNames.size()];
+                    for (currentColumn = 0; currentColumn < indexes.length; currentColumn++) {
+                        indexes[currentColumn] = rs.findColumn(columnNames.get(currentColumn));
+                    }
+                    resultSetColumnIndexes = indexes;
+                    rowColumnPositions = getDaoColumnPositions();
+                }
                 trow = new TableRow(getTableHeader());
 
-                for (String columnName : getColumnNames()) {
-                    currentColumnName = columnName;
-                    Object value = rs.getObject(columnName);
-                    trow.put(columnName, value);
+                for (currentColumn = 0; currentColumn < resultSetColumnIndexes.length; currentColumn++) {
+                    Object value = rs.getObject(resultSetColumnIndexes[currentColumn]);
+                    if (rowColumnPositions[currentColumn] >= 0) {
+                        trow.setValueAt(rowColumnPositions[currentColumn], value);
+                    }
                 }
             }
             if (trow == null) {
@@ -203,12 +239,14 @@ public class DatabaseReader extends AbstractDataReaderImpl {
             }
             return trow;
         } catch (SQLException sqe) {
+            String currentColumnName = getCurrentColumnName(currentColumn);
             String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionReadRow", new String[] {
                     currentColumnName, String.valueOf(getCurrentRowNumber() + 1), dbContext.getDbConfigName(), sqe.getMessage() });
             logger.error(errMsg, sqe);
             close();
             throw new DataAccessObjectException(errMsg, sqe);
         } catch (Exception e) {
+            String currentColumnName = getCurrentColumnName(currentColumn);
             String errMsg = Messages.getFormattedString("DatabaseDAO.exceptionReadRow", new String[] {
                     currentColumnName, String.valueOf(getCurrentRowNumber() + 1), dbContext.getDbConfigName(), e.getMessage() });
             logger.error(errMsg, e);
@@ -217,6 +255,11 @@ public class DatabaseReader extends AbstractDataReaderImpl {
         }
     }
 
+    private String getCurrentColumnName(int currentColumn) {
+        List<String> columnNames = getColumnNames();
+        return currentColumn >= 0 && currentColumn < columnNames.size() ? columnNames.get(currentColumn) : "";
+    }
+
     /*
      * (non-Javadoc)
      * @see com.salesforce.dataloader.dao.DataAccessObject#checkConnection()
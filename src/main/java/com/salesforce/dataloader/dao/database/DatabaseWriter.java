@@ -28,11 +28,17 @@ package com.salesforce.dataloader.dao.database;
 import java.io.File;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.salesforce.dataloader.model.RowInterface;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.apache.logging.log4j.Logger;
 import com.salesforce.dataloader.util.DLLogManager;
+import com.salesforce.dataloader.util.DaemonThreadFactory;
 
 import com.salesforce.dataloader.config.AppConfig;
 import com.salesforce.dataloader.config.Messages;
@@ -55,6 +61,12 @@ public class DatabaseWriter implements DataWriterInterface {
     private int currentRowNumber = 0;
     private final SqlConfig sqlConfig;
     private final DatabaseContext dbContext;
+    // contexts of the additional connections that rows are written with in parallel
+    private final List<DatabaseContext> parallelContexts = new ArrayList<DatabaseContext>();
+    private ExecutorService writeExecutor;
+    private int commitSize;
+    private int uncommittedRows = 0;
+    private boolean savepointsSupported = true;
 
     public DatabaseWriter(AppConfig appConfig) throws DataAccessObjectInitializationException {
         this(appConfig, appConfig.getString(AppConfig.PROP_DAO_NAME));
@@ -101,7 +113,24 @@ public class DatabaseWriter implements DataWriterInterface {
      */
     @Override
     public void open() throws DataAccessObjectInitializationException {
-        setupUpdate(); // setup for writing
+        commitSize = getCommitSize();
+        uncommittedRows = 0;
+        setupUpdate(dbContext); // setup for writing
+        int numConnections = getNumConnections();
+        try {
+            for (int i = 1; i < numConnections; i++) {
+                DatabaseContext context = new DatabaseContext(dbContext.getDbConfigName());
+                parallelContexts.add(context);
+                setupUpdate(context);
+                context.setOpen(true);
+            }
+        } catch (DataAccessObjectInitializationException e) {
+            close();
+            throw e;
+        }
+        if (numConnections > 1) {
+            writeExecutor = Executors.newFixedThreadPool(numConnections, new DaemonThreadFactory("databaseWrite"));
+        }
         dbContext.setOpen(true);
     }
 
@@ -111,15 +140,52 @@ public class DatabaseWriter implements DataWriterInterface {
      */
     @Override
     public void close() {
+        if (dbContext.isOpen() && uncommittedRows > 0) {
+            // a failed batch was rolled back by itself, the rows that are left were all written successfully
+            try {
+                commit();
+            } catch (SQLException sqe) {
+                logger.error("Unable to commit the last " + uncommittedRows + " rows written to "
+                        + dbContext.getDbConfigName() + ": " + sqe.getMessage(), sqe);
+            }
+        }
+        uncommittedRows = 0;
+        if (writeExecutor != null) {
+            writeExecutor.shutdownNow();
+            writeExecutor = null;
+        }
+        for (DatabaseContext context : parallelContexts) {
+            context.close();
+        }
+        parallelContexts.clear();
         dbContext.close();
     }
 
-    private void setupUpdate() throws DataAccessObjectInitializationException {
-        dbContext.initConnection(dataSource);
-        dbContext.replaceSqlParams(sqlConfig.getSqlString());
-        dbContext.prepareStatement();
+    private void setupUpdate(DatabaseContext context) throws DataAccessObjectInitializationException {
+        context.initConnection(dataSource);
+        context.replaceSqlParams(sqlConfig.getSqlString());
+        context.prepareStatement();
     }
-    
+
+    private int getCommitSize() {
+        try {
+            return Math.max(0, appConfig.getInt(AppConfig.PROP_DAO_WRITE_COMMIT_SIZE));
+        } catch (ParameterLoadException e) {
+            logger.warn("Incorrectly configured " + AppConfig.PROP_DAO_WRITE_COMMIT_SIZE);
+            return AppConfig.DEFAULT_DAO_WRITE_COMMIT_SIZE;
+        }
+    }
+
+    private int getNumConnections() {
+        try {
+            int connections = appConfig.getInt(AppConfig.PROP_DAO_WRITE_CONNECTIONS);
+            return Math.max(1, Math.min(connections, AppConfig.MAX_DAO_WRITE_CONNECTIONS));
+        } catch (ParameterLoadException e) {
+            logger.warn("Incorrectly configured " + AppConfig.PROP_DAO_WRITE_CONNECTIONS);
+            return AppConfig.DEFAULT_DAO_WRITE_CONNECTIONS;
+        }
+    }
+
     /*
      * (non-Javadoc)
      * @see com.salesforce.dataloader.dao.DataWriter#writeRowList(java.util.List)
@@ -133,24 +199,16 @@ public class DatabaseWriter implements DataWriterInterface {
 
         boolean success = true;
         int startingRowNumber = currentRowNumber;
+        List<WritePartition> partitions = partition(inputRowList, startingRowNumber);
 
         try {
-            //for batchsize = 1, don't do batching, this provides much better error output
-            if(inputRowList.size() == 1) {
-                dbContext.setSqlParamValues(sqlConfig, appConfig, inputRowList.get(0));
-                currentRowNumber++;
-            } else {
-                // for each row set the Sql params in the prepared statement
-                dbContext.getDataStatement().clearBatch();
-                for (RowInterface inputRow : inputRowList) {
-                    dbContext.setSqlParamValues(sqlConfig, appConfig, inputRow);
-                    dbContext.getDataStatement().addBatch();
-                    currentRowNumber++;
-                }
-            }
+            runPartitions(partitions, partition -> partition.bind());
+            currentRowNumber = startingRowNumber + inputRowList.size();
         } catch (ParameterLoadException e) {
+            currentRowNumber = startingRowNumber + getRowsBound(partitions, startingRowNumber);
             throw new DataAccessObjectException(e.getMessage(), e);
         } catch (SQLException sqe) {
+            currentRowNumber = startingRowNumber + getRowsBound(partitions, startingRowNumber);
             String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionPrepareRow", new String[] {
                     String.valueOf(currentRowNumber + 1), String.valueOf(startingRowNumber + 1),
                     String.valueOf(startingRowNumber + inputRowList.size() + 1), dbContext.getDbConfigName(),
@@ -160,6 +218,7 @@ public class DatabaseWriter implements DataWriterInterface {
             currentRowNumber = startingRowNumber + inputRowList.size();
             throw new DataAccessObjectException(errMsg, sqe);
         } catch (Exception e) {
+            currentRowNumber = startingRowNumber + getRowsBound(partitions, startingRowNumber);
             String errMsg = Messages.getFormattedString("DatabaseDAO.exceptionPrepareRow", new String[] {
                     String.valueOf(currentRowNumber + 1), String.valueOf(startingRowNumber + 1),
                     String.valueOf(startingRowNumber + inputRowList.size() + 1), dbContext.getDbConfigName(),
@@ -171,29 +230,25 @@ public class DatabaseWriter implements DataWriterInterface {
         }
 
         try {
-            //for batchsize = 1, don't do batching, this provides much better error output
+            setSavepoints(partitions);
+            runPartitions(partitions, partition -> partition.execute());
             int totalSuccessRows = 0;
-            if(inputRowList.size() == 1) {
-                // non-batch update returns exception, so it's always success unless exception is returned
-                dbContext.getDataStatement().executeUpdate();
-                success = true;
-                totalSuccessRows = 1;
-            } else {
-                // execute the update SQL in batch
-                int[] rowsUpdatedArray = dbContext.getDataStatement().executeBatch();
-                for (int rowsUpdated : rowsUpdatedArray) {
-                    if (rowsUpdated == PreparedStatement.SUCCESS_NO_INFO) {
-                        totalSuccessRows = rowsUpdatedArray.length;
-                        success = true;
-                        break;
-                    }
-                }
+            for (WritePartition partition : partitions) {
+                success &= partition.success;
+                totalSuccessRows += partition.successRows;
             }
             logger.debug(Messages.getFormattedString("DatabaseDAO.updatedStatus", new String[] {
                     String.valueOf(totalSuccessRows), String.valueOf(currentRowNumber) }));
 
-            // commit the change
-            dbContext.getDataConnection().commit();
+            // commit the change, or leave it to a later batch if configured to commit less often
+            uncommittedRows += inputRowList.size();
+            if (commitSize == 0 || uncommittedRows >= commitSize) {
+                // savepoints end with the transaction
+                clearSavepoints(partitions);
+                commit();
+            } else {
+                releaseSavepoints(partitions);
+            }
 
         } catch (SQLException sqe) {
             if (sqe instanceof BatchUpdateException) {
@@ -211,7 +266,7 @@ public class DatabaseWriter implements DataWriterInterface {
                     dbContext.getDbConfigName(), sqe.getMessage() });
             logger.error(errMsg, sqe);
 
-            endException(inputRowList.size());
+            endException(partitions, inputRowList.size());
             throw new DataAccessObjectException(errMsg, sqe);
         } catch (Exception e) {
             String errMsg = Messages.getFormattedString("DatabaseDAO.exceptionWriteRow", new String[] {
@@ -219,13 +274,162 @@ public class DatabaseWriter implements DataWriterInterface {
                     dbContext.getDbConfigName(), e.getMessage() });
             logger.error(errMsg, e);
 
-            endException(inputRowList.size());
+            endException(partitions, inputRowList.size());
             throw new DataAccessObjectException(errMsg, e);
         }
 
         return success;
     }
 
+    /**
+     * Splits the rows into consecutive ranges, one for each connection, that are not smaller
+     * than a batch of a single row.
+     */
+    private List<WritePartition> partition(List<? extends RowInterface> inputRowList, int startingRowNumber) {
+        List<WritePartition> partitions = new ArrayList<WritePartition>();
+        int numPartitions = Math.max(1, Math.min(1 + parallelContexts.size(), inputRowList.size()));
+        int start = 0;
+        for (int i = 0; i < numPartitions; i++) {
+            int end = start + (inputRowList.size() - start) / (numPartitions - i);
+            DatabaseContext context = i == 0 ? dbContext : parallelContexts.get(i - 1);
+            partitions.add(new WritePartition(context, inputRowList.subList(start, end), startingRowNumber + start));
+            start = end;
+        }
+        return partitions;
+    }
+
+    private void runPartitions(List<WritePartition> partitions, PartitionTask task) throws Exception {
+        if (partitions.size() == 1) {
+            task.run(partitions.get(0));
+            return;
+        }
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (WritePartition partition : partitions) {
+            Callable<Void> callable = () -> {
+                task.run(partition);
+                return null;
+            };
+            futures.add(writeExecutor.submit(callable));
+        }
+        // wait for all of them before reporting the first failure so that no connection is still in use
+        Exception failure = null;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof Exception ? (Exception)e.getCause() : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static int getRowsBound(List<WritePartition> partitions, int startingRowNumber) {
+        // rows are bound in order only with a single connection, report the first partition that did not finish
+        for (WritePartition partition : partitions) {
+            if (partition.rowsBound < partition.rows.size()) {
+                return partition.firstRowNumber - startingRowNumber + partition.rowsBound;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Protects the rows that were written but not committed yet from a rollback of the next batch.
+     * Without savepoint support in the database, these rows are committed instead.
+     */
+    private void setSavepoints(List<WritePartition> partitions) throws SQLException {
+        if (uncommittedRows == 0) {
+            return;
+        }
+        if (savepointsSupported) {
+            try {
+                for (WritePartition partition : partitions) {
+                    partition.savepoint = partition.context.getDataConnection().setSavepoint();
+                }
+                return;
+            } catch (SQLException e) {
+                logger.info("Database does not support savepoints, committing after every batch: " + e.getMessage());
+                savepointsSupported = false;
+                commitSize = 0;
+            }
+        }
+        commit();
+    }
+
+    private void releaseSavepoints(List<WritePartition> partitions) {
+        for (WritePartition partition : partitions) {
+            if (partition.savepoint != null) {
+                try {
+                    partition.context.getDataConnection().releaseSavepoint(partition.savepoint);
+                } catch (SQLException e) {
+                    // the savepoint is released on commit
+                }
+                partition.savepoint = null;
+            }
+        }
+    }
+
+    private static void clearSavepoints(List<WritePartition> partitions) {
+        for (WritePartition partition : partitions) {
+            partition.savepoint = null;
+        }
+    }
+
+    /**
+     * Commits the rows written on each connection. The connections are committed one after the
+     * other, so with dataAccess.writeConnections larger than 1 the commit is not atomic: if a
+     * connection fails to commit, the connections before it are already committed. The
+     * remaining connections are rolled back, and the partial commit is reported.
+     */
+    private void commit() throws SQLException {
+        List<DatabaseContext> contexts = getAllContexts();
+        int numCommitted = 0;
+        try {
+            for (DatabaseContext context : contexts) {
+                context.getDataConnection().commit();
+                numCommitted++;
+            }
+        } catch (SQLException e) {
+            for (DatabaseContext context : contexts.subList(numCommitted, contexts.size())) {
+                rollback(context);
+            }
+            if (numCommitted == 0) {
+                throw e;
+            }
+            throw new SQLException("Committed the rows written on " + numCommitted + " of " + contexts.size()
+                    + " connections to " + dbContext.getDbConfigName()
+                    + ", the rows written on the other connections were rolled back: " + e.getMessage(), e);
+        } finally {
+            uncommittedRows = 0;
+        }
+    }
+
+    private void rollback() {
+        for (DatabaseContext context : getAllContexts()) {
+            rollback(context);
+        }
+        uncommittedRows = 0;
+    }
+
+    private void rollback(DatabaseContext context) {
+        try {
+            context.getDataConnection().rollback();
+        } catch (SQLException e) {
+            logger.error("Unable to roll back the rows written to " + dbContext.getDbConfigName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private List<DatabaseContext> getAllContexts() {
+        List<DatabaseContext> contexts = new ArrayList<DatabaseContext>(1 + parallelContexts.size());
+        contexts.add(dbContext);
+        contexts.addAll(parallelContexts);
+        return contexts;
+    }
+
     /**
      * @param inputRow
      * @return Any output values resulting from the write
@@ -242,14 +446,32 @@ public class DatabaseWriter implements DataWriterInterface {
     /**
      * @param sqe
      */
-    private void endException(int batchSize) {
+    private void endException(List<WritePartition> partitions, int batchSize) {
         // Rollback if dbContext.getAutoCommit() is false
-        try {
-            dbContext.getDataConnection().rollback();
-        } catch (SQLException sqe) {
-            logger.error(Messages.getFormattedString("DatabaseDAO.sqlExceptionRollback", new String[] {
-                    String.valueOf(currentRowNumber + 1 - batchSize),
-                    String.valueOf(currentRowNumber + 1), dbContext.getDbConfigName(), sqe.getMessage() }), sqe);
+        boolean rolledBackToSavepoints = true;
+        for (WritePartition partition : partitions) {
+            try {
+                if (partition.savepoint != null) {
+                    // keep the rows of the earlier batches that are not committed yet
+                    partition.context.getDataConnection().rollback(partition.savepoint);
+                    partition.savepoint = null;
+                } else {
+                    rolledBackToSavepoints = false;
+                }
+            } catch (SQLException sqe) {
+                rolledBackToSavepoints = false;
+                logger.error(Messages.getFormattedString("DatabaseDAO.sqlExceptionRollback", new String[] {
+                        String.valueOf(currentRowNumber + 1 - batchSize),
+                        String.valueOf(currentRowNumber + 1), dbContext.getDbConfigName(), sqe.getMessage() }), sqe);
+            }
+        }
+        if (!rolledBackToSavepoints) {
+            // the rows of the failed batch can only be removed together with the rows that are not committed yet
+            if (uncommittedRows > 0) {
+                logger.error("Rolling back the last " + uncommittedRows + " rows written to "
+                        + dbContext.getDbConfigName() + " together with the failed batch");
+            }
+            rollback();
         }
     }
 
@@ -281,4 +503,63 @@ public class DatabaseWriter implements DataWriterInterface {
         // TODO: Ordered column names can possibly used for ordered output from the write. Currently, this is not used
         // since writeRow will contain column information anyway and order doesn't matter in database
     }
+
+    private interface PartitionTask {
+        void run(WritePartition partition) throws Exception;
+    }
+
+    /**
+     * Consecutive rows of a batch that are written with the same connection.
+     */
+    private class WritePartition {
+        private final DatabaseContext context;
+        private final List<? extends RowInterface> rows;
+        private final int firstRowNumber;
+        private int rowsBound = 0;
+        private boolean success = true;
+        private int successRows = 0;
+        private Savepoint savepoint;
+
+        WritePartition(DatabaseContext context, List<? extends RowInterface> rows, int firstRowNumber) {
+            this.context = context;
+            this.rows = rows;
+            this.firstRowNumber = firstRowNumber;
+        }
+
+        void bind() throws ParameterLoadException, SQLException {
+            //for batchsize = 1, don't do batching, this provides much better error output
+            if(rows.size() == 1) {
+                context.setSqlParamValues(sqlConfig, appConfig, rows.get(0));
+                rowsBound++;
+            } else {
+                // for each row set the Sql params in the prepared statement
+                context.getDataStatement().clearBatch();
+                for (RowInterface inputRow : rows) {
+                    context.setSqlParamValues(sqlConfig, appConfig, inputRow);
+                    context.getDataStatement().addBatch();
+                    rowsBound++;
+                }
+            }
+        }
+
+        void execute() throws SQLException {
+            //for batchsize = 1, don't do batching, this provides much better error output
+            if(rows.size() == 1) {
+                // non-batch update returns exception, so it's always success unless exception is returned
+                context.getDataStatement().executeUpdate();
+                success = true;
+                successRows = 1;
+            } else {
+                // execute the update SQL in batch
+                int[] rowsUpdatedArray = context.getDataStatement().executeBatch();
+                for (int rowsUpdated : rowsUpdatedArray) {
+                    if (rowsUpdated == PreparedStatement.SUCCESS_NO_INFO) {
+                        successRows = rowsUpdatedArray.length;
+                        success = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
 }
@@ -27,6 +27,13 @@
 package com.salesforce.dataloader.dyna;
 
 import java.text.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
 import java.util.*;
 
 import com.salesforce.dataloader.model.NACalendarValue;
@@ -42,16 +49,35 @@ public class DateTimeConverter implements Converter {
     static final List<String> supportedEuropeanPatterns = getSupportedPatterns(true);
     static final List<String> supportedRegularPatterns = getSupportedPatterns(false);
 
+    // SimpleDateFormat is not thread-safe, each thread compiles the patterns once
+    private static final ThreadLocal<DateFormat[]> europeanDateFormats =
+            ThreadLocal.withInitial(() -> newDateFormats(supportedEuropeanPatterns));
+    private static final ThreadLocal<DateFormat[]> regularDateFormats =
+            ThreadLocal.withInitial(() -> newDateFormats(supportedRegularPatterns));
+
+    private static final ZoneRules GMT_RULES = GMT_TZ.toZoneId().getRules();
+    // the Gregorian calendar used by the patterns switches to Julian dates before 1583
+    private static final int MIN_COMMON_FORMAT_YEAR = 1583;
+    private static final int MAX_COMMON_FORMAT_YEAR = 9999;
+    // TimeZone only has the tz database transitions from 1900 on
+    private static final int MIN_ZONE_RULES_YEAR = 1900;
+    // range of Calendar.ZONE_OFFSET
+    private static final int MIN_OFFSET_SECONDS = -13 * 3600;
+    private static final int MAX_OFFSET_SECONDS = 14 * 3600;
+
     static Logger logger = DLLogManager.getLogger(DateTimeConverter.class);
     /**
      * Should we return the default value on conversion errors?
      */
     final boolean useEuroDates;
     final TimeZone timeZone;
+    // null unless the time zone comes from the same tz database as java.time
+    private final ZoneRules zoneRules;
 
     public DateTimeConverter(TimeZone tz, boolean useEuroDateFormat) {
         this.timeZone = tz;
         this.useEuroDates = useEuroDateFormat;
+        this.zoneRules = tz.getClass() == GMT_TZ.getClass() ? tz.toZoneId().getRules() : null;
     }
 
     private Calendar parseDate(String dateString, DateFormat fmt) {
@@ -92,13 +118,23 @@ public class DateTimeConverter implements Converter {
         if (len == 0) return null;
 
         TimeZone timeZoneForValue = this.timeZone;
-        if ("z".equalsIgnoreCase(dateString.substring(len - 1))) {
+        char lastChar = dateString.charAt(len - 1);
+        if (lastChar == 'z' || lastChar == 'Z') {
             dateString = dateString.substring(0, len - 1);
             timeZoneForValue = GMT_TZ;
         }
 
-        for (String pattern : useEuroDates ? supportedEuropeanPatterns : supportedRegularPatterns) {
-            final DateFormat df = new SimpleDateFormat(pattern);
+        cal = parseCommonFormat(dateString, timeZoneForValue);
+        if (cal != null) return cal;
+
+        return parseWithPatterns(dateString, timeZoneForValue, value);
+    }
+
+    // the conversion of every value that parseCommonFormat() leaves to the patterns
+    Calendar parseWithPatterns(String dateString, TimeZone timeZoneForValue, Object value) {
+        Calendar cal;
+        for (DateFormat df : useEuroDates ? europeanDateFormats.get() : regularDateFormats.get()) {
+            // parsing a time zone name can change the time zone of the format
             df.setTimeZone(timeZoneForValue);
             cal = parseDate(dateString, df);
             if (cal != null) return cal;
@@ -116,6 +152,168 @@ public class DateTimeConverter implements Converter {
 
         throw new ConversionException("Failed to parse date: " + value);
     }
+
+    /*
+     * Parses the fixed-width shapes most input files use without going through the patterns:
+     * "yyyy-MM-dd" optionally followed by 'T' or a space and "HH", "HH:mm", "HH:mm:ss" or
+     * "HH:mm:ss.SSS", and "MM/dd/yyyy" ("dd/MM/yyyy" for European dates) with 1 or 2 digit
+     * month, day and hour and the same times. A time can end with an offset "+hh:mm" or "+hhmm",
+     * optionally after a space. The first supported pattern that matches these values always
+     * reads the same fields, so the result is the same as the patterns'.
+     *
+     * Returns null for any other value and for values the patterns could read differently:
+     * out of range fields and offsets, years before 1583 or after 9999, local times before 1900
+     * and local times skipped or repeated by a daylight saving change.
+     */
+    private Calendar parseCommonFormat(String dateString, TimeZone timeZoneForValue) {
+        final int len = dateString.length();
+        final int year, month, day;
+        int pos;
+        boolean isIsoDate = false;
+        if (len >= 10 && dateString.charAt(4) == '-' && dateString.charAt(7) == '-') {
+            year = parseDigits(dateString, 0, 4);
+            month = parseDigits(dateString, 5, 2);
+            day = parseDigits(dateString, 8, 2);
+            pos = 10;
+            isIsoDate = true;
+        } else {
+            int firstLen = countDigits(dateString, 0);
+            if (firstLen < 1 || firstLen > 2 || firstLen >= len || dateString.charAt(firstLen) != '/') {
+                return null;
+            }
+            int secondLen = countDigits(dateString, firstLen + 1);
+            int yearStart = firstLen + 1 + secondLen + 1;
+            if (secondLen < 1 || secondLen > 2 || yearStart > len || dateString.charAt(yearStart - 1) != '/'
+                    || countDigits(dateString, yearStart) != 4) {
+                return null;
+            }
+            int first = parseDigits(dateString, 0, firstLen);
+            int second = parseDigits(dateString, firstLen + 1, secondLen);
+            month = this.useEuroDates ? second : first;
+            day = this.useEuroDates ? first : second;
+            year = parseDigits(dateString, yearStart, 4);
+            pos = yearStart + 4;
+        }
+        if (year < MIN_COMMON_FORMAT_YEAR || year > MAX_COMMON_FORMAT_YEAR || month < 1 || month > 12
+                || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+
+        int hour = 0, minute = 0, second = 0, millis = 0;
+        boolean hasOffset = false;
+        int offsetSeconds = 0;
+        if (pos < len) {
+            char separator = dateString.charAt(pos++);
+            if (separator != 'T' && separator != ' ') {
+                return null;
+            }
+            int hourLen = countDigits(dateString, pos);
+            if (isIsoDate ? hourLen != 2 : hourLen < 1 || hourLen > 2) {
+                return null;
+            }
+            hour = parseDigits(dateString, pos, hourLen);
+            pos += hourLen;
+            if (pos < len && dateString.charAt(pos) == ':') {
+                minute = parseDigits(dateString, pos + 1, 2);
+                pos += 3;
+                if (pos < len && dateString.charAt(pos) == ':') {
+                    second = parseDigits(dateString, pos + 1, 2);
+                    pos += 3;
+                    if (pos < len && dateString.charAt(pos) == '.') {
+                        millis = parseDigits(dateString, pos + 1, 3);
+                        pos += 4;
+                    }
+                }
+            }
+            if (pos < len && (minute < 0 || second < 0 || millis < 0 || countDigits(dateString, pos) > 0)) {
+                return null;
+            }
+            if (pos < len && dateString.charAt(pos) == ' ') {
+                pos++;
+                if (pos == len) {
+                    return null;
+                }
+            }
+            if (pos < len) {
+                char sign = dateString.charAt(pos);
+                if (sign != '+' && sign != '-') {
+                    return null;
+                }
+                int offsetHours = parseDigits(dateString, pos + 1, 2);
+                int minutesStart = pos + 3 < len && dateString.charAt(pos + 3) == ':' ? pos + 4 : pos + 3;
+                int offsetMinutes = parseDigits(dateString, minutesStart, 2);
+                if (offsetHours < 0 || offsetHours > 23 || offsetMinutes < 0 || offsetMinutes > 59
+                        || minutesStart + 2 != len) {
+                    return null;
+                }
+                offsetSeconds = (sign == '+' ? 1 : -1) * (offsetHours * 3600 + offsetMinutes * 60);
+                if (offsetSeconds < MIN_OFFSET_SECONDS || offsetSeconds > MAX_OFFSET_SECONDS) {
+                    return null;
+                }
+                hasOffset = true;
+                pos = len;
+            }
+            if (hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+                return null;
+            }
+        }
+
+        if (!hasOffset) {
+            ZoneRules rules = timeZoneForValue == GMT_TZ ? GMT_RULES : this.zoneRules;
+            if (rules == null) {
+                return null;
+            }
+            if (rules.isFixedOffset()) {
+                offsetSeconds = rules.getOffset(Instant.EPOCH).getTotalSeconds();
+            } else if (year < MIN_ZONE_RULES_YEAR) {
+                return null;
+            } else {
+                List<ZoneOffset> validOffsets = rules.getValidOffsets(LocalDateTime.of(year, month, day, hour, minute, second));
+                if (validOffsets.size() != 1) {
+                    return null;
+                }
+                offsetSeconds = validOffsets.get(0).getTotalSeconds();
+            }
+        }
+        long epochSecond = LocalDate.of(year, month, day).toEpochDay() * 86400L
+                + hour * 3600 + minute * 60 + second - offsetSeconds;
+        Calendar cal = getCalendar(timeZoneForValue);
+        cal.setTimeInMillis(epochSecond * 1000L + millis);
+        return cal;
+    }
+
+    // returns -1 unless the string has numDigits ASCII digits at start
+    private static int parseDigits(String s, int start, int numDigits) {
+        if (start + numDigits > s.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < start + numDigits; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int countDigits(String s, int start) {
+        int i = start;
+        while (i < s.length() && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+            i++;
+        }
+        return i - start;
+    }
+
+    private static DateFormat[] newDateFormats(List<String> patterns) {
+        DateFormat[] formats = new DateFormat[patterns.size()];
+        for (int i = 0; i < formats.length; i++) {
+            formats[i] = new SimpleDateFormat(patterns.get(i));
+            formats[i].setLenient(false);
+        }
+        return formats;
+    }
     
     // NOTE: Always use this method to get Calendar instance
     protected Calendar getCalendar(TimeZone timezone) {
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dyna;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.apache.commons.beanutils.BasicDynaClass;
+import org.apache.commons.beanutils.ConversionException;
+import org.apache.commons.beanutils.ConvertUtils;
+import org.apache.commons.beanutils.Converter;
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.DynaProperty;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.config.Messages;
+import com.salesforce.dataloader.exception.LoadException;
+import com.salesforce.dataloader.model.TableHeader;
+import com.salesforce.dataloader.model.TableRow;
+import com.salesforce.dataloader.util.DLLogManager;
+
+/**
+ * Converts mapped rows into DynaBeans of a given DynaClass.
+ *
+ * BeanUtils.copyProperties() resolves the property, the target type and the
+ * registered converter of every cell of every row. The rows of a load share
+ * the same header, so this class resolves them once per header and keeps the
+ * result as an array of column converters indexed by column position. Rows
+ * with column names that BeanUtils would interpret as nested, indexed or
+ * mapped property expressions are converted by SforceDynaBean.convertToDynaBean().
+ *
+ * Converters are looked up when the conversion plan is built. Register them
+ * with SforceDynaBean.registerConverters() before converting the first row.
+ */
+public class RowConverter {
+
+    private static final Logger logger = DLLogManager.getLogger(RowConverter.class);
+
+    @FunctionalInterface
+    private interface ColumnConverter {
+        Object convert(Object value);
+    }
+
+    private final BasicDynaClass dynaClass;
+
+    // conversion plan for the last header seen
+    private TableHeader planHeader = null;
+    private String[] propertyNames = null;
+    private int[] valuePositions = null;
+    private ColumnConverter[] columnConverters = null;
+
+    public RowConverter(BasicDynaClass dynaClass) {
+        this.dynaClass = dynaClass;
+    }
+
+    /**
+     * @param sforceDataRow
+     * @return Instance of dynabean for the given sforceData instance
+     * @throws ConversionException
+     * @throws LoadException
+     */
+    public DynaBean convertToDynaBean(TableRow sforceDataRow) throws ConversionException, LoadException {
+        if (!preparePlan(sforceDataRow.getHeader())) {
+            return SforceDynaBean.convertToDynaBean(this.dynaClass, sforceDataRow);
+        }
+        DynaBean sforceObj;
+        try {
+            sforceObj = this.dynaClass.newInstance();
+        } catch (IllegalAccessException | InstantiationException e) {
+            logger.error(Messages.getString("Visitor.dynaBeanError"), e); //$NON-NLS-1$
+            throw new LoadException(e);
+        }
+        for (int i = 0; i < this.propertyNames.length; i++) {
+            ColumnConverter converter = this.columnConverters[i];
+            if (converter != null) {
+                sforceObj.set(this.propertyNames[i], converter.convert(sforceDataRow.getValueAt(this.valuePositions[i])));
+            }
+        }
+        for (int i = 0; i < this.propertyNames.length; i++) {
+            SforceDynaBean.verifyConvertedValue(sforceObj, this.propertyNames[i], sforceDataRow.getValueAt(this.valuePositions[i]));
+        }
+        return sforceObj;
+    }
+
+    // returns false if the rows of the header need to be converted by BeanUtils
+    private boolean preparePlan(TableHeader header) {
+        // headers are immutable, the plan holds as long as the rows share the header
+        if (header == this.planHeader) {
+            return this.columnConverters != null;
+        }
+        this.planHeader = header;
+        this.propertyNames = header.getColumns().toArray(new String[0]);
+        this.valuePositions = new int[this.propertyNames.length];
+        this.columnConverters = new ColumnConverter[this.propertyNames.length];
+        for (int i = 0; i < this.propertyNames.length; i++) {
+            String name = this.propertyNames[i];
+            if (name == null || isPropertyExpression(name)) {
+                logger.debug("Column " + name + " is converted through BeanUtils");
+                this.columnConverters = null;
+                return false;
+            }
+            // a name repeated in another case reads the value of its last column like TableRow.get()
+            this.valuePositions[i] = header.getColumnIndex(name);
+            DynaProperty property = this.dynaClass.getDynaProperty(name);
+            // BeanUtils skips columns that are not properties of the bean
+            this.columnConverters[i] = property == null ? null : newColumnConverter(property.getType());
+        }
+        return true;
+    }
+
+    private static boolean isPropertyExpression(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            switch (name.charAt(i)) {
+            case '.':
+            case '[':
+            case ']':
+            case '(':
+            case ')':
+                return true;
+            default:
+                break;
+            }
+        }
+        return false;
+    }
+
+    // same choice of converter as BeanUtilsBean.copyProperty()
+    private static ColumnConverter newColumnConverter(final Class<?> type) {
+        final Converter typeConverter = ConvertUtils.lookup(type);
+        final Converter stringValueConverter = typeConverter == null ? ConvertUtils.lookup(String.class) : typeConverter;
+        return value -> {
+            if (value == null) {
+                return null;
+            } else if (value instanceof String) {
+                return stringValueConverter.convert(type, value);
+            } else if (value instanceof String[]) {
+                return stringValueConverter.convert(type, ((String[])value)[0]);
+            } else if (typeConverter == null) {
+                return value;
+            }
+            return typeConverter.convert(type, value);
+        };
+    }
+
+    /**
+     * Gets the names of the properties that have a value in the given DynaBean.
+     * Same as the keys with non-null values in BeanUtils.describe(dynaBean)
+     * without converting every value to a String.
+     *
+     * @param dynaBean
+     * @return names of the properties with a value
+     */
+    public static List<String> getPropertyNamesWithValues(DynaBean dynaBean) {
+        List<String> names = new ArrayList<String>();
+        for (DynaProperty property : dynaBean.getDynaClass().getDynaProperties()) {
+            if (hasDescribedValue(dynaBean.get(property.getName()))) {
+                names.add(property.getName());
+            }
+        }
+        return names;
+    }
+
+    private static boolean hasDescribedValue(Object value) {
+        if (value == null) {
+            return false;
+        } else if (value instanceof String) {
+            // StringConverter converts empty strings to null
+            return !((String)value).isEmpty();
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof Calendar) {
+            return true;
+        } else if (value.getClass().isArray() && Array.getLength(value) == 0) {
+            return false;
+        }
+        return ConvertUtils.convert(value) != null;
+    }
+}
@@ -235,15 +235,7 @@ public class SforceDynaBean {
             //This does an automatic conversion of types.
             BeanUtils.copyProperties(sforceObj, sforceDataRow);
             for (String sforceField : sforceDataRow.getColumnNames()) {
-                Object val = sforceDataRow.get(sforceField);
-                if (val != null
-                        && val instanceof String
-                        && !((String)val).isBlank()
-                        && sforceObj.get(sforceField) == null) {
-                    String errStr = "unable to convert a non-null " + sforceField + "value " + (String)val + " to a field on entity " + AppConfig.getCurrentConfig().getString(AppConfig.PROP_ENTITY);
-                    logger.error(errStr); //$NON-NLS-1$
-                    throw new LoadException(errStr);
-                }
+                verifyConvertedValue(sforceObj, sforceField, sforceDataRow.get(sforceField));
             }
             return sforceObj;
         } catch (IllegalAccessException e1) {
@@ -259,6 +251,17 @@ public class SforceDynaBean {
         }
     }
 
+    static void verifyConvertedValue(DynaBean sforceObj, String sforceField, Object val) throws LoadException {
+        if (val != null
+                && val instanceof String
+                && !((String)val).isBlank()
+                && sforceObj.get(sforceField) == null) {
+            String errStr = "unable to convert a non-null " + sforceField + "value " + (String)val + " to a field on entity " + AppConfig.getCurrentConfig().getString(AppConfig.PROP_ENTITY);
+            logger.error(errStr); //$NON-NLS-1$
+            throw new LoadException(errStr);
+        }
+    }
+
     /**
      * Set all the fields specified in the dynaBean to null on the sObj
      * 
@@ -357,17 +360,14 @@ public class SforceDynaBean {
     public static SObject getSOAPSObject(Controller controller, String entityName, DynaBean dynaBean) throws IllegalAccessException, InvocationTargetException, NoSuchMethodException, ParameterLoadException {
         SObject sObj = new SObject();
         sObj.setType(entityName);
-        Map<String, String> fieldMap = BeanUtils.describe(dynaBean);
-        for (String fName : fieldMap.keySet()) {
-            if (fieldMap.get(fName) != null) {
-                // see if any entity foreign key references are embedded here
-                Object value = dynaBean.get(fName);
-                if (value instanceof SObjectReference) {
-                    SObjectReference sObjRef = (SObjectReference)value;
-                    if (!sObjRef.isNull()) sObjRef.addReferenceToSObject(controller, sObj, null, fName);
-                } else {
-                    sObj.setField(fName, value);
-                }
+        for (String fName : RowConverter.getPropertyNamesWithValues(dynaBean)) {
+            // see if any entity foreign key references are embedded here
+            Object value = dynaBean.get(fName);
+            if (value instanceof SObjectReference) {
+                SObjectReference sObjRef = (SObjectReference)value;
+                if (!sObjRef.isNull()) sObjRef.addReferenceToSObject(controller, sObj, null, fName);
+            } else {
+                sObj.setField(fName, value);
             }
         }
         return sObj;
@@ -375,36 +375,33 @@ public class SforceDynaBean {
     
     public static Map<String, Object> getCompositeRESTSObject(Controller controller, String entityName, DynaBean dynaBean) throws IllegalAccessException, InvocationTargetException, NoSuchMethodException, ParameterLoadException {
         SObject4JSON restSObj = new SObject4JSON(entityName);
-        Map<String, String> fieldMap = BeanUtils.describe(dynaBean);
-        for (String fName : fieldMap.keySet()) {
-            if (fieldMap.get(fName) != null) {
-                // see if any entity foreign key references are embedded here
-                Object value = dynaBean.get(fName);
-                if (value instanceof SObjectReference) {
-                    try {
-                        ParentIdLookupFieldFormatter idLookupFieldFormatter = new ParentIdLookupFieldFormatter(fName);
-                        DescribeSObjectResult parentSObjectDescribe = controller.getSObjectMetaDataClient().describeSObject(idLookupFieldFormatter.getParent().getParentObjectName());
-                        DynaProperty[] parentDynaProps = createDynaProps(parentSObjectDescribe, controller);
-                        BasicDynaClass parentDynaClass = getDynaBeanInstance(parentDynaProps);
-                        ArrayList<String> parentLookupFieldList = new ArrayList<String>();
-                        parentLookupFieldList.add(idLookupFieldFormatter.getParentFieldName());
-                        TableHeader header = new TableHeader(parentLookupFieldList);
-                        TableRow parentDataRow = new TableRow(header);
-                        parentDataRow.put(idLookupFieldFormatter.getParentFieldName(), value);
-                        DynaBean parentDynaBean = convertToDynaBean(parentDynaClass, parentDataRow);
-                        Map<String, Object> parentRESTSObject = getCompositeRESTSObject(controller, idLookupFieldFormatter.getParent().getParentObjectName(), parentDynaBean);
-                        SObjectReference sObjRef = (SObjectReference)value;
-                        if (!sObjRef.isNull()) {
-                            restSObj.setField(idLookupFieldFormatter.getParent().getRelationshipName(),
-                                    parentRESTSObject);
-                        }
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        logger.error("Unable to convert " + fName + " to parent reference");
+        for (String fName : RowConverter.getPropertyNamesWithValues(dynaBean)) {
+            // see if any entity foreign key references are embedded here
+            Object value = dynaBean.get(fName);
+            if (value instanceof SObjectReference) {
+                try {
+                    ParentIdLookupFieldFormatter idLookupFieldFormatter = new ParentIdLookupFieldFormatter(fName);
+                    DescribeSObjectResult parentSObjectDescribe = controller.getSObjectMetaDataClient().describeSObject(idLookupFieldFormatter.getParent().getParentObjectName());
+                    DynaProperty[] parentDynaProps = createDynaProps(parentSObjectDescribe, controller);
+                    BasicDynaClass parentDynaClass = getDynaBeanInstance(parentDynaProps);
+                    ArrayList<String> parentLookupFieldList = new ArrayList<String>();
+                    parentLookupFieldList.add(idLookupFieldFormatter.getParentFieldName());
+                    TableHeader header = new TableHeader(parentLookupFieldList);
+                    TableRow parentDataRow = new TableRow(header);
+                    parentDataRow.put(idLookupFieldFormatter.getParentFieldName(), value);
+                    DynaBean parentDynaBean = convertToDynaBean(parentDynaClass, parentDataRow);
+                    Map<String, Object> parentRESTSObject = getCompositeRESTSObject(controller, idLookupFieldFormatter.getParent().getParentObjectName(), parentDynaBean);
+                    SObjectReference sObjRef = (SObjectReference)value;
+                    if (!sObjRef.isNull()) {
+                        restSObj.setField(idLookupFieldFormatter.getParent().getRelationshipName(),
+                                parentRESTSObject);
                     }
-                } else {
-                    restSObj.setField(fName, value);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    logger.error("Unable to convert " + fName + " to parent reference");
                 }
+            } else {
+                restSObj.setField(fName, value);
             }
         }
         return restSObj.getRepresentationForCompositeREST();
@@ -59,6 +59,9 @@ public class LoadMapper extends Mapper {
     private static final Logger logger = DLLogManager.getLogger(Mapper.class);
     private TableHeader localCompositeRowHeader = null;
     private TableHeader sfdcRowHeader = null;
+    // positions in sfdcRowHeader of the fields mapped from each localCompositeRowHeader column,
+    // null if the column maps to an empty destination
+    private int[][] sfdcPositionsByCompositeCol = null;
     
     public LoadMapper(SObjectMetaDataClient client, Collection<String> columnNames, Field[] fields, String mappingFileName)
             throws MappingInitializationException {
@@ -119,6 +122,19 @@ public class LoadMapper extends Mapper {
             }
         }
         this.sfdcRowHeader = new TableHeader(sfdcFieldList);
+
+        this.sfdcPositionsByCompositeCol = new int[this.localCompositeRowHeader.getColumnCount()][];
+        for (int i = 0; i < this.sfdcPositionsByCompositeCol.length; i++) {
+            String sfdcNameList = getMapping(this.localCompositeRowHeader.getColumnName(i), true, true);
+            if (StringUtils.hasText(sfdcNameList)) {
+                String sfdcNameArray[] = sfdcNameList.split(AppUtil.COMMA);
+                int[] sfdcPositions = new int[sfdcNameArray.length];
+                for (int j = 0; j < sfdcNameArray.length; j++) {
+                    sfdcPositions[j] = this.sfdcRowHeader.getColumnIndex(sfdcNameArray[j].trim());
+                }
+                this.sfdcPositionsByCompositeCol[i] = sfdcPositions;
+            }
+        }
     }
     
     public TableRow mapData(TableRow localRow, boolean firstRow) {
@@ -140,14 +156,16 @@ public class LoadMapper extends Mapper {
         
         HashMap<String, Integer> daoColPositionMap = this.getDaoColPositionInCompositeColMap();
         HashMap<String, String> daoColToCompositeColMap = this.getDaoColToCompositeColMap();
-        for (String daoCol : localRow.getHeader().getColumns()) {
+        TableHeader localRowHeader = localRow.getHeader();
+        for (int colPos = 0; colPos < localRowHeader.getColumnCount(); colPos++) {
+            String daoCol = localRowHeader.getColumnName(colPos);
             String compositeColName = daoColToCompositeColMap.get(daoCol);
             if (compositeColName == null) {
                 continue; // DAO column is not mapped
             }
             Object[] compositeColValueArray = compositeColValueMap.get(compositeColName);
             Integer positionInCompositeCol = daoColPositionMap.get(daoCol);
-            Object daoColVal = localRow.get(daoCol);
+            Object daoColVal = localRow.getValueAt(colPos);
             if (compositeColValueArray.length > 1
                     && daoColVal != null
                     && !daoColVal.getClass().equals(String.class)) {
@@ -173,15 +191,15 @@ public class LoadMapper extends Mapper {
             localCompositeRow.put(compositeCol, compositeColValue);
         }
         TableRow mappedData = new TableRow(this.sfdcRowHeader);
-        for (String localCompositeRowElement : localCompositeRowHeader.getColumns()) {
-            String sfdcNameList = getMapping(localCompositeRowElement, true, true);
-            if (StringUtils.hasText(sfdcNameList)) {
-                String sfdcNameArray[] = sfdcNameList.split(AppUtil.COMMA);
-                for (String sfdcName : sfdcNameArray) {
-                    mappedData.put(sfdcName.trim(), localCompositeRow.get(localCompositeRowElement));
+        for (int colPos = 0; colPos < this.sfdcPositionsByCompositeCol.length; colPos++) {
+            int[] sfdcPositions = this.sfdcPositionsByCompositeCol[colPos];
+            if (sfdcPositions != null) {
+                Object compositeColValue = localCompositeRow.getValueAt(colPos);
+                for (int sfdcPos : sfdcPositions) {
+                    mappedData.setValueAt(sfdcPos, compositeColValue);
                 }
             } else {
-                logger.info("Mapping for field " + localCompositeRowElement + " will be ignored since destination column is empty");
+                logger.info("Mapping for field " + localCompositeRowHeader.getColumnName(colPos) + " will be ignored since destination column is empty");
             }
         }
         mapConstants(mappedData);
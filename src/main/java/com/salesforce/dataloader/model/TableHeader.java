@@ -26,38 +26,209 @@
 package com.salesforce.dataloader.model;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * Immutable list of column names shared by all rows read or mapped with it. Column positions are
+ * looked up through two open-addressing tables built once per header: one keyed by the exact column
+ * name, which uses the hash code cached in the String, and one keyed by the lower-cased name for
+ * case-insensitive lookups. Neither lookup allocates.
+ */
 public class TableHeader {
-    private final Map<String, Integer> columnPositionMap = new HashMap<String, Integer>();
-    private int lastColPosition = 0;
-    private List<String> columns;
+    private static final int NOT_FOUND = -1;
+
+    private final String[] columns;
+    private final List<String> columnList;
+    private final List<String> distinctColumnList;
+    private final String[] foldedColumns;
+    // slots hold column position + 1, 0 marks an empty slot
+    private final int[] exactSlots;
+    private final int[] foldedSlots;
+    // position returned by a lookup of each column's name, the last column with the name in any case
+    private final int[] lookupPositions;
+    private final int slotMask;
+    private final int nullColumnPosition;
+
     public TableHeader(List<String> cols) {
-        this.columns = new ArrayList<String>(cols);
-        for (String colName : cols) {
+        this(cols.toArray(new String[cols.size()]));
+    }
+
+    private TableHeader(String[] columns) {
+        this.columns = columns;
+        this.columnList = Collections.unmodifiableList(Arrays.asList(columns));
+        int numSlots = Integer.highestOneBit(Math.max(2, columns.length * 2 - 1)) << 1;
+        this.slotMask = numSlots - 1;
+        this.exactSlots = new int[numSlots];
+        this.foldedSlots = new int[numSlots];
+        this.foldedColumns = new String[columns.length];
+        this.lookupPositions = new int[columns.length];
+        int nullPosition = NOT_FOUND;
+        // later duplicates replace earlier ones, a lookup returns the last column with the name
+        for (int i = 0; i < columns.length; i++) {
+            String colName = columns[i];
             if (colName == null) {
+                nullPosition = i;
                 continue;
             }
-            columnPositionMap.put(colName.toLowerCase(), lastColPosition++);
+            this.foldedColumns[i] = fold(colName);
+            this.foldedSlots[findFoldedSlot(colName)] = i + 1;
+        }
+        this.nullColumnPosition = nullPosition;
+        boolean hasDuplicates = false;
+        for (int i = 0; i < columns.length; i++) {
+            String colName = columns[i];
+            if (colName != null) {
+                int slot = findExactSlot(colName);
+                hasDuplicates |= this.exactSlots[slot] != 0;
+                this.exactSlots[slot] = i + 1;
+                this.lookupPositions[i] = this.foldedSlots[findFoldedSlot(colName)] - 1;
+            } else {
+                hasDuplicates |= i != nullPosition;
+            }
+        }
+
+        if (hasDuplicates) {
+            LinkedHashSet<String> distinctColumns = new LinkedHashSet<String>(Arrays.asList(columns));
+            this.distinctColumnList = Collections.unmodifiableList(new ArrayList<String>(distinctColumns));
+        } else {
+            this.distinctColumnList = this.columnList;
         }
     }
 
+    /**
+     * @return case-insensitive position of the column or null if the header does not have it
+     */
     public Integer getColumnPosition(String columnName) {
-        return columnPositionMap.get(columnName.toLowerCase());
+        int position = getColumnIndex(columnName);
+        return position == NOT_FOUND ? null : Integer.valueOf(position);
+    }
+
+    /**
+     * @return case-insensitive position of the column or -1 if the header does not have it
+     */
+    public int getColumnIndex(String columnName) {
+        if (columnName == null) {
+            return NOT_FOUND;
+        }
+        int position = getExactColumnIndex(columnName);
+        if (position != NOT_FOUND) {
+            return position;
+        }
+        return this.foldedSlots[findFoldedSlot(columnName)] - 1;
+    }
+
+    /**
+     * @return true if the header has a column with exactly this name
+     */
+    public boolean containsColumn(Object columnName) {
+        if (columnName == null) {
+            return this.nullColumnPosition != NOT_FOUND;
+        }
+        return columnName instanceof String && getExactColumnIndex((String)columnName) != NOT_FOUND;
+    }
+
+    public int getColumnCount() {
+        return this.columns.length;
     }
-    
+
+    public String getColumnName(int position) {
+        return this.columns[position];
+    }
+
+    /**
+     * @return unmodifiable view of the column names in header order
+     */
     public List<String> getColumns() {
-        return new ArrayList<String>(columns);
+        return this.columnList;
+    }
+
+    /**
+     * @return unmodifiable view of the column names with each name listed once
+     */
+    List<String> getDistinctColumns() {
+        return this.distinctColumnList;
+    }
+
+    /**
+     * @return a new header with the column appended
+     */
+    public TableHeader withColumn(String colName) {
+        String[] newColumns = Arrays.copyOf(this.columns, this.columns.length + 1);
+        newColumns[this.columns.length] = colName;
+        return new TableHeader(newColumns);
+    }
+
+    /**
+     * @return a new header without the column at the given position
+     */
+    public TableHeader withoutColumn(int position) {
+        String[] newColumns = new String[this.columns.length - 1];
+        System.arraycopy(this.columns, 0, newColumns, 0, position);
+        System.arraycopy(this.columns, position + 1, newColumns, position, newColumns.length - position);
+        return new TableHeader(newColumns);
+    }
+
+    private int getExactColumnIndex(String columnName) {
+        int position = this.exactSlots[findExactSlot(columnName)] - 1;
+        return position == NOT_FOUND ? NOT_FOUND : this.lookupPositions[position];
+    }
+
+    // returns the slot holding the column or the empty slot where it belongs
+    private int findExactSlot(String columnName) {
+        int slot = spread(columnName.hashCode()) & this.slotMask;
+        while (true) {
+            int position = this.exactSlots[slot] - 1;
+            if (position == NOT_FOUND || columnName.equals(this.columns[position])) {
+                return slot;
+            }
+            slot = (slot + 1) & this.slotMask;
+        }
+    }
+
+    private int findFoldedSlot(String columnName) {
+        int slot = spread(foldedHashCode(columnName)) & this.slotMask;
+        while (true) {
+            int position = this.foldedSlots[slot] - 1;
+            if (position == NOT_FOUND || equalsFolded(columnName, this.foldedColumns[position])) {
+                return slot;
+            }
+            slot = (slot + 1) & this.slotMask;
+        }
+    }
+
+    private static String fold(String columnName) {
+        char[] folded = new char[columnName.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = Character.toLowerCase(columnName.charAt(i));
+        }
+        return new String(folded);
+    }
+
+    // same value as fold(columnName).hashCode()
+    private static int foldedHashCode(String columnName) {
+        int hash = 0;
+        for (int i = 0; i < columnName.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(columnName.charAt(i));
+        }
+        return hash;
     }
-    
-    public void addColumn(String colName) {
-        columnPositionMap.put(colName.toLowerCase(), lastColPosition++);
-        this.columns.add(colName);
+
+    private static boolean equalsFolded(String columnName, String foldedColumnName) {
+        if (columnName.length() != foldedColumnName.length()) {
+            return false;
+        }
+        for (int i = 0; i < foldedColumnName.length(); i++) {
+            if (Character.toLowerCase(columnName.charAt(i)) != foldedColumnName.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
-    
-    public void removeColumn(String colName) {
-        this.columns.remove(colName);
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
     }
-}
\ No newline at end of file
+}
@@ -25,13 +25,14 @@
  */
 package com.salesforce.dataloader.model;
 
-import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 public class TableRow implements Map<String, Object>, RowInterface {
@@ -40,7 +41,7 @@ public class TableRow implements Map<String, Object>, RowInterface {
 
     public TableRow(TableHeader header) {
         this.header = header;
-        cellValues = new Object[header.getColumns().size()];
+        cellValues = new Object[header.getColumnCount()];
     }
 
     public TableRow(TableRow rowToCopy) {
@@ -49,28 +50,36 @@ public class TableRow implements Map<String, Object>, RowInterface {
     }
     
     public Object get(Object key) {
-        Integer colPos = this.header.getColumnPosition((String)key);
-        if (colPos == null) {
+        int colPos = this.header.getColumnIndex((String)key);
+        if (colPos < 0) {
             return null;
         }
         return cellValues[colPos];
     }
 
     public Object put(String key, Object value) {
-        Integer colPos = this.header.getColumnPosition(key);
-        if (colPos == null) {
+        int colPos = this.header.getColumnIndex(key);
+        if (colPos < 0) {
             return null;
         }
         return this.cellValues[colPos] = value;
     }
     
+    public Object getValueAt(int colPos) {
+        return this.cellValues[colPos];
+    }
+
+    public void setValueAt(int colPos, Object value) {
+        this.cellValues[colPos] = value;
+    }
+
     public TableHeader getHeader() {
         return this.header;
     }
     
     public void addHeaderColumn(String columnName) {
-        this.header.addColumn(columnName);
-        this.cellValues = Arrays.copyOf(this.cellValues, this.header.getColumns().size());
+        this.header = this.header.withColumn(columnName);
+        this.cellValues = Arrays.copyOf(this.cellValues, this.header.getColumnCount());
     }
     
     public static TableRow emptyRow() {
@@ -98,12 +107,12 @@ public class TableRow implements Map<String, Object>, RowInterface {
 
     @Override
     public List<String> getColumnNames() {
-        return new ArrayList<String>(this.header.getColumns());
+        return this.header.getColumns();
     }
 
     @Override
     public int size() {
-        return this.header.getColumns().size();
+        return this.header.getColumnCount();
     }
 
     @Override
@@ -113,7 +122,7 @@ public class TableRow implements Map<String, Object>, RowInterface {
 
     @Override
     public boolean containsKey(Object key) {
-        return this.header.getColumns().contains(key);
+        return this.header.containsColumn(key);
     }
 
     @Override
@@ -128,12 +137,16 @@ public class TableRow implements Map<String, Object>, RowInterface {
 
     @Override
     public Object remove(Object key) {
-        Integer colPos = this.header.getColumnPosition((String)key);
-        if (colPos == null) {
+        int colPos = this.header.getColumnIndex((String)key);
+        if (colPos < 0) {
             return null;
         }
-        Object value = this.get(key);
-        this.header.removeColumn((String)key);
+        Object value = this.cellValues[colPos];
+        this.header = this.header.withoutColumn(colPos);
+        Object[] newCellValues = new Object[this.cellValues.length - 1];
+        System.arraycopy(this.cellValues, 0, newCellValues, 0, colPos);
+        System.arraycopy(this.cellValues, colPos + 1, newCellValues, colPos, newCellValues.length - colPos);
+        this.cellValues = newCellValues;
         return value;
     }
 
@@ -146,11 +159,28 @@ public class TableRow implements Map<String, Object>, RowInterface {
     public void clear() {
         ArrayList<String> headerNames = new ArrayList<String>();
         this.header = new TableHeader(headerNames);
+        this.cellValues = new Object[0];
     }
 
     @Override
     public Set<String> keySet() {
-        return new HashSet<String>(this.header.getColumns());
+        final List<String> columns = this.header.getDistinctColumns();
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return columns.iterator();
+            }
+
+            @Override
+            public int size() {
+                return columns.size();
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+        };
     }
 
     @Override
@@ -160,11 +190,80 @@ public class TableRow implements Map<String, Object>, RowInterface {
 
     @Override
     public Set<Map.Entry<String, Object>> entrySet() {
-        HashSet<Map.Entry<String, Object>> rowEntrySet = new HashSet<Entry<String, Object>>();
-        for (String colName : this.header.getColumns()) {
-            Map.Entry<String, Object> colEntry = new AbstractMap.SimpleEntry<String, Object>(colName, get(colName));
-            rowEntrySet.add(colEntry);
+        final List<String> columns = this.header.getDistinctColumns();
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new Iterator<Map.Entry<String, Object>>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < columns.size();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return new ColumnEntry(columns.get(next++));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return columns.size();
+            }
+        };
+    }
+
+    // reads and writes through to the row like the entries of other maps
+    private class ColumnEntry implements Map.Entry<String, Object> {
+        private final String colName;
+
+        private ColumnEntry(String colName) {
+            this.colName = colName;
+        }
+
+        @Override
+        public String getKey() {
+            return this.colName;
+        }
+
+        @Override
+        public Object getValue() {
+            return this.colName == null ? null : get(this.colName);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object oldValue = getValue();
+            put(this.colName, value);
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+            Object value = getValue();
+            return (this.colName == null ? e.getKey() == null : this.colName.equals(e.getKey()))
+                    && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return (this.colName == null ? 0 : this.colName.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return this.colName + "=" + getValue();
         }
-        return rowEntrySet;
     }
-}
\ No newline at end of file
+}
@@ -43,6 +43,7 @@ import com.salesforce.dataloader.config.AppConfig;
 import com.salesforce.dataloader.controller.Controller;
 import com.salesforce.dataloader.dao.DataAccessObjectFactory;
 import com.salesforce.dataloader.dao.DataReaderInterface;
+import com.salesforce.dataloader.dao.csv.CSVFileReader;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.MappingInitializationException;
 import com.salesforce.dataloader.util.DAORowUtil;
@@ -122,6 +123,7 @@ public class DataSelectionDialog extends WizardDialog {
 
         List<String> header = null;
         int totalRows = 0;
+        boolean isTotalRowsEstimated = false;
         try {
             dataReader.open();
 
@@ -139,6 +141,8 @@ public class DataSelectionDialog extends WizardDialog {
             }
 
             totalRows = dataReader.getTotalRows();
+            isTotalRowsEstimated = dataReader instanceof CSVFileReader
+                    && ((CSVFileReader)dataReader).isTotalRowsEstimated();
 
             if ((header = dataReader.getColumnNames())== null || header.size() == 0) {
                 handleCSVReadError(shell, 
@@ -163,7 +167,8 @@ public class DataSelectionDialog extends WizardDialog {
         
         // Set the description
         label.setText(Labels.getFormattedString(
-                "DataSelectionDialog.initSuccess", String.valueOf(totalRows))
+                isTotalRowsEstimated ? "DataSelectionDialog.initSuccessEstimated" : "DataSelectionDialog.initSuccess",
+                String.valueOf(totalRows))
                 + "\n\n"
                 + Labels.getString("LoadPage.importBatchSize")
                 + " "
@@ -177,23 +177,29 @@ public class DAORowUtil {
             return phoneValue;
         }
         
-        try {
-            Long.parseUnsignedLong(phoneValue);
-        } catch (Exception ex) {
-            // phone number contains non-numeric characters
-            return phoneValue;
-        }
-        if (phoneValue.startsWith("+") || phoneValue.startsWith("-")) {
-            return phoneValue;
+        for (int i = 0; i < phoneValue.length(); i++) {
+            char c = phoneValue.charAt(i);
+            if (c < '0' || c > '9') {
+                // phone number contains non-numeric characters
+                return phoneValue;
+            }
         }
         if (phoneValue.length() == 10) { // use the format (xxx) xxx-xxxx
-            phoneValue = phoneValue.replaceFirst("(\\d{3})(\\d{3})(\\d+)", "($1) $2-$3");
-        } else if (phoneValue.length() == 11 && phoneValue.startsWith("1")) { // length 11 and starts with 1
-            phoneValue = phoneValue.replaceFirst("(\\d{1})(\\d{3})(\\d{3})(\\d+)", "($2) $3-$4");
+            phoneValue = formatPhoneNumber(phoneValue, 0);
+        } else if (phoneValue.charAt(0) == '1') { // length 11 and starts with 1
+            phoneValue = formatPhoneNumber(phoneValue, 1);
         }
         return phoneValue;
     }
 
+    private static String formatPhoneNumber(String digits, int start) {
+        return new StringBuilder(14)
+                .append('(').append(digits, start, start + 3).append(") ")
+                .append(digits, start + 3, start + 6).append('-')
+                .append(digits, start + 6, digits.length())
+                .toString();
+    }
+
     private void handleError(final Exception e, String msgKey) throws LoadException {
         final String errMsg = Messages.getMessage(getClass(), msgKey);
         logger.error(errMsg, e);
@@ -147,6 +147,14 @@ public class LoadRateCalculator {
             );
     }
     
+    public long getNumSuccessesAcrossCompletedJobs() {
+        return this.numSuccessesAcrossCompletedJobs;
+    }
+
+    public long getNumErrorsAcrossCompletedJobs() {
+        return this.numErrorsAcrossCompletedJobs;
+    }
+
     public void setNumSuccessesAcrossCompletedJobs(long num) {
         this.numSuccessesAcrossCompletedJobs = num;
     }
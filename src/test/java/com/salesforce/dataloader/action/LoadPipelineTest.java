@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.LoadException;
+import com.salesforce.dataloader.exception.OperationException;
+import com.salesforce.dataloader.model.TableHeader;
+import com.salesforce.dataloader.model.TableRow;
+
+import static org.junit.Assert.*;
+
+public class LoadPipelineTest {
+
+    private static final TableHeader HEADER = new TableHeader(Arrays.asList("Name"));
+
+    /** A row as it goes through the stub load */
+    private static class StubRow {
+        final TableRow daoRow;
+        String mappedBy;
+        String convertedBy;
+        String value;
+
+        StubRow(TableRow daoRow) {
+            this.daoRow = daoRow;
+        }
+    }
+
+    /** Reads rows from a list and records the rows submitted to a stub server */
+    private static class StubStages implements LoadPipeline.Stages<StubRow> {
+        final List<TableRow> source;
+        final Random random = new Random(42);
+        final List<Integer> submittedRowNums = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<StubRow> submittedRows = Collections.synchronizedList(new ArrayList<StubRow>());
+        final AtomicInteger readCalls = new AtomicInteger();
+        int readPos = 0;
+
+        StubStages(List<TableRow> source) {
+            this.source = source;
+        }
+
+        @Override
+        public List<TableRow> readRows(int maxRows) throws DataAccessObjectException {
+            readCalls.incrementAndGet();
+            List<TableRow> rows = new ArrayList<TableRow>();
+            while (rows.size() < maxRows && readPos < source.size()) {
+                rows.add(source.get(readPos++));
+            }
+            return rows;
+        }
+
+        @Override
+        public StubRow mapRow(TableRow row) {
+            StubRow stubRow = new StubRow(row);
+            stubRow.mappedBy = Thread.currentThread().getName();
+            return stubRow;
+        }
+
+        @Override
+        public void convertRow(StubRow row) throws OperationException {
+            sleep(random.nextInt(2));
+            row.convertedBy = Thread.currentThread().getName();
+            row.value = ((String)row.daoRow.get("Name")).toUpperCase();
+        }
+
+        @Override
+        public void submitRow(int daoRowNum, StubRow row) throws OperationException, DataAccessObjectException {
+            submittedRowNums.add(daoRowNum);
+            submittedRows.add(row);
+        }
+    }
+
+    @Test
+    public void testRowsAreSubmittedInDataSourceOrder() throws Exception {
+        StubStages stages = new StubStages(rows(1000));
+        try (LoadPipeline<StubRow> pipeline = new LoadPipeline<StubRow>(stages, 5, 7, 4)) {
+            pipeline.run(() -> false);
+        }
+        assertEquals(1000, stages.submittedRows.size());
+        for (int i = 0; i < 1000; i++) {
+            StubRow row = stages.submittedRows.get(i);
+            assertEquals(Integer.valueOf(5 + i), stages.submittedRowNums.get(i));
+            assertEquals("NAME" + i, row.value);
+            assertEquals("loadReader", row.mappedBy);
+            assertTrue(row.convertedBy, row.convertedBy.startsWith("loadConverter-"));
+        }
+    }
+
+    @Test
+    public void testEmptyDataSource() throws Exception {
+        StubStages stages = new StubStages(rows(0));
+        try (LoadPipeline<StubRow> pipeline = new LoadPipeline<StubRow>(stages, 0, 10, 2)) {
+            pipeline.run(() -> false);
+        }
+        assertTrue(stages.submittedRows.isEmpty());
+    }
+
+    @Test
+    public void testInvalidRowEndsLoad() throws Exception {
+        List<TableRow> source = rows(30);
+        source.set(12, null);
+        StubStages stages = new StubStages(source);
+        try (LoadPipeline<StubRow> pipeline = new LoadPipeline<StubRow>(stages, 0, 5, 2)) {
+            pipeline.run(() -> false);
+        }
+        assertEquals(13, stages.submittedRows.size());
+        assertNull(stages.submittedRows.get(12));
+        assertEquals(Integer.valueOf(12), stages.submittedRowNums.get(12));
+    }
+
+    @Test
+    public void testConversionErrorIsRethrown() throws Exception {
+        StubStages stages = new StubStages(rows(100)) {
+            @Override
+            public void convertRow(StubRow row) throws OperationException {
+                if ("Name42".equals(row.daoRow.get("Name"))) {
+                    throw new LoadException("conversion failed");
+                }
+                super.convertRow(row);
+            }
+        };
+        try (LoadPipeline<StubRow> pipeline = new LoadPipeline<StubRow>(stages, 0, 10, 3)) {
+            pipeline.run(() -> false);
+            fail("expected the conversion error to be rethrown");
+        } catch (LoadException e) {
+            assertEquals("conversion failed", e.getMessage());
+        }
+        // rows of the blocks before the failed one were submitted
+        assertEquals(40, stages.submittedRows.size());
+    }
+
+    @Test
+    public void testReadErrorIsRethrown() throws Exception {
+        StubStages stages = new StubStages(rows(100)) {
+            @Override
+            public List<TableRow> readRows(int maxRows) throws DataAccessObjectException {
+                if (readPos >= 50) {
+                    throw new DataAccessObjectException("read failed");
+                }
+                return super.readRows(maxRows);
+            }
+        };
+        try (LoadPipeline<StubRow> pipeline = new LoadPipeline<StubRow>(stages, 0, 10, 3)) {
+            pipeline.run(() -> false);
+            fail("expected the read error to be rethrown");
+        } catch (DataAccessObjectException e) {
+            assertEquals("read failed", e.getMessage());
+        }
+        assertEquals(50, stages.submittedRows.size());
+    }
+
+    @Test(timeout = 30000)
+    public void testReadErrorThatIsNotAnExceptionIsRethrown() throws Exception {
+        StubStages stages = new StubStages(rows(100)) {
+            @Override
+            public List<TableRow> readRows(int maxRows) throws DataAccessObjectException {
+                if (readPos >= 50) {
+                    throw new OutOfMemoryError("read failed");
+                }
+                return super.readRows(maxRows);
+            }
+        };
+        try (LoadPipeline<StubRow> pipeline = new LoadPipeline<StubRow>(stages, 0, 10, 3)) {
+            pipeline.run(() -> false);
+            fail("expected the read error to be rethrown");
+        } catch (OutOfMemoryError e) {
+            assertEquals("read failed", e.getMessage());
+        }
+        assertEquals(50, stages.submittedRows.size());
+    }
+
+    @Test
+    public void testReaderWaitsForSlowSubmission() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        StubStages stages = new StubStages(rows(1000)) {
+            @Override
+            public void submitRow(int daoRowNum, StubRow row) throws OperationException, DataAccessObjectException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new OperationException(e);
+                }
+                super.submitRow(daoRowNum, row);
+            }
+        };
+        final int numThreads = 2;
+        try (LoadPipeline<StubRow> pipeline = new LoadPipeline<StubRow>(stages, 0, 10, numThreads)) {
+            Thread submitter = new Thread(() -> {
+                try {
+                    pipeline.run(() -> false);
+                } catch (Exception e) {
+                    // reported by the assertions below
+                }
+            });
+            submitter.start();
+            sleep(300);
+            // the block being submitted, the queued blocks and the block waiting to be queued
+            assertTrue("read " + stages.readCalls.get() + " blocks ahead",
+                    stages.readCalls.get() <= numThreads * 2 + 2);
+            release.countDown();
+            submitter.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        assertEquals(1000, stages.submittedRows.size());
+    }
+
+    @Test
+    public void testCancelStopsSubmission() throws Exception {
+        StubStages stages = new StubStages(rows(1000));
+        final AtomicInteger checks = new AtomicInteger();
+        try (LoadPipeline<StubRow> pipeline = new LoadPipeline<StubRow>(stages, 0, 10, 2)) {
+            pipeline.run(() -> checks.incrementAndGet() > 3);
+        }
+        assertEquals(30, stages.submittedRows.size());
+    }
+
+    private static List<TableRow> rows(int numRows) {
+        List<TableRow> rows = new ArrayList<TableRow>();
+        for (int i = 0; i < numRows; i++) {
+            TableRow row = new TableRow(HEADER);
+            row.put("Name", "Name" + i);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
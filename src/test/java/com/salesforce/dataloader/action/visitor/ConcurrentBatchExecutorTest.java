@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.beanutils.BasicDynaClass;
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.DynaProperty;
+import org.junit.Test;
+
+import com.salesforce.dataloader.model.TableHeader;
+import com.salesforce.dataloader.model.TableRow;
+import com.sforce.ws.ConnectionException;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentBatchExecutorTest {
+
+    private static final TableHeader HEADER = new TableHeader(Arrays.asList("Name"));
+    private static final BasicDynaClass DYNA_CLASS = new BasicDynaClass("Contact", null, new DynaProperty[] {
+            new DynaProperty("Name", String.class),
+            new DynaProperty("AccountId", String.class)});
+
+    /** Stub server returning the names of the records, after a random delay */
+    private static class StubServer implements ConcurrentBatchExecutor.BatchCall {
+        final AtomicInteger callsInFlight = new AtomicInteger();
+        final AtomicInteger maxCallsInFlight = new AtomicInteger();
+        final List<String> accountsInFlight = Collections.synchronizedList(new ArrayList<String>());
+        final Random random = new Random(42);
+        volatile boolean isAccountLockedTwice = false;
+        volatile String failingName = null;
+
+        @Override
+        public Object[] execute(List<DynaBean> dynaBeans) throws ConnectionException {
+            int inFlight = callsInFlight.incrementAndGet();
+            maxCallsInFlight.accumulateAndGet(inFlight, Math::max);
+            List<String> accounts = new ArrayList<String>();
+            for (DynaBean bean : dynaBeans) {
+                String account = (String)bean.get("AccountId");
+                if (account != null && !accounts.contains(account)) {
+                    accounts.add(account);
+                }
+            }
+            synchronized (accountsInFlight) {
+                for (String account : accounts) {
+                    if (accountsInFlight.contains(account)) {
+                        isAccountLockedTwice = true;
+                    }
+                }
+                accountsInFlight.addAll(accounts);
+            }
+            try {
+                Thread.sleep(random.nextInt(20));
+                Object[] results = new Object[dynaBeans.size()];
+                for (int i = 0; i < results.length; i++) {
+                    results[i] = dynaBeans.get(i).get("Name");
+                    if (results[i].equals(failingName)) {
+                        throw new ConnectionException("server error");
+                    }
+                }
+                return results;
+            } catch (InterruptedException e) {
+                throw new ConnectionException("interrupted", e);
+            } finally {
+                accountsInFlight.removeAll(accounts);
+                callsInFlight.decrementAndGet();
+            }
+        }
+    }
+
+    /** Records the results in the order in which they are handed back */
+    private static class ResultRecorder implements ConcurrentBatchExecutor.BatchResultHandler {
+        final List<Object> results = new ArrayList<Object>();
+        final List<Object> resultRows = new ArrayList<Object>();
+        final List<Object> abandonedRows = new ArrayList<Object>();
+        final Thread visitingThread = Thread.currentThread();
+
+        @Override
+        public void batchLoaded(List<TableRow> daoRows, Object[] batchResults) {
+            assertSame(visitingThread, Thread.currentThread());
+            assertEquals(daoRows.size(), batchResults.length);
+            results.addAll(Arrays.asList(batchResults));
+            for (TableRow row : daoRows) {
+                resultRows.add(row.get("Name"));
+            }
+        }
+
+        @Override
+        public void batchAbandoned(List<TableRow> daoRows) {
+            for (TableRow row : daoRows) {
+                abandonedRows.add(row.get("Name"));
+            }
+        }
+    }
+
+    private static void submitRows(ConcurrentBatchExecutor executor, int numRows, int batchSize, int numAccounts)
+            throws Exception {
+        List<DynaBean> dynaBeans = new ArrayList<DynaBean>();
+        List<TableRow> daoRows = new ArrayList<TableRow>();
+        for (int i = 0; i < numRows; i++) {
+            DynaBean bean = DYNA_CLASS.newInstance();
+            bean.set("Name", "row" + i);
+            if (numAccounts > 0) {
+                bean.set("AccountId", "account" + (i * 7 % numAccounts));
+            }
+            dynaBeans.add(bean);
+            TableRow row = new TableRow(HEADER);
+            row.put("Name", "row" + i);
+            daoRows.add(row);
+            if (dynaBeans.size() == batchSize) {
+                executor.submit(dynaBeans, daoRows);
+                // the executor keeps a copy of the batch
+                dynaBeans.clear();
+                daoRows.clear();
+            }
+        }
+        if (!dynaBeans.isEmpty()) {
+            executor.submit(dynaBeans, daoRows);
+        }
+    }
+
+    private static List<Object> expectedNames(int numRows) {
+        List<Object> names = new ArrayList<Object>();
+        for (int i = 0; i < numRows; i++) {
+            names.add("row" + i);
+        }
+        return names;
+    }
+
+    @Test
+    public void testResultsAreHandledInInputOrder() throws Exception {
+        StubServer server = new StubServer();
+        ResultRecorder recorder = new ResultRecorder();
+        ConcurrentBatchExecutor executor = new ConcurrentBatchExecutor(4, null, server, recorder);
+
+        submitRows(executor, 1005, 10, 0);
+        executor.awaitAll();
+
+        assertEquals(expectedNames(1005), recorder.results);
+        assertEquals(expectedNames(1005), recorder.resultRows);
+        assertEquals(0, executor.getNumBatchesInFlight());
+        assertTrue(server.maxCallsInFlight.get() > 1);
+        assertTrue(server.maxCallsInFlight.get() <= 4);
+    }
+
+    @Test
+    public void testBatchesSharingLaneFieldValueAreNotInFlightTogether() throws Exception {
+        StubServer server = new StubServer();
+        ResultRecorder recorder = new ResultRecorder();
+        // lane field is matched ignoring case
+        ConcurrentBatchExecutor executor = new ConcurrentBatchExecutor(4, "accountid", server, recorder);
+
+        submitRows(executor, 400, 5, 40);
+        executor.awaitAll();
+
+        assertFalse(server.isAccountLockedTwice);
+        assertTrue(server.maxCallsInFlight.get() > 1);
+        assertEquals(expectedNames(400), recorder.results);
+    }
+
+    @Test
+    public void testFailedBatchAbandonsLaterBatches() throws Exception {
+        StubServer server = new StubServer();
+        server.failingName = "row55";
+        ResultRecorder recorder = new ResultRecorder();
+        ConcurrentBatchExecutor executor = new ConcurrentBatchExecutor(3, null, server, recorder);
+
+        try {
+            submitRows(executor, 200, 10, 0);
+            executor.awaitAll();
+            fail("expected the batch with row55 to fail");
+        } catch (ConnectionException e) {
+            assertEquals("server error", e.getMessage());
+        }
+        assertEquals(expectedNames(50), recorder.results);
+        // the failed batch and the batches sent with it are abandoned, none of their rows get a result
+        assertEquals(recorder.abandonedRows.get(0), "row50");
+        assertEquals(0, executor.getNumBatchesInFlight());
+        assertEquals(0, server.callsInFlight.get());
+        for (Object row : recorder.abandonedRows) {
+            assertFalse(recorder.resultRows.contains(row));
+        }
+    }
+
+    @Test
+    public void testSingleCallInFlight() throws Exception {
+        StubServer server = new StubServer();
+        ResultRecorder recorder = new ResultRecorder();
+        ConcurrentBatchExecutor executor = new ConcurrentBatchExecutor(1, "", server, recorder);
+
+        submitRows(executor, 95, 10, 0);
+        executor.awaitAll();
+
+        assertEquals(1, server.maxCallsInFlight.get());
+        assertEquals(expectedNames(95), recorder.results);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.function.LongUnaryOperator;
+
+import org.junit.Test;
+
+public class AdaptivePollIntervalTest {
+
+    private static final long MIN = 1000;
+    private static final long MAX = 60000;
+
+    // fake clock advanced by the simulated waits
+    private long now = 0;
+
+    @Test
+    public void testGrowsGeometricallyUpToMax() {
+        AdaptivePollInterval poller = new AdaptivePollInterval(MIN, MAX, 0, () -> now, new Random(1));
+        long expected = MIN;
+        for (int i = 0; i < 20; i++) {
+            assertEquals(expected, poller.nextInterval(0, 0));
+            expected = Math.min(MAX, (long)(expected * AdaptivePollInterval.GROWTH_FACTOR));
+        }
+        assertEquals(MAX, poller.nextInterval(0, 0));
+
+        poller.reset();
+        assertEquals(MIN, poller.nextInterval(0, 0));
+    }
+
+    @Test
+    public void testFixedIntervalWhenMinEqualsMax() {
+        AdaptivePollInterval poller = new AdaptivePollInterval(5000, 5000, 0.1, () -> now, new Random(1));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(5000, poller.nextInterval(i, 100));
+        }
+    }
+
+    @Test
+    public void testSmallJobIsNoticedSoonAfterCompletion() {
+        // 2 batches, both complete 1.8 seconds after the job is submitted
+        LongUnaryOperator job = time -> time >= 1800 ? 2 : 0;
+        Simulation result = simulate(new AdaptivePollInterval(MIN, MAX, 0, () -> now, new Random(1)), job, 2);
+        assertTrue("completion noticed " + result.latency + " ms late", result.latency <= 1000);
+        assertTrue(result.statusChecks <= 3);
+    }
+
+    @Test
+    public void testLargeJobUsesFewerStatusChecksThanFixedInterval() {
+        // 200 batches, one completes every 3 seconds
+        LongUnaryOperator job = time -> Math.min(200, time / 3000);
+        Simulation adaptive = simulate(new AdaptivePollInterval(MIN, MAX, 0.1, () -> now, new Random(7)), job, 200);
+        Simulation fixed = simulate(new AdaptivePollInterval(5000, 5000, 0, () -> now, new Random(7)), job, 200);
+        assertTrue("adaptive checks: " + adaptive.statusChecks + ", fixed checks: " + fixed.statusChecks,
+                adaptive.statusChecks * 3 < fixed.statusChecks);
+        assertTrue("completion noticed " + adaptive.latency + " ms late", adaptive.latency <= MAX);
+    }
+
+    @Test
+    public void testWaitEndsAtEstimatedCompletion() {
+        AdaptivePollInterval poller = new AdaptivePollInterval(MIN, MAX, 0, () -> now, new Random(1));
+        poller.nextInterval(0, 100);
+        now = 10000;
+        // 90 of 100 batches in 10 seconds, the rest is expected in about 1.1 seconds
+        long wait = poller.nextInterval(90, 100);
+        assertTrue("waiting " + wait + " ms", wait <= 1200);
+        now = 11000;
+        assertEquals(MIN, poller.nextInterval(100, 100));
+    }
+
+    @Test
+    public void testJitterStaysWithinBounds() {
+        AdaptivePollInterval poller = new AdaptivePollInterval(MIN, MAX, 0.5, () -> now, new Random(3));
+        for (int i = 0; i < 100; i++) {
+            long wait = poller.nextInterval(0, 0);
+            assertTrue(wait >= MIN && wait <= MAX);
+        }
+    }
+
+    private static class Simulation {
+        int statusChecks;
+        long latency;
+    }
+
+    // polls the scripted job until all its batches are done
+    private Simulation simulate(AdaptivePollInterval poller, LongUnaryOperator completedBatchesAt, long totalBatches) {
+        now = 0;
+        long doneAt = 0;
+        while (completedBatchesAt.applyAsLong(doneAt) < totalBatches) {
+            doneAt += 100;
+        }
+        Simulation result = new Simulation();
+        long completed = 0;
+        while (completed < totalBatches) {
+            now += poller.nextInterval(completed, totalBatches);
+            completed = completedBatchesAt.applyAsLong(now);
+            result.statusChecks++;
+        }
+        result.latency = now - doneAt;
+        return result;
+    }
+}
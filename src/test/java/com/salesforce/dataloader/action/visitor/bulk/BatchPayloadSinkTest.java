@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.salesforce.dataloader.config.AppConfig;
+
+import static org.junit.Assert.*;
+
+public class BatchPayloadSinkTest {
+    private File spoolDir;
+
+    @Before
+    public void setUp() throws IOException {
+        spoolDir = Files.createTempDirectory("batchPayloadSinkTest").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (File f : spoolDir.listFiles()) {
+            f.delete();
+        }
+        spoolDir.delete();
+    }
+
+    @Test
+    public void testPayloadKeptInMemoryBelowThreshold() throws IOException {
+        BatchPayloadSink sink = new BatchPayloadSink(1000000, spoolDir);
+        byte[] expected = writeRows(sink, 100);
+        assertFalse(sink.isSpooled());
+        assertEquals(0, spoolDir.listFiles().length);
+        assertEquals(expected.length, sink.size());
+        assertArrayEquals(expected, readAll(sink));
+        sink.close();
+    }
+
+    @Test
+    public void testPayloadSpooledAboveThreshold() throws IOException {
+        BatchPayloadSink sink = new BatchPayloadSink(1024, spoolDir);
+        byte[] expected = writeRows(sink, 1000);
+        assertTrue(sink.isSpooled());
+        assertEquals(1, spoolDir.listFiles().length);
+        assertEquals(expected.length, sink.size());
+        assertArrayEquals(expected, readAll(sink));
+
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        sink.writeTo(copy);
+        assertArrayEquals(expected, copy.toByteArray());
+        sink.close();
+        assertEquals(0, spoolDir.listFiles().length);
+    }
+
+    @Test
+    public void testResetDeletesSpoolFileAndAllowsReuse() throws IOException {
+        BatchPayloadSink sink = new BatchPayloadSink(1024, spoolDir);
+        writeRows(sink, 1000);
+        assertTrue(sink.isSpooled());
+        sink.reset();
+        assertFalse(sink.isSpooled());
+        assertEquals(0, sink.size());
+        assertEquals(0, spoolDir.listFiles().length);
+
+        byte[] expected = writeRows(sink, 5);
+        assertFalse(sink.isSpooled());
+        assertArrayEquals(expected, readAll(sink));
+        sink.close();
+    }
+
+    // writes the same rows to the sink and to a ByteArrayOutputStream, returns the latter's bytes
+    private byte[] writeRows(BatchPayloadSink sink, int numRows) throws IOException {
+        ByteArrayOutputStream reference = new ByteArrayOutputStream();
+        PrintStream sinkOut = new PrintStream(sink, true, AppConfig.BULK_API_ENCODING);
+        PrintStream referenceOut = new PrintStream(reference, true, AppConfig.BULK_API_ENCODING);
+        for (int i = 0; i < numRows; i++) {
+            String row = "\"" + i + "\",\"Name é中 " + i + "\",\"line1\nline2\"";
+            sinkOut.println(row);
+            referenceOut.println(row);
+        }
+        sinkOut.flush();
+        referenceOut.close();
+        return reference.toByteArray();
+    }
+
+    private byte[] readAll(BatchPayloadSink sink) throws IOException {
+        try (InputStream in = sink.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.sforce.async.AsyncApiException;
+import com.sforce.async.AsyncExceptionCode;
+import com.sforce.async.BatchInfo;
+
+import static org.junit.Assert.*;
+
+public class BulkBatchUploaderTest {
+
+    @Test
+    public void testBatchesKeepSubmissionOrder() throws Exception {
+        final Random random = new Random(42);
+        BulkBatchUploader uploader = new BulkBatchUploader(4, 1024, content -> {
+            String payload = new String(content.readAllBytes(), StandardCharsets.UTF_8);
+            try {
+                Thread.sleep(random.nextInt(20));
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            return batchInfo(payload);
+        });
+        List<Future<BatchInfo>> uploads = new ArrayList<Future<BatchInfo>>();
+        try {
+            for (int i = 0; i < 40; i++) {
+                uploads.add(uploader.submit(payload(uploader, "batch" + i), null));
+            }
+            uploader.awaitAll();
+        } finally {
+            uploader.shutdown();
+        }
+        for (int i = 0; i < uploads.size(); i++) {
+            assertEquals("batch" + i, BulkBatchUploader.getBatchInfo(uploads.get(i)).getId());
+        }
+    }
+
+    @Test
+    public void testUploadErrorIsRethrown() throws Exception {
+        BulkBatchUploader uploader = new BulkBatchUploader(2, 1024, content -> {
+            String payload = new String(content.readAllBytes(), StandardCharsets.UTF_8);
+            if (payload.equals("batch3")) {
+                throw new AsyncApiException("InvalidBatch", AsyncExceptionCode.InvalidBatch);
+            }
+            return batchInfo(payload);
+        });
+        try {
+            for (int i = 0; i < 6; i++) {
+                uploader.submit(payload(uploader, "batch" + i), null);
+            }
+            uploader.awaitAll();
+            fail("expected the failed upload to be rethrown");
+        } catch (AsyncApiException e) {
+            assertEquals(AsyncExceptionCode.InvalidBatch, e.getExceptionCode());
+        } finally {
+            uploader.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubmitBlocksWhenQueueIsFull() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final BulkBatchUploader uploader = new BulkBatchUploader(1, 1024, content -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            return batchInfo(new String(content.readAllBytes(), StandardCharsets.UTF_8));
+        });
+        try {
+            // one upload in progress and one queued
+            uploader.submit(payload(uploader, "batch0"), null);
+            uploader.submit(payload(uploader, "batch1"), null);
+
+            final CountDownLatch submitted = new CountDownLatch(1);
+            Thread submitter = new Thread(() -> {
+                try {
+                    uploader.submit(payload(uploader, "batch2"), null);
+                    submitted.countDown();
+                } catch (Exception e) {
+                    // reported by the assertion below
+                }
+            });
+            submitter.start();
+            assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+            release.countDown();
+            assertTrue(submitted.await(10, TimeUnit.SECONDS));
+            submitter.join();
+            uploader.awaitAll();
+        } finally {
+            release.countDown();
+            uploader.shutdown();
+        }
+    }
+
+    private static BatchPayloadSink payload(BulkBatchUploader uploader, String content) throws IOException {
+        BatchPayloadSink payload = uploader.newPayload();
+        payload.write(content.getBytes(StandardCharsets.UTF_8));
+        return payload;
+    }
+
+    private static BatchInfo batchInfo(String id) {
+        BatchInfo batch = new BatchInfo();
+        batch.setId(id);
+        return batch;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.sforce.async.AsyncApiException;
+import com.sforce.async.AsyncExceptionCode;
+
+import static org.junit.Assert.*;
+
+public class BulkV2JobRunnerTest {
+    private static final String SUCCESS_HEADER = "\"sf__Id\",\"sf__Created\",Name\n";
+
+    @Test
+    public void testJobsRunConcurrentlyWithinLimit() throws Exception {
+        final int maxJobsInFlight = 3;
+        final AtomicInteger jobsRunning = new AtomicInteger();
+        final AtomicInteger maxJobsRunning = new AtomicInteger();
+        final Random random = new Random(42);
+        BulkV2JobRunner runner = new BulkV2JobRunner(maxJobsInFlight);
+        try {
+            for (int i = 0; i < 12; i++) {
+                final String jobId = "job" + i;
+                final int sleepMillis = random.nextInt(30);
+                runner.submit(() -> {
+                    maxJobsRunning.accumulateAndGet(jobsRunning.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(sleepMillis);
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                    jobsRunning.decrementAndGet();
+                    return jobResults(jobId, 1);
+                });
+            }
+            List<BulkV2JobRunner.JobResults> results = runner.awaitAll();
+            assertEquals(12, results.size());
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals("results should be in submission order", "job" + i, results.get(i).jobId);
+                results.get(i).deleteFiles();
+            }
+        } finally {
+            runner.shutdown();
+        }
+        assertTrue("no more than " + maxJobsInFlight + " jobs should run at a time",
+                maxJobsRunning.get() <= maxJobsInFlight);
+        assertTrue("jobs should run concurrently", maxJobsRunning.get() > 1);
+    }
+
+    @Test
+    public void testJobErrorIsRethrown() throws Exception {
+        BulkV2JobRunner runner = new BulkV2JobRunner(2);
+        try {
+            for (int i = 0; i < 4; i++) {
+                final String jobId = "job" + i;
+                runner.submit(() -> {
+                    if (jobId.equals("job2")) {
+                        throw new AsyncApiException("InvalidJob", AsyncExceptionCode.InvalidBatch);
+                    }
+                    return jobResults(jobId, 1);
+                });
+            }
+            runner.awaitAll();
+            fail("expected the failed job to be rethrown");
+        } catch (AsyncApiException e) {
+            assertEquals(AsyncExceptionCode.InvalidBatch, e.getExceptionCode());
+        } finally {
+            runner.shutdown();
+        }
+    }
+
+    @Test
+    public void testResultFilesAreMergedInJobOrder() throws Exception {
+        List<BulkV2JobRunner.JobResults> results = new ArrayList<BulkV2JobRunner.JobResults>();
+        for (int i = 0; i < 3; i++) {
+            results.add(jobResults("job" + i, 2));
+        }
+        File successFile = File.createTempFile("success", ".csv");
+        File errorFile = File.createTempFile("error", ".csv");
+        try {
+            write(successFile, "stale\n");
+            write(errorFile, "Name,ERROR\n\"bad row\",\"conversion failed\"\n");
+            BulkV2JobRunner.mergeResultFiles(results, successFile.getAbsolutePath(), errorFile.getAbsolutePath());
+
+            assertEquals(SUCCESS_HEADER
+                    + "\"job0-id0\",\"true\",\"job0 row0\"\n\"job0-id1\",\"true\",\"job0 row1\"\n"
+                    + "\"job1-id0\",\"true\",\"job1 row0\"\n\"job1-id1\",\"true\",\"job1 row1\"\n"
+                    + "\"job2-id0\",\"true\",\"job2 row0\"\n\"job2-id1\",\"true\",\"job2 row1\"\n",
+                    read(successFile));
+            assertEquals("Name,ERROR\n\"bad row\",\"conversion failed\"\n"
+                    + "\"job0-failed\",\"INVALID\",\"job0 bad\"\n"
+                    + "\"job1-failed\",\"INVALID\",\"job1 bad\"\n"
+                    + "\"job2-failed\",\"INVALID\",\"job2 bad\"\n",
+                    read(errorFile));
+            for (BulkV2JobRunner.JobResults jobResults : results) {
+                assertFalse(jobResults.successFile.exists());
+                assertFalse(jobResults.errorFile.exists());
+            }
+        } finally {
+            successFile.delete();
+            errorFile.delete();
+        }
+    }
+
+    private static BulkV2JobRunner.JobResults jobResults(String jobId, int numRows) throws IOException {
+        StringBuilder successes = new StringBuilder(SUCCESS_HEADER);
+        for (int i = 0; i < numRows; i++) {
+            successes.append("\"").append(jobId).append("-id").append(i).append("\",\"true\",\"")
+                    .append(jobId).append(" row").append(i).append("\"\n");
+        }
+        // failure results are saved without their header row
+        String failures = "\"" + jobId + "-failed\",\"INVALID\",\"" + jobId + " bad\"\n";
+        File successFile = BulkV2JobRunner.createTempResultsFile("testJobSuccess");
+        File errorFile = BulkV2JobRunner.createTempResultsFile("testJobError");
+        IngestResultsTee successResults = new IngestResultsTee(null);
+        try (OutputStream out = new FileOutputStream(successFile)) {
+            successResults.copy(new ByteArrayInputStream(successes.toString().getBytes(StandardCharsets.UTF_8)), out, false);
+        }
+        write(errorFile, failures);
+        return new BulkV2JobRunner.JobResults(jobId, 0, successFile, successResults,
+                errorFile, new IngestResultsTee(IngestResultsTee.ERROR_COLUMN), new IngestResultsTee(null));
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
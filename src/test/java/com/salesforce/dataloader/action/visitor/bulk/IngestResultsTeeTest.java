@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IngestResultsTeeTest {
+
+    private static final String SUCCESS_RESULTS = "\"sf__Id\",\"sf__Created\",Name,Description\n"
+            + "\"001000000000001\",\"true\",\"Acme\",\"first line\nsecond line\"\n"
+            + "\"001000000000002\",\"true\",\"Quote \"\"Inc\"\"\",\"\"\n"
+            + "\"001000000000003\",\"true\",\"Comma, Ltd\",\"\"\n";
+
+    private static final String FAILED_RESULTS = "\"sf__Id\",\"sf__Error\",Name\n"
+            + "\"\",\"REQUIRED_FIELD_MISSING:Required fields are missing: [Name]:Name --\",\"\"\n"
+            + "\"\",\"STRING_TOO_LONG:Name: data value too large:Name --\",\"Very, very long\"\n"
+            + "\"\",\"REQUIRED_FIELD_MISSING:Required fields are missing: [Name]:Name --\",\"\"\n";
+
+    /** Serves the results in chunks of random size, like a server response read from the network */
+    private static class ChunkedStream extends InputStream {
+        private final byte[] content;
+        private final Random random = new Random(42);
+        private int pos = 0;
+
+        ChunkedStream(String content) {
+            this.content = content.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int read() {
+            return pos < content.length ? content[pos++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= content.length) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, 1 + random.nextInt(7)), content.length - pos);
+            System.arraycopy(content, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+
+    private static String copy(IngestResultsTee tee, InputStream in, boolean skipHeader) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tee.copy(in, out, skipHeader);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testResultsAreCopiedAndCounted() throws Exception {
+        IngestResultsTee tee = new IngestResultsTee(null);
+        String copied = copy(tee, new ChunkedStream(SUCCESS_RESULTS), false);
+
+        assertEquals(SUCCESS_RESULTS, copied);
+        assertEquals(3, tee.getNumRecords());
+        assertTrue(tee.getTally().isEmpty());
+    }
+
+    @Test
+    public void testHeaderIsSkippedWhenAppending() throws Exception {
+        IngestResultsTee tee = new IngestResultsTee(null);
+        String copied = copy(tee, new ChunkedStream(SUCCESS_RESULTS), true);
+
+        assertEquals(SUCCESS_RESULTS.substring(SUCCESS_RESULTS.indexOf('\n') + 1), copied);
+        assertEquals(3, tee.getNumRecords());
+    }
+
+    @Test
+    public void testErrorCodesAreTallied() throws Exception {
+        IngestResultsTee tee = new IngestResultsTee(IngestResultsTee.ERROR_COLUMN);
+        String copied = copy(tee, new ChunkedStream(FAILED_RESULTS), true);
+
+        assertEquals(FAILED_RESULTS.substring(FAILED_RESULTS.indexOf('\n') + 1), copied);
+        assertEquals(3, tee.getNumRecords());
+        Map<String, Long> tally = tee.getTally();
+        assertEquals(2, tally.size());
+        assertEquals(Long.valueOf(2), tally.get("REQUIRED_FIELD_MISSING"));
+        assertEquals(Long.valueOf(1), tally.get("STRING_TOO_LONG"));
+    }
+
+    @Test
+    public void testLastRecordWithoutLineBreak() throws Exception {
+        String results = "sf__Id,sf__Error\r\n\"\",\"DUPLICATE_VALUE:duplicate\"\r\n\"\",\"INVALID_FIELD:bad\"";
+        IngestResultsTee tee = new IngestResultsTee(IngestResultsTee.ERROR_COLUMN);
+        String copied = copy(tee, new ByteArrayInputStream(results.getBytes(StandardCharsets.UTF_8)), false);
+
+        assertEquals(results, copied);
+        assertEquals(2, tee.getNumRecords());
+        assertEquals(Long.valueOf(1), tee.getTally().get("DUPLICATE_VALUE"));
+        assertEquals(Long.valueOf(1), tee.getTally().get("INVALID_FIELD"));
+    }
+
+    @Test
+    public void testHeaderOnlyResults() throws Exception {
+        IngestResultsTee tee = new IngestResultsTee(IngestResultsTee.ERROR_COLUMN);
+        assertEquals("", copy(tee, new ChunkedStream("\"sf__Id\",\"sf__Error\",Name\n"), true));
+        assertEquals(0, tee.getNumRecords());
+
+        tee = new IngestResultsTee(null);
+        assertEquals("", copy(tee, new ChunkedStream(""), false));
+        assertEquals(0, tee.getNumRecords());
+    }
+
+    @Test
+    public void testLargeResults() throws Exception {
+        StringBuilder results = new StringBuilder("\"sf__Id\",\"sf__Created\",Name\n");
+        for (int i = 0; i < 100000; i++) {
+            results.append("\"001").append(i).append("\",\"true\",\"name ").append(i).append("\"\n");
+        }
+        IngestResultsTee tee = new IngestResultsTee(null);
+        String copied = copy(tee, new ByteArrayInputStream(results.toString().getBytes(StandardCharsets.UTF_8)), false);
+
+        assertEquals(results.toString(), copied);
+        assertEquals(100000, tee.getNumRecords());
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.sforce.async.AsyncApiException;
+import com.sforce.async.AsyncExceptionCode;
+
+import static org.junit.Assert.*;
+
+public class QueryResultChunkDownloaderTest {
+
+    private static List<QueryResultChunkDownloader.Chunk> chunks(int numBatches, int resultsPerBatch) {
+        List<QueryResultChunkDownloader.Chunk> chunks = new ArrayList<QueryResultChunkDownloader.Chunk>();
+        for (int b = 0; b < numBatches; b++) {
+            for (int r = 0; r < resultsPerBatch; r++) {
+                chunks.add(new QueryResultChunkDownloader.Chunk("job", "batch" + b, "result" + r));
+            }
+        }
+        return chunks;
+    }
+
+    // later chunks download faster than earlier ones
+    private static QueryResultChunkDownloader.ChunkSource slowFirstSource(final AtomicInteger inFlight,
+            final AtomicInteger maxInFlight) {
+        return chunk -> {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            try {
+                int batchNum = Integer.parseInt(chunk.batchId.substring("batch".length()));
+                Thread.sleep(Math.max(1, 30 - batchNum * 3));
+            } catch (InterruptedException e) {
+                // ignore
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return new ByteArrayInputStream((chunk.batchId + "/" + chunk.resultId).getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private static List<String> readAll(QueryResultChunkDownloader downloader) throws Exception {
+        List<String> contents = new ArrayList<String>();
+        InputStream chunk;
+        while ((chunk = downloader.nextChunk()) != null) {
+            try (InputStream in = chunk) {
+                contents.add(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return contents;
+    }
+
+    @Test
+    public void testOrderedModeKeepsChunkOrder() throws Exception {
+        List<QueryResultChunkDownloader.Chunk> chunks = chunks(8, 3);
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<String> contents;
+        try (QueryResultChunkDownloader downloader = new QueryResultChunkDownloader(chunks, 4, true,
+                slowFirstSource(new AtomicInteger(), maxInFlight))) {
+            contents = readAll(downloader);
+        }
+        assertEquals(chunks.size(), contents.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            assertEquals(chunks.get(i).batchId + "/" + chunks.get(i).resultId, contents.get(i));
+        }
+        assertTrue(maxInFlight.get() > 1);
+        assertTrue(maxInFlight.get() <= 4);
+    }
+
+    @Test
+    public void testUnorderedModeReturnsEveryChunk() throws Exception {
+        List<QueryResultChunkDownloader.Chunk> chunks = chunks(8, 3);
+        List<String> contents;
+        try (QueryResultChunkDownloader downloader = new QueryResultChunkDownloader(chunks, 4, false,
+                slowFirstSource(new AtomicInteger(), new AtomicInteger()))) {
+            contents = readAll(downloader);
+        }
+        Set<String> expected = new HashSet<String>();
+        for (QueryResultChunkDownloader.Chunk chunk : chunks) {
+            expected.add(chunk.batchId + "/" + chunk.resultId);
+        }
+        assertEquals(chunks.size(), contents.size());
+        assertEquals(expected, new HashSet<String>(contents));
+    }
+
+    @Test
+    public void testDownloadErrorIsRethrown() throws Exception {
+        List<QueryResultChunkDownloader.Chunk> chunks = chunks(4, 2);
+        QueryResultChunkDownloader.ChunkSource source = chunk -> {
+            if ("batch2".equals(chunk.batchId)) {
+                throw new AsyncApiException("download failed", AsyncExceptionCode.ClientInputError);
+            }
+            return new ByteArrayInputStream(new byte[0]);
+        };
+        int chunksRead = 0;
+        try (QueryResultChunkDownloader downloader = new QueryResultChunkDownloader(chunks, 2, true, source)) {
+            InputStream chunk;
+            while ((chunk = downloader.nextChunk()) != null) {
+                chunk.close();
+                chunksRead++;
+            }
+            fail("expected the download error to be rethrown");
+        } catch (AsyncApiException e) {
+            assertEquals("download failed", e.getExceptionMessage());
+        }
+        assertEquals(4, chunksRead);
+    }
+}
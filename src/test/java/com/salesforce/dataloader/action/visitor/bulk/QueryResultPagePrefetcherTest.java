@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.sforce.async.AsyncApiException;
+import com.sforce.async.AsyncExceptionCode;
+
+import static org.junit.Assert.*;
+
+public class QueryResultPagePrefetcherTest {
+
+    /** Serves numPages pages chained by locator, optionally failing on one of them */
+    private static class FakePageSource implements QueryResultPagePrefetcher.PageSource {
+        private final int numPages;
+        private final int failingPage;
+        private final List<String> requestedLocators = new ArrayList<String>();
+        private String nextLocator = "";
+
+        FakePageSource(int numPages, int failingPage) {
+            this.numPages = numPages;
+            this.failingPage = failingPage;
+        }
+
+        @Override
+        public InputStream getPage(String locator) throws AsyncApiException {
+            requestedLocators.add(locator);
+            int pageNum = locator.isEmpty() ? 0 : Integer.parseInt(locator.substring("locator".length()));
+            if (pageNum == failingPage) {
+                throw new AsyncApiException("page " + pageNum + " failed", AsyncExceptionCode.ClientInputError);
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            nextLocator = pageNum + 1 < numPages ? "locator" + (pageNum + 1) : "null";
+            return new ByteArrayInputStream(("Id\npage" + pageNum + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String getNextLocator() {
+            return nextLocator;
+        }
+    }
+
+    @Test
+    public void testPagesAreReturnedInOrder() throws Exception {
+        FakePageSource source = new FakePageSource(6, -1);
+        List<String> pages = new ArrayList<String>();
+        try (QueryResultPagePrefetcher prefetcher = new QueryResultPagePrefetcher(source, 2)) {
+            InputStream page;
+            while ((page = prefetcher.nextPage()) != null) {
+                try (InputStream in = page) {
+                    pages.add(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+            assertNull(prefetcher.nextPage());
+        }
+        assertEquals(6, pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            assertEquals("Id\npage" + i + "\n", pages.get(i));
+        }
+        assertEquals("", source.requestedLocators.get(0));
+        assertEquals("locator5", source.requestedLocators.get(5));
+    }
+
+    @Test
+    public void testDownloadErrorIsRethrownAfterEarlierPages() throws Exception {
+        FakePageSource source = new FakePageSource(6, 3);
+        int pagesRead = 0;
+        try (QueryResultPagePrefetcher prefetcher = new QueryResultPagePrefetcher(source, 2)) {
+            InputStream page;
+            while ((page = prefetcher.nextPage()) != null) {
+                page.close();
+                pagesRead++;
+            }
+            fail("expected the download error to be rethrown");
+        } catch (AsyncApiException e) {
+            assertEquals("page 3 failed", e.getExceptionMessage());
+        }
+        assertEquals(3, pagesRead);
+    }
+
+    @Test
+    public void testCloseBeforeAllPagesAreRead() throws IOException, AsyncApiException {
+        FakePageSource source = new FakePageSource(100, -1);
+        QueryResultPagePrefetcher prefetcher = new QueryResultPagePrefetcher(source, 1);
+        prefetcher.nextPage().close();
+        prefetcher.close();
+        assertTrue(source.requestedLocators.size() < 100);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor.bulk;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.salesforce.dataloader.model.TableHeader;
+import com.salesforce.dataloader.model.TableRow;
+
+import static org.junit.Assert.*;
+
+public class SourceRowSpillFileTest {
+    private File spillDir;
+
+    @Before
+    public void setUp() throws IOException {
+        spillDir = Files.createTempDirectory("sourceRowSpillFileTest").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (File f : spillDir.listFiles()) {
+            f.delete();
+        }
+        spillDir.delete();
+    }
+
+    @Test
+    public void testRowsAreReadBackInOrder() throws IOException {
+        TableHeader header = new TableHeader(Arrays.asList("Id", "Name", "Description", "Status", "Error"));
+        List<TableRow> expected = new ArrayList<TableRow>();
+        SourceRowSpillFile spill = new SourceRowSpillFile(spillDir);
+        for (int i = 0; i < 1000; i++) {
+            TableRow row = new TableRow(header);
+            row.put("Name", "name " + i);
+            row.put("Description", i % 3 == 0 ? null : "\"quoted\", multi\nline é中 " + i);
+            expected.add(row);
+            spill.append(row);
+        }
+        assertEquals(1000, spill.size());
+        assertEquals(1, spillDir.listFiles().length);
+
+        List<TableRow> actual = new ArrayList<TableRow>();
+        actual.addAll(spill.readRows(1));
+        actual.addAll(spill.readRows(499));
+        actual.addAll(spill.readRows(1000));
+        assertEquals(0, spill.readRows(10).size());
+        assertRowsEqual(expected, actual);
+
+        spill.close();
+        assertEquals(0, spillDir.listFiles().length);
+    }
+
+    @Test
+    public void testNonStringValuesAndMultipleHeaders() throws IOException {
+        TableHeader header1 = new TableHeader(Arrays.asList("Amount", "CreatedDate"));
+        TableHeader header2 = new TableHeader(Arrays.asList("Name"));
+        SourceRowSpillFile spill = new SourceRowSpillFile(spillDir);
+
+        TableRow row1 = new TableRow(header1);
+        row1.put("Amount", new BigDecimal("1234.50"));
+        row1.put("CreatedDate", new Timestamp(1700000000000L));
+        TableRow row2 = new TableRow(header2);
+        row2.put("Name", "Acme");
+        TableRow row3 = new TableRow(header1);
+        row3.put("Amount", Integer.valueOf(7));
+        spill.append(row1);
+        spill.append(row2);
+        spill.append(row3);
+
+        List<TableRow> actual = spill.readRows(3);
+        assertRowsEqual(Arrays.asList(row1, row2, row3), actual);
+        assertSame(header1, actual.get(0).getHeader());
+        assertSame(header2, actual.get(1).getHeader());
+        assertTrue(actual.get(0).get("Amount") instanceof BigDecimal);
+        assertTrue(actual.get(0).get("CreatedDate") instanceof Timestamp);
+        spill.close();
+    }
+
+    private static void assertRowsEqual(List<TableRow> expected, List<TableRow> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            for (String column : expected.get(i).getHeader().getColumns()) {
+                assertEquals("row " + i + " column " + column,
+                        expected.get(i).get(column), actual.get(i).get(column));
+            }
+        }
+    }
+}
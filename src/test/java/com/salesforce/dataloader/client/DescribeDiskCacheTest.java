@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sforce.soap.partner.DescribeGlobalResult;
+import com.sforce.soap.partner.DescribeGlobalSObjectResult;
+import com.sforce.soap.partner.DescribeSObjectResult;
+import com.sforce.soap.partner.Field;
+import com.sforce.soap.partner.FieldType;
+
+public class DescribeDiskCacheTest {
+
+    private static final long TTL_MILLIS = 60 * 60 * 1000L;
+    private File cacheDir;
+
+    @Before
+    public void createCacheDir() throws IOException {
+        cacheDir = Files.createTempDirectory("describeCacheTest").toFile();
+    }
+
+    @After
+    public void deleteCacheDir() throws IOException {
+        if (cacheDir != null) {
+            Files.walk(cacheDir.toPath()).sorted(Comparator.reverseOrder()).map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void testSObjectDescribeRoundTrip() {
+        DescribeDiskCache cache = new DescribeDiskCache(cacheDir, "org1|user1", TTL_MILLIS);
+        assertNull(cache.getSObjectDescribe("Account"));
+
+        cache.putSObjectDescribe(newAccountDescribe());
+        DescribeSObjectResult cached = cache.getSObjectDescribe("account");
+        assertNotNull(cached);
+        assertEquals("Account", cached.getName());
+        assertEquals(1, cached.getFields().length);
+        assertEquals("Name", cached.getFields()[0].getName());
+        assertEquals(FieldType.string, cached.getFields()[0].getType());
+    }
+
+    @Test
+    public void testGlobalDescribeRoundTrip() {
+        DescribeDiskCache cache = new DescribeDiskCache(cacheDir, "org1|user1", TTL_MILLIS);
+        DescribeGlobalSObjectResult sobject = new DescribeGlobalSObjectResult();
+        sobject.setName("Contact");
+        sobject.setLabel("Contact");
+        DescribeGlobalResult global = new DescribeGlobalResult();
+        global.setSobjects(new DescribeGlobalSObjectResult[] {sobject});
+        cache.putGlobalDescribe(global);
+
+        DescribeGlobalResult cached = cache.getGlobalDescribe();
+        assertNotNull(cached);
+        assertEquals(1, cached.getSobjects().length);
+        assertEquals("Contact", cached.getSobjects()[0].getName());
+    }
+
+    @Test
+    public void testExpiredDescribeIsIgnored() throws IOException {
+        DescribeDiskCache cache = new DescribeDiskCache(cacheDir, "org1|user1", TTL_MILLIS);
+        cache.putSObjectDescribe(newAccountDescribe());
+        for (File file : listCachedFiles()) {
+            file.setLastModified(System.currentTimeMillis() - 2 * TTL_MILLIS);
+        }
+        assertNull(cache.getSObjectDescribe("Account"));
+    }
+
+    @Test
+    public void testScopesAreIsolated() {
+        new DescribeDiskCache(cacheDir, "org1|user1", TTL_MILLIS).putSObjectDescribe(newAccountDescribe());
+        assertNull(new DescribeDiskCache(cacheDir, "org1|user2", TTL_MILLIS).getSObjectDescribe("Account"));
+        assertNotNull(new DescribeDiskCache(cacheDir, "org1|user1", TTL_MILLIS).getSObjectDescribe("Account"));
+    }
+
+    @Test
+    public void testCorruptDescribeIsIgnored() throws IOException {
+        DescribeDiskCache cache = new DescribeDiskCache(cacheDir, "org1|user1", TTL_MILLIS);
+        cache.putSObjectDescribe(newAccountDescribe());
+        for (File file : listCachedFiles()) {
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write("<result><name>Acc".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        assertNull(cache.getSObjectDescribe("Account"));
+    }
+
+    private File[] listCachedFiles() throws IOException {
+        File[] files = Files.walk(cacheDir.toPath()).filter(Files::isRegularFile).map(Path::toFile).toArray(File[]::new);
+        assertEquals(1, files.length);
+        return files;
+    }
+
+    private static DescribeSObjectResult newAccountDescribe() {
+        Field field = new Field();
+        field.setName("Name");
+        field.setLabel("Account Name");
+        field.setType(FieldType.string);
+        DescribeSObjectResult describe = new DescribeSObjectResult();
+        describe.setName("Account");
+        describe.setLabel("Account");
+        describe.setFields(new Field[] {field});
+        return describe;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.sforce.soap.partner.DescribeSObjectResult;
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.ws.ConnectionException;
+
+public class SObjectMetaDataClientTest {
+
+    @Test
+    public void testParentDescribesAreBatchedAndDeduplicated() throws ConnectionException {
+        Map<String, DescribeSObjectResult> serverDescribes = new HashMap<String, DescribeSObjectResult>();
+        List<String> parentNames = new ArrayList<String>();
+        for (int i = 0; i < 250; i++) {
+            String name = "Parent" + i + "__c";
+            DescribeSObjectResult describe = new DescribeSObjectResult();
+            describe.setName(name);
+            serverDescribes.put(name.toLowerCase(), describe);
+            parentNames.add(name);
+            // the same parent referenced by several lookups, with different case
+            parentNames.add(name.toUpperCase());
+        }
+        PartnerConnection connection = mockConnection(serverDescribes);
+
+        Map<String, DescribeSObjectResult> results = SObjectMetaDataClient.describeSObjectsInBatches(parentNames,
+                names -> connection.describeSObjects(names));
+
+        ArgumentCaptor<String[]> requested = ArgumentCaptor.forClass(String[].class);
+        verify(connection, times(3)).describeSObjects(requested.capture());
+        int requestedCount = 0;
+        for (String[] names : requested.getAllValues()) {
+            assertTrue(names.length <= SObjectMetaDataClient.MAX_SOBJECTS_PER_DESCRIBE);
+            requestedCount += names.length;
+        }
+        assertEquals(250, requestedCount);
+        assertEquals(250, results.size());
+        for (String name : parentNames) {
+            assertSame(serverDescribes.get(name.toLowerCase()), results.get(name));
+        }
+    }
+
+    @Test
+    public void testNoCallWithoutParents() throws ConnectionException {
+        PartnerConnection connection = mockConnection(Collections.emptyMap());
+        Map<String, DescribeSObjectResult> results = SObjectMetaDataClient.describeSObjectsInBatches(
+                Collections.emptyList(), names -> connection.describeSObjects(names));
+        assertTrue(results.isEmpty());
+        verify(connection, times(0)).describeSObjects(any());
+    }
+
+    private static PartnerConnection mockConnection(Map<String, DescribeSObjectResult> serverDescribes) throws ConnectionException {
+        PartnerConnection connection = mock(PartnerConnection.class);
+        when(connection.describeSObjects(any())).thenAnswer(invocation -> {
+            String[] names = invocation.getArgument(0);
+            DescribeSObjectResult[] describes = new DescribeSObjectResult[names.length];
+            for (int i = 0; i < names.length; i++) {
+                describes[i] = serverDescribes.get(names[i].toLowerCase());
+            }
+            return describes;
+        });
+        return connection;
+    }
+}
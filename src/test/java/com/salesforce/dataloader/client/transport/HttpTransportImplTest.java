@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.client.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.salesforce.dataloader.ConfigTestBase;
+import com.salesforce.dataloader.config.AppConfig;
+import com.sforce.ws.ConnectorConfig;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.*;
+
+public class HttpTransportImplTest extends ConfigTestBase {
+    private static final int LARGE_BODY_LINES = 50000;
+
+    private HttpServer server;
+    private String baseUrl;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> expectHeaders = new ConcurrentHashMap<String, String>();
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/large", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(getLargeBody());
+            }
+        });
+        server.createContext("/small", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = "small".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/gzip", exchange -> {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzipOut = new GZIPOutputStream(compressed)) {
+                gzipOut.write(getLargeBody());
+            }
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, compressed.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                compressed.writeTo(out);
+            }
+        });
+        server.createContext("/upload", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String expect = exchange.getRequestHeaders().getFirst("Expect");
+            expectHeaders.put(body, expect == null ? "" : expect);
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        HttpTransportImpl.closeHttpClient();
+    }
+
+    @After
+    public void stopServer() {
+        HttpTransportImpl.closeHttpClient();
+        server.stop(0);
+    }
+
+    @Test
+    public void testLargeResponseIsStreamed() throws Exception {
+        try (InputStream in = httpGet("/large")) {
+            assertFalse("large response should not be fully buffered",
+                    in instanceof java.io.ByteArrayInputStream);
+            assertArrayEquals(getLargeBody(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testGzipResponseIsInflated() throws Exception {
+        try (InputStream in = httpGet("/gzip")) {
+            assertArrayEquals(getLargeBody(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testConnectionIsReusedAcrossRequests() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            try (InputStream in = httpGet(i % 2 == 0 ? "/small" : "/large")) {
+                in.readAllBytes();
+            }
+        }
+        assertEquals("keep-alive connection should be reused", 1, clientPorts.size());
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(() -> {
+                    try (InputStream in = httpGet("/large")) {
+                        return in.readAllBytes();
+                    }
+                }));
+            }
+            byte[] expected = getLargeBody();
+            for (Future<byte[]> result : results) {
+                assertArrayEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue("connections should come from a bounded pool", clientPorts.size() <= 10);
+    }
+
+    @Test
+    public void testRequestFailsWhenPoolIsExhausted() throws Exception {
+        AppConfig appConfig = getController().getAppConfig();
+        appConfig.setValue(AppConfig.PROP_HTTP_MAX_CONNECTIONS_PER_ROUTE, 1);
+        appConfig.setValue(AppConfig.PROP_HTTP_CONNECTION_REQUEST_TIMEOUT_SECS, 1);
+        HttpTransportImpl.closeHttpClient();
+        try {
+            // holds the only pooled connection until it is closed
+            InputStream unread = httpGet("/large");
+            long start = System.currentTimeMillis();
+            try {
+                httpGet("/small");
+                fail("expected the request to time out waiting for a connection");
+            } catch (IOException e) {
+                assertTrue(System.currentTimeMillis() - start < 30000);
+            }
+            unread.close();
+            try (InputStream in = httpGet("/small")) {
+                assertEquals("small", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        } finally {
+            appConfig.setValue(AppConfig.PROP_HTTP_MAX_CONNECTIONS_PER_ROUTE, AppConfig.DEFAULT_HTTP_MAX_CONNECTIONS_PER_ROUTE);
+            appConfig.setValue(AppConfig.PROP_HTTP_CONNECTION_REQUEST_TIMEOUT_SECS, AppConfig.DEFAULT_HTTP_CONNECTION_REQUEST_TIMEOUT_SECS);
+        }
+    }
+
+    @Test
+    public void testConfigChangeDoesNotAbortResponseInFlight() throws Exception {
+        try (InputStream in = httpGet("/large")) {
+            ConnectorConfig proxyConfig = new ConnectorConfig();
+            proxyConfig.setProxy("127.0.0.1", 9);
+            HttpTransportImpl.getInstance().setConfig(proxyConfig);
+            assertArrayEquals(getLargeBody(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testExpectContinueFollowsRequestEntity() throws Exception {
+        ConnectorConfig sharedConfig = new ConnectorConfig();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<Future<?>>();
+            for (int i = 0; i < 40; i++) {
+                final String body = (i % 2 == 0 ? "streamed" : "buffered") + i;
+                results.add(executor.submit(() -> {
+                    HttpTransportImpl transport = HttpTransportImpl.getInstance();
+                    transport.setConfig(sharedConfig);
+                    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                    if (body.startsWith("streamed")) {
+                        transport.connect(baseUrl + "/upload", null, false, HttpTransportInterface.SupportedHttpMethodType.POST,
+                                () -> new ByteArrayInputStream(bytes), "text/plain");
+                    } else {
+                        transport.connect(baseUrl + "/upload", null, false).write(bytes);
+                    }
+                    transport.getContent().close();
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(40, expectHeaders.size());
+        for (Map.Entry<String, String> entry : expectHeaders.entrySet()) {
+            String expected = entry.getKey().startsWith("streamed") ? "100-continue" : "";
+            assertEquals(entry.getKey(), expected, entry.getValue());
+        }
+    }
+
+    private InputStream httpGet(String path) throws Exception {
+        HttpTransportImpl transport = HttpTransportImpl.getInstance();
+        transport.setConfig(new ConnectorConfig());
+        InputStream in = transport.httpGet(baseUrl + path);
+        assertTrue(transport.isSuccessful());
+        return in;
+    }
+
+    private static byte[] getLargeBody() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < LARGE_BODY_LINES; i++) {
+            body.append("\"001000000000").append(i).append("\",\"Account ").append(i).append("\"\n");
+        }
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
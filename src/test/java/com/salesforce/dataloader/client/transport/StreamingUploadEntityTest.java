@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.client.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.*;
+
+public class StreamingUploadEntityTest {
+    private static final int BODY_LINES = 50000;
+    private static final ContentType CSV = ContentType.create("text/csv");
+
+    private HttpServer server;
+    private String uploadUrl;
+    private CloseableHttpClient httpClient;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger numRequestsToDrop = new AtomicInteger();
+    private final AtomicReference<byte[]> receivedBody = new AtomicReference<byte[]>();
+    private final AtomicReference<String> receivedTransferEncoding = new AtomicReference<String>();
+    private final AtomicReference<String> receivedContentEncoding = new AtomicReference<String>();
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/upload", exchange -> {
+            requestCount.incrementAndGet();
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if (numRequestsToDrop.getAndDecrement() > 0) {
+                // drop the connection without a response
+                exchange.close();
+                return;
+            }
+            receivedBody.set(body);
+            receivedTransferEncoding.set(exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+            receivedContentEncoding.set(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+        });
+        server.start();
+        uploadUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/upload";
+        // resend requests dropped by the server as long as their entity allows it
+        httpClient = HttpClientBuilder.create()
+                .setRetryHandler((exception, executionCount, context) -> executionCount <= 3)
+                .build();
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testBodyIsSentChunked() throws Exception {
+        assertEquals(201, put(new StreamingUploadEntity(() -> new ByteArrayInputStream(getBody()), CSV, false)));
+        assertArrayEquals(getBody(), receivedBody.get());
+        assertEquals("chunked", receivedTransferEncoding.get());
+        assertNull(receivedContentEncoding.get());
+    }
+
+    @Test
+    public void testBodyIsCompressed() throws Exception {
+        assertEquals(201, put(new StreamingUploadEntity(() -> new ByteArrayInputStream(getBody()), CSV, true)));
+        assertEquals("gzip", receivedContentEncoding.get());
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(receivedBody.get()))) {
+            assertArrayEquals(getBody(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testSourceIsReopenedOnRetry() throws Exception {
+        final AtomicInteger numOpens = new AtomicInteger();
+        numRequestsToDrop.set(2);
+        assertEquals(201, put(new StreamingUploadEntity(() -> {
+            numOpens.incrementAndGet();
+            return new ByteArrayInputStream(getBody());
+        }, CSV, true)));
+        assertEquals(3, requestCount.get());
+        assertEquals(3, numOpens.get());
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(receivedBody.get()))) {
+            assertArrayEquals(getBody(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testOneShotEntityIsNotRetried() throws Exception {
+        numRequestsToDrop.set(1);
+        StreamingUploadEntity entity = StreamingUploadEntity.oneShot(new ByteArrayInputStream(getBody()), CSV, false);
+        assertFalse(entity.isRepeatable());
+        try {
+            put(entity);
+            fail("a request with a one-shot entity should not be resent");
+        } catch (ClientProtocolException e) {
+            // expected
+        }
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    public void testWriteToIsRepeatable() throws Exception {
+        StreamingUploadEntity entity = new StreamingUploadEntity(() -> new ByteArrayInputStream(getBody()), CSV, false);
+        assertTrue(entity.isRepeatable());
+        assertTrue(entity.isChunked());
+        assertEquals(-1, entity.getContentLength());
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            entity.writeTo(out);
+            assertArrayEquals(getBody(), out.toByteArray());
+        }
+    }
+
+    @Test
+    public void testLargeBodyIsStreamed() throws Exception {
+        // the body is generated while it is sent, so it is never held in memory as a whole
+        final long bodySize = 64L * 1024 * 1024;
+        server.removeContext("/upload");
+        final AtomicReference<Long> receivedSize = new AtomicReference<Long>();
+        server.createContext("/upload", exchange -> {
+            receivedSize.set(exchange.getRequestBody().transferTo(OutputStream.nullOutputStream()));
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+        });
+        assertEquals(201, put(new StreamingUploadEntity(() -> new GeneratedInputStream(bodySize), CSV, false)));
+        assertEquals(Long.valueOf(bodySize), receivedSize.get());
+    }
+
+    private int put(StreamingUploadEntity entity) throws IOException {
+        HttpPut put = new HttpPut(uploadUrl);
+        put.setEntity(entity);
+        try (CloseableHttpResponse response = httpClient.execute(put)) {
+            EntityUtils.consume(response.getEntity());
+            return response.getStatusLine().getStatusCode();
+        }
+    }
+
+    private static byte[] getBody() {
+        StringBuilder body = new StringBuilder("Id,Name\n");
+        for (int i = 0; i < BODY_LINES; i++) {
+            body.append("\"001000000000").append(i).append("\",\"Account ").append(i).append("\"\n");
+        }
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class GeneratedInputStream extends InputStream {
+        private long remaining;
+
+        GeneratedInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+            this.remaining--;
+            return 'a';
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+            int n = (int) Math.min(len, this.remaining);
+            Arrays.fill(b, off, off + n, (byte) 'a');
+            this.remaining -= n;
+            return n;
+        }
+    }
+}
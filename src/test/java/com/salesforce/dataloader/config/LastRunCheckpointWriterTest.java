@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LastRunCheckpointWriterTest {
+
+    private static final String LAST_RUN_FILE = "test_lastRun.properties";
+    private static final int BATCH_ROWS = 200;
+
+    private File lastRunDir;
+    private final AtomicLong clock = new AtomicLong(1000000);
+
+    @Before
+    public void setUp() throws IOException {
+        lastRunDir = Files.createTempDirectory("lastRun").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = lastRunDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        lastRunDir.delete();
+    }
+
+    /** Loads the lastRun file as a resumed load would and returns the row it resumes at */
+    private int getResumeRow() throws IOException {
+        LastRunProperties saved = new LastRunProperties(LAST_RUN_FILE, lastRunDir.getAbsolutePath(), true);
+        saved.load();
+        return Integer.parseInt(saved.getProperty(LastRunProperties.LAST_LOAD_BATCH_ROW, "0"));
+    }
+
+    /**
+     * Loads batches up to the given row and stops without flushing, as if the process crashed.
+     * The writers of the tests are not flushed by a shutdown hook.
+     */
+    private void loadUntilCrash(LastRunCheckpointWriter writer, LastRunProperties lastRun, int crashAtRow,
+            long millisPerBatch) throws IOException {
+        for (int row = BATCH_ROWS; row <= crashAtRow; row += BATCH_ROWS) {
+            clock.addAndGet(millisPerBatch);
+            lastRun.setProperty(LastRunProperties.LAST_LOAD_BATCH_ROW, Integer.toString(row));
+            writer.checkpoint(BATCH_ROWS);
+        }
+    }
+
+    @Test
+    public void testEveryCheckpointIsSavedByDefault() throws Exception {
+        LastRunProperties lastRun = new LastRunProperties(LAST_RUN_FILE, lastRunDir.getAbsolutePath(), true);
+        LastRunCheckpointWriter writer = new LastRunCheckpointWriter(lastRun, 0, 0, false, clock::get, false);
+
+        loadUntilCrash(writer, lastRun, 1400, 0);
+
+        assertFalse(writer.isSavePending());
+        assertEquals(1400, getResumeRow());
+    }
+
+    @Test
+    public void testCrashBetweenRowIntervalFlushes() throws Exception {
+        for (int crashAtRow = BATCH_ROWS; crashAtRow <= 5000; crashAtRow += BATCH_ROWS) {
+            tearDown();
+            setUp();
+            LastRunProperties lastRun = new LastRunProperties(LAST_RUN_FILE, lastRunDir.getAbsolutePath(), true);
+            LastRunCheckpointWriter writer = new LastRunCheckpointWriter(lastRun, 1000, 0, false, clock::get, false);
+
+            loadUntilCrash(writer, lastRun, crashAtRow, 0);
+
+            // a resumed load repeats at most one interval of rows and never skips a row
+            int resumeRow = getResumeRow();
+            assertTrue(resumeRow <= crashAtRow);
+            assertTrue(crashAtRow - resumeRow < 1000);
+            assertEquals(crashAtRow / 1000 * 1000, resumeRow);
+        }
+    }
+
+    @Test
+    public void testCrashBetweenTimeIntervalFlushes() throws Exception {
+        LastRunProperties lastRun = new LastRunProperties(LAST_RUN_FILE, lastRunDir.getAbsolutePath(), true);
+        LastRunCheckpointWriter writer = new LastRunCheckpointWriter(lastRun, 0, 5000, false, clock::get, false);
+
+        // a batch every 2 seconds saves every third batch
+        loadUntilCrash(writer, lastRun, 2000, 2000);
+
+        assertTrue(writer.isSavePending());
+        assertEquals(1800, getResumeRow());
+    }
+
+    @Test
+    public void testFlushSavesPendingCheckpoint() throws Exception {
+        LastRunProperties lastRun = new LastRunProperties(LAST_RUN_FILE, lastRunDir.getAbsolutePath(), true);
+        LastRunCheckpointWriter writer = new LastRunCheckpointWriter(lastRun, 1000, 60000, true, clock::get, false);
+
+        loadUntilCrash(writer, lastRun, 1400, 0);
+        assertEquals(1000, getResumeRow());
+        writer.flush();
+
+        assertFalse(writer.isSavePending());
+        assertEquals(1400, getResumeRow());
+    }
+
+    @Test
+    public void testCrashWhileSavingKeepsPreviousCheckpoint() throws Exception {
+        LastRunProperties lastRun = new LastRunProperties(LAST_RUN_FILE, lastRunDir.getAbsolutePath(), true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void store(OutputStream out, String comments) throws IOException {
+                if ("600".equals(getProperty(LastRunProperties.LAST_LOAD_BATCH_ROW))) {
+                    out.write("#Last Run Config\nprocess.lastLoad".getBytes(StandardCharsets.ISO_8859_1));
+                    throw new IOException("disk full");
+                }
+                super.store(out, comments);
+            }
+        };
+        LastRunCheckpointWriter writer = new LastRunCheckpointWriter(lastRun, 0, 0, false, clock::get, false);
+
+        try {
+            loadUntilCrash(writer, lastRun, 600, 0);
+            fail("expected the save of row 600 to fail");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+
+        assertEquals(400, getResumeRow());
+    }
+
+    @Test
+    public void testSaveReplacesLastRunFile() throws Exception {
+        LastRunProperties lastRun = new LastRunProperties(LAST_RUN_FILE, lastRunDir.getAbsolutePath(), true);
+        lastRun.setProperty(LastRunProperties.LAST_LOAD_BATCH_ROW, "200");
+        lastRun.save();
+        lastRun.setProperty(LastRunProperties.LAST_LOAD_BATCH_ROW, "400");
+        lastRun.save(true);
+
+        assertEquals(400, getResumeRow());
+        String[] files = lastRunDir.list();
+        assertEquals(1, files.length);
+        assertEquals(LAST_RUN_FILE, files[0]);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.model.RowInterface;
+import com.salesforce.dataloader.model.TableHeader;
+import com.salesforce.dataloader.model.TableRow;
+
+import static org.junit.Assert.*;
+
+public class AsyncDataWriterTest {
+
+    private static final TableHeader HEADER = new TableHeader(Arrays.asList("Id", "STATUS"));
+
+    /** Keeps the written rows in memory */
+    private static class ListWriter implements DataWriterInterface {
+        final List<RowInterface> rows = Collections.synchronizedList(new ArrayList<RowInterface>());
+        final List<String> writerThreads = Collections.synchronizedList(new ArrayList<String>());
+        List<String> columnNames = new ArrayList<String>();
+        boolean closed = false;
+        int failAtRow = -1;
+
+        @Override
+        public void open() {
+            closed = false;
+        }
+
+        @Override
+        public void checkConnection() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public List<String> getColumnNames() {
+            return columnNames;
+        }
+
+        @Override
+        public int getCurrentRowNumber() {
+            return rows.size();
+        }
+
+        @Override
+        public void setColumnNames(List<String> columnNames) throws DataAccessObjectInitializationException {
+            this.columnNames = columnNames;
+        }
+
+        @Override
+        public boolean writeRow(RowInterface inputRow) throws DataAccessObjectException {
+            if (rows.size() == failAtRow) {
+                throw new DataAccessObjectException("disk full");
+            }
+            writerThreads.add(Thread.currentThread().getName());
+            rows.add(inputRow);
+            return true;
+        }
+
+        @Override
+        public boolean writeRowList(List<? extends RowInterface> inputRowList) throws DataAccessObjectException {
+            for (RowInterface row : inputRowList) {
+                writeRow(row);
+            }
+            return true;
+        }
+    }
+
+    @Test
+    public void testRowsAreWrittenInOrderOnWriterThread() throws Exception {
+        ListWriter listWriter = new ListWriter();
+        AsyncDataWriter writer = new AsyncDataWriter(listWriter, "statusWriter", 16);
+        writer.open();
+        writer.setColumnNames(HEADER.getColumns());
+        List<TableRow> expected = new ArrayList<TableRow>();
+        for (int i = 0; i < 1000; i++) {
+            TableRow row = row(i);
+            expected.add(row);
+            writer.writeRow(row);
+        }
+        assertEquals(1000, writer.getCurrentRowNumber());
+        writer.close();
+        assertTrue(listWriter.closed);
+        assertEquals(expected, listWriter.rows);
+        assertEquals(HEADER.getColumns(), writer.getColumnNames());
+        for (String threadName : listWriter.writerThreads) {
+            assertEquals("statusWriter", threadName);
+        }
+    }
+
+    @Test
+    public void testAwaitWritten() throws Exception {
+        ListWriter listWriter = new ListWriter();
+        AsyncDataWriter writer = new AsyncDataWriter(listWriter, "statusWriter", 4);
+        writer.open();
+        for (int i = 0; i < 50; i++) {
+            writer.writeRow(row(i));
+        }
+        writer.awaitWritten();
+        assertEquals(50, listWriter.rows.size());
+        writer.close();
+    }
+
+    @Test
+    public void testWriteErrorIsRethrown() throws Exception {
+        ListWriter listWriter = new ListWriter();
+        listWriter.failAtRow = 10;
+        AsyncDataWriter writer = new AsyncDataWriter(listWriter, "statusWriter", 4);
+        writer.open();
+        try {
+            for (int i = 0; i < 20; i++) {
+                writer.writeRow(row(i));
+            }
+            writer.awaitWritten();
+            fail("expected the write error to be rethrown");
+        } catch (DataAccessObjectException e) {
+            assertEquals("disk full", e.getMessage());
+        } finally {
+            writer.close();
+        }
+        assertEquals(10, listWriter.rows.size());
+    }
+
+    @Test
+    public void testReopenAfterClose() throws Exception {
+        ListWriter listWriter = new ListWriter();
+        AsyncDataWriter writer = new AsyncDataWriter(listWriter, "statusWriter", 4);
+        writer.open();
+        writer.writeRow(row(0));
+        writer.close();
+        writer.open();
+        assertEquals(0, writer.getCurrentRowNumber());
+        writer.writeRow(row(1));
+        writer.close();
+        assertEquals(2, listWriter.rows.size());
+    }
+
+    private static TableRow row(int i) {
+        TableRow row = new TableRow(HEADER);
+        row.put("Id", "001" + i);
+        row.put("STATUS", "Item Created");
+        return row;
+    }
+}
@@ -26,7 +26,9 @@
 package com.salesforce.dataloader.dao;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
+import java.util.Random;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -218,6 +220,86 @@ public class RichTextHTMLEncodingTest extends ConfigTestBase {
     }
 
 
+    // values paired with the output of the split() and replaceAll() based implementation
+    private static final String[][] GOLDEN_OUTPUTS = {
+            {"", ""},
+            {"plain text", "plain text"},
+            {"two  spaces", "two&nbsp;&nbsp;spaces"},
+            {"  leading", "&nbsp;&nbsp;leading"},
+            {"trailing  ", "trailing&nbsp;&nbsp;"},
+            {"tab\there", "tab\there"},
+            {"a\nb", "a<br/>b"},
+            {"a\r\nb", "a<br/>b"},
+            {"a\rb", "a<br/>b"},
+            {"line\n\nbreaks\r\n", "line<br/><br/>breaks<br/>"},
+            {"<p>para</p>", "<p>para</p>"},
+            {"text<br>", "text<br>"},
+            {"<b></b>", "<b></b>"},
+            {"<b>", "<b>"},
+            {"text<b>\nmore", "text<b> more"},
+            {"a\n<b>b</b>", "a <b>b</b>"},
+            {"<p>a  b</p>\n<p>c</p>", "<p>a&nbsp;&nbsp;b</p> <p>c</p>"},
+            {"x < y && y > z", "x &lt; y &amp;&amp; y &gt; z"},
+            {"Tom & Jerry &amp; \"friends\"", "Tom &amp; Jerry &amp; &quot;friends&quot;"},
+            {"caf\u00e9 na\u00efve \u00a0\u00a0 \u3000x", "caf&eacute; na&iuml;ve&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;x"},
+            {"\u2666 \u03b1\u03b2 \ud83c\udf08  end", "&diams; &alpha;&beta; \ud83c\udf08&nbsp;&nbsp;end"},
+            {"&#x3000;&#x3000;", "&nbsp;&nbsp;"},
+            {"<a href=\"x>y\">link</a>  tail", "<a href=\"x>y\">link</a>&nbsp;&nbsp;tail"},
+            {"<span style='a>b'>  </span>", "<span style='a>b'>&nbsp;&nbsp;</span>"},
+            {"1 < 2", "1 &lt; 2"},
+            {"<1>", "&lt;1&gt;"},
+            {"&lt;p&gt;", "&lt;p&gt;"},
+            {"a\u00a0b", "a\u00a0b"},
+            {" \u00a0 ", "&nbsp;&nbsp;&nbsp;"},
+            {"e\u0301 combining", "e\u0301 combining"}
+    };
+
+    private static final String[][] GOLDEN_OUTPUTS_FOR_CUSTOM_REGEX = {
+            {"^|<[^>]*>", "<b>a  b</b>x\ny", "&lt;b&gt;a&nbsp;&nbsp;bx y</b>"},
+            {"\\[[^\\]]*\\]", "[b]1 < 2[/b]\n", "[b]1 &lt; 2[/b] "},
+            {"\\[[^\\]]*\\]", "x\n[b]", "x&lt;br/&gt;[b]"}
+    };
+
+    @Test
+    public void testGoldenOutputs() throws Exception {
+        for (String[] golden : GOLDEN_OUTPUTS) {
+            assertEquals("Incorrect conversion of " + golden[0],
+                    golden[1], DAOLoadVisitor.preserveWhitespaceInRichText(golden[0], regex));
+        }
+    }
+
+    @Test
+    public void testGoldenOutputsForCustomRegex() throws Exception {
+        for (String[] golden : GOLDEN_OUTPUTS_FOR_CUSTOM_REGEX) {
+            assertEquals("Incorrect conversion of " + golden[1] + " with regex " + golden[0],
+                    golden[2], DAOLoadVisitor.preserveWhitespaceInRichText(golden[1], golden[0]));
+        }
+    }
+
+    @Test
+    public void testTagScanningMatchesDefaultRegex() throws Exception {
+        // a separately compiled default regex is matched with the regex instead of being scanned
+        Pattern compiledRegex = Pattern.compile(regex);
+        String[] tokens = {"<", ">", "/", "\"", "'", " ", "  ", "a", "B", "1", "\n", "\r\n", "&amp;", "&", "\u00a0", "\u00e9", "<p>", "</p>"};
+        Random random = new Random(20241017);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder origText = new StringBuilder();
+            int length = random.nextInt(16);
+            for (int j = 0; j < length; j++) {
+                origText.append(tokens[random.nextInt(tokens.length)]);
+            }
+            assertEquals("Incorrect conversion of " + origText,
+                    DAOLoadVisitor.preserveWhitespaceInRichText(origText.toString(), compiledRegex),
+                    DAOLoadVisitor.preserveWhitespaceInRichText(origText.toString(), regex));
+        }
+    }
+
+    @Test
+    public void testPlainTextIsNotCopied() throws Exception {
+        String origText = "plain text with single spaces, digits 123 and punctuation!";
+        assertSame(origText, DAOLoadVisitor.preserveWhitespaceInRichText(origText, regex));
+    }
+
     private static final String HTML_WHITESPACE_ENCODING = "&nbsp;";
     private static final Pattern HTML_WHITESPACE_PATTERN = Pattern.compile(HTML_WHITESPACE_ENCODING);
 
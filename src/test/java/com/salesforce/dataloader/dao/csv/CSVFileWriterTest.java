@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.csv;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.dataloader.config.AppConfig;
+import com.salesforce.dataloader.model.TableHeader;
+import com.salesforce.dataloader.model.TableRow;
+import com.salesforce.dataloader.util.AppUtil;
+
+public class CSVFileWriterTest {
+    private static final int NUM_ROWS = 20000;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testAsyncWriterWritesSameBytesAsSyncWriter() throws Exception {
+        byte[] expected = Files.readAllBytes(writeRows("sync.csv", false, false).toPath());
+        byte[] actual = Files.readAllBytes(writeRows("async.csv", true, false).toPath());
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testCompressedWriterWritesSameBytesAsSyncWriter() throws Exception {
+        byte[] expected = Files.readAllBytes(writeRows("sync.csv", false, false).toPath());
+        assertArrayEquals(expected, gunzip(writeRows("syncCompressed.csv.gz", false, true)));
+        assertArrayEquals(expected, gunzip(writeRows("asyncCompressed.csv.gz", true, true)));
+    }
+
+    @Test
+    public void testDoubleBufferedWriterKeepsOrderAcrossBuffers() throws Exception {
+        StringWriter out = new StringWriter();
+        StringBuilder expected = new StringBuilder();
+        try (DoubleBufferedWriter writer = new DoubleBufferedWriter(out, "testWriter", 7)) {
+            for (int i = 0; i < 1000; i++) {
+                String value = "value" + i + ",";
+                writer.write(value);
+                writer.write('\n');
+                writer.write(value.toCharArray(), 1, 3);
+                expected.append(value).append('\n').append(value, 1, 4);
+                if (i % 100 == 0) {
+                    writer.flush();
+                    assertEquals(expected.toString(), out.toString());
+                }
+            }
+        }
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    @Test
+    public void testDoubleBufferedWriterRethrowsWriteError() throws Exception {
+        Writer failingOut = new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        DoubleBufferedWriter writer = new DoubleBufferedWriter(failingOut, "testWriter", 4);
+        writer.write("abc");
+        try {
+            writer.flush();
+            fail("expected the write error to be rethrown");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        try {
+            writer.write("more");
+            fail("expected the write error to be rethrown");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        try {
+            writer.close();
+            fail("expected the write error to be rethrown");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+    }
+
+    private File writeRows(String fileName, boolean isAsync, boolean isCompressed) throws Exception {
+        AppConfig appConfig = AppConfig.getInstance(new HashMap<String, String>());
+        File file = new File(tempFolder.getRoot(), fileName);
+        appConfig.setValue(AppConfig.PROP_DAO_CSV_WRITE_ASYNC, Boolean.toString(isAsync));
+        try {
+            CSVFileWriter writer = new CSVFileWriter(file.getAbsolutePath(), appConfig, AppUtil.COMMA);
+            writer.setCompressed(isCompressed);
+            List<String> header = Arrays.asList("Id", "Name", "Account.Name(Name)", "Description");
+            TableHeader tableHeader = new TableHeader(new ArrayList<String>(header));
+            writer.open();
+            writer.setColumnNames(header);
+            for (int i = 0; i < NUM_ROWS; i++) {
+                TableRow row = new TableRow(tableHeader);
+                row.put("Id", "001" + i);
+                row.put("Name", i % 3 == 0 ? "=SUM(A1)" : "Name \"" + i + "\", été");
+                row.put("Account.Name(Name)", i % 2 == 0 ? null : "account " + i);
+                row.put("Description", i % 5 == 0 ? null : "line one\nline two\r\n" + i);
+                writer.writeRow(row);
+            }
+            assertEquals(NUM_ROWS, writer.getCurrentRowNumber());
+            writer.close();
+        } finally {
+            appConfig.setValue(AppConfig.PROP_DAO_CSV_WRITE_ASYNC, Boolean.FALSE.toString());
+        }
+        return file;
+    }
+
+    private static byte[] gunzip(File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.salesforce.dataloader.ConfigTestBase;
+import com.salesforce.dataloader.config.AppConfig;
+import com.sforce.async.CSVReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CSVRowCounterTest extends ConfigTestBase {
+
+    // quoted line terminators, escaped quotes, CRLF, CR and LF line ends, blank lines,
+    // lines holding only an empty quoted value and no line end after the last row
+    private static final String MULTILINE_CSV = "Name,Description,Phone\r\n"
+            + "\"Acme\",\"first line\r\nsecond line\",555-1234\r\n"
+            + "\r\n"
+            + "\"Quote \"\"inside\"\"\",\"ends with newline\n\",\r\n"
+            + "plain,\"\",value\n"
+            + "\"\"\n"
+            + "\"multi\n\nline\r\n\",\"a,b\",\"\"\"\"\r"
+            + "\n\n"
+            + "last,row,without newline";
+
+    // records that are not rows of the header's size, which only CSVReader can count
+    private static final String IRREGULAR_CSV = MULTILINE_CSV + "\r\n"
+            + "\"\"\"\"\n"
+            + "\"\",\n"
+            + "one\r"
+            + "\"\"\"\"\"\"";
+
+    private File tempFile;
+
+    @After
+    public void deleteTempFiles() {
+        if (tempFile != null) {
+            CSVRowCounter.getCacheFile(tempFile).delete();
+            tempFile.delete();
+        }
+        getController().getAppConfig().setValue(AppConfig.PROP_DAO_CSV_ROW_COUNT_MODE, AppConfig.CSV_ROW_COUNT_MODE_SCAN);
+    }
+
+    @Test
+    public void testScanMatchesParsedRowCount() throws Exception {
+        File file = createCsvFile(MULTILINE_CSV);
+        int parsedRows = getParsedRowCount(file);
+        assertEquals(5, parsedRows);
+        assertEquals(parsedRows + 1, CSVRowCounter.countRecords(file));
+        assertEquals(parsedRows, getScannedRowCount(file));
+    }
+
+    @Test
+    public void testScanMatchesCSVReaderRecordCount() throws Exception {
+        File file = createCsvFile(IRREGULAR_CSV);
+        long records = getCSVReaderRecordCount(file);
+        assertEquals(10, records);
+        assertEquals(records, CSVRowCounter.countRecords(file));
+    }
+
+    @Test
+    public void testParallelScanMatchesForEveryChunkBoundary() throws Exception {
+        File file = createCsvFile(IRREGULAR_CSV);
+        long expected = getCSVReaderRecordCount(file);
+        // splitting into as many chunks as bytes puts a chunk boundary at every position
+        for (int numChunks = 2; numChunks <= file.length(); numChunks++) {
+            assertEquals("chunks: " + numChunks, expected, CSVRowCounter.countRecords(file, numChunks));
+        }
+    }
+
+    @Test
+    public void testScanMatchesParsedRowCountOfTestFiles() throws Exception {
+        for (String name : new String[] {"csvEscapedQuotes.csv", "20kRows.csv", "csvtext.csv"}) {
+            File file = new File(getTestDataDir(), name);
+            int parsedRows = getParsedRowCount(file);
+            assertEquals(name, parsedRows, getScannedRowCount(file));
+            assertEquals(name, parsedRows + 1, CSVRowCounter.countRecords(file, 7));
+        }
+    }
+
+    @Test
+    public void testHeaderOnly() throws Exception {
+        File file = createCsvFile("Name,Phone\r\n\r\n");
+        assertEquals(0, getParsedRowCount(file));
+        assertEquals(0, getScannedRowCount(file));
+    }
+
+    @Test
+    public void testCachedCount() throws Exception {
+        File file = createCsvFile(MULTILINE_CSV);
+        assertEquals(-1, CSVRowCounter.readCachedCount(file));
+        CSVRowCounter.writeCachedCount(file, 42);
+        assertEquals(42, CSVRowCounter.readCachedCount(file));
+
+        Files.write(file.toPath(), "more,rows,here\n".getBytes(StandardCharsets.UTF_8),
+                java.nio.file.StandardOpenOption.APPEND);
+        assertEquals("a changed file must not use the cached count", -1, CSVRowCounter.readCachedCount(file));
+    }
+
+    @Test
+    public void testReaderUsesCachedCount() throws Exception {
+        File file = createCsvFile(MULTILINE_CSV);
+        AppConfig appConfig = getController().getAppConfig();
+        appConfig.setValue(AppConfig.PROP_DAO_CSV_ROW_COUNT_CACHE, true);
+        try {
+            assertEquals(5, getScannedRowCount(file));
+            assertEquals(6, CSVRowCounter.readCachedCount(file));
+            // a count found in the cache is not recomputed
+            CSVRowCounter.writeCachedCount(file, 101);
+            assertEquals(100, getScannedRowCount(file));
+        } finally {
+            appConfig.setValue(AppConfig.PROP_DAO_CSV_ROW_COUNT_CACHE, false);
+        }
+    }
+
+    @Test
+    public void testExactCountIgnoresCacheAndEstimate() throws Exception {
+        File file = createCsvFile(MULTILINE_CSV);
+        AppConfig appConfig = getController().getAppConfig();
+        appConfig.setValue(AppConfig.PROP_DAO_CSV_ROW_COUNT_CACHE, true);
+        appConfig.setValue(AppConfig.PROP_DAO_CSV_ROW_COUNT_MODE, AppConfig.CSV_ROW_COUNT_MODE_ESTIMATE);
+        try {
+            CSVRowCounter.writeCachedCount(file, 101);
+            // a reader whose count is not only used for progress gets the exact count
+            assertEquals(5, getTotalRows(file, false));
+            assertEquals(100, getTotalRows(file, true));
+        } finally {
+            appConfig.setValue(AppConfig.PROP_DAO_CSV_ROW_COUNT_CACHE, false);
+        }
+    }
+
+    @Test
+    public void testEstimate() throws Exception {
+        StringBuilder csv = new StringBuilder("Name,Description\n");
+        int rows = 50000;
+        for (int i = 0; i < rows; i++) {
+            csv.append("name").append(i % 10).append(",\"some\ndescription\"\n");
+        }
+        File file = createCsvFile(csv.toString());
+        assertTrue(file.length() > CSVRowCounter.ESTIMATE_SAMPLE_BYTES);
+        long estimate = CSVRowCounter.estimateRecords(file);
+        assertTrue("estimate " + estimate + " is too far off", Math.abs(estimate - (rows + 1)) < rows / 100);
+
+        File smallFile = new File(getTestDataDir(), "csvtext.csv");
+        assertEquals(CSVRowCounter.countRecords(smallFile), CSVRowCounter.estimateRecords(smallFile));
+
+        AppConfig appConfig = getController().getAppConfig();
+        appConfig.setValue(AppConfig.PROP_DAO_CSV_ROW_COUNT_MODE, AppConfig.CSV_ROW_COUNT_MODE_ESTIMATE);
+        try {
+            assertTrue(isTotalRowsEstimated(file, true));
+            assertFalse(isTotalRowsEstimated(file, false));
+            assertFalse(isTotalRowsEstimated(smallFile, true));
+        } finally {
+            appConfig.setValue(AppConfig.PROP_DAO_CSV_ROW_COUNT_MODE, AppConfig.CSV_ROW_COUNT_MODE_SCAN);
+        }
+    }
+
+    @Test
+    public void testCanScan() {
+        assertTrue(CSVRowCounter.canScan("UTF-8"));
+        assertTrue(CSVRowCounter.canScan("ISO-8859-1"));
+        assertTrue(CSVRowCounter.canScan("windows-1252"));
+        assertFalse(CSVRowCounter.canScan("UTF-16LE"));
+        assertFalse(CSVRowCounter.canScan("ISO-2022-JP"));
+        assertFalse(CSVRowCounter.canScan("no-such-charset"));
+    }
+
+    private File createCsvFile(String content) throws IOException {
+        tempFile = File.createTempFile("rowCount", ".csv");
+        Files.write(tempFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return tempFile;
+    }
+
+    private long getCSVReaderRecordCount(File file) throws IOException {
+        long records = 0;
+        try (InputStream in = new FileInputStream(file)) {
+            CSVReader reader = new CSVReader(in, StandardCharsets.UTF_8.name(), new char[] {','});
+            reader.setMaxRowsInFile(Integer.MAX_VALUE);
+            reader.setMaxCharsInFile(Integer.MAX_VALUE);
+            while (reader.nextRecord() != null) {
+                records++;
+            }
+        }
+        return records;
+    }
+
+    private int getParsedRowCount(File file) throws Exception {
+        getController().getAppConfig().setValue(AppConfig.PROP_DAO_CSV_ROW_COUNT_MODE, AppConfig.CSV_ROW_COUNT_MODE_PARSE);
+        try {
+            return getTotalRows(file);
+        } finally {
+            getController().getAppConfig().setValue(AppConfig.PROP_DAO_CSV_ROW_COUNT_MODE, AppConfig.CSV_ROW_COUNT_MODE_SCAN);
+        }
+    }
+
+    private int getScannedRowCount(File file) throws Exception {
+        return getTotalRows(file);
+    }
+
+    private int getTotalRows(File file) throws Exception {
+        return getTotalRows(file, true);
+    }
+
+    private boolean isTotalRowsEstimated(File file, boolean isRowCountForProgressOnly) throws Exception {
+        CSVFileReader reader = new CSVFileReader(file, getController().getAppConfig(), false, false);
+        reader.setRowCountForProgressOnly(isRowCountForProgressOnly);
+        try {
+            reader.getTotalRows();
+            return reader.isTotalRowsEstimated();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private int getTotalRows(File file, boolean isRowCountForProgressOnly) throws Exception {
+        CSVFileReader reader = new CSVFileReader(file, getController().getAppConfig(), false, false);
+        reader.setRowCountForProgressOnly(isRowCountForProgressOnly);
+        try {
+            return reader.getTotalRows();
+        } finally {
+            reader.close();
+        }
+    }
+}
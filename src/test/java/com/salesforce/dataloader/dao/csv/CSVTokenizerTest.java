@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.salesforce.dataloader.ConfigTestBase;
+import com.salesforce.dataloader.config.AppConfig;
+import com.salesforce.dataloader.model.TableRow;
+import com.sforce.async.CSVReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that CSVTokenizer splits records and cells exactly like CSVReader.
+ */
+public class CSVTokenizerTest extends ConfigTestBase {
+
+    private static final char[] COMMA = {','};
+    private static final char[] COMMA_AND_TAB = {',', '\t'};
+    private static final char[] OTHER = {'!'};
+
+    private static final String[] FIXTURES = {
+        "",
+        "a",
+        "a,b,c",
+        "a,b,c\n",
+        "a,b,c\r\n1,2,3\r\n",
+        "a,b,c\r1,2,3\r",
+        "a,b,c\n1,2,3",
+        ",\n,,\n,a,\n",
+        "a,b\n\n\n1,2\n\r\n\r\n3,4\n",
+        "\n\na,b\n",
+        "\"\"\n\"\",\n\"\",\"\"\n",
+        "\"quoted\",\"with,comma\",\"with \"\"quotes\"\"\"\n",
+        "\"\"\"\"\n\"\"\"\"\"\"\n",
+        "\"line one\nline two\",\"crlf\r\ninside\",\"cr\rinside\"\r\n",
+        "\"multi\n\nline\r\n\",\"a,b\",\"\"\"\"\r\n\nlast,row,without newline",
+        "tab\tseparated,and comma\n\"quoted\ttab\"\t2\n",
+        "bang!separated!\"quoted!bang\"\n!!\n",
+        "unicode,été,日本語,😀\n",
+        " leading space, trailing space ,\" quoted space \"\n",
+        "﻿a,b\n",
+        "value\"with quote,b\n",
+        "\"closed\"text,b\n",
+        "\"never closed,b\n",
+        "a,b\n\"unbalanced\n",
+    };
+
+    @Test
+    public void testFixturesMatchCSVReader() throws Exception {
+        for (char[] delimiters : new char[][] {COMMA, COMMA_AND_TAB, OTHER}) {
+            for (String csv : FIXTURES) {
+                for (int bufferSize : new int[] {1, 2, 7, CSVTokenizer.DEFAULT_BUFFER_SIZE}) {
+                    assertSameRecords(csv, delimiters, bufferSize);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLongCellsMatchCSVReader() throws Exception {
+        StringBuilder csv = new StringBuilder("Id,Description\n");
+        for (int i = 0; i < 20; i++) {
+            csv.append(i).append(",\"");
+            for (int j = 0; j < i * 1000; j++) {
+                csv.append(j % 100 == 0 ? "\"\"\n" : "x");
+            }
+            csv.append("\"\n");
+        }
+        assertSameRecords(csv.toString(), COMMA, 100);
+        assertSameRecords(csv.toString(), COMMA, CSVTokenizer.DEFAULT_BUFFER_SIZE);
+    }
+
+    @Test
+    public void testTestFilesMatchCSVReader() throws Exception {
+        for (String name : new String[] {"csvEscapedQuotes.csv", "csvSeparator.csv", "csvtext.csv", "20kRows.csv"}) {
+            File file = new File(getTestDataDir(), name);
+            for (char[] delimiters : new char[][] {COMMA, {',', '!'}}) {
+                List<List<String>> expected = readWithCSVReader(new FileInputStream(file), delimiters);
+                List<List<String>> actual = readWithTokenizer(new FileInputStream(file), delimiters,
+                        CSVTokenizer.DEFAULT_BUFFER_SIZE);
+                assertEquals(name, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testFileReaderWithTokenizerReadsSameRows() throws Exception {
+        AppConfig appConfig = getController().getAppConfig();
+        for (String name : new String[] {"csvEscapedQuotes.csv", "csvtext_BOM_UTF8.csv", "20kRows.csv"}) {
+            File file = new File(getTestDataDir(), name);
+            List<TableRow> expected = readAllRows(file, appConfig, false);
+            List<TableRow> actual = readAllRows(file, appConfig, true);
+            assertEquals(name, expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                for (String column : expected.get(i).getHeader().getColumns()) {
+                    assertEquals(name + " row " + i, expected.get(i).get(column), actual.get(i).get(column));
+                }
+            }
+        }
+    }
+
+    private static void assertSameRecords(String csv, char[] delimiters, int bufferSize) throws Exception {
+        String message = "delimiters " + new String(delimiters) + ", buffer " + bufferSize + ", csv: " + csv;
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        List<List<String>> expected = new ArrayList<List<String>>();
+        IOException expectedError = null;
+        try {
+            readWithCSVReader(new ByteArrayInputStream(bytes), delimiters, expected);
+        } catch (IOException e) {
+            expectedError = e;
+        }
+        List<List<String>> actual = new ArrayList<List<String>>();
+        try {
+            readWithTokenizer(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8),
+                    delimiters, bufferSize, actual);
+            if (expectedError != null) {
+                fail(message + ": expected an error like " + expectedError.getMessage());
+            }
+        } catch (IOException e) {
+            if (expectedError == null) {
+                throw new AssertionError(message + ": unexpected error " + e.getMessage(), e);
+            }
+        }
+        assertEquals(message, expected, actual);
+    }
+
+    private static List<List<String>> readWithCSVReader(InputStream in, char[] delimiters) throws IOException {
+        List<List<String>> records = new ArrayList<List<String>>();
+        readWithCSVReader(in, delimiters, records);
+        return records;
+    }
+
+    private static void readWithCSVReader(InputStream in, char[] delimiters, List<List<String>> records) throws IOException {
+        try {
+            CSVReader reader = new CSVReader(in, StandardCharsets.UTF_8.name(), delimiters);
+            reader.setMaxRowsInFile(Integer.MAX_VALUE);
+            reader.setMaxCharsInFile(Integer.MAX_VALUE);
+            for (List<String> record = reader.nextRecord(); record != null; record = reader.nextRecord()) {
+                records.add(new ArrayList<String>(record));
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static List<List<String>> readWithTokenizer(InputStream in, char[] delimiters, int bufferSize) throws IOException {
+        List<List<String>> records = new ArrayList<List<String>>();
+        readWithTokenizer(new InputStreamReader(in, StandardCharsets.UTF_8), delimiters, bufferSize, records);
+        return records;
+    }
+
+    private static void readWithTokenizer(Reader in, char[] delimiters, int bufferSize, List<List<String>> records) throws IOException {
+        try (CSVTokenizer tokenizer = new CSVTokenizer(in, delimiters, bufferSize)) {
+            while (tokenizer.nextRecord()) {
+                records.add(tokenizer.getRecord());
+            }
+        }
+    }
+
+    private static List<TableRow> readAllRows(File file, AppConfig appConfig, boolean useTokenizer) throws Exception {
+        appConfig.setValue(AppConfig.PROP_DAO_CSV_FAST_TOKENIZER, useTokenizer);
+        CSVFileReader reader = new CSVFileReader(file, appConfig, false, false);
+        try {
+            reader.open();
+            assertNotNull(reader.getColumnNames());
+            List<TableRow> rows = new ArrayList<TableRow>();
+            for (TableRow row = reader.readTableRow(); row != null; row = reader.readTableRow()) {
+                rows.add(row);
+            }
+            assertNull(reader.readTableRow());
+            return rows;
+        } finally {
+            reader.close();
+            appConfig.setValue(AppConfig.PROP_DAO_CSV_FAST_TOKENIZER, false);
+        }
+    }
+}
@@ -26,6 +26,7 @@
 package com.salesforce.dataloader.dao.database;
 
 import com.salesforce.dataloader.ConfigTestBase;
+import com.salesforce.dataloader.config.AppConfig;
 import com.salesforce.dataloader.controller.Controller;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.model.TableRow;
@@ -34,11 +35,13 @@ import org.apache.logging.log4j.Logger;
 import com.salesforce.dataloader.util.DLLogManager;
 
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -98,6 +101,80 @@ public class DatabaseTest extends ConfigTestBase {
         verifyDbInsertOrUpdate(getController(), false, true);
     }
 
+    @Test
+    public void testDatabaseQueryWithFetchSize() throws Exception {
+        DatabaseTestUtil.insertOrUpdateAccountsDb(getController(), true/* insert */, NUM_ROWS, false);
+
+        AppConfig appConfig = getController().getAppConfig();
+        appConfig.setValue(AppConfig.PROP_DAO_READ_FETCH_SIZE, 10000);
+        try {
+            verifyDbInsertOrUpdate(getController(), true, true);
+            // H2 does not stream results, the reader falls back to the fetch size
+            appConfig.setValue(AppConfig.PROP_DAO_READ_STREAMING, true);
+            verifyDbInsertOrUpdate(getController(), true, true);
+        } finally {
+            appConfig.setValue(AppConfig.PROP_DAO_READ_FETCH_SIZE, AppConfig.DEFAULT_DAO_READ_FETCH_SIZE);
+            appConfig.setValue(AppConfig.PROP_DAO_READ_STREAMING, false);
+        }
+    }
+
+    @Test
+    public void testDatabaseInsertWithParallelConnections() throws Exception {
+        AppConfig appConfig = getController().getAppConfig();
+        appConfig.setValue(AppConfig.PROP_DAO_WRITE_CONNECTIONS, 3);
+        appConfig.setValue(AppConfig.PROP_DAO_WRITE_COMMIT_SIZE, 2500);
+        try {
+            // written in batches of 1000 rows, the last one is committed on close
+            DatabaseTestUtil.insertOrUpdateAccountsDb(getController(), true/* insert */, 2600, false);
+            assertEquals(2600, verifyDbInsertOrUpdate(getController(), true, true));
+        } finally {
+            appConfig.setValue(AppConfig.PROP_DAO_WRITE_CONNECTIONS, AppConfig.DEFAULT_DAO_WRITE_CONNECTIONS);
+            appConfig.setValue(AppConfig.PROP_DAO_WRITE_COMMIT_SIZE, AppConfig.DEFAULT_DAO_WRITE_COMMIT_SIZE);
+        }
+    }
+
+    @Test
+    public void testFailedBatchKeepsOtherUncommittedRows() throws Exception {
+        AppConfig appConfig = getController().getAppConfig();
+        appConfig.setValue(AppConfig.PROP_DAO_WRITE_COMMIT_SIZE, 1000);
+        for (int connections = 1; connections <= 2; connections++) {
+            appConfig.setValue(AppConfig.PROP_DAO_WRITE_CONNECTIONS, connections);
+            DatabaseWriter writer = new DatabaseWriter(appConfig, "insertAccount");
+            try {
+                writer.open();
+                writer.writeRowList(accountRows(0, NUM_ROWS));
+
+                List<TableRow> rows = accountRows(2 * NUM_ROWS, 3 * NUM_ROWS);
+                // longer than the column
+                rows.get(NUM_ROWS - 1).put(DatabaseTestUtil.ACCOUNT_NUMBER_COL, "ACCOUNT NUMBER THAT IS TOO LONG");
+                try {
+                    writer.writeRowList(rows);
+                    Assert.fail("writing a value that is too long should fail");
+                } catch (DataAccessObjectException e) {
+                    // expected
+                }
+                assertEquals(2 * NUM_ROWS, writer.getCurrentRowNumber());
+
+                writer.writeRowList(accountRows(NUM_ROWS, 2 * NUM_ROWS));
+            } finally {
+                writer.close();
+            }
+            // the rows of the first and the last batch are committed by close(), the failed batch is not
+            assertEquals("connections: " + connections, 2 * NUM_ROWS, verifyDbInsertOrUpdate(getController(), true, true));
+            DatabaseTestUtil.deleteAllAccountsDb(getController());
+        }
+        appConfig.setValue(AppConfig.PROP_DAO_WRITE_CONNECTIONS, AppConfig.DEFAULT_DAO_WRITE_CONNECTIONS);
+        appConfig.setValue(AppConfig.PROP_DAO_WRITE_COMMIT_SIZE, AppConfig.DEFAULT_DAO_WRITE_COMMIT_SIZE);
+    }
+
+    private static List<TableRow> accountRows(int firstRow, int endRow) {
+        List<TableRow> rows = new ArrayList<TableRow>();
+        for (int i = firstRow; i < endRow; i++) {
+            rows.add(DatabaseTestUtil.getInsertOrUpdateAccountRow(true, i, DatabaseTestUtil.DateType.DATE));
+        }
+        return rows;
+    }
+
     @Test
     public void testDatabaseDateMappingDate() throws Exception {
         doTestDatabaseDateMapping(DatabaseTestUtil.DateType.DATE, true);
@@ -133,7 +210,7 @@ public class DatabaseTest extends ConfigTestBase {
         }
     }
 
-    private static void verifyDbInsertOrUpdate(Controller theController, boolean isInsert, boolean validateDates) throws DataAccessObjectException {
+    private static int verifyDbInsertOrUpdate(Controller theController, boolean isInsert, boolean validateDates) throws DataAccessObjectException {
         DatabaseReader reader = null;
         logger.info("Verifying database success for '" + (isInsert ? "insert" : "update") + "' operation");
         try {
@@ -164,6 +241,7 @@ public class DatabaseTest extends ConfigTestBase {
                 readRowList = reader.readTableRowList(readBatchSize);
                 assertNotNull("Error reading " + readBatchSize + " rows", readRowList);
             }
+            return rowsProcessed;
         } finally {
             if(reader != null) reader.close();
         }
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dyna;
+
+import static org.junit.Assert.*;
+
+import java.text.DateFormat;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.apache.commons.beanutils.ConversionException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import com.salesforce.dataloader.util.DateOnlyCalendar;
+
+/**
+ * Compares the converters with a copy of the original conversion, which created a SimpleDateFormat
+ * for each supported pattern in turn, for the values of DateConverterTest and generated values.
+ */
+@RunWith(Parameterized.class)
+public class DateTimeConverterTest {
+
+    private static final String[] FIXTURES = {
+        "2011-10-15T19:00:00z", "2011-10-15T19:00:00+0000", "2011-10-16T03:00:00+0800",
+        "2011-10-15T19:08z", "2011-10-15T19:08", "2011-10-15T16:08-0300", "2011-10-15 19:08z",
+        "2011-10-15T19z", "2011-10-15T19", "2011-10-15T16-0300", "2011-10-15 19z",
+        "20111015T19z", "20111015T19", "20111015T190000", "20111015 1900z", "20111015",
+        "2001-11-11T10:11:40.000Z", "2001-11-11T02:11:40.000Z-0800", "2004-03-29 11:30:23",
+        "2011-10-15T19:18:57.329", "2011-10-15T19:18:57", "2011-10-15T19:18", "2011-10-15 19:18:57.329",
+        "20111015T19:18:57.329", "20111015T19:18:57", "20111015T19:18", "20111015 19:18:57.329", "20111015 19",
+        "2020-11-05 00:00:00z", "2020-11-05 00:00:00Z", "2020-11-05 00:00:00", "2020-11-05 00:00",
+        "2020-11-05 00", "2020-11-05", "2020-11-05 ", "2020-11-05T", "2020-11-05Tz", "2020-11-05TZ",
+        "20201105", "20201105 ", "05/11/2020", "11/05/2020", "2020-11-05 00:00:01",
+        "2004-04-29Tz", "2004-04-29T-0000", "2004-04-29T00:00:00+0200", "2004-04-29T00:00+0200",
+        "2004-04-29T00+0200", "2011", "2011-10-15", "2011-10", "1999-12-24T11:11:11.111z",
+        "19771224T07:36:44", "1984-04-12T06:34:22", "1984-04-12T08:34:22+02:00", "1999-09-11",
+        "07/16/2009 12:14:45", "08/23/2007", "2/16/2002", "07/16/2009 12:14:45+0800",
+        "07/16/2009 02:14:45-0200", "07/16/2009T16:14:45+1200", "07/16/2009T03:14:45-0100",
+        "16/07/2009 12:14:45+0800", "16/07/2009T02:14:45-0200", "16/7/2009 12:14:45", "23/08/2007",
+        "16/2/2002", "fofofod", "20A4-11-08", "6/7/2012", "6/22/2012", "6/7/2012 0:00", "6/7/2012 02:00",
+        "6/7/2012 11:00", "6/7/2012 23:00", "2012-06-07 00:00:00JST", "2012-06-07 00:00:00PST",
+        "2012-06-07 00:00:00 PST", "2012-06-07 00:00:00Pacific Standard Time",
+        "2012-06-07 00:00:00GMT-08:00", "2012-06-07 00:00:00 GMT-08:00", "2012-06-07 00:00:00-08:00",
+        "2012-06-07 00:00:00 -08:00", "2012-06-07 00:00:00-0800", "2012-06-07 00:00:00 -0800",
+        "1948-05-01", "1948-05-02", "2024-03-15T10:20:30.000Z", "2024-03-15T10:20:30.000+05:30",
+        "2024-03-15 10:20:30", "2024-03-15", "3/15/2024 10:20",
+        // daylight saving changes in America/Los_Angeles and Australia/Lord_Howe
+        "2024-03-10 02:30:00", "2024-11-03 01:30:00", "2024-04-07 01:45", "2024-10-06 02:15",
+        // out of range fields and other edge cases
+        "2024-02-30", "2023-02-29", "2024-13-01", "2024-00-10", "2024-01-01T24:00", "2024-01-01T23:60",
+        "2024-01-01T23:59:60", "2024-01-01T10:20:30.5", "2024-01-01T10:20:30.12345", "2024-01-01T1:20",
+        "13/13/2024", "0/5/2024", "1/2/24", "1/2/20245", "1582-10-10", "0001-01-01", "9999-12-31T23:59:59.999",
+        "2024-01-01T10:20+24:00", "2024-01-01T10:20+05:60", "2024-01-01T10:20+5:30", "2024-01-01T10:20+0530z",
+        "2024-01-01T10:20:30+05:30:00", "2024-01-01T10:20 ", "2024-01-01  10:20", "2024-01-01T10:20:30.000 Z",
+        "z", "Z", "T", "-2024-01-01", "+2024-01-01", "2024-01-01T-10:20", "٢٠٢٤-01-01",
+    };
+
+    private static final String[] TIME_ZONES = { "GMT", "America/Los_Angeles", "Asia/Tokyo", "Australia/Lord_Howe" };
+
+    @Parameterized.Parameters(name = "{0}, european dates {1}")
+    public static Collection<Object[]> getTestParameters() {
+        List<Object[]> parameters = new ArrayList<Object[]>();
+        for (String timeZone : TIME_ZONES) {
+            parameters.add(new Object[] { timeZone, false });
+            parameters.add(new Object[] { timeZone, true });
+        }
+        return parameters;
+    }
+
+    private final TimeZone timeZone;
+    private final boolean useEuroDates;
+
+    public DateTimeConverterTest(String timeZone, boolean useEuroDates) {
+        this.timeZone = TimeZone.getTimeZone(timeZone);
+        this.useEuroDates = useEuroDates;
+    }
+
+    @Test
+    public void testFixtures() {
+        for (String value : FIXTURES) {
+            assertSameConversion(value);
+        }
+    }
+
+    @Test
+    public void testGeneratedValues() {
+        Random random = new Random(20241015L);
+        for (int i = 0; i < 2000; i++) {
+            assertSameConversion(generateValue(random));
+        }
+    }
+
+    @Test
+    public void testConcurrentConversions() throws Exception {
+        final DateTimeConverter converter = new DateTimeConverter(this.timeZone, this.useEuroDates);
+        final List<String> values = new ArrayList<String>();
+        Random random = new Random(7L);
+        for (int i = 0; i < 200; i++) {
+            values.add(generateValue(random));
+        }
+        final List<Object> expected = new ArrayList<Object>();
+        for (String value : values) {
+            expected.add(toComparable(convert(converter, value)));
+        }
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int round = 0; round < 5; round++) {
+                        for (int i = 0; i < values.size(); i++) {
+                            assertEquals(values.get(i), expected.get(i), toComparable(convert(converter, values.get(i))));
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    private void assertSameConversion(String value) {
+        Object expected = toComparable(convertAsBefore(value, new DateTimeConverter(this.timeZone, this.useEuroDates)));
+        assertEquals(value, expected, toComparable(convert(new DateTimeConverter(this.timeZone, this.useEuroDates), value)));
+
+        expected = toComparable(convertAsBefore(value, new DateOnlyConverter(this.timeZone, this.useEuroDates)));
+        assertEquals(value, expected, toComparable(convert(new DateOnlyConverter(this.timeZone, this.useEuroDates), value)));
+    }
+
+    private static Object convert(DateTimeConverter converter, String value) {
+        try {
+            return converter.convert(Calendar.class, value);
+        } catch (ConversionException e) {
+            return e;
+        }
+    }
+
+    private static Object toComparable(Object result) {
+        if (result instanceof Calendar) {
+            Calendar cal = (Calendar)result;
+            return Arrays.asList(cal.getClass(), cal.getTimeZone().getID(), cal.getTimeInMillis());
+        }
+        return result instanceof ConversionException ? ((ConversionException)result).getMessage() : result;
+    }
+
+    // the conversion before the patterns were compiled once and common formats parsed directly
+    private Object convertAsBefore(String value, DateTimeConverter converter) {
+        String dateString = value.trim();
+        int len = dateString.length();
+        if (len == 0) return null;
+        TimeZone timeZoneForValue = this.timeZone;
+        if ("z".equalsIgnoreCase(dateString.substring(len - 1))) {
+            dateString = dateString.substring(0, len - 1);
+            timeZoneForValue = DateTimeConverter.GMT_TZ;
+        }
+        List<String> patterns = this.useEuroDates
+                ? DateTimeConverter.supportedEuropeanPatterns : DateTimeConverter.supportedRegularPatterns;
+        for (String pattern : patterns) {
+            final DateFormat df = new SimpleDateFormat(pattern);
+            df.setTimeZone(timeZoneForValue);
+            Calendar cal = parseDate(dateString, df, converter);
+            if (cal != null) return cal;
+        }
+        DateFormat df = DateFormat.getDateTimeInstance(DateFormat.DEFAULT, DateFormat.DEFAULT);
+        df.setTimeZone(this.timeZone);
+        Calendar cal = parseDate(dateString, df, converter);
+        if (cal != null) return cal;
+        df = DateFormat.getDateInstance(DateFormat.SHORT);
+        df.setTimeZone(this.timeZone);
+        cal = parseDate(dateString, df, converter);
+        if (cal != null) return cal;
+        return new ConversionException("Failed to parse date: " + value);
+    }
+
+    private static Calendar parseDate(String dateString, DateFormat fmt, DateTimeConverter converter) {
+        final ParsePosition pos = new ParsePosition(0);
+        fmt.setLenient(false);
+        final Date date = fmt.parse(dateString, pos);
+        if (date != null && pos.getIndex() == dateString.length()) {
+            Calendar cal = converter instanceof DateOnlyConverter
+                    ? DateOnlyCalendar.getInstance(fmt.getTimeZone()) : Calendar.getInstance(fmt.getTimeZone());
+            cal.setTimeInMillis(date.getTime());
+            return cal;
+        }
+        return null;
+    }
+
+    // values around the common formats, including out of range fields and daylight saving changes
+    private static String generateValue(Random random) {
+        int year = random.nextInt(10) == 0 ? 1500 + random.nextInt(1600) : 1990 + random.nextInt(50);
+        int month = random.nextInt(10) == 0 ? random.nextInt(14) : 1 + random.nextInt(12);
+        int day = random.nextInt(10) == 0 ? random.nextInt(33) : 1 + random.nextInt(28);
+        int hour = random.nextInt(10) == 0 ? random.nextInt(26) : random.nextInt(4) == 0 ? 1 + random.nextInt(2) : random.nextInt(24);
+        int minute = random.nextInt(20) == 0 ? 60 : random.nextInt(60);
+        int second = random.nextInt(20) == 0 ? 60 : random.nextInt(60);
+        int millis = random.nextInt(1000);
+
+        StringBuilder value = new StringBuilder();
+        boolean isIsoDate = random.nextBoolean();
+        if (isIsoDate) {
+            value.append(String.format("%04d-%02d-%02d", year, month, day));
+        } else {
+            String first = random.nextBoolean() ? String.valueOf(month) : String.format("%02d", month);
+            String second_ = random.nextBoolean() ? String.valueOf(day) : String.format("%02d", day);
+            value.append(first).append('/').append(second_).append('/').append(String.format("%04d", year));
+        }
+        int precision = random.nextInt(5);
+        if (precision > 0) {
+            value.append(random.nextBoolean() ? 'T' : ' ');
+            value.append(!isIsoDate && random.nextBoolean() ? String.valueOf(hour) : String.format("%02d", hour));
+            if (precision > 1) {
+                value.append(String.format(":%02d", minute));
+            }
+            if (precision > 2) {
+                value.append(String.format(":%02d", second));
+            }
+            if (precision > 3) {
+                value.append(String.format(".%03d", millis));
+            }
+            switch (random.nextInt(6)) {
+            case 0:
+                value.append(random.nextBoolean() ? 'Z' : 'z');
+                break;
+            case 1:
+                value.append(random.nextBoolean() ? " " : "").append(String.format("%s%02d:%02d",
+                        random.nextBoolean() ? "+" : "-", random.nextInt(15), random.nextInt(4) * 15));
+                break;
+            case 2:
+                value.append(random.nextBoolean() ? " " : "").append(String.format("%s%02d%02d",
+                        random.nextBoolean() ? "+" : "-", random.nextInt(15), random.nextInt(4) * 15));
+                break;
+            default:
+                break;
+            }
+        } else if (random.nextInt(4) == 0) {
+            value.append('Z');
+        }
+        return value.toString();
+    }
+}
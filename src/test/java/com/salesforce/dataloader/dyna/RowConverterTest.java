@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dyna;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.beanutils.BasicDynaClass;
+import org.apache.commons.beanutils.BeanUtils;
+import org.apache.commons.beanutils.ConversionException;
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.DynaProperty;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.salesforce.dataloader.ConfigTestBase;
+import com.salesforce.dataloader.model.TableHeader;
+import com.salesforce.dataloader.model.TableRow;
+import com.salesforce.dataloader.util.DateOnlyCalendar;
+
+public class RowConverterTest extends ConfigTestBase {
+
+    private static final DynaProperty[] DYNA_PROPS = {
+            new DynaProperty("Name", String.class),
+            new DynaProperty("CreatedDate__c", Calendar.class),
+            new DynaProperty("BirthDate__c", DateOnlyCalendar.class),
+            new DynaProperty("Amount__c", Double.class),
+            new DynaProperty("Count__c", Integer.class),
+            new DynaProperty("IsActive__c", Boolean.class),
+            new DynaProperty("Body", byte[].class),
+            new DynaProperty("Parent:Account-ExtId__c", SObjectReference.class),
+    };
+
+    private BasicDynaClass dynaClass;
+    private String bodyFilePath;
+
+    @Before
+    public void setup() throws Exception {
+        SforceDynaBean.registerConverters(getController().getAppConfig());
+        dynaClass = SforceDynaBean.getDynaBeanInstance(DYNA_PROPS);
+        File bodyFile = File.createTempFile("rowConverterTest", ".txt");
+        bodyFile.deleteOnExit();
+        Files.write(bodyFile.toPath(), "attachment body".getBytes(StandardCharsets.UTF_8));
+        bodyFilePath = bodyFile.getAbsolutePath();
+    }
+
+    @Test
+    public void testConvertsAllFieldTypesLikeBeanUtils() throws Exception {
+        RowConverter converter = new RowConverter(dynaClass);
+        TableHeader header = newHeader();
+        List<TableRow> rows = new ArrayList<TableRow>();
+        rows.add(newRow(header, "Acme", "2024-03-15T10:20:30.000Z", "2024-03-15", "12.5", "42", "true", bodyFilePath, "EXT-1"));
+        rows.add(newRow(header, "Grüße 日本", "3/15/2024 10:20", "3/15/2024", "-0.25", "0", "no", null, ""));
+        rows.add(newRow(header, "", "", "", "", "", "", "", null));
+        rows.add(newRow(header, null, null, null, null, null, null, null, null));
+        rows.add(newRow(header, " ", new Date(0), null, Double.valueOf(3), Integer.valueOf(7), Boolean.TRUE, null, " "));
+        for (TableRow row : rows) {
+            assertSameValues(SforceDynaBean.convertToDynaBean(dynaClass, row), converter.convertToDynaBean(row));
+        }
+    }
+
+    @Test
+    public void testPropertyNamesWithValuesMatchDescribe() throws Exception {
+        RowConverter converter = new RowConverter(dynaClass);
+        TableHeader header = newHeader();
+        TableRow row = newRow(header, "", "2024-03-15T10:20:30.000Z", null, "1", "", "false", bodyFilePath, "EXT-1");
+        DynaBean dynaBean = converter.convertToDynaBean(row);
+
+        Set<String> describedNames = new HashSet<String>();
+        for (Map.Entry<String, String> entry : BeanUtils.describe(dynaBean).entrySet()) {
+            if (entry.getValue() != null) {
+                describedNames.add(entry.getKey());
+            }
+        }
+        assertEquals(describedNames, new HashSet<String>(RowConverter.getPropertyNamesWithValues(dynaBean)));
+    }
+
+    @Test
+    public void testColumnsWithoutPropertyAreSkipped() throws Exception {
+        RowConverter converter = new RowConverter(dynaClass);
+        TableHeader header = new TableHeader(Arrays.asList("Name", "Unmapped__c"));
+        TableRow row = new TableRow(header);
+        row.put("Name", "Acme");
+        row.put("Unmapped__c", "");
+        assertSameValues(SforceDynaBean.convertToDynaBean(dynaClass, row), converter.convertToDynaBean(row));
+    }
+
+    @Test
+    public void testConversionErrorIsReported() throws Exception {
+        RowConverter converter = new RowConverter(dynaClass);
+        TableRow row = newRow(newHeader(), "Acme", null, null, null, null, "maybe", null, null);
+        try {
+            converter.convertToDynaBean(row);
+            Assert.fail("expected a ConversionException");
+        } catch (ConversionException e) {
+            // expected, same as SforceDynaBean.convertToDynaBean()
+        }
+    }
+
+    @Test
+    public void testHeaderChangesAreHandled() throws Exception {
+        RowConverter converter = new RowConverter(dynaClass);
+        TableRow fullRow = newRow(newHeader(), "Acme", null, null, "1", "2", "yes", null, null);
+        assertSameValues(SforceDynaBean.convertToDynaBean(dynaClass, fullRow), converter.convertToDynaBean(fullRow));
+
+        TableRow narrowRow = new TableRow(new TableHeader(Arrays.asList("Count__c", "Name")));
+        narrowRow.put("Count__c", "5");
+        narrowRow.put("Name", "Other");
+        DynaBean dynaBean = converter.convertToDynaBean(narrowRow);
+        assertSameValues(SforceDynaBean.convertToDynaBean(dynaClass, narrowRow), dynaBean);
+        assertNull(dynaBean.get("Amount__c"));
+    }
+
+    @Test
+    public void testPropertyExpressionColumnFallsBackToBeanUtils() throws Exception {
+        RowConverter converter = new RowConverter(dynaClass);
+        TableRow row = new TableRow(new TableHeader(Arrays.asList("Name", "Owner.Name")));
+        row.put("Name", "Acme");
+        row.put("Owner.Name", "");
+        assertSameValues(SforceDynaBean.convertToDynaBean(dynaClass, row), converter.convertToDynaBean(row));
+    }
+
+    private static TableHeader newHeader() {
+        List<String> columns = new ArrayList<String>();
+        for (DynaProperty prop : DYNA_PROPS) {
+            columns.add(prop.getName());
+        }
+        return new TableHeader(columns);
+    }
+
+    private static TableRow newRow(TableHeader header, Object... values) {
+        TableRow row = new TableRow(header);
+        for (int i = 0; i < values.length; i++) {
+            row.put(DYNA_PROPS[i].getName(), values[i]);
+        }
+        return row;
+    }
+
+    private static void assertSameValues(DynaBean expected, DynaBean actual) {
+        for (DynaProperty prop : DYNA_PROPS) {
+            Object expectedValue = expected.get(prop.getName());
+            Object actualValue = actual.get(prop.getName());
+            if (expectedValue instanceof byte[]) {
+                assertArrayEquals(prop.getName(), (byte[])expectedValue, (byte[])actualValue);
+            } else if (expectedValue instanceof SObjectReference) {
+                // SObjectReference.equals() does not match references without a value
+                assertEquals(prop.getName(), SObjectReference.class, actualValue.getClass());
+                assertEquals(prop.getName(), expectedValue.toString(), actualValue.toString());
+            } else {
+                assertEquals(prop.getName(), expectedValue, actualValue);
+            }
+        }
+    }
+}
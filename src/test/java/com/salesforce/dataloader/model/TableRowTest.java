@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TableRowTest {
+
+    @Test
+    public void testColumnLookupIgnoresCase() {
+        TableHeader header = new TableHeader(Arrays.asList("Id", "Name", "Account.Name"));
+        assertEquals(0, header.getColumnIndex("Id"));
+        assertEquals(0, header.getColumnIndex("ID"));
+        assertEquals(2, header.getColumnIndex("account.name"));
+        assertEquals(Integer.valueOf(1), header.getColumnPosition("nAmE"));
+        assertEquals(-1, header.getColumnIndex("Email"));
+        assertNull(header.getColumnPosition("Email"));
+        assertEquals(-1, header.getColumnIndex(null));
+    }
+
+    @Test
+    public void testLookupOnWideHeader() {
+        ArrayList<String> columns = new ArrayList<String>();
+        for (int i = 0; i < 500; i++) {
+            columns.add("Field" + i + "__c");
+        }
+        TableHeader header = new TableHeader(columns);
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, header.getColumnIndex("Field" + i + "__c"));
+            assertEquals(i, header.getColumnIndex("FIELD" + i + "__C"));
+        }
+        assertEquals(-1, header.getColumnIndex("Field500__c"));
+    }
+
+    @Test
+    public void testDuplicateAndNullColumns() {
+        TableHeader header = new TableHeader(Arrays.asList("Name", null, "Email", "NAME", "Email"));
+        assertEquals(5, header.getColumnCount());
+        assertEquals(3, header.getColumnIndex("Name"));
+        assertEquals(3, header.getColumnIndex("NAME"));
+        assertEquals(4, header.getColumnIndex("Email"));
+        assertTrue(header.containsColumn("Name"));
+        assertTrue(header.containsColumn(null));
+        assertFalse(header.containsColumn("name"));
+
+        TableRow row = new TableRow(header);
+        row.put("name", "last");
+        assertNull(row.getValueAt(0));
+        assertEquals("last", row.getValueAt(3));
+        assertEquals("last", row.get("Name"));
+        assertEquals(Arrays.asList("Name", null, "Email", "NAME"), new ArrayList<String>(row.keySet()));
+        assertEquals(4, row.entrySet().size());
+    }
+
+    @Test
+    public void testColumnsAreUnmodifiable() {
+        TableHeader header = new TableHeader(new ArrayList<String>(Arrays.asList("Id", "Name")));
+        try {
+            header.getColumns().add("Email");
+            fail("header columns should not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertSame(header.getColumns(), header.getColumns());
+    }
+
+    @Test
+    public void testMapViews() {
+        TableRow row = new TableRow(new TableHeader(Arrays.asList("Id", "Name", "Email")));
+        row.put("Id", "001");
+        row.put("NAME", "Acme");
+
+        assertTrue(row.containsKey("Name"));
+        assertFalse(row.containsKey("Phone"));
+        assertTrue(row.keySet().contains("Email"));
+        assertEquals(Arrays.asList("Id", "Name", "Email"), new ArrayList<String>(row.keySet()));
+
+        Map<String, Object> expected = new HashMap<String, Object>();
+        expected.put("Id", "001");
+        expected.put("Name", "Acme");
+        expected.put("Email", null);
+        Map<String, Object> actual = new HashMap<String, Object>();
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            actual.put(entry.getKey(), entry.getValue());
+            if ("Email".equals(entry.getKey())) {
+                entry.setValue("info@example.com");
+            }
+        }
+        assertEquals(expected, actual);
+        assertEquals("info@example.com", row.get("email"));
+    }
+
+    @Test
+    public void testChangingColumnsDoesNotAffectOtherRows() {
+        TableHeader header = new TableHeader(Arrays.asList("Id", "Name", "Email"));
+        TableRow row = new TableRow(header);
+        TableRow otherRow = new TableRow(header);
+        row.put("Id", "001");
+        row.put("Name", "Acme");
+        row.put("Email", "info@example.com");
+
+        assertEquals("Acme", row.remove("name"));
+        assertEquals(2, row.size());
+        assertEquals("info@example.com", row.get("Email"));
+        assertEquals(1, row.getHeader().getColumnIndex("Email"));
+
+        row.addHeaderColumn("Phone");
+        row.put("Phone", "555-0100");
+        assertEquals("555-0100", row.getValueAt(2));
+
+        assertSame(header, otherRow.getHeader());
+        assertEquals(3, otherRow.size());
+        assertEquals(Arrays.asList("Id", "Name", "Email"), header.getColumns());
+    }
+}
@@ -110,4 +110,18 @@ public class DAORowUtilTest extends ConfigTestBase {
                 "1234567890",
                 result);
     }
+    @Test
+    public void testTenDigitPhoneFieldValueWithNonAsciiDigits() {
+        String result = DAORowUtil.getPhoneFieldValue("\u0661\u0662\u0663\u0664\u0665\u0666\u0667\u0668\u0669\u0660", "en_US");
+        assertEquals("incorrect conversion: ", 
+                "\u0661\u0662\u0663\u0664\u0665\u0666\u0667\u0668\u0669\u0660",
+                result);
+    }
+    @Test
+    public void testTenDigitPhoneFieldValueWithSeparators() {
+        String result = DAORowUtil.getPhoneFieldValue("123-456-78", "en_US");
+        assertEquals("incorrect conversion: ", 
+                "123-456-78",
+                result);
+    }
 }